@@ -0,0 +1,7 @@
+-- Patch: 기댓값 비교 규칙 사용 여부 (기존 케이스는 N, 기댓값을 적힌 그대로 비교)
+SET DEFINE OFF;
+
+ALTER TABLE TEST_CASE ADD (MATCH_RULES CHAR(1) DEFAULT 'N');
+ALTER TABLE DIST_EXECUTION ADD (MATCH_RULES CHAR(1) DEFAULT 'N');
+
+COMMENT ON COLUMN TEST_CASE.MATCH_RULES IS 'Y: 기댓값의 trim:/num:/re:/like:/* 를 비교 규칙으로 해석, N: 적힌 그대로 비교';
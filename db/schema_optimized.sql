@@ -23,6 +23,7 @@ CREATE TABLE TEST_CASE (
     TAGS VARCHAR2(500),                            -- 태그 (쉼표 구분: "결제,취소,IC")
     CATEGORY VARCHAR2(100),                        -- 카테고리 (주유소, 충전소, 편의점)
     IS_ACTIVE CHAR(1) DEFAULT 'Y',                 -- 활성화 여부
+    MATCH_RULES CHAR(1) DEFAULT 'N',               -- Y: 기댓값의 trim:/num:/re:/like:/* 를 비교 규칙으로 해석, N: 적힌 그대로 비교
     LAST_RUN_AT TIMESTAMP,                         -- 마지막 실행 시간
     -- 파티셔닝 키
     PARTITION_DATE DATE DEFAULT TRUNC(SYSDATE)
@@ -254,6 +255,158 @@ CREATE INDEX IDX_SEARCH_LOG_KEYWORD ON TEST_SEARCH_LOG(SEARCH_KEYWORD);
 CREATE INDEX IDX_SEARCH_LOG_DATE ON TEST_SEARCH_LOG(SEARCHED_AT);
 
 
+-- 4-3. 회귀 실행 작업 (진행 상황 체크포인트)
+CREATE TABLE REGRESSION_JOB (
+    JOB_ID NUMBER PRIMARY KEY,
+    CATEGORY VARCHAR2(100),                        -- 케이스 선택 조건 (NULL: 조건 없음)
+    VERSION_STATUS VARCHAR2(20),
+    PRIORITY VARCHAR2(20),
+    PARALLELISM NUMBER,                            -- 동시에 실행하는 케이스 수
+    ENGINE VARCHAR2(20),                           -- BLOCKING, NIO
+    STATUS VARCHAR2(20),                           -- RUNNING, COMPLETED, CANCELLED, FAILED
+    LAST_CASE_ID NUMBER,                           -- 이 케이스까지 모두 완료 (재시작 시 다음 케이스부터)
+    TOTAL_CASES NUMBER,
+    FINISHED_CASES NUMBER,
+    FAILED_CASES NUMBER,
+    TOTAL_STEPS NUMBER,
+    PASSED_STEPS NUMBER,
+    FAILED_STEPS NUMBER,
+    ERROR_MESSAGE VARCHAR2(1000),
+    CREATED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UPDATED_AT TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FINISHED_AT TIMESTAMP
+);
+
+CREATE SEQUENCE SEQ_REGRESSION_JOB START WITH 1 INCREMENT BY 1;
+CREATE INDEX IDX_REGRESSION_JOB_STATUS ON REGRESSION_JOB(STATUS);
+-- 대상 케이스 키셋 조회 (CATEGORY/VERSION_STATUS 조건 + CASE_ID 순)
+CREATE INDEX IDX_CASE_REGRESSION ON TEST_CASE(IS_ACTIVE, CATEGORY, VERSION_STATUS, CASE_ID);
+
+COMMENT ON TABLE REGRESSION_JOB IS '회귀 실행 작업 (전체 카탈로그 실행 진행 상황)';
+
+
+-- 4-4. 실행 이력 (실행 중 백그라운드 배치로 기록)
+CREATE TABLE TEST_RUN (
+    EXECUTION_ID VARCHAR2(36) PRIMARY KEY,
+    CASE_ID NUMBER,                                -- 저장된 케이스 실행일 때만
+    ENGINE VARCHAR2(20),                           -- BLOCKING, NIO
+    PARALLEL_YN CHAR(1),
+    STATUS VARCHAR2(20),                           -- RUNNING, COMPLETED, CANCELLED, TIMEOUT
+    TOTAL_STEPS NUMBER,
+    COMPLETED_STEPS NUMBER,
+    PASSED_STEPS NUMBER,
+    FAILED_STEPS NUMBER,
+    TIMED_OUT_STEPS NUMBER,
+    STARTED_AT TIMESTAMP,
+    FINISHED_AT TIMESTAMP
+);
+
+CREATE INDEX IDX_TEST_RUN_CASE ON TEST_RUN(CASE_ID, STARTED_AT);
+
+COMMENT ON TABLE TEST_RUN IS '실행 이력 (실행 단위 집계)';
+
+
+-- 4-5. 실행 이력 스텝 결과 (불일치 필드만 저장)
+CREATE TABLE TEST_RUN_STEP (
+    RUN_STEP_ID NUMBER PRIMARY KEY,
+    EXECUTION_ID VARCHAR2(36) NOT NULL,
+    SEQ NUMBER NOT NULL,                           -- 실행 안에서 기록된 순서 (1부터)
+    SCENARIO_INDEX NUMBER,
+    SCENARIO_NAME VARCHAR2(200),
+    STEP_INDEX NUMBER,
+    CASE_NO VARCHAR2(10),
+    PRIORITY VARCHAR2(20),
+    STATUS VARCHAR2(30),                           -- PASS, FAIL, TIMEOUT, CANCELLED, SKIPPED_TARGET_DOWN
+    EXECUTED_AT TIMESTAMP,
+    EXECUTION_TIME_MS NUMBER,
+    ERROR_MESSAGE VARCHAR2(1000),
+    REQUEST_JSON CLOB,                             -- PASS 가 아닌 스텝만, PASS 는 NULL
+    MISMATCH_JSON CLOB                             -- 불일치 필드만, 모두 일치하면 NULL
+);
+
+-- 배치 INSERT 마다 번호를 받으므로 캐시를 크게
+CREATE SEQUENCE SEQ_TEST_RUN_STEP START WITH 1 INCREMENT BY 1 CACHE 1000;
+CREATE UNIQUE INDEX IDX_RUN_STEP_EXECUTION ON TEST_RUN_STEP(EXECUTION_ID, SEQ);
+CREATE INDEX IDX_RUN_STEP_STATUS ON TEST_RUN_STEP(EXECUTION_ID, STATUS);
+
+COMMENT ON TABLE TEST_RUN_STEP IS '실행 이력 스텝 결과';
+
+-- 4-6. 분산 실행 작업 큐 (여러 인스턴스가 시나리오 단위 샤드를 나눠서 실행)
+CREATE TABLE DIST_EXECUTION (
+    EXECUTION_ID VARCHAR2(36) PRIMARY KEY,
+    CASE_ID NUMBER,                                -- 저장된 케이스 실행일 때만
+    ENGINE VARCHAR2(20),                           -- BLOCKING, NIO
+    MAX_CONCURRENCY NUMBER,
+    MATCH_RULES CHAR(1) DEFAULT 'N',               -- 기댓값 비교 규칙 사용 여부 (TEST_CASE.MATCH_RULES 와 같음)
+    STATUS VARCHAR2(20),                           -- RUNNING, COMPLETED, CANCELLED
+    TOTAL_SHARDS NUMBER,
+    TOTAL_STEPS NUMBER,
+    CREATED_AT TIMESTAMP,
+    FINISHED_AT TIMESTAMP
+);
+
+CREATE TABLE DIST_SHARD (
+    SHARD_ID NUMBER PRIMARY KEY,
+    EXECUTION_ID VARCHAR2(36) NOT NULL,
+    SHARD_INDEX NUMBER NOT NULL,                   -- 실행 안의 시나리오 순서
+    SCENARIO_ID NUMBER,                            -- 저장된 시나리오 (워커가 TEST_STEP 에서 읽음)
+    SCENARIO_NAME VARCHAR2(200),
+    STEP_COUNT NUMBER,
+    SCENARIO_JSON CLOB,                            -- 입력으로 받은 시나리오 (SCENARIO_ID 가 없을 때)
+    STATUS VARCHAR2(20),                           -- PENDING, CLAIMED, DONE, FAILED
+    WORKER_ID VARCHAR2(200),                       -- CLAIMED 일 때 담당 워커
+    LEASE_UNTIL TIMESTAMP,                         -- DB 시각 기준, 지나면 다른 워커가 가져감
+    ATTEMPTS NUMBER DEFAULT 0,
+    COMPLETED_STEPS NUMBER,
+    PASSED_STEPS NUMBER,
+    FAILED_STEPS NUMBER,
+    TIMED_OUT_STEPS NUMBER,
+    RESULT_JSON CLOB,                              -- 시나리오 결과
+    FINISHED_AT TIMESTAMP
+);
+
+CREATE SEQUENCE SEQ_DIST_SHARD START WITH 1 INCREMENT BY 1 CACHE 100;
+-- 가져갈 샤드 검색 (FOR UPDATE SKIP LOCKED)
+CREATE INDEX IDX_DIST_SHARD_STATUS ON DIST_SHARD(STATUS, SHARD_ID);
+CREATE INDEX IDX_DIST_SHARD_WORKER ON DIST_SHARD(WORKER_ID, STATUS);
+CREATE UNIQUE INDEX IDX_DIST_SHARD_EXECUTION ON DIST_SHARD(EXECUTION_ID, SHARD_INDEX);
+
+CREATE TABLE DIST_WORKER (
+    WORKER_ID VARCHAR2(200) PRIMARY KEY,           -- 호스트:PID:임의값
+    HOST VARCHAR2(200),
+    STARTED_AT TIMESTAMP,
+    HEARTBEAT_AT TIMESTAMP
+);
+
+COMMENT ON TABLE DIST_EXECUTION IS '분산 실행';
+COMMENT ON TABLE DIST_SHARD IS '분산 실행 샤드 (시나리오 단위)';
+COMMENT ON TABLE DIST_WORKER IS '분산 실행 워커 (하트비트)';
+
+-- 4-7. Mock 서버 응답 규칙 (app.tcp.mock.rules.source=DB 일 때 사용)
+CREATE TABLE MOCK_RULE (
+    RULE_ID NUMBER PRIMARY KEY,
+    RULE_NAME VARCHAR2(200),
+    PRIORITY NUMBER DEFAULT 0,                     -- 작을수록 먼저, 같으면 RULE_ID 순
+    CARD_PREFIX VARCHAR2(16),                      -- 조건 (NULL: 조건 없음)
+    CARD_FROM VARCHAR2(16),                        -- BIN 범위, CARD_TO 와 같은 자릿수
+    CARD_TO VARCHAR2(16),
+    AMOUNT_MIN NUMBER,
+    AMOUNT_MAX NUMBER,
+    REQUEST_METHOD VARCHAR2(10),
+    RESPONSE_JSON CLOB,                            -- 응답 필드 값, approvalNo 가 없으면 요청마다 생성
+    PROFILE_NAME VARCHAR2(100),                    -- 장애 주입 프로필 (mock-profiles.json 의 name, NULL: 없음)
+    TRANSACTION_TYPE VARCHAR2(10),                 -- APPROVE: 승인 저장, CANCEL: 원거래 확인 후 취소, NULL: 없음
+    USE_YN CHAR(1) DEFAULT 'Y',
+    CREATED_AT TIMESTAMP,
+    UPDATED_AT TIMESTAMP                           -- 건수와 함께 변경 감지에 사용, 직접 수정 시에도 갱신할 것
+);
+
+CREATE SEQUENCE SEQ_MOCK_RULE START WITH 1 INCREMENT BY 1;
+CREATE INDEX IDX_MOCK_RULE_USE ON MOCK_RULE(USE_YN, PRIORITY);
+
+COMMENT ON TABLE MOCK_RULE IS 'Mock 서버 응답 규칙';
+
+
 -- ========================================
 -- 5. 고속 검색을 위한 프로시저
 -- ========================================
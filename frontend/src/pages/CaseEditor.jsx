@@ -11,6 +11,7 @@ export default function CaseEditor() {
   const [form, setForm] = useState({
     title: '',
     note: '',
+    matchRules: false,
     scenarios: []
   });
   const [selectedSteps, setSelectedSteps] = useState({});
@@ -18,6 +19,8 @@ export default function CaseEditor() {
   const [batchMode, setBatchMode] = useState('basic'); // 'basic' or 'conditional'
   const [lastSelectedKey, setLastSelectedKey] = useState(null);
   const [parallelExecution, setParallelExecution] = useState(true);
+  // 마지막으로 불러오거나 저장한 폼 (편집 전이면 저장된 케이스를 서버에서 바로 실행)
+  const [savedForm, setSavedForm] = useState(null);
 
   useEffect(() => {
     if (id && id !== 'new') {
@@ -46,6 +49,7 @@ export default function CaseEditor() {
       }));
       
       setForm(data);
+      setSavedForm(data);
     } catch (error) {
       console.error('Failed to load case:', error);
       alert('케이스를 불러올 수 없습니다');
@@ -67,11 +71,13 @@ export default function CaseEditor() {
       const payload = {
         title: form.title,
         note: form.note,
+        matchRules: !!form.matchRules,
         scenarios: form.scenarios
       };
 
       if (id && id !== 'new') {
         await testCaseApi.update(id, payload);
+        setSavedForm(form);
         alert('저장되었습니다');
         // 편집기에 그대로 머묾
       } else {
@@ -88,6 +94,18 @@ export default function CaseEditor() {
     }
   };
 
+  const showResult = (executionId) => {
+    // Navigate to result view
+    navigate('/test-result', { 
+      state: { 
+        executionId,
+        caseTitle: form.title,
+        caseNote: form.note,
+        parallelExecution
+      } 
+    });
+  };
+
   const handleExecuteTest = async () => {
     if (form.scenarios.length === 0) {
       alert('실행할 시나리오가 없습니다');
@@ -103,12 +121,33 @@ export default function CaseEditor() {
       }
     }
 
+    // Whole saved case, unchanged since load/save: the server reads the steps from the database
+    const runStoredCase = id && id !== 'new' && selectedCount === 0 && form === savedForm;
+
     try {
       setLoading(true);
       
+      if (runStoredCase) {
+        const response = await fetch(`http://localhost:8080/api/test-execution/cases/${id}`, {
+          method: 'POST',
+          headers: {
+            'Content-Type': 'application/json',
+          },
+          body: JSON.stringify({ parallel: parallelExecution }),
+        });
+
+        if (!response.ok) {
+          throw new Error('Failed to start test execution');
+        }
+
+        showResult(await response.text());
+        return;
+      }
+      
       // Convert form data to execution request format
       const executionRequest = {
         parallel: parallelExecution,
+        matchRules: !!form.matchRules,
         scenarios: form.scenarios.map((scenario, sIdx) => {
           // Filter steps based on selection
           const filteredSteps = selectedCount > 0 
@@ -155,17 +194,7 @@ export default function CaseEditor() {
         throw new Error('Failed to start test execution');
       }
 
-      const executionId = await response.text();
-      
-      // Navigate to result view
-      navigate('/test-result', { 
-        state: { 
-          executionId,
-          caseTitle: form.title,
-          caseNote: form.note,
-          parallelExecution
-        } 
-      });
+      showResult(await response.text());
       
     } catch (error) {
       console.error('Test execution failed:', error);
@@ -587,6 +616,14 @@ export default function CaseEditor() {
               />
             </div>
           </div>
+          <label className="flex items-center gap-2 mt-3 text-xs">
+            <input
+              type="checkbox"
+              checked={!!form.matchRules}
+              onChange={(e) => setForm(prev => ({ ...prev, matchRules: e.target.checked }))}
+            />
+            기댓값 비교 규칙 사용 (<code>*</code>, <code>trim:</code>, <code>num:</code>, <code>re:</code>, <code>like:</code>, <code>eq:</code>) - 끄면 기댓값을 적힌 그대로 비교
+          </label>
         </div>
 
         {/* Scenarios */}
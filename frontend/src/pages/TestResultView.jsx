@@ -1,6 +1,9 @@
 import React, { useState, useEffect } from 'react';
 import { useLocation, useNavigate } from 'react-router-dom';
-import { Pause, Play, ChevronLeft } from 'lucide-react';
+import { Pause, Play, Square, ChevronLeft } from 'lucide-react';
+
+// 실행이 끝난 상태: 정상 완료, 사용자 취소, 실행 제한 시간 초과
+const FINISHED_STATUSES = ['COMPLETED', 'CANCELLED', 'TIMEOUT'];
 
 function TestResultView() {
   const location = useLocation();
@@ -27,26 +30,122 @@ function TestResultView() {
       return;
     }
 
-    const pollInterval = setInterval(() => {
-      fetchResult();
-    }, 500);
+    // 스트림/폴링으로 받은 결과는 버퍼에 모아두고 일정 주기로 한 번에 반영 (스텝마다 렌더링하지 않음)
+    const buffer = { result: null, lastSeq: 0, dirty: false, polling: false };
+    const applyStep = (event) => {
+      const scenarios = buffer.result.scenarioResults;
+      let scenario = scenarios.find((s) => s.scenarioIndex === event.scenarioIndex);
+      if (!scenario) {
+        scenario = { scenarioIndex: event.scenarioIndex, scenarioName: event.scenarioName, status: 'RUNNING', stepResults: [] };
+        scenarios.push(scenario);
+        scenarios.sort((a, b) => a.scenarioIndex - b.scenarioIndex);
+      }
+      // 스냅샷에 이미 포함된 스텝은 건너뜀
+      if (event.stepIndex >= scenario.stepResults.length) {
+        scenario.stepResults.push(event.stepResult);
+      }
+      buffer.dirty = true;
+    };
 
-    return () => clearInterval(pollInterval);
-  }, [executionId]);
+    const loadResult = async () => {
+      try {
+        const response = await fetch(`http://localhost:8080/api/test-execution/${executionId}`);
+        buffer.result = await response.json();
+        buffer.lastSeq = buffer.result.lastSeq;
+        buffer.dirty = true;
+      } catch (error) {
+        console.error('Error fetching result:', error);
+      }
+    };
 
-  const fetchResult = async () => {
-    try {
-      const response = await fetch(`http://localhost:8080/api/test-execution/${executionId}`);
-      const data = await response.json();
-      setResult(data);
-      
-      if (data.status === 'COMPLETED' || data.status === 'PAUSED') {
-        setLoading(false);
+    // 폴링: 처음 한 번 전체 결과를 받고, 이후에는 sinceSeq 이후 완료된 스텝과 카운터만 조회
+    let pollInterval = null;
+    const pollDelta = async () => {
+      // 이전 조회가 끝나지 않았으면 이번 주기는 건너뜀
+      if (buffer.polling) return;
+      buffer.polling = true;
+      try {
+        if (!buffer.result) {
+          await loadResult();
+          return;
+        }
+        const response = await fetch(
+          `http://localhost:8080/api/test-execution/${executionId}?sinceSeq=${buffer.lastSeq}`
+        );
+        const delta = await response.json();
+        delta.steps.forEach(applyStep);
+        Object.assign(buffer.result, delta.progress);
+        buffer.lastSeq = delta.lastSeq;
+        buffer.dirty = true;
+
+        if (FINISHED_STATUSES.includes(delta.progress.status) && !delta.hasMore) {
+          clearInterval(pollInterval);
+          loadResult();
+        }
+      } catch (error) {
+        console.error('Error fetching result:', error);
+      } finally {
+        buffer.polling = false;
       }
-    } catch (error) {
-      console.error('Error fetching result:', error);
+    };
+    const startPolling = () => {
+      if (pollInterval) return;
+      buffer.result = null;
+      pollDelta();
+      pollInterval = setInterval(pollDelta, 500);
+    };
+
+    // 실행 결과 스트림: 스냅샷 이후 완료된 스텝과 진행률을 push 로 받음
+    const source = typeof EventSource !== 'undefined'
+      ? new EventSource(`http://localhost:8080/api/test-execution/${executionId}/stream`)
+      : null;
+    if (source) {
+      source.addEventListener('snapshot', (e) => {
+        buffer.result = JSON.parse(e.data);
+        buffer.dirty = true;
+      });
+      source.addEventListener('step', (e) => applyStep(JSON.parse(e.data)));
+      source.addEventListener('progress', (e) => {
+        Object.assign(buffer.result, JSON.parse(e.data));
+        buffer.dirty = true;
+      });
+      source.addEventListener('complete', () => {
+        // 시나리오별 최종 상태는 마지막 결과 조회로 반영
+        source.close();
+        loadResult();
+      });
+      source.addEventListener('overflow', () => {
+        // 클라이언트가 따라가지 못해 서버가 스트림을 끊은 경우 폴링으로 전환
+        source.close();
+        startPolling();
+      });
+      source.onerror = () => {
+        source.close();
+        startPolling();
+      };
+    } else {
+      startPolling();
     }
-  };
+
+    const flushInterval = setInterval(() => {
+      if (!buffer.dirty || !buffer.result) return;
+      buffer.dirty = false;
+      const data = buffer.result;
+      setResult({
+        ...data,
+        scenarioResults: data.scenarioResults.map((s) => ({ ...s, stepResults: [...s.stepResults] })),
+      });
+      if (FINISHED_STATUSES.includes(data.status) || data.status === 'PAUSED') {
+        setLoading(false);
+      }
+    }, 200);
+
+    return () => {
+      if (source) source.close();
+      clearInterval(flushInterval);
+      clearInterval(pollInterval);
+    };
+  }, [executionId]);
 
   const handlePause = async () => {
     try {
@@ -71,6 +170,16 @@ function TestResultView() {
     }
   };
 
+  const handleCancel = async () => {
+    try {
+      await fetch(`http://localhost:8080/api/test-execution/${executionId}/cancel`, {
+        method: 'POST'
+      });
+    } catch (error) {
+      console.error('Error cancelling execution:', error);
+    }
+  };
+
   if (!result) {
     return (
       <div className="min-h-screen bg-gray-50 flex items-center justify-center">
@@ -121,6 +230,15 @@ function TestResultView() {
                 재개
               </button>
             )}
+            {(result.status === 'RUNNING' || result.status === 'PAUSED') && (
+              <button
+                onClick={handleCancel}
+                className="flex items-center gap-2 px-4 py-2 bg-red-500 text-white rounded-lg hover:bg-red-600"
+              >
+                <Square size={20} />
+                취소
+              </button>
+            )}
           </div>
         </div>
 
@@ -168,7 +286,8 @@ function TestResultView() {
               </span>
               <span className="text-sm">
                 성공: <span className="text-green-600 font-bold">{result.passedSteps}</span> / 
-                실패: <span className="text-red-600 font-bold">{result.failedSteps}</span>
+                실패: <span className="text-red-600 font-bold">{result.failedSteps}</span> / 
+                타임아웃: <span className="text-orange-600 font-bold">{result.timedOutSteps || 0}</span>
               </span>
             </div>
             <div className="w-full bg-gray-200 rounded-full h-4">
@@ -181,10 +300,12 @@ function TestResultView() {
         )}
 
         {/* Summary */}
-        {result.status === 'COMPLETED' && (
+        {FINISHED_STATUSES.includes(result.status) && (
           <div className="mb-6 bg-white p-4 rounded shadow">
-            <h2 className="text-xl font-bold mb-2">실행 완료</h2>
-            <div className="grid grid-cols-4 gap-4">
+            <h2 className="text-xl font-bold mb-2">
+              {result.status === 'CANCELLED' ? '실행 취소됨' : result.status === 'TIMEOUT' ? '실행 시간 초과' : '실행 완료'}
+            </h2>
+            <div className="grid grid-cols-5 gap-4">
               <div className="text-center">
                 <div className="text-2xl font-bold">{result.totalSteps}</div>
                 <div className="text-sm text-gray-600">총 케이스</div>
@@ -197,6 +318,10 @@ function TestResultView() {
                 <div className="text-2xl font-bold text-red-600">{result.failedSteps}</div>
                 <div className="text-sm text-gray-600">실패</div>
               </div>
+              <div className="text-center">
+                <div className="text-2xl font-bold text-orange-600">{result.timedOutSteps || 0}</div>
+                <div className="text-sm text-gray-600">타임아웃</div>
+              </div>
               <div className="text-center">
                 <div className="text-2xl font-bold text-blue-600">
                   {result.totalSteps > 0 ? ((result.passedSteps / result.totalSteps) * 100).toFixed(1) : 0}%
@@ -218,6 +343,11 @@ function TestResultView() {
               {scenario.status === 'COMPLETED' && (
                 <span className="text-sm bg-green-100 text-green-800 px-2 py-1 rounded">완료</span>
               )}
+              {(scenario.status === 'CANCELLED' || scenario.status === 'TIMEOUT') && (
+                <span className="text-sm bg-gray-200 text-gray-800 px-2 py-1 rounded">
+                  {scenario.status === 'CANCELLED' ? '취소' : '시간 초과'}
+                </span>
+              )}
             </h3>
 
             {scenario.stepResults && scenario.stepResults.length > 0 && (
@@ -272,6 +402,15 @@ function TestResultView() {
                           {step.status === 'FAIL' && (
                             <span className="bg-red-500 text-white px-2 py-1 rounded text-xs font-bold">FAIL</span>
                           )}
+                          {step.status === 'TIMEOUT' && (
+                            <span className="bg-orange-500 text-white px-2 py-1 rounded text-xs font-bold">TIMEOUT</span>
+                          )}
+                          {step.status === 'CANCELLED' && (
+                            <span className="bg-gray-500 text-white px-2 py-1 rounded text-xs font-bold">CANCELLED</span>
+                          )}
+                          {step.status === 'SKIPPED_TARGET_DOWN' && (
+                            <span className="bg-gray-400 text-white px-2 py-1 rounded text-xs font-bold" title={step.errorMessage}>SKIPPED</span>
+                          )}
                           {step.status === 'RUNNING' && (
                             <span className="bg-blue-500 text-white px-2 py-1 rounded text-xs">실행중</span>
                           )}
@@ -297,7 +436,7 @@ function TestResultView() {
                             }}
                           >
                             {comparison.match ? (
-                              <div className="text-center text-[11px]">{comparison.actualValue}</div>
+                              <div className="text-center text-[11px]">{comparison.actualValue ?? comparison.expectedValue}</div>
                             ) : (
                               <div className="flex flex-col items-center">
                                 <div className="text-[10px] text-gray-600 border-b border-gray-400 pb-0.5 mb-0.5 w-full text-center">
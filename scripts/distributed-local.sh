@@ -0,0 +1,80 @@
+#!/usr/bin/env bash
+# 분산 실행을 한 대의 PC 에서 여러 JVM 과 로컬 Oracle DB 로 확인
+#
+#   scripts/distributed-local.sh db          # Oracle XE 컨테이너 시작 + db/schema_optimized.sql 적용 (app_user/app_pass)
+#   scripts/distributed-local.sh test        # 분산 작업 큐/워커 테스트 (DistributedWorkQueueTest, DistributedWorkerProcessesTest)
+#   scripts/distributed-local.sh workers 3   # 워커 인스턴스 N 개 실행 (포트 8080~, 로그는 target/distributed-worker-*.log)
+#   scripts/distributed-local.sh stop        # 워커 인스턴스와 컨테이너 종료
+#
+# 워커 인스턴스는 첫 번째(8080)만 TCP Mock 서버(9090)로 동작하고 모두 그 Mock 으로 요청,
+# 실행 등록은 어느 인스턴스에나: POST http://localhost:8080/api/distributed-executions
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+
+CONTAINER=${CONTAINER:-api-test-oracle}
+IMAGE=${IMAGE:-gvenzl/oracle-xe:21-slim}
+DB_PORT=${DB_PORT:-1521}
+JDBC_URL="jdbc:oracle:thin:@localhost:${DB_PORT}/XEPDB1"
+DB_USER=app_user
+DB_PASSWORD=app_pass
+
+start_db() {
+    if ! docker ps -a --format '{{.Names}}' | grep -qx "$CONTAINER"; then
+        docker run -d --name "$CONTAINER" -p "${DB_PORT}:1521" \
+            -e ORACLE_PASSWORD=oracle -e APP_USER="$DB_USER" -e APP_USER_PASSWORD="$DB_PASSWORD" "$IMAGE" >/dev/null
+    else
+        docker start "$CONTAINER" >/dev/null
+    fi
+    echo "Oracle 기동 대기..."
+    until docker logs "$CONTAINER" 2>&1 | grep -q "DATABASE IS READY TO USE"; do
+        sleep 5
+    done
+    # 이미 적용된 DB 면 테이블 생성 오류만 나고 그대로 사용
+    if ! docker exec "$CONTAINER" bash -c "echo 'SELECT COUNT(*) FROM DIST_SHARD;' | sqlplus -s ${DB_USER}/${DB_PASSWORD}@XEPDB1" \
+            | grep -q "ORA-00942"; then
+        echo "스키마 적용됨: $JDBC_URL"
+        return
+    fi
+    docker cp db/schema_optimized.sql "$CONTAINER":/tmp/schema_optimized.sql
+    docker exec "$CONTAINER" bash -c "echo exit | sqlplus -s ${DB_USER}/${DB_PASSWORD}@XEPDB1 @/tmp/schema_optimized.sql" >/dev/null
+    echo "스키마 적용: $JDBC_URL"
+}
+
+run_tests() {
+    mvn -B test -Dtest='DistributedWorkQueueTest,DistributedWorkerProcessesTest' \
+        -Ddistributed.test.jdbc-url="$JDBC_URL" \
+        -Ddistributed.test.username="$DB_USER" -Ddistributed.test.password="$DB_PASSWORD"
+}
+
+start_workers() {
+    local count=${1:-3}
+    mvn -B -q package -DskipTests
+    local jar
+    jar=$(ls target/api-test-tool-*.jar | grep -v original | head -1)
+    for ((i = 0; i < count; i++)); do
+        java -jar "$jar" --server.port=$((8080 + i)) --app.distributed.enabled=true \
+            --spring.datasource.url="$JDBC_URL" --spring.datasource.username="$DB_USER" \
+            --spring.datasource.password="$DB_PASSWORD" \
+            > "target/distributed-worker-${i}.log" 2>&1 &
+        echo $! >> target/distributed-workers.pid
+        echo "워커 $i: http://localhost:$((8080 + i)) (PID $!)"
+    done
+    echo "워커 목록: curl http://localhost:8080/api/distributed-executions/workers"
+}
+
+stop_all() {
+    if [ -f target/distributed-workers.pid ]; then
+        xargs kill < target/distributed-workers.pid 2>/dev/null || true
+        rm -f target/distributed-workers.pid
+    fi
+    docker stop "$CONTAINER" >/dev/null 2>&1 || true
+}
+
+case "${1:-}" in
+    db) start_db ;;
+    test) run_tests ;;
+    workers) start_workers "${2:-3}" ;;
+    stop) stop_all ;;
+    *) sed -n '2,11p' "$0"; exit 1 ;;
+esac
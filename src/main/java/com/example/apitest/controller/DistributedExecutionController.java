@@ -0,0 +1,65 @@
+package com.example.apitest.controller;
+
+import com.example.apitest.dto.TestExecutionRequest;
+import com.example.apitest.dto.TestExecutionResult;
+import com.example.apitest.service.DistributedExecutionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/distributed-executions")
+public class DistributedExecutionController {
+    
+    @Autowired
+    private DistributedExecutionService distributedExecutionService;
+    
+    @PostMapping
+    public ResponseEntity<?> startExecution(@RequestBody TestExecutionRequest request) {
+        try {
+            return ResponseEntity.ok(distributedExecutionService.startExecution(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    @PostMapping("/cases/{caseId}")
+    public ResponseEntity<?> startCaseExecution(@PathVariable Long caseId,
+                                                @RequestBody(required = false) TestExecutionRequest options) {
+        try {
+            return ResponseEntity.ok(distributedExecutionService.startCaseExecution(caseId, options));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    @GetMapping("/workers")
+    public ResponseEntity<List<Map<String, Object>>> getWorkers() {
+        return ResponseEntity.ok(distributedExecutionService.getWorkers());
+    }
+    
+    @GetMapping("/{executionId}")
+    public ResponseEntity<TestExecutionResult> getResult(@PathVariable String executionId) {
+        TestExecutionResult result = distributedExecutionService.getResult(executionId);
+        if (result == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(result);
+    }
+    
+    @GetMapping("/{executionId}/shards")
+    public ResponseEntity<List<Map<String, Object>>> getShards(@PathVariable String executionId) {
+        return ResponseEntity.ok(distributedExecutionService.getShards(executionId));
+    }
+    
+    @PostMapping("/{executionId}/cancel")
+    public ResponseEntity<Void> cancelExecution(@PathVariable String executionId) {
+        if (!distributedExecutionService.cancelExecution(executionId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+}
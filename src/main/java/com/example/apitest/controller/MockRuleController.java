@@ -0,0 +1,56 @@
+package com.example.apitest.controller;
+
+import com.example.apitest.mock.MockRuleRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/mock-rules")
+public class MockRuleController {
+    
+    @Autowired
+    private MockRuleRegistry mockRuleRegistry;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getRules() {
+        return ResponseEntity.ok(mockRuleRegistry.describe());
+    }
+    
+    /**
+     * 변경 감지를 기다리지 않고 바로 다시 읽기
+     */
+    @PostMapping("/reload")
+    public ResponseEntity<?> reload() {
+        try {
+            mockRuleRegistry.reload();
+            return ResponseEntity.ok(mockRuleRegistry.describe());
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * 규칙이 지정하지 않은 응답에 적용할 장애 프로필 변경 (재시작 없이)
+     */
+    @PostMapping("/profiles/active")
+    public ResponseEntity<?> activateProfile(@RequestParam String name) {
+        try {
+            mockRuleRegistry.activateProfile(name);
+            return ResponseEntity.ok(mockRuleRegistry.describe());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * 전체 적용 장애 프로필 해제 (규칙에 지정된 프로필은 그대로 적용)
+     */
+    @DeleteMapping("/profiles/active")
+    public ResponseEntity<Map<String, Object>> deactivateProfile() {
+        mockRuleRegistry.activateProfile(null);
+        return ResponseEntity.ok(mockRuleRegistry.describe());
+    }
+}
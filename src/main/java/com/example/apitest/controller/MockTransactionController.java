@@ -0,0 +1,36 @@
+package com.example.apitest.controller;
+
+import com.example.apitest.mock.MockTransactionStore;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/mock-transactions")
+public class MockTransactionController {
+    
+    @Autowired
+    private MockTransactionStore transactionStore;
+    
+    /**
+     * 발급한 승인번호 수, 저장/취소/취소 거절 건수
+     */
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatistics() {
+        return ResponseEntity.ok(transactionStore.describe());
+    }
+    
+    /**
+     * 승인번호의 상태 (APPROVED / CANCELLED), 저장소에 없으면 404
+     */
+    @GetMapping("/{approvalNo}")
+    public ResponseEntity<?> getTransaction(@PathVariable long approvalNo) {
+        String status = transactionStore.status(approvalNo);
+        if (status == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(Map.of("approvalNo", approvalNo, "status", status));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.apitest.controller;
+
+import com.example.apitest.dto.RegressionJobRequest;
+import com.example.apitest.entity.RegressionJobEntity;
+import com.example.apitest.service.RegressionJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/regression-jobs")
+public class RegressionJobController {
+    
+    @Autowired
+    private RegressionJobService regressionJobService;
+    
+    @PostMapping
+    public ResponseEntity<?> startJob(@RequestBody RegressionJobRequest request) {
+        try {
+            return ResponseEntity.ok(regressionJobService.startJob(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    @GetMapping
+    public ResponseEntity<List<RegressionJobEntity>> getRecentJobs() {
+        return ResponseEntity.ok(regressionJobService.getRecentJobs());
+    }
+    
+    @GetMapping("/{jobId}")
+    public ResponseEntity<RegressionJobEntity> getJob(@PathVariable Long jobId) {
+        RegressionJobEntity job = regressionJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
+    }
+    
+    @PostMapping("/{jobId}/cancel")
+    public ResponseEntity<Void> cancelJob(@PathVariable Long jobId) {
+        if (!regressionJobService.cancelJob(jobId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+    
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<?> resumeJob(@PathVariable Long jobId) {
+        try {
+            return ResponseEntity.ok(regressionJobService.resumeJob(jobId));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+}
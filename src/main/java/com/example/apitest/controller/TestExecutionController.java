@@ -1,11 +1,20 @@
 package com.example.apitest.controller;
 
+import com.example.apitest.dto.LoadTestRequest;
+import com.example.apitest.dto.LoadTestResult;
+import com.example.apitest.dto.TestExecutionDelta;
 import com.example.apitest.dto.TestExecutionRequest;
 import com.example.apitest.dto.TestExecutionResult;
+import com.example.apitest.service.TestCaseService;
 import com.example.apitest.service.TestExecutionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/test-execution")
@@ -14,14 +23,48 @@ public class TestExecutionController {
     @Autowired
     private TestExecutionService testExecutionService;
     
+    @Autowired
+    private TestCaseService testCaseService;
+    
     @PostMapping("/start")
-    public ResponseEntity<String> startExecution(@RequestBody TestExecutionRequest request) {
-        String executionId = testExecutionService.startExecution(request);
-        return ResponseEntity.ok(executionId);
+    public ResponseEntity<?> startExecution(@RequestBody TestExecutionRequest request) {
+        try {
+            String executionId = testExecutionService.startExecution(request);
+            return ResponseEntity.ok(executionId);
+        } catch (IllegalArgumentException e) {
+            // e.g. an expected value with an invalid re: pattern
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * Runs a stored case; its steps are read from the database while the run goes.
+     * The body takes the same options as /start (parallel, engine, ...), its scenarios are ignored.
+     */
+    @PostMapping("/cases/{caseId}")
+    public ResponseEntity<?> startCaseExecution(@PathVariable Long caseId,
+                                                @RequestBody(required = false) TestExecutionRequest options) {
+        try {
+            TestExecutionRequest request = testCaseService.getCaseAsExecutionRequest(caseId, options);
+            return ResponseEntity.ok(testExecutionService.startExecution(request));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
     }
     
     @GetMapping("/{executionId}")
-    public ResponseEntity<TestExecutionResult> getResult(@PathVariable String executionId) {
+    public ResponseEntity<?> getResult(@PathVariable String executionId,
+                                       @RequestParam(required = false) Long sinceSeq,
+                                       @RequestParam(defaultValue = "5000") int limit) {
+        if (sinceSeq != null) {
+            // Only the steps recorded after the cursor, plus the current counters
+            TestExecutionDelta delta = testExecutionService.getResultDelta(executionId, sinceSeq, limit);
+            if (delta == null) {
+                return ResponseEntity.notFound().build();
+            }
+            return ResponseEntity.ok(delta);
+        }
+        
         TestExecutionResult result = testExecutionService.getResult(executionId);
         if (result == null) {
             return ResponseEntity.notFound().build();
@@ -29,6 +72,15 @@ public class TestExecutionController {
         return ResponseEntity.ok(result);
     }
     
+    @GetMapping(value = "/{executionId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamExecution(@PathVariable String executionId) {
+        SseEmitter emitter = testExecutionService.streamExecution(executionId);
+        if (emitter == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+    
     @PostMapping("/{executionId}/pause")
     public ResponseEntity<Void> pauseExecution(@PathVariable String executionId) {
         testExecutionService.pauseExecution(executionId);
@@ -40,4 +92,39 @@ public class TestExecutionController {
         testExecutionService.resumeExecution(executionId);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/{executionId}/cancel")
+    public ResponseEntity<Void> cancelExecution(@PathVariable String executionId) {
+        if (!testExecutionService.cancelExecution(executionId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
+    
+    @PostMapping("/load/start")
+    public ResponseEntity<?> startLoadTest(@RequestBody LoadTestRequest request) throws IOException {
+        try {
+            return ResponseEntity.ok(testExecutionService.startLoadTest(request));
+        } catch (IllegalArgumentException e) {
+            // e.g. no steps or a ramp longer than the run; the NIO client failing to start is a server error
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    @GetMapping("/load/{loadTestId}")
+    public ResponseEntity<LoadTestResult> getLoadTestResult(@PathVariable String loadTestId) {
+        LoadTestResult result = testExecutionService.getLoadTestResult(loadTestId);
+        if (result == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(result);
+    }
+    
+    @PostMapping("/load/{loadTestId}/stop")
+    public ResponseEntity<Void> stopLoadTest(@PathVariable String loadTestId) {
+        if (!testExecutionService.stopLoadTest(loadTestId)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
 }
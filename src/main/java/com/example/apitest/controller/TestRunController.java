@@ -0,0 +1,61 @@
+package com.example.apitest.controller;
+
+import com.example.apitest.entity.TestRunEntity;
+import com.example.apitest.entity.TestRunStepEntity;
+import com.example.apitest.service.TestRunService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/test-runs")
+public class TestRunController {
+    
+    @Autowired
+    private TestRunService testRunService;
+    
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getRuns(
+            @RequestParam(required = false) Long caseId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        Page<TestRunEntity> runPage = testRunService.getRuns(caseId, PageRequest.of(page, size));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("runs", runPage.getContent());
+        response.put("currentPage", page);
+        response.put("totalPages", runPage.getTotalPages());
+        response.put("totalItems", runPage.getTotalElements());
+        return ResponseEntity.ok(response);
+    }
+    
+    @GetMapping("/{executionId}")
+    public ResponseEntity<TestRunEntity> getRun(@PathVariable String executionId) {
+        TestRunEntity run = testRunService.getRun(executionId);
+        if (run == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(run);
+    }
+    
+    @GetMapping("/{executionId}/steps")
+    public ResponseEntity<Map<String, Object>> getRunSteps(
+            @PathVariable String executionId,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "100") int size) {
+        Page<TestRunStepEntity> stepPage = testRunService.getRunSteps(executionId, status, PageRequest.of(page, size));
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("steps", stepPage.getContent());
+        response.put("currentPage", page);
+        response.put("totalPages", stepPage.getTotalPages());
+        response.put("totalItems", stepPage.getTotalElements());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.apitest.dto;
+
+import lombok.Data;
+
+/**
+ * Counters of a running execution, without the step results.
+ */
+@Data
+public class ExecutionProgress {
+    private String executionId;
+    private String status; // RUNNING, PAUSED, COMPLETED, CANCELLED, TIMEOUT
+    private int totalSteps;
+    private int completedSteps;
+    private int passedSteps;
+    private int failedSteps;
+    private int timedOutSteps;
+    private int queuedSteps;
+    private int inFlightSteps;
+}
@@ -0,0 +1,19 @@
+package com.example.apitest.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Open-model load run: the case's steps are sent round-robin at a scheduled rate,
+ * independent of how fast the host answers.
+ */
+@Data
+public class LoadTestRequest {
+    private List<TestExecutionRequest.ScenarioExecution> scenarios;
+    private double targetTps; // requests per second once the ramp is over
+    private double startTps; // rate at the start of the ramp, 0 with rampSeconds = 0 means constant targetTps
+    private int rampSeconds; // linear ramp from startTps to targetTps
+    private int durationSeconds; // total duration including the ramp
+    private boolean matchRules; // expected values are rules, as in TestExecutionRequest
+    private int maxOutstanding; // requests awaiting a response before new ones are dropped, 0 = app.load.max-outstanding
+}
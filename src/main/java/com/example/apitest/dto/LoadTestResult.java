@@ -0,0 +1,50 @@
+package com.example.apitest.dto;
+
+import lombok.Data;
+import java.util.List;
+
+@Data
+public class LoadTestResult {
+    private String loadTestId;
+    private String status; // RUNNING, COMPLETED, STOPPED
+    private double targetTps;
+    private double startTps;
+    private int rampSeconds;
+    private int durationSeconds;
+    private long elapsedMs;
+    private long scheduledRequests; // due by the rate schedule so far
+    private long sentRequests;
+    private long completedRequests; // answered or failed
+    private long mismatchedRequests; // answered, but not as expected
+    private long transportErrors;
+    private long droppedRequests; // due but not sent because maxOutstanding was reached
+    private long unansweredRequests; // sent, but no response by the end of the drain timeout (or the stop)
+    private long outstandingRequests;
+    private double achievedTps; // completed requests per second
+    private double errorRate; // (mismatched + transport errors + dropped + unanswered) / scheduled
+    private LatencySummary latency; // from the scheduled send time, includes queueing behind slow responses and dropped requests
+    private LatencySummary serviceTime; // from the actual send time, sent requests only
+    private List<Interval> intervals; // per second of the run
+    
+    @Data
+    public static class LatencySummary {
+        private long count; // including unanswered
+        private long unanswered; // counted as slower than every answered request
+        private double meanMs; // answered requests only
+        // null when the percentile falls among the unanswered requests
+        private Double p50Ms;
+        private Double p90Ms;
+        private Double p99Ms;
+        private Double p999Ms;
+        private Double maxMs;
+    }
+    
+    @Data
+    public static class Interval {
+        private int second;
+        private double targetTps;
+        private long sent;
+        private long completed;
+        private long errors;
+    }
+}
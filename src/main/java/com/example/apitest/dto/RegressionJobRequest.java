@@ -0,0 +1,15 @@
+package com.example.apitest.dto;
+
+import lombok.Data;
+
+/**
+ * Regression run over stored cases: every active case matching the filters, in case ID order.
+ */
+@Data
+public class RegressionJobRequest {
+    private String category; // null = any
+    private String versionStatus; // DRAFT, PUBLISHED, null = any
+    private String priority; // cases with at least one step of this priority, null = any
+    private int parallelism; // cases running at once, 0 = app.regression.parallelism
+    private String engine = TestExecutionRequest.ENGINE_BLOCKING; // engine each case runs on
+}
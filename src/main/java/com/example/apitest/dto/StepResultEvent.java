@@ -0,0 +1,18 @@
+package com.example.apitest.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A step result pushed to execution stream subscribers as soon as it is recorded.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StepResultEvent {
+    private int scenarioIndex;
+    private String scenarioName;
+    private int stepIndex; // position within the scenario's stepResults
+    private TestExecutionResult.StepResult stepResult;
+}
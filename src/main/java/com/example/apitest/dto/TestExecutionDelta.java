@@ -0,0 +1,16 @@
+package com.example.apitest.dto;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Step results recorded after a sequence cursor, with the execution's current counters.
+ */
+@Data
+public class TestExecutionDelta {
+    private long sinceSeq;
+    private long lastSeq; // cursor for the next request
+    private boolean hasMore; // more steps are recorded than fit in this response
+    private ExecutionProgress progress;
+    private List<StepResultEvent> steps; // in sequence order
+}
@@ -6,12 +6,24 @@ import java.util.Map;
 
 @Data
 public class TestExecutionRequest {
+    public static final String ENGINE_BLOCKING = "BLOCKING";
+    public static final String ENGINE_NIO = "NIO";
+    public static final String TARGET_DOWN_FAIL_FAST = "FAIL_FAST";
+    public static final String TARGET_DOWN_PAUSE = "PAUSE";
+    
     private List<ScenarioExecution> scenarios;
     private boolean parallel = true; // default: parallel execution
+    private String engine = ENGINE_BLOCKING; // BLOCKING (thread per scenario), NIO (selector-based)
+    private int maxConcurrency; // steps in flight for this run, 0 = app.execution.default-max-concurrency
+    private long timeoutMs; // whole-run deadline, 0 = app.execution.timeout-ms
+    private String targetDownAction = TARGET_DOWN_FAIL_FAST; // circuit open: FAIL_FAST (skip steps), PAUSE (pause the run)
+    private boolean matchRules; // expected values like trim:/num:/re:/like:/* are rules (see FieldMatcher), otherwise literal
+    private Long caseId; // set when the steps are streamed from a stored case (see TestCaseService)
     
     @Data
     public static class ScenarioExecution {
         private String scenarioName;
+        private Long scenarioId; // stored scenario (see TestCaseService), null for inline steps
         private List<StepExecution> steps;
     }
     
@@ -1,36 +1,80 @@
 package com.example.apitest.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 @Data
 public class TestExecutionResult {
     private String executionId;
-    private String status; // RUNNING, PAUSED, COMPLETED
+    private String status; // RUNNING, PAUSED, COMPLETED, CANCELLED, TIMEOUT (execution deadline)
     private int totalSteps;
     private int completedSteps;
     private int passedSteps;
     private int failedSteps;
+    private int timedOutSteps; // not part of failedSteps
+    private int maxConcurrency;
+    private int queuedSteps; // steps waiting for a scheduler permit
+    private int inFlightSteps;
+    private double averageQueueWaitMs;
+    private double maxQueueWaitMs;
+    private long lastSeq; // every step up to this sequence is included, cursor for sinceSeq
     private List<ScenarioResult> scenarioResults;
     
     @Data
     public static class ScenarioResult {
+        private int scenarioIndex; // position in the request's scenarios
         private String scenarioName;
         private List<StepResult> stepResults;
-        private String status; // RUNNING, COMPLETED, FAILED
+        private String status; // RUNNING, COMPLETED, CANCELLED, TIMEOUT
     }
     
     @Data
     public static class StepResult {
+        private long seq; // order in which the execution recorded its steps, starting at 1
         private String caseNo;
         private String priority;
-        private String status; // PASS, FAIL, RUNNING, PENDING
+        private String status; // PASS, FAIL, TIMEOUT (connect/read/step deadline), CANCELLED, SKIPPED_TARGET_DOWN (circuit open), RUNNING, PENDING
         private Map<String, String> requestData; // Request fields
-        private Map<String, FieldComparison> fieldComparisons;
+        private Map<String, FieldComparison> fieldComparisons; // only set when read back, see getFieldComparisons
         private long executionTime; // milliseconds (duration)
         private long executionTimestamp; // timestamp in milliseconds
         private String errorMessage;
+        
+        // Compact comparison kept while running: the expected fields and values are shared by every step
+        // with the same expected data, only mismatched fields get a FieldComparison of their own
+        @JsonIgnore
+        private String[] expectedFields;
+        @JsonIgnore
+        private String[] expectedValues;
+        @JsonIgnore
+        private String[] actualValues; // by field, set for fields compared by a rule; null if every field is compared exactly
+        @JsonIgnore
+        private Map<String, FieldComparison> mismatches;
+        
+        /**
+         * Every expected field in order, expanded from the compact form when read.
+         * A matched field compared exactly has the expected value as its actual value.
+         */
+        public Map<String, FieldComparison> getFieldComparisons() {
+            if (expectedFields == null) {
+                return fieldComparisons;
+            }
+            Map<String, FieldComparison> comparisons = new LinkedHashMap<>();
+            for (int i = 0; i < expectedFields.length; i++) {
+                FieldComparison comparison = mismatches != null ? mismatches.get(expectedFields[i]) : null;
+                if (comparison == null) {
+                    comparison = new FieldComparison();
+                    comparison.setExpectedValue(expectedValues[i]);
+                    comparison.setActualValue(actualValues != null && actualValues[i] != null ? actualValues[i] : expectedValues[i]);
+                    comparison.setMatch(true);
+                }
+                comparisons.put(expectedFields[i], comparison);
+            }
+            return comparisons;
+        }
     }
     
     @Data
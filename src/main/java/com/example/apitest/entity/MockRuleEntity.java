@@ -0,0 +1,79 @@
+package com.example.apitest.entity;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "MOCK_RULE", indexes = {
+    @Index(name = "IDX_MOCK_RULE_USE", columnList = "USE_YN, PRIORITY")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MockRuleEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_mock_rule")
+    @SequenceGenerator(name = "seq_mock_rule", sequenceName = "SEQ_MOCK_RULE", allocationSize = 1)
+    @Column(name = "RULE_ID")
+    private Long ruleId;
+    
+    @Column(name = "RULE_NAME", length = 200)
+    private String ruleName;
+    
+    @Column(name = "PRIORITY")
+    private Integer priority;          // 작을수록 먼저, 같으면 RULE_ID 순
+    
+    // 📌 조건 (null: 조건 없음)
+    @Column(name = "CARD_PREFIX", length = 16)
+    private String cardPrefix;         // 카드번호 앞자리
+    
+    @Column(name = "CARD_FROM", length = 16)
+    private String cardFrom;           // BIN 범위 (CARD_TO 와 같은 자릿수)
+    
+    @Column(name = "CARD_TO", length = 16)
+    private String cardTo;
+    
+    @Column(name = "AMOUNT_MIN")
+    private Long amountMin;            // 결제금액 범위 (포함)
+    
+    @Column(name = "AMOUNT_MAX")
+    private Long amountMax;
+    
+    @Column(name = "REQUEST_METHOD", length = 10)
+    private String requestMethod;
+    
+    // 📌 응답 필드 값 (JSON), approvalNo 가 없으면 요청마다 생성
+    @Lob
+    @Column(name = "RESPONSE_JSON")
+    private String responseJson;
+    
+    @Column(name = "PROFILE_NAME", length = 100)
+    private String profileName;        // 장애 주입 프로필 (mock-profiles.json 의 name)
+    
+    @Column(name = "TRANSACTION_TYPE", length = 10)
+    private String transactionType;    // APPROVE: 승인 저장, CANCEL: 원거래 확인 후 취소
+    
+    @Column(name = "USE_YN", length = 1)
+    private String useYn;
+    
+    @Column(name = "CREATED_AT")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
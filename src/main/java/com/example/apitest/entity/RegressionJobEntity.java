@@ -0,0 +1,89 @@
+package com.example.apitest.entity;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "REGRESSION_JOB", indexes = {
+    @Index(name = "IDX_REGRESSION_JOB_STATUS", columnList = "STATUS")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RegressionJobEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_regression_job")
+    @SequenceGenerator(name = "seq_regression_job", sequenceName = "SEQ_REGRESSION_JOB", allocationSize = 1)
+    @Column(name = "JOB_ID")
+    private Long jobId;
+    
+    // 📌 케이스 선택 조건 (null: 조건 없음)
+    @Column(name = "CATEGORY", length = 100)
+    private String category;
+    
+    @Column(name = "VERSION_STATUS", length = 20)
+    private String versionStatus;
+    
+    @Column(name = "PRIORITY", length = 20)
+    private String priority;
+    
+    // 실행 옵션
+    @Column(name = "PARALLELISM")
+    private Integer parallelism;       // 동시에 실행하는 케이스 수
+    
+    @Column(name = "ENGINE", length = 20)
+    private String engine;             // BLOCKING, NIO
+    
+    @Column(name = "STATUS", length = 20)
+    private String status;             // RUNNING, COMPLETED, CANCELLED, FAILED
+    
+    // 📌 체크포인트: 이 케이스 ID 까지(포함) 모두 끝남, 재시작 시 다음 케이스부터 실행
+    @Column(name = "LAST_CASE_ID")
+    private Long lastCaseId;
+    
+    // 체크포인트까지의 집계
+    @Column(name = "TOTAL_CASES")
+    private Long totalCases;           // 시작 시 조건에 맞는 케이스 수
+    
+    @Column(name = "FINISHED_CASES")
+    private Long finishedCases;
+    
+    @Column(name = "FAILED_CASES")
+    private Long failedCases;          // 실패/타임아웃 스텝이 하나라도 있는 케이스
+    
+    @Column(name = "TOTAL_STEPS")
+    private Long totalSteps;
+    
+    @Column(name = "PASSED_STEPS")
+    private Long passedSteps;
+    
+    @Column(name = "FAILED_STEPS")
+    private Long failedSteps;
+    
+    @Column(name = "ERROR_MESSAGE", length = 1000)
+    private String errorMessage;
+    
+    @Column(name = "CREATED_AT")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "UPDATED_AT")
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "FINISHED_AT")
+    private LocalDateTime finishedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
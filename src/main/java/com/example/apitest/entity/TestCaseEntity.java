@@ -58,6 +58,9 @@ public class TestCaseEntity {
     @Column(name = "IS_ACTIVE", length = 1)
     private String isActive = "Y";
     
+    @Column(name = "MATCH_RULES", length = 1)
+    private String matchRules = "N"; // Y: 기댓값의 trim:/num:/re:/like:/* 를 비교 규칙으로 해석
+    
     @Column(name = "LAST_RUN_AT")
     private LocalDateTime lastRunAt;
     
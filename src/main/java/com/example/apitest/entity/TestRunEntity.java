@@ -0,0 +1,57 @@
+package com.example.apitest.entity;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 실행 이력 (ExecutionHistoryWriter 가 JDBC 배치로 기록, 조회 전용)
+ */
+@Entity
+@Table(name = "TEST_RUN", indexes = {
+    @Index(name = "IDX_TEST_RUN_CASE", columnList = "CASE_ID, STARTED_AT")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestRunEntity {
+    
+    @Id
+    @Column(name = "EXECUTION_ID", length = 36)
+    private String executionId;
+    
+    @Column(name = "CASE_ID")
+    private Long caseId;               // 저장된 케이스 실행일 때만
+    
+    @Column(name = "ENGINE", length = 20)
+    private String engine;             // BLOCKING, NIO
+    
+    @Column(name = "PARALLEL_YN", length = 1)
+    private String parallelYn;
+    
+    @Column(name = "STATUS", length = 20)
+    private String status;             // RUNNING, COMPLETED, CANCELLED, TIMEOUT
+    
+    @Column(name = "TOTAL_STEPS")
+    private Integer totalSteps;
+    
+    @Column(name = "COMPLETED_STEPS")
+    private Integer completedSteps;
+    
+    @Column(name = "PASSED_STEPS")
+    private Integer passedSteps;
+    
+    @Column(name = "FAILED_STEPS")
+    private Integer failedSteps;
+    
+    @Column(name = "TIMED_OUT_STEPS")
+    private Integer timedOutSteps;
+    
+    @Column(name = "STARTED_AT")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "FINISHED_AT")
+    private LocalDateTime finishedAt;
+}
@@ -0,0 +1,69 @@
+package com.example.apitest.entity;
+
+import lombok.*;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 실행 이력의 스텝 결과 (기록 순서 SEQ, 불일치 필드만 저장)
+ */
+@Entity
+@Table(name = "TEST_RUN_STEP", indexes = {
+    @Index(name = "IDX_RUN_STEP_EXECUTION", columnList = "EXECUTION_ID, SEQ", unique = true),
+    @Index(name = "IDX_RUN_STEP_STATUS", columnList = "EXECUTION_ID, STATUS")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TestRunStepEntity {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_test_run_step")
+    @SequenceGenerator(name = "seq_test_run_step", sequenceName = "SEQ_TEST_RUN_STEP", allocationSize = 1)
+    @Column(name = "RUN_STEP_ID")
+    private Long runStepId;
+    
+    @Column(name = "EXECUTION_ID", nullable = false, length = 36)
+    private String executionId;
+    
+    @Column(name = "SEQ", nullable = false)
+    private Long seq;
+    
+    @Column(name = "SCENARIO_INDEX")
+    private Integer scenarioIndex;
+    
+    @Column(name = "SCENARIO_NAME", length = 200)
+    private String scenarioName;
+    
+    @Column(name = "STEP_INDEX")
+    private Integer stepIndex;
+    
+    @Column(name = "CASE_NO", length = 10)
+    private String caseNo;
+    
+    @Column(name = "PRIORITY", length = 20)
+    private String priority;
+    
+    @Column(name = "STATUS", length = 30)
+    private String status;             // PASS, FAIL, TIMEOUT, CANCELLED, SKIPPED_TARGET_DOWN
+    
+    @Column(name = "EXECUTED_AT")
+    private LocalDateTime executedAt;
+    
+    @Column(name = "EXECUTION_TIME_MS")
+    private Long executionTimeMs;
+    
+    @Column(name = "ERROR_MESSAGE", length = 1000)
+    private String errorMessage;
+    
+    // 📌 JSON 저장
+    @Lob
+    @Column(name = "REQUEST_JSON")
+    private String requestJson;
+    
+    @Lob
+    @Column(name = "MISMATCH_JSON")
+    private String mismatchJson;       // 불일치 필드 (expectedValue/actualValue), 모두 일치하면 null
+}
@@ -0,0 +1,152 @@
+package com.example.apitest.mock;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A compiled {@link MockFaultProfileDefinition}: draws the delay and the fault of one response.
+ * What a fault does on the wire is up to the server; this only decides which one happens.
+ */
+public class MockFaultProfile {
+
+    public static final int NONE = 0;
+    public static final int DROP = 1;
+    public static final int TRUNCATE = 2;
+    public static final int PARTIAL_WRITE = 3;
+    public static final int DRIP = 4;
+
+    private static final int DELAY_NONE = 0;
+    private static final int DELAY_FIXED = 1;
+    private static final int DELAY_UNIFORM = 2;
+    private static final int DELAY_LOG_NORMAL = 3;
+
+    private final String name;
+    private final int delayType;
+    private final long delayNanos;
+    private final long delayMaxNanos;
+    private final double logMedian;
+    private final double sigma;
+    // Cumulative probabilities in fault order
+    private final double dropBelow;
+    private final double truncateBelow;
+    private final double partialWriteBelow;
+    private final double dripBelow;
+    private final long partialWriteGapNanos;
+    private final int dripBytes;
+    private final long dripIntervalNanos;
+
+    public MockFaultProfile(MockFaultProfileDefinition definition) {
+        this.name = definition.getName();
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Mock fault profile without a name");
+        }
+        String type = definition.getDelayType() != null ? definition.getDelayType().toUpperCase() : "NONE";
+        switch (type) {
+            case "NONE":
+                delayType = DELAY_NONE;
+                break;
+            case "FIXED":
+                delayType = DELAY_FIXED;
+                break;
+            case "UNIFORM":
+                delayType = DELAY_UNIFORM;
+                break;
+            case "LOG_NORMAL":
+                delayType = DELAY_LOG_NORMAL;
+                break;
+            default:
+                throw invalid("unknown delayType " + definition.getDelayType());
+        }
+        if (definition.getDelayMs() < 0 || definition.getDelayMaxMs() < 0) {
+            throw invalid("negative delay");
+        }
+        if (delayType == DELAY_UNIFORM && definition.getDelayMaxMs() < definition.getDelayMs()) {
+            throw invalid("delayMaxMs is below delayMs");
+        }
+        if (delayType == DELAY_LOG_NORMAL && (definition.getDelayMs() <= 0 || definition.getDelaySigma() < 0)) {
+            throw invalid("LOG_NORMAL needs a positive delayMs (median) and a non-negative delaySigma");
+        }
+        this.delayNanos = TimeUnit.MILLISECONDS.toNanos(definition.getDelayMs());
+        this.delayMaxNanos = TimeUnit.MILLISECONDS.toNanos(definition.getDelayMaxMs());
+        this.logMedian = Math.log(Math.max(1, delayNanos));
+        this.sigma = definition.getDelaySigma();
+
+        this.dropBelow = rate(definition.getDropRate(), "dropRate");
+        this.truncateBelow = dropBelow + rate(definition.getTruncateRate(), "truncateRate");
+        this.partialWriteBelow = truncateBelow + rate(definition.getPartialWriteRate(), "partialWriteRate");
+        this.dripBelow = partialWriteBelow + rate(definition.getDripRate(), "dripRate");
+        if (dripBelow > 1.0 + 1e-9) {
+            throw invalid("fault rates add up to more than 1");
+        }
+        if (definition.getDripBytes() < 1 || definition.getDripIntervalMs() < 0 || definition.getPartialWriteGapMs() < 0) {
+            throw invalid("dripBytes must be positive, dripIntervalMs and partialWriteGapMs not negative");
+        }
+        this.partialWriteGapNanos = TimeUnit.MILLISECONDS.toNanos(definition.getPartialWriteGapMs());
+        this.dripBytes = definition.getDripBytes();
+        this.dripIntervalNanos = TimeUnit.MILLISECONDS.toNanos(definition.getDripIntervalMs());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Time from receiving the request to the first byte of its response.
+     */
+    public long delayNanos(Random random) {
+        switch (delayType) {
+            case DELAY_FIXED:
+                return delayNanos;
+            case DELAY_UNIFORM:
+                return delayNanos + (long) (random.nextDouble() * (delayMaxNanos - delayNanos));
+            case DELAY_LOG_NORMAL:
+                long delay = (long) Math.exp(logMedian + sigma * random.nextGaussian());
+                return delayMaxNanos > 0 ? Math.min(delay, delayMaxNanos) : delay;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * One of {@link #NONE}, {@link #DROP}, {@link #TRUNCATE}, {@link #PARTIAL_WRITE}, {@link #DRIP}.
+     */
+    public int fault(Random random) {
+        if (dripBelow == 0) {
+            return NONE;
+        }
+        double draw = random.nextDouble();
+        if (draw < dropBelow) {
+            return DROP;
+        }
+        if (draw < truncateBelow) {
+            return TRUNCATE;
+        }
+        if (draw < partialWriteBelow) {
+            return PARTIAL_WRITE;
+        }
+        return draw < dripBelow ? DRIP : NONE;
+    }
+
+    public long getPartialWriteGapNanos() {
+        return partialWriteGapNanos;
+    }
+
+    public int getDripBytes() {
+        return dripBytes;
+    }
+
+    public long getDripIntervalNanos() {
+        return dripIntervalNanos;
+    }
+
+    private double rate(double rate, String field) {
+        if (rate < 0 || rate > 1) {
+            throw invalid(field + " must be between 0 and 1");
+        }
+        return rate;
+    }
+
+    private IllegalArgumentException invalid(String reason) {
+        return new IllegalArgumentException("Invalid mock fault profile '" + name + "': " + reason);
+    }
+}
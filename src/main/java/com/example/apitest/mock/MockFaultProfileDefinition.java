@@ -0,0 +1,24 @@
+package com.example.apitest.mock;
+
+import lombok.Data;
+
+/**
+ * How the mock host misbehaves, as configured (profile file), compiled by {@link MockFaultProfile}.
+ * The delay applies to every response; then at most one fault is chosen per response, in the order
+ * drop, truncate, partial write, drip, each with its own probability.
+ */
+@Data
+public class MockFaultProfileDefinition {
+    private String name;
+    private String delayType = "NONE"; // NONE, FIXED, UNIFORM, LOG_NORMAL
+    private long delayMs; // FIXED: the delay, UNIFORM: lower bound, LOG_NORMAL: median
+    private long delayMaxMs; // UNIFORM: upper bound, LOG_NORMAL: cap (0: none)
+    private double delaySigma = 0.5; // LOG_NORMAL: standard deviation of the delay's logarithm
+    private double dropRate; // close the connection instead of answering
+    private double truncateRate; // send part of the frame, then close
+    private double partialWriteRate; // send the frame in two writes, partialWriteGapMs apart
+    private long partialWriteGapMs = 50;
+    private double dripRate; // send dripBytes every dripIntervalMs
+    private int dripBytes = 1;
+    private long dripIntervalMs = 100;
+}
@@ -0,0 +1,24 @@
+package com.example.apitest.mock;
+
+import lombok.Data;
+import java.util.Map;
+
+/**
+ * A mock host response rule as configured (rule file or DB), compiled by {@link MockRules}.
+ * A condition left null matches every request; of the rules a request matches, the lowest
+ * {@code priority} wins, then the one listed first.
+ */
+@Data
+public class MockRuleDefinition {
+    private String name;
+    private int priority;
+    private String cardPrefix; // leading digits of cardNo, e.g. "9999"
+    private String cardFrom; // BIN range on the leading digits, inclusive, same number of digits as cardTo
+    private String cardTo;
+    private Long amountMin; // settlementAmount, inclusive
+    private Long amountMax;
+    private String requestMethod;
+    private Map<String, String> response; // response field values, approvalNo is generated per request unless set
+    private String profile; // fault profile applied to this rule's responses (MockFaultProfileDefinition name)
+    private String transaction; // APPROVE: record the approval, CANCEL: cancel the request's originalApprovalNo
+}
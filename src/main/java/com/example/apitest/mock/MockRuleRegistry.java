@@ -0,0 +1,290 @@
+package com.example.apitest.mock;
+
+import com.example.apitest.entity.MockRuleEntity;
+import com.example.apitest.repository.MockRuleRepository;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mock response rules for {@link com.example.apitest.tcp.TcpMockServer}, loaded from a JSON rule file
+ * or the MOCK_RULE table, and the fault profiles rules may name, loaded from a JSON profile file.
+ * The sources are checked every {@code reloadIntervalMs} and recompiled when they changed (file
+ * modification time, or the table's row count and last update); the compiled rules are swapped in whole,
+ * so the mock never sees a half-loaded rule set. Rules that do not compile are logged and the previous
+ * rules stay in use. One profile can be made active for every response whose rule names none.
+ */
+@Component
+public class MockRuleRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(MockRuleRegistry.class);
+    private static final String CLASSPATH_PREFIX = "classpath:";
+    public static final String SOURCE_FILE = "FILE";
+    public static final String SOURCE_DB = "DB";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private volatile MockRules rules;
+    private volatile List<MockFaultProfileDefinition> profileDefinitions;
+    private volatile Map<String, MockFaultProfile> faultProfiles;
+    private volatile MockFaultProfile activeProfile;
+    private volatile String loadedVersion;
+    private volatile long loadedAt;
+    private ScheduledExecutorService reloader;
+
+    @Autowired
+    private TelegramLayoutRegistry layoutRegistry;
+
+    @Autowired(required = false)
+    private MockRuleRepository ruleRepository;
+
+    @Value("${app.tcp.mock.rules.source:FILE}")
+    private String source = SOURCE_FILE;
+
+    @Value("${app.tcp.mock.rules.file:classpath:mock-rules.json}")
+    private String rulesFile = "classpath:mock-rules.json";
+
+    @Value("${app.tcp.mock.profiles.file:classpath:mock-profiles.json}")
+    private String profilesFile = "classpath:mock-profiles.json";
+
+    @Value("${app.tcp.mock.profiles.active:}")
+    private String activeProfileName = "";
+
+    @Value("${app.tcp.mock.rules.reload-interval-ms:5000}")
+    private long reloadIntervalMs = 5000;
+
+    @Value("${app.telegram.request-layout:approval-request}")
+    private String requestLayoutName = "approval-request";
+
+    @Value("${app.telegram.response-layout:approval-response}")
+    private String responseLayoutName = "approval-response";
+
+    @PostConstruct
+    public void load() throws IOException {
+        if (!SOURCE_FILE.equalsIgnoreCase(source) && !SOURCE_DB.equalsIgnoreCase(source)) {
+            throw new IllegalArgumentException("Unknown mock rule source: " + source);
+        }
+        reload();
+        if (reloadIntervalMs > 0) {
+            reloader = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "mock-rule-reload");
+                t.setDaemon(true);
+                return t;
+            });
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadIntervalMs, reloadIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+
+    /**
+     * Rules in use; the reference may be replaced by a reload at any time, so take it once per request.
+     */
+    public MockRules current() {
+        return rules;
+    }
+
+    /**
+     * Profile for responses whose rule names none, null if the mock is well-behaved.
+     */
+    public MockFaultProfile activeProfile() {
+        return activeProfile;
+    }
+
+    /**
+     * Make a loaded profile active for responses whose rule names none, or none if {@code name} is empty.
+     *
+     * @throws IllegalArgumentException if there is no such profile
+     */
+    public synchronized void activateProfile(String name) {
+        MockFaultProfile profile = null;
+        if (name != null && !name.isEmpty()) {
+            profile = faultProfiles.get(name);
+            if (profile == null) {
+                throw new IllegalArgumentException("Unknown mock fault profile: " + name);
+            }
+        }
+        activeProfileName = profile != null ? name : "";
+        activeProfile = profile;
+        log.info("Mock fault profile {}", profile != null ? "'" + name + "' active" : "off");
+    }
+
+    /**
+     * Load and compile the profiles and rules now, whether or not the sources changed.
+     *
+     * @throws IllegalArgumentException if a rule or profile is invalid; the previous ones stay in use
+     */
+    public synchronized MockRules reload() throws IOException {
+        String version = version();
+        List<MockFaultProfileDefinition> profiles = readProfiles();
+        Map<String, MockFaultProfile> compiledProfiles = new LinkedHashMap<>();
+        for (MockFaultProfileDefinition definition : profiles) {
+            MockFaultProfile profile = new MockFaultProfile(definition);
+            if (compiledProfiles.put(profile.getName(), profile) != null) {
+                throw new IllegalArgumentException("Duplicate mock fault profile: " + profile.getName());
+            }
+        }
+        MockFaultProfile active = null;
+        if (activeProfileName != null && !activeProfileName.isEmpty()) {
+            active = compiledProfiles.get(activeProfileName);
+            if (active == null) {
+                throw new IllegalArgumentException("Active mock fault profile '" + activeProfileName + "' is not defined");
+            }
+        }
+        List<MockRuleDefinition> definitions = SOURCE_DB.equalsIgnoreCase(source) ? readTable() : readFile();
+        MockRules compiled = MockRules.compile(definitions, compiledProfiles, layoutRegistry.get(requestLayoutName),
+            layoutRegistry.get(responseLayoutName));
+        rules = compiled;
+        profileDefinitions = profiles;
+        faultProfiles = compiledProfiles;
+        activeProfile = active;
+        loadedVersion = version;
+        loadedAt = System.currentTimeMillis();
+        log.info("Mock rules loaded from {}: {} rules, {} fault profiles", describeSource(), compiled.getRules().size(),
+            compiledProfiles.size());
+        return compiled;
+    }
+
+    /**
+     * Source, load time and the rules in match order.
+     */
+    public Map<String, Object> describe() {
+        MockRules current = rules;
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("source", describeSource());
+        description.put("loadedAt", loadedAt);
+        description.put("ruleCount", current.getRules().size());
+        description.put("rules", current.getRules());
+        description.put("activeProfile", activeProfile != null ? activeProfile.getName() : null);
+        description.put("profiles", profileDefinitions);
+        return description;
+    }
+
+    private void reloadIfChanged() {
+        try {
+            String version = version();
+            if (version != null && !version.equals(loadedVersion)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.error("Failed to reload mock rules from {}, keeping the previous rules: {}", describeSource(), e.getMessage());
+        }
+    }
+
+    /**
+     * Changes whenever the rules or profiles may have changed, null if that cannot be told (e.g. files inside a jar).
+     */
+    private String version() throws IOException {
+        String rulesVersion = SOURCE_DB.equalsIgnoreCase(source)
+            ? repository().count() + ":" + repository().findLastUpdatedAt() : fileVersion(rulesFile);
+        String profilesVersion = fileVersion(profilesFile);
+        return rulesVersion != null || profilesVersion != null ? rulesVersion + "|" + profilesVersion : null;
+    }
+
+    private String fileVersion(String location) throws IOException {
+        Path path = localPath(location);
+        return path != null ? String.valueOf(Files.getLastModifiedTime(path).toMillis()) : null;
+    }
+
+    private List<MockRuleDefinition> readFile() throws IOException {
+        try (InputStream in = open(rulesFile)) {
+            return mapper.readValue(in, new TypeReference<List<MockRuleDefinition>>() {});
+        }
+    }
+
+    private List<MockFaultProfileDefinition> readProfiles() throws IOException {
+        try (InputStream in = open(profilesFile)) {
+            return mapper.readValue(in, new TypeReference<List<MockFaultProfileDefinition>>() {});
+        }
+    }
+
+    private List<MockRuleDefinition> readTable() throws IOException {
+        List<MockRuleDefinition> definitions = new ArrayList<>();
+        for (MockRuleEntity entity : repository().findByUseYnOrderByPriorityAscRuleIdAsc("Y")) {
+            MockRuleDefinition definition = new MockRuleDefinition();
+            definition.setName(entity.getRuleName() != null ? entity.getRuleName() : "MOCK_RULE " + entity.getRuleId());
+            definition.setPriority(entity.getPriority() != null ? entity.getPriority() : 0);
+            definition.setCardPrefix(entity.getCardPrefix());
+            definition.setCardFrom(entity.getCardFrom());
+            definition.setCardTo(entity.getCardTo());
+            definition.setAmountMin(entity.getAmountMin());
+            definition.setAmountMax(entity.getAmountMax());
+            definition.setRequestMethod(entity.getRequestMethod());
+            definition.setProfile(entity.getProfileName());
+            definition.setTransaction(entity.getTransactionType());
+            if (entity.getResponseJson() != null) {
+                definition.setResponse(mapper.readValue(entity.getResponseJson(), new TypeReference<Map<String, String>>() {}));
+            }
+            definitions.add(definition);
+        }
+        return definitions;
+    }
+
+    private MockRuleRepository repository() {
+        if (ruleRepository == null) {
+            throw new IllegalStateException("Mock rule source DB needs a database connection");
+        }
+        return ruleRepository;
+    }
+
+    private String describeSource() {
+        return SOURCE_DB.equalsIgnoreCase(source) ? "MOCK_RULE" : rulesFile;
+    }
+
+    private InputStream open(String location) throws IOException {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            String resource = location.substring(CLASSPATH_PREFIX.length());
+            InputStream in = getClass().getClassLoader().getResourceAsStream(resource);
+            if (in == null) {
+                throw new FileNotFoundException("Mock rule file not found on classpath: " + resource);
+            }
+            return in;
+        }
+        return Files.newInputStream(Paths.get(location));
+    }
+
+    /**
+     * The rule file on disk, also for a classpath resource from a directory (e.g. while developing).
+     */
+    private Path localPath(String location) {
+        if (!location.startsWith(CLASSPATH_PREFIX)) {
+            return Paths.get(location);
+        }
+        URL url = getClass().getClassLoader().getResource(location.substring(CLASSPATH_PREFIX.length()));
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+}
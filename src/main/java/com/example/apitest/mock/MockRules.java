@@ -0,0 +1,461 @@
+package com.example.apitest.mock;
+
+import com.example.apitest.telegram.TelegramLayout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mock response rules compiled into per-condition indexes, immutable once built.
+ * Rules are numbered in match order and every index yields a bitmap of the rules whose condition holds:
+ * a digit trie over the card number (BIN ranges are split into the prefixes that cover them), sorted
+ * amount boundaries searched with a binary search, and a map by request method. The request's rule is
+ * the lowest bit set in all three, so a lookup walks at most the card number's digits, one binary search
+ * and one map lookup however many rules there are, and never decodes the telegram beyond the method.
+ * A rule may name a fault profile, resolved when the rules are compiled.
+ * A rule may also make its response an approval recorded in {@link MockTransactionStore}, or a cancel
+ * that is only answered with the rule's response if the store has the original approval.
+ */
+public class MockRules {
+
+    private static final Map<String, String> DEFAULT_RESPONSE = Map.of(
+        "responseCode", "0000", "responseMessage", "정상승인", "discountYn", "Y");
+    private static final Map<String, String> CANCEL_NOT_FOUND = Map.of(
+        "responseCode", "8101", "responseMessage", "원거래없음", "discountYn", "N");
+    private static final Map<String, String> CANCEL_ALREADY_CANCELLED = Map.of(
+        "responseCode", "8102", "responseMessage", "기취소거래", "discountYn", "N");
+    private static final Map<String, String> CANCEL_MISMATCH = Map.of(
+        "responseCode", "8103", "responseMessage", "원거래불일치", "discountYn", "N");
+    private static final int MAX_AMOUNT_DIGITS = 18;
+    private static final byte TRANSACTION_NONE = 0;
+    private static final byte TRANSACTION_APPROVE = 1;
+    private static final byte TRANSACTION_CANCEL = 2;
+
+    private final List<MockRuleDefinition> rules;
+    private final TelegramLayout requestLayout;
+    private final TelegramLayout responseLayout;
+    private final int cardNoField;
+    private final int amountField;
+    private final int methodField;
+    private final int approvalNoField;
+    private final int originalApprovalNoField;
+    private final int words;
+
+    private final CardNode cardRoot;
+    private final long[] anyAmount;
+    private final long[] amountStarts;
+    private final long[][] amountRules;
+    private final long[] anyMethod;
+    private final Map<String, long[]> methodRules;
+
+    private final byte[][] templates;
+    private final boolean[] generatedApprovalNo;
+    private final MockFaultProfile[] profiles;
+    private final byte[] transactions;
+    private final byte[] defaultTemplate;
+    // Cancel rejections by MockTransactionStore result
+    private final byte[][] cancelRejections;
+
+    private MockRules(List<MockRuleDefinition> rules, Map<String, MockFaultProfile> faultProfiles,
+                      TelegramLayout requestLayout, TelegramLayout responseLayout) {
+        this.rules = rules;
+        this.requestLayout = requestLayout;
+        this.responseLayout = responseLayout;
+        this.cardNoField = requiredField(requestLayout, "cardNo");
+        this.amountField = requiredField(requestLayout, "settlementAmount");
+        this.methodField = requiredField(requestLayout, "requestMethod");
+        this.approvalNoField = requiredField(responseLayout, "approvalNo");
+        this.originalApprovalNoField = requestLayout.fieldIndex("originalApprovalNo");
+        this.words = Math.max(1, (rules.size() + 63) >>> 6);
+
+        this.cardRoot = new CardNode();
+        this.anyAmount = new long[words];
+        this.anyMethod = new long[words];
+        this.methodRules = new HashMap<>();
+        this.templates = new byte[rules.size()][];
+        this.generatedApprovalNo = new boolean[rules.size()];
+        this.profiles = new MockFaultProfile[rules.size()];
+        this.transactions = new byte[rules.size()];
+
+        List<long[]> amountRanges = new ArrayList<>();
+        for (int i = 0; i < rules.size(); i++) {
+            MockRuleDefinition rule = rules.get(i);
+            for (String prefix : cardPrefixes(rule)) {
+                cardRoot.insert(prefix, 0).own(words)[i >>> 6] |= 1L << i;
+            }
+            if (rule.getAmountMin() == null && rule.getAmountMax() == null) {
+                anyAmount[i >>> 6] |= 1L << i;
+            } else {
+                long min = rule.getAmountMin() != null ? rule.getAmountMin() : 0;
+                long max = rule.getAmountMax() != null ? rule.getAmountMax() : Long.MAX_VALUE;
+                if (min > max) {
+                    throw invalid(rule, "amountMin is above amountMax");
+                }
+                amountRanges.add(new long[]{min, max, i});
+            }
+            if (rule.getRequestMethod() == null) {
+                anyMethod[i >>> 6] |= 1L << i;
+            } else {
+                methodRules.computeIfAbsent(rule.getRequestMethod().trim(), m -> new long[words])[i >>> 6] |= 1L << i;
+            }
+
+            Map<String, String> response = rule.getResponse() != null ? rule.getResponse() : DEFAULT_RESPONSE;
+            for (String field : response.keySet()) {
+                if (responseLayout.fieldIndex(field) < 0) {
+                    throw invalid(rule, "response layout has no field '" + field + "'");
+                }
+            }
+            templates[i] = responseLayout.encode(response);
+            generatedApprovalNo[i] = !response.containsKey("approvalNo");
+            if (rule.getProfile() != null) {
+                profiles[i] = faultProfiles.get(rule.getProfile());
+                if (profiles[i] == null) {
+                    throw invalid(rule, "unknown fault profile '" + rule.getProfile() + "'");
+                }
+            }
+            transactions[i] = transaction(rule);
+            if (transactions[i] == TRANSACTION_CANCEL && originalApprovalNoField < 0) {
+                throw invalid(rule, "a CANCEL rule needs an 'originalApprovalNo' field in request layout '"
+                    + requestLayout.getName() + "'");
+            }
+        }
+
+        // A rule's card condition also holds for every longer card number under its prefix
+        cardRoot.pushDown(new long[words]);
+        for (long[] bits : methodRules.values()) {
+            or(bits, anyMethod);
+        }
+
+        // Elementary amount intervals: each starts at a range's minimum or just after a range's maximum
+        long[] starts = new long[amountRanges.size() * 2 + 1];
+        int count = 0;
+        starts[count++] = Long.MIN_VALUE;
+        for (long[] range : amountRanges) {
+            starts[count++] = range[0];
+            if (range[1] != Long.MAX_VALUE) {
+                starts[count++] = range[1] + 1;
+            }
+        }
+        Arrays.sort(starts, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || starts[i] != starts[distinct - 1]) {
+                starts[distinct++] = starts[i];
+            }
+        }
+        this.amountStarts = Arrays.copyOf(starts, distinct);
+        this.amountRules = new long[distinct][];
+        for (int k = 0; k < distinct; k++) {
+            long[] bits = anyAmount.clone();
+            for (long[] range : amountRanges) {
+                if (range[0] <= amountStarts[k] && amountStarts[k] <= range[1]) {
+                    int rule = (int) range[2];
+                    bits[rule >>> 6] |= 1L << rule;
+                }
+            }
+            amountRules[k] = bits;
+        }
+
+        this.defaultTemplate = responseLayout.encode(DEFAULT_RESPONSE);
+        this.cancelRejections = new byte[][]{null, responseLayout.encode(CANCEL_NOT_FOUND),
+            responseLayout.encode(CANCEL_ALREADY_CANCELLED), responseLayout.encode(CANCEL_MISMATCH)};
+    }
+
+    /**
+     * Compile rules for telegrams of the given layouts.
+     *
+     * @param faultProfiles profiles the rules may name, by name
+     * @throws IllegalArgumentException if a rule is invalid, naming the rule
+     */
+    public static MockRules compile(List<MockRuleDefinition> definitions, Map<String, MockFaultProfile> faultProfiles,
+                                    TelegramLayout requestLayout, TelegramLayout responseLayout) {
+        List<MockRuleDefinition> sorted = new ArrayList<>(definitions);
+        // Stable: rules of equal priority keep their configured order
+        sorted.sort(Comparator.comparingInt(MockRuleDefinition::getPriority));
+        return new MockRules(Collections.unmodifiableList(sorted), faultProfiles, requestLayout, responseLayout);
+    }
+
+    /**
+     * Rules in match order.
+     */
+    public List<MockRuleDefinition> getRules() {
+        return rules;
+    }
+
+    /**
+     * Index in {@link #getRules()} of the rule for the request telegram at {@code offset}, -1 if none matches.
+     */
+    public int match(byte[] request, int offset) {
+        long[] card = cardRoot.lookup(request, offset + requestLayout.getFieldOffset(cardNoField),
+            requestLayout.getFieldLength(cardNoField));
+
+        long amount = parseAmount(request, offset + requestLayout.getFieldOffset(amountField),
+            requestLayout.getFieldLength(amountField));
+        long[] amountBits = amount < 0 ? anyAmount : amountRules[floorIndex(amountStarts, amount)];
+
+        long[] method = anyMethod;
+        if (!methodRules.isEmpty()) {
+            method = methodRules.getOrDefault(requestLayout.decodeField(request, offset, methodField), anyMethod);
+        }
+
+        for (int w = 0; w < words; w++) {
+            long bits = card[w] & amountBits[w] & method[w];
+            if (bits != 0) {
+                return (w << 6) + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Fault profile named by the rule, null for none or for {@code rule} -1.
+     */
+    public MockFaultProfile profile(int rule) {
+        return rule >= 0 ? profiles[rule] : null;
+    }
+
+    /**
+     * Write the response telegram of {@code rule}, from {@link #match}, to the request at {@code requestOffset}
+     * into {@code response} at {@code responseOffset}; an approval if no rule matched. Generated approval
+     * numbers, and the approvals and cancels of APPROVE and CANCEL rules, go through {@code transactions}.
+     */
+    public void respond(int rule, byte[] request, int requestOffset, MockTransactionStore transactions,
+                        byte[] response, int responseOffset) {
+        byte[] template = rule >= 0 ? templates[rule] : defaultTemplate;
+        byte transaction = rule >= 0 ? this.transactions[rule] : TRANSACTION_NONE;
+        long approvalNo = -1;
+        if (transaction == TRANSACTION_APPROVE) {
+            approvalNo = transactions.approve(cardKey(request, requestOffset), amount(request, requestOffset));
+        } else if (transaction == TRANSACTION_CANCEL) {
+            long original = parseAmount(request, requestOffset + requestLayout.getFieldOffset(originalApprovalNoField),
+                requestLayout.getFieldLength(originalApprovalNoField));
+            int result = transactions.cancel(original, cardKey(request, requestOffset), amount(request, requestOffset));
+            if (result != MockTransactionStore.CANCELLED) {
+                template = cancelRejections[result];
+                System.arraycopy(template, 0, response, responseOffset, template.length);
+                return;
+            }
+        }
+        System.arraycopy(template, 0, response, responseOffset, template.length);
+        if (rule < 0 || generatedApprovalNo[rule]) {
+            if (approvalNo < 0) {
+                approvalNo = transactions.nextApprovalNo();
+            }
+            responseLayout.encodeField(response, responseOffset, approvalNoField, approvalNo);
+        }
+    }
+
+    private static byte transaction(MockRuleDefinition rule) {
+        if (rule.getTransaction() == null) {
+            return TRANSACTION_NONE;
+        }
+        switch (rule.getTransaction().toUpperCase()) {
+            case "APPROVE":
+                return TRANSACTION_APPROVE;
+            case "CANCEL":
+                return TRANSACTION_CANCEL;
+            default:
+                throw invalid(rule, "unknown transaction '" + rule.getTransaction() + "', expected APPROVE or CANCEL");
+        }
+    }
+
+    private long amount(byte[] request, int offset) {
+        return parseAmount(request, offset + requestLayout.getFieldOffset(amountField), requestLayout.getFieldLength(amountField));
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the card number field, what the store compares instead of the number itself.
+     */
+    private long cardKey(byte[] request, int offset) {
+        int start = offset + requestLayout.getFieldOffset(cardNoField);
+        long hash = 0xcbf29ce484222325L;
+        for (int pos = start; pos < start + requestLayout.getFieldLength(cardNoField); pos++) {
+            hash = (hash ^ (request[pos] & 0xff)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static Iterable<String> cardPrefixes(MockRuleDefinition rule) {
+        if (rule.getCardPrefix() != null) {
+            if (rule.getCardFrom() != null || rule.getCardTo() != null) {
+                throw invalid(rule, "cardPrefix and cardFrom/cardTo are exclusive");
+            }
+            checkDigits(rule, rule.getCardPrefix());
+            return List.of(rule.getCardPrefix());
+        }
+        if (rule.getCardFrom() == null && rule.getCardTo() == null) {
+            return List.of("");
+        }
+        String from = rule.getCardFrom();
+        String to = rule.getCardTo();
+        if (from == null || to == null || from.length() != to.length() || from.isEmpty()) {
+            throw invalid(rule, "cardFrom and cardTo need the same number of digits");
+        }
+        checkDigits(rule, from);
+        checkDigits(rule, to);
+        if (from.compareTo(to) > 0) {
+            throw invalid(rule, "cardFrom is above cardTo");
+        }
+        List<String> prefixes = new ArrayList<>();
+        coverRange("", from, to, prefixes);
+        return prefixes;
+    }
+
+    /**
+     * Add the fewest prefixes that together match exactly the digit strings from {@code low} to {@code high}
+     * (same length), e.g. 450000-469999 is "45" and "46".
+     */
+    private static void coverRange(String prefix, String low, String high, List<String> prefixes) {
+        if (allDigits(low, '0') && allDigits(high, '9')) {
+            prefixes.add(prefix);
+            return;
+        }
+        char first = low.charAt(0);
+        char last = high.charAt(0);
+        String lowRest = low.substring(1);
+        String highRest = high.substring(1);
+        if (first == last) {
+            coverRange(prefix + first, lowRest, highRest, prefixes);
+            return;
+        }
+        coverRange(prefix + first, lowRest, "9".repeat(highRest.length()), prefixes);
+        for (char digit = (char) (first + 1); digit < last; digit++) {
+            prefixes.add(prefix + digit);
+        }
+        coverRange(prefix + last, "0".repeat(lowRest.length()), highRest, prefixes);
+    }
+
+    private static boolean allDigits(String value, char digit) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) != digit) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkDigits(MockRuleDefinition rule, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                throw invalid(rule, "card condition '" + value + "' is not all digits");
+            }
+        }
+    }
+
+    /**
+     * The amount field as a number, spaces around it ignored; -1 if it is not a number.
+     */
+    private static long parseAmount(byte[] source, int start, int length) {
+        long value = 0;
+        int digits = 0;
+        boolean trailing = false;
+        for (int pos = start; pos < start + length; pos++) {
+            byte b = source[pos];
+            if (b == ' ') {
+                trailing = digits > 0;
+                continue;
+            }
+            if (b < '0' || b > '9' || trailing || digits == MAX_AMOUNT_DIGITS) {
+                return -1;
+            }
+            value = value * 10 + (b - '0');
+            digits++;
+        }
+        return digits > 0 ? value : -1;
+    }
+
+    /**
+     * Index of the last element not above {@code value}; {@code sorted[0]} is Long.MIN_VALUE.
+     */
+    private static int floorIndex(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (sorted[mid] <= value) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private static void or(long[] target, long[] bits) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] |= bits[i];
+        }
+    }
+
+    private static int requiredField(TelegramLayout layout, String field) {
+        int index = layout.fieldIndex(field);
+        if (index < 0) {
+            throw new IllegalArgumentException("Telegram layout '" + layout.getName() + "' has no field '" + field + "'");
+        }
+        return index;
+    }
+
+    private static IllegalArgumentException invalid(MockRuleDefinition rule, String reason) {
+        return new IllegalArgumentException("Invalid mock rule '" + rule.getName() + "': " + reason);
+    }
+
+    /**
+     * Digit trie node. After {@link #pushDown} {@code rules} holds every rule whose card condition holds
+     * for a card number reaching this node, shared with the parent when the node adds none.
+     */
+    private static final class CardNode {
+        final CardNode[] children = new CardNode[10];
+        long[] own;
+        long[] rules;
+
+        CardNode insert(String prefix, int depth) {
+            if (depth == prefix.length()) {
+                return this;
+            }
+            int digit = prefix.charAt(depth) - '0';
+            if (children[digit] == null) {
+                children[digit] = new CardNode();
+            }
+            return children[digit].insert(prefix, depth + 1);
+        }
+
+        long[] own(int words) {
+            if (own == null) {
+                own = new long[words];
+            }
+            return own;
+        }
+
+        void pushDown(long[] inherited) {
+            if (own == null) {
+                rules = inherited;
+            } else {
+                rules = own;
+                or(rules, inherited);
+                own = null;
+            }
+            for (CardNode child : children) {
+                if (child != null) {
+                    child.pushDown(rules);
+                }
+            }
+        }
+
+        long[] lookup(byte[] source, int start, int length) {
+            CardNode node = this;
+            for (int pos = start; pos < start + length; pos++) {
+                int digit = source[pos] - '0';
+                if (digit < 0 || digit > 9 || node.children[digit] == null) {
+                    break;
+                }
+                node = node.children[digit];
+            }
+            return node.rules;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.example.apitest.mock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import jakarta.annotation.PostConstruct;
+
+import java.lang.invoke.VarHandle;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approvals issued by the mock host, so a cancel can be checked against its original.
+ *
+ * Approval numbers come from one atomic sequence, so every event loop draws unique numbers without a lock.
+ * Approval number {@code start + n} lives in slot {@code n % capacity} of three primitive columns (state,
+ * card key, amount): no per-approval objects, a fixed 24 bytes per slot, and the store keeps the latest
+ * {@code capacity} approvals, each overwriting the one {@code capacity} numbers before it.
+ *
+ * The state column holds {@code n << 1 | cancelled}, or -1 while the slot is being written. A writer clears
+ * the state before writing the columns and publishes it after them, a reader checks the state again after
+ * reading them (as a seqlock), and a cancel flips the cancelled bit with a compare-and-set, so an original
+ * is cancelled at most once however many loops race for it.
+ */
+@Component
+public class MockTransactionStore {
+
+    private static final Logger log = LoggerFactory.getLogger(MockTransactionStore.class);
+    private static final long WRITING = -1;
+    private static final long MAX_APPROVAL_NO = 999_999_999_999L;
+
+    public static final int CANCELLED = 0;
+    public static final int NOT_FOUND = 1;
+    public static final int ALREADY_CANCELLED = 2;
+    public static final int MISMATCH = 3;
+
+    @Value("${app.tcp.mock.transactions.capacity:1000000}")
+    private int capacity = 1_000_000;
+
+    @Value("${app.tcp.mock.transactions.approval-no-start:1}")
+    private long approvalNoStart = 1;
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder[] rejected = {null, new LongAdder(), new LongAdder(), new LongAdder()};
+    private final LongAdder stored = new LongAdder();
+    private AtomicLongArray states;
+    private long[] cardKeys;
+    private long[] amounts;
+
+    @PostConstruct
+    public void init() {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("app.tcp.mock.transactions.capacity must be positive");
+        }
+        if (approvalNoStart < 0 || approvalNoStart > MAX_APPROVAL_NO) {
+            throw new IllegalArgumentException("app.tcp.mock.transactions.approval-no-start must be a 12-digit number");
+        }
+        states = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            states.set(i, WRITING);
+        }
+        cardKeys = new long[capacity];
+        amounts = new long[capacity];
+        log.info("Mock transaction store: {} approvals ({} MB)", capacity, (long) capacity * 24 / (1024 * 1024));
+    }
+
+    /**
+     * A new approval number, not recorded; for responses that are not approvals to cancel later.
+     */
+    public long nextApprovalNo() {
+        return toApprovalNo(sequence.getAndIncrement());
+    }
+
+    /**
+     * Record an approval and return its new approval number.
+     */
+    public long approve(long cardKey, long amount) {
+        long n = sequence.getAndIncrement();
+        int slot = (int) (n % capacity);
+        states.set(slot, WRITING);
+        // The columns must not be seen written before the slot is marked
+        VarHandle.storeStoreFence();
+        cardKeys[slot] = cardKey;
+        amounts[slot] = amount;
+        states.setRelease(slot, n << 1);
+        stored.increment();
+        return toApprovalNo(n);
+    }
+
+    /**
+     * Cancel the approval {@code approvalNo} if card and amount are the original's.
+     *
+     * @return {@link #CANCELLED}, {@link #NOT_FOUND} (never issued, or overwritten by newer approvals),
+     *         {@link #ALREADY_CANCELLED} or {@link #MISMATCH}
+     */
+    public int cancel(long approvalNo, long cardKey, long amount) {
+        int result = tryCancel(approvalNo, cardKey, amount);
+        if (result == CANCELLED) {
+            cancelled.increment();
+        } else {
+            rejected[result].increment();
+        }
+        return result;
+    }
+
+    private int tryCancel(long approvalNo, long cardKey, long amount) {
+        long n = toSequence(approvalNo);
+        if (n < 0 || n >= sequence.get()) {
+            return NOT_FOUND;
+        }
+        int slot = (int) (n % capacity);
+        long state = states.get(slot);
+        if (state == WRITING || state >>> 1 != n) {
+            return NOT_FOUND;
+        }
+        long originalCard = cardKeys[slot];
+        long originalAmount = amounts[slot];
+        // The columns must be read before the state is checked again
+        VarHandle.loadLoadFence();
+        long now = states.get(slot);
+        if (now == WRITING || now >>> 1 != n) {
+            return NOT_FOUND;
+        }
+        if ((now & 1) != 0) {
+            return ALREADY_CANCELLED;
+        }
+        if (originalCard != cardKey || originalAmount != amount) {
+            return MISMATCH;
+        }
+        if (states.compareAndSet(slot, now, now | 1)) {
+            return CANCELLED;
+        }
+        // Only another cancel or a newer approval changes the state
+        return states.get(slot) == (now | 1) ? ALREADY_CANCELLED : NOT_FOUND;
+    }
+
+    /**
+     * Sizes and counters, for the API.
+     */
+    public Map<String, Object> describe() {
+        long issued = sequence.get();
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("capacity", capacity);
+        description.put("approvalNoStart", approvalNoStart);
+        description.put("issuedApprovalNos", issued);
+        description.put("nextApprovalNo", toApprovalNo(issued));
+        description.put("storedApprovals", stored.sum());
+        description.put("retainedApprovals", Math.min(stored.sum(), capacity));
+        description.put("cancelled", cancelled.sum());
+        description.put("rejectedNotFound", rejected[NOT_FOUND].sum());
+        description.put("rejectedAlreadyCancelled", rejected[ALREADY_CANCELLED].sum());
+        description.put("rejectedMismatch", rejected[MISMATCH].sum());
+        return description;
+    }
+
+    /**
+     * State of one approval: "APPROVED", "CANCELLED", or null if it is not in the store.
+     */
+    public String status(long approvalNo) {
+        long n = toSequence(approvalNo);
+        if (n < 0 || n >= sequence.get()) {
+            return null;
+        }
+        long state = states.get((int) (n % capacity));
+        if (state == WRITING || state >>> 1 != n) {
+            return null;
+        }
+        return (state & 1) != 0 ? "CANCELLED" : "APPROVED";
+    }
+
+    // Approval numbers are 12 digits and wrap after the largest one
+    private long toApprovalNo(long n) {
+        return (approvalNoStart + n) % (MAX_APPROVAL_NO + 1);
+    }
+
+    private long toSequence(long approvalNo) {
+        if (approvalNo < 0 || approvalNo > MAX_APPROVAL_NO) {
+            return -1;
+        }
+        long n = approvalNo - approvalNoStart;
+        return n >= 0 ? n : n + MAX_APPROVAL_NO + 1;
+    }
+}
@@ -16,6 +16,7 @@ public class TestForm {
     // getters, setters
     private String title;
     private String note;
+    private boolean matchRules; // expected values are comparison rules (trim:, num:, re:, like:, *)
 
     public String getTitle() { return title; }
     public void setTitle(String title) { this.title = title; }
@@ -23,4 +24,7 @@ public class TestForm {
     public String getNote() { return note; }
     public void setNote(String note) { this.note = note; }
 
+    public boolean isMatchRules() { return matchRules; }
+    public void setMatchRules(boolean matchRules) { this.matchRules = matchRules; }
+
 }
\ No newline at end of file
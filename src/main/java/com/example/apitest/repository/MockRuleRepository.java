@@ -0,0 +1,24 @@
+package com.example.apitest.repository;
+
+import com.example.apitest.entity.MockRuleEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface MockRuleRepository extends JpaRepository<MockRuleEntity, Long> {
+    
+    /**
+     * 사용 중인 규칙 (매칭 순서)
+     */
+    List<MockRuleEntity> findByUseYnOrderByPriorityAscRuleIdAsc(String useYn);
+    
+    /**
+     * 마지막 변경 시각 (건수와 함께 변경 감지에 사용)
+     */
+    @Query("SELECT MAX(r.updatedAt) FROM MockRuleEntity r")
+    LocalDateTime findLastUpdatedAt();
+}
@@ -0,0 +1,21 @@
+package com.example.apitest.repository;
+
+import com.example.apitest.entity.RegressionJobEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface RegressionJobRepository extends JpaRepository<RegressionJobEntity, Long> {
+    
+    /**
+     * 상태로 조회 (재시작 시 RUNNING 작업 이어서 실행)
+     */
+    List<RegressionJobEntity> findByStatus(String status);
+    
+    /**
+     * 최근 작업 목록
+     */
+    List<RegressionJobEntity> findTop50ByOrderByJobIdDesc();
+}
@@ -66,6 +66,37 @@ public interface TestCaseRepository extends JpaRepository<TestCaseEntity, Long>
      */
     boolean existsByFileName(String fileName);
     
+    /**
+     * 회귀 실행 대상 케이스 ID (활성 케이스, CASE_ID 순, afterCaseId 다음부터 키셋 페이징)
+     * 조건이 null 이면 해당 조건 없음, priority 는 그 우선순위의 스텝이 있는 케이스
+     */
+    @Query("SELECT tc.caseId FROM TestCaseEntity tc " +
+           "WHERE tc.isActive = 'Y' " +
+           "AND tc.caseId > :afterCaseId " +
+           "AND (:category IS NULL OR tc.category = :category) " +
+           "AND (:versionStatus IS NULL OR tc.versionStatus = :versionStatus) " +
+           "AND (:priority IS NULL OR EXISTS (SELECT 1 FROM TestStepEntity s " +
+           "     WHERE s.scenario.testCase = tc AND s.priority = :priority)) " +
+           "ORDER BY tc.caseId ASC")
+    List<Long> findRegressionCaseIds(@Param("category") String category,
+                                     @Param("versionStatus") String versionStatus,
+                                     @Param("priority") String priority,
+                                     @Param("afterCaseId") Long afterCaseId,
+                                     Pageable pageable);
+    
+    /**
+     * 회귀 실행 대상 케이스 수
+     */
+    @Query("SELECT COUNT(tc) FROM TestCaseEntity tc " +
+           "WHERE tc.isActive = 'Y' " +
+           "AND (:category IS NULL OR tc.category = :category) " +
+           "AND (:versionStatus IS NULL OR tc.versionStatus = :versionStatus) " +
+           "AND (:priority IS NULL OR EXISTS (SELECT 1 FROM TestStepEntity s " +
+           "     WHERE s.scenario.testCase = tc AND s.priority = :priority))")
+    long countRegressionCases(@Param("category") String category,
+                              @Param("versionStatus") String versionStatus,
+                              @Param("priority") String priority);
+    
     /**
      * 카테고리 목록 조회 (중복 제거)
      */
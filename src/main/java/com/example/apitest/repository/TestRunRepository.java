@@ -0,0 +1,21 @@
+package com.example.apitest.repository;
+
+import com.example.apitest.entity.TestRunEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TestRunRepository extends JpaRepository<TestRunEntity, String> {
+    
+    /**
+     * 최근 실행 이력
+     */
+    Page<TestRunEntity> findAllByOrderByStartedAtDesc(Pageable pageable);
+    
+    /**
+     * 케이스별 실행 이력
+     */
+    Page<TestRunEntity> findByCaseIdOrderByStartedAtDesc(Long caseId, Pageable pageable);
+}
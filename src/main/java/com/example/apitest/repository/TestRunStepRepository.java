@@ -0,0 +1,21 @@
+package com.example.apitest.repository;
+
+import com.example.apitest.entity.TestRunStepEntity;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TestRunStepRepository extends JpaRepository<TestRunStepEntity, Long> {
+    
+    /**
+     * 실행의 스텝 결과 (기록 순서)
+     */
+    Page<TestRunStepEntity> findByExecutionIdOrderBySeq(String executionId, Pageable pageable);
+    
+    /**
+     * 상태별 스텝 결과 (예: FAIL 만)
+     */
+    Page<TestRunStepEntity> findByExecutionIdAndStatusOrderBySeq(String executionId, String status, Pageable pageable);
+}
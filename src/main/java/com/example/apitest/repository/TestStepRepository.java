@@ -68,4 +68,24 @@ public interface TestStepRepository extends JpaRepository<TestStepEntity, Long>
      * 특정 시나리오의 스텝 개수
      */
     long countByScenario_ScenarioId(Long scenarioId);
+    
+    /**
+     * 특정 케이스의 시나리오별 스텝 개수 ([scenarioId, count])
+     */
+    @Query("SELECT s.scenario.scenarioId, COUNT(s) FROM TestStepEntity s " +
+           "WHERE s.scenario.testCase.caseId = :caseId " +
+           "GROUP BY s.scenario.scenarioId")
+    List<Object[]> countByScenarioForCase(@Param("caseId") Long caseId);
+    
+    /**
+     * 특정 시나리오에서 (afterOrder, afterId) 다음 스텝부터 순서대로 조회 (키셋 페이징, IDX_STEP_SCENARIO 사용)
+     */
+    @Query("SELECT s FROM TestStepEntity s " +
+           "WHERE s.scenario.scenarioId = :scenarioId " +
+           "AND (s.stepOrder > :afterOrder OR (s.stepOrder = :afterOrder AND s.stepId > :afterId)) " +
+           "ORDER BY s.stepOrder ASC, s.stepId ASC")
+    List<TestStepEntity> findStepsAfter(@Param("scenarioId") Long scenarioId,
+                                        @Param("afterOrder") Integer afterOrder,
+                                        @Param("afterId") Long afterId,
+                                        Pageable pageable);
 }
@@ -0,0 +1,156 @@
+package com.example.apitest.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Circuit breaker for the target host, shared by every execution.
+ * CLOSED: requests go through; {@code failureThreshold} transport failures in a row open it.
+ * OPEN: requests are refused until the open interval has passed, then it turns HALF_OPEN.
+ * HALF_OPEN: up to {@code halfOpenProbes} requests go through as probes; a success closes it,
+ * a failure opens it again with the interval doubled (up to {@code maxOpenMs}).
+ * Every admitted request must report exactly one of {@link #onSuccess}, {@link #onFailure} or {@link #onIgnored}.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openMs;
+    private final long maxOpenMs;
+    private final int halfOpenProbes;
+    private final Runnable onClosed;
+
+    // Read without the lock on the hot path, changed only under it
+    private volatile State state = State.CLOSED;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private long openedAt;
+    private long currentOpenMs;
+    private int probesInFlight;
+
+    /**
+     * @param onClosed run after a successful probe closed the circuit, on the reporting thread
+     */
+    public CircuitBreaker(String name, int failureThreshold, long openMs, long maxOpenMs, int halfOpenProbes,
+                          Runnable onClosed) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = Math.max(1, openMs);
+        this.maxOpenMs = Math.max(this.openMs, maxOpenMs);
+        this.halfOpenProbes = Math.max(1, halfOpenProbes);
+        this.onClosed = onClosed;
+        this.currentOpenMs = this.openMs;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Time until an OPEN circuit lets the next request through as a probe, 0 when it is not OPEN
+     * or the open interval has passed.
+     */
+    public synchronized long getRemainingOpenMs() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - openedAt);
+        return Math.max(0, currentOpenMs - elapsedMs);
+    }
+
+    /**
+     * Whether a request may go to the target now. In HALF_OPEN a true result takes a probe slot.
+     */
+    public boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        synchronized (this) {
+            if (state == State.OPEN) {
+                if (System.nanoTime() - openedAt < TimeUnit.MILLISECONDS.toNanos(currentOpenMs)) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                probesInFlight = 0;
+                log.info("Circuit for {} half-open, probing", name);
+            }
+            if (state == State.HALF_OPEN) {
+                if (probesInFlight >= halfOpenProbes) {
+                    return false;
+                }
+                probesInFlight++;
+            }
+            return true;
+        }
+    }
+
+    public void onSuccess() {
+        if (state == State.CLOSED) {
+            if (consecutiveFailures.get() != 0) {
+                consecutiveFailures.set(0);
+            }
+            return;
+        }
+        synchronized (this) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            state = State.CLOSED;
+            consecutiveFailures.set(0);
+            currentOpenMs = openMs;
+            log.info("Circuit for {} closed, target is reachable again", name);
+        }
+        if (onClosed != null) {
+            onClosed.run();
+        }
+    }
+
+    /**
+     * A transport failure: the target could not be reached or did not answer.
+     */
+    public void onFailure() {
+        if (state == State.CLOSED) {
+            if (consecutiveFailures.incrementAndGet() < failureThreshold) {
+                return;
+            }
+            synchronized (this) {
+                if (state == State.CLOSED) {
+                    open("after " + consecutiveFailures.get() + " consecutive failures");
+                }
+            }
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN) {
+                currentOpenMs = Math.min(maxOpenMs, currentOpenMs * 2);
+                open("probe failed");
+            }
+        }
+    }
+
+    /**
+     * The request ended without telling anything about the target (cancelled, invalid request).
+     */
+    public void onIgnored() {
+        if (state == State.CLOSED) {
+            return;
+        }
+        synchronized (this) {
+            if (state == State.HALF_OPEN && probesInFlight > 0) {
+                probesInFlight--;
+            }
+        }
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        log.warn("Circuit for {} open {}, requests are skipped for {}ms", name, reason, currentOpenMs);
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionRequest;
+import com.example.apitest.dto.TestExecutionResult;
+import com.example.apitest.dto.TestExecutionResult.ScenarioResult;
+import com.example.apitest.dto.TestExecutionResult.StepResult;
+import com.example.apitest.service.DistributedWorkQueue.Execution;
+import com.example.apitest.service.DistributedWorkQueue.Shard;
+import com.example.apitest.util.ThreadExecutors;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DistributedExecutionService {
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TestExecutionService testExecutionService;
+    private final TestCaseService testCaseService;
+    private final ObjectMapper objectMapper;
+    
+    @Value("${app.distributed.enabled:false}")
+    private boolean workerEnabled;
+    
+    @Value("${app.distributed.max-shards:4}")
+    private int maxShards;
+    
+    @Value("${app.distributed.poll-interval-ms:500}")
+    private long pollIntervalMs;
+    
+    @Value("${app.distributed.heartbeat-interval-ms:2000}")
+    private long heartbeatIntervalMs;
+    
+    @Value("${app.distributed.lease-ms:10000}")
+    private long leaseMs;
+    
+    @Value("${app.distributed.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${app.execution.thread-type:platform}")
+    private String threadType;
+    
+    private DistributedWorkQueue workQueue;
+    private DistributedWorker worker;
+    private ExecutorService callbackExecutor;
+    
+    @PostConstruct
+    public void init() {
+        workQueue = new DistributedWorkQueue(jdbcTemplate, transactionTemplate);
+    }
+    
+    /**
+     * 이 인스턴스도 샤드를 가져가 실행 (app.distributed.enabled=true 일 때)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startWorker() {
+        if (!workerEnabled) {
+            return;
+        }
+        String host = hostName();
+        String workerId = host + ":" + ProcessHandle.current().pid() + ":" + UUID.randomUUID().toString().substring(0, 8);
+        callbackExecutor = ThreadExecutors.newExecutor(threadType, "distributed-shard");
+        worker = new DistributedWorker(workQueue, testExecutionService, testCaseService, objectMapper, callbackExecutor,
+                workerId, host, maxShards, pollIntervalMs, heartbeatIntervalMs, leaseMs, maxAttempts);
+        worker.start();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        if (worker != null) {
+            worker.stop();
+        }
+        if (callbackExecutor != null) {
+            callbackExecutor.shutdownNow();
+        }
+    }
+    
+    /**
+     * 분산 실행 등록 (시나리오마다 샤드 하나, 워커들이 나눠서 실행)
+     */
+    public String startExecution(TestExecutionRequest request) {
+        if (request.getScenarios() == null || request.getScenarios().isEmpty()) {
+            throw new IllegalArgumentException("Execution has no scenarios");
+        }
+        String engine = request.getEngine() != null ? request.getEngine().toUpperCase() : TestExecutionRequest.ENGINE_BLOCKING;
+        if (!TestExecutionRequest.ENGINE_BLOCKING.equals(engine) && !TestExecutionRequest.ENGINE_NIO.equals(engine)) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        
+        List<Shard> shards = new ArrayList<>();
+        int totalSteps = 0;
+        for (int i = 0; i < request.getScenarios().size(); i++) {
+            TestExecutionRequest.ScenarioExecution scenario = request.getScenarios().get(i);
+            Shard shard = new Shard();
+            shard.setShardIndex(i);
+            shard.setScenarioId(scenario.getScenarioId());
+            shard.setScenarioName(scenario.getScenarioName());
+            shard.setStepCount(scenario.getSteps().size());
+            if (scenario.getScenarioId() == null) {
+                // 입력으로 받은 스텝은 샤드에 그대로 저장 (저장된 시나리오는 실행하는 워커가 TEST_STEP 에서 읽음)
+                try {
+                    shard.setScenarioJson(objectMapper.writeValueAsString(scenario));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalArgumentException("Scenario " + i + " is not serializable", e);
+                }
+            }
+            shards.add(shard);
+            totalSteps += shard.getStepCount();
+        }
+        
+        Execution execution = new Execution();
+        execution.setExecutionId(UUID.randomUUID().toString());
+        execution.setCaseId(request.getCaseId());
+        execution.setEngine(engine);
+        execution.setMaxConcurrency(request.getMaxConcurrency());
+        execution.setMatchRules(request.isMatchRules());
+        execution.setTotalShards(shards.size());
+        execution.setTotalSteps(totalSteps);
+        workQueue.createExecution(execution, shards);
+        
+        log.info("Created distributed execution {}: {} shards, {} steps", execution.getExecutionId(), shards.size(), totalSteps);
+        return execution.getExecutionId();
+    }
+    
+    /**
+     * 저장된 케이스를 분산 실행
+     */
+    public String startCaseExecution(Long caseId, TestExecutionRequest options) {
+        return startExecution(testCaseService.getCaseAsExecutionRequest(caseId, options));
+    }
+    
+    /**
+     * 샤드 결과를 합친 실행 결과 (어느 인스턴스에서나 조회 가능)
+     * 끝나지 않은 샤드는 스텝 없이 상태만 (PENDING, RUNNING, FAILED: 재시도 횟수 초과)
+     */
+    public TestExecutionResult getResult(String executionId) {
+        Execution execution = workQueue.findExecution(executionId);
+        if (execution == null) {
+            return null;
+        }
+        
+        TestExecutionResult result = new TestExecutionResult();
+        result.setExecutionId(executionId);
+        result.setStatus(execution.getStatus());
+        result.setTotalSteps(execution.getTotalSteps());
+        
+        List<ScenarioResult> scenarioResults = new ArrayList<>();
+        long seq = 0;
+        for (Shard shard : workQueue.findShards(executionId)) {
+            ScenarioResult scenarioResult = shardResult(shard);
+            // 샤드마다 1부터 매긴 순번을 시나리오 순서로 이어서 다시 매김
+            for (StepResult step : scenarioResult.getStepResults()) {
+                step.setSeq(++seq);
+            }
+            scenarioResults.add(scenarioResult);
+            result.setCompletedSteps(result.getCompletedSteps() + shard.getCompletedSteps());
+            result.setPassedSteps(result.getPassedSteps() + shard.getPassedSteps());
+            result.setFailedSteps(result.getFailedSteps() + shard.getFailedSteps());
+            result.setTimedOutSteps(result.getTimedOutSteps() + shard.getTimedOutSteps());
+        }
+        result.setScenarioResults(scenarioResults);
+        result.setLastSeq(seq);
+        result.setMaxConcurrency(execution.getMaxConcurrency());
+        return result;
+    }
+    
+    /**
+     * 샤드별 진행 상황 (담당 워커, 시도 횟수)
+     */
+    public List<Map<String, Object>> getShards(String executionId) {
+        List<Map<String, Object>> shards = new ArrayList<>();
+        for (Shard shard : workQueue.findShards(executionId)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("shardIndex", shard.getShardIndex());
+            row.put("scenarioName", shard.getScenarioName());
+            row.put("status", shard.getStatus());
+            row.put("workerId", shard.getWorkerId());
+            row.put("attempts", shard.getAttempts());
+            row.put("stepCount", shard.getStepCount());
+            row.put("completedSteps", shard.getCompletedSteps());
+            row.put("passedSteps", shard.getPassedSteps());
+            shards.add(row);
+        }
+        return shards;
+    }
+    
+    /**
+     * 분산 실행 취소 (각 워커가 다음 하트비트에서 실행 중인 샤드를 중단)
+     */
+    public boolean cancelExecution(String executionId) {
+        return workQueue.cancel(executionId);
+    }
+    
+    /**
+     * 등록된 워커 목록 (lease 시간 안에 하트비트가 있으면 alive)
+     */
+    public List<Map<String, Object>> getWorkers() {
+        return workQueue.findWorkers(leaseMs);
+    }
+    
+    private ScenarioResult shardResult(Shard shard) {
+        if (shard.getResultJson() != null) {
+            try {
+                return objectMapper.readValue(shard.getResultJson(), ScenarioResult.class);
+            } catch (JsonProcessingException e) {
+                log.error("Failed to parse result of shard {}", shard.getShardId(), e);
+            }
+        }
+        ScenarioResult scenarioResult = new ScenarioResult();
+        scenarioResult.setScenarioIndex(shard.getShardIndex());
+        scenarioResult.setScenarioName(shard.getScenarioName());
+        scenarioResult.setStepResults(new ArrayList<>());
+        scenarioResult.setStatus("CLAIMED".equals(shard.getStatus()) ? "RUNNING" : shard.getStatus());
+        return scenarioResult;
+    }
+    
+    private String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "unknown";
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.apitest.service;
+
+import lombok.Data;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Work queue of distributed executions in DIST_EXECUTION / DIST_SHARD / DIST_WORKER. A shard is one scenario.
+ *
+ * Workers claim shards with {@code SELECT ... FOR UPDATE SKIP LOCKED}, so instances polling at the same time
+ * never wait on or take each other's rows. A claim is a lease until LEASE_UNTIL, which the claiming worker
+ * extends with every heartbeat; a shard whose lease ran out (its worker died or lost the database) can be
+ * claimed again, up to {@code maxAttempts} claims. Completing a shard is fenced on WORKER_ID, so a worker
+ * that lost its lease cannot overwrite the result of the worker that took the shard over.
+ * All times are the database's, instances need not agree on the clock.
+ */
+public class DistributedWorkQueue {
+
+    static final String INSERT_EXECUTION = "INSERT INTO DIST_EXECUTION (EXECUTION_ID, CASE_ID, ENGINE, MAX_CONCURRENCY, "
+        + "MATCH_RULES, STATUS, TOTAL_SHARDS, TOTAL_STEPS, CREATED_AT) VALUES (?, ?, ?, ?, ?, 'RUNNING', ?, ?, SYSTIMESTAMP)";
+    static final String INSERT_SHARD = "INSERT INTO DIST_SHARD (SHARD_ID, EXECUTION_ID, SHARD_INDEX, SCENARIO_ID, "
+        + "SCENARIO_NAME, STEP_COUNT, SCENARIO_JSON, STATUS, ATTEMPTS) "
+        + "VALUES (SEQ_DIST_SHARD.NEXTVAL, ?, ?, ?, ?, ?, ?, 'PENDING', 0)";
+    static final String SELECT_CLAIMABLE = "SELECT S.SHARD_ID, S.EXECUTION_ID, S.SHARD_INDEX, S.SCENARIO_ID, "
+        + "S.SCENARIO_NAME, S.STEP_COUNT, S.SCENARIO_JSON, E.CASE_ID, E.ENGINE, E.MAX_CONCURRENCY, "
+        + "E.MATCH_RULES FROM DIST_SHARD S JOIN DIST_EXECUTION E ON E.EXECUTION_ID = S.EXECUTION_ID "
+        + "WHERE E.STATUS = 'RUNNING' AND S.ATTEMPTS < ? "
+        + "AND (S.STATUS = 'PENDING' OR (S.STATUS = 'CLAIMED' AND S.LEASE_UNTIL < SYSTIMESTAMP)) "
+        + "ORDER BY S.SHARD_ID FOR UPDATE OF S.STATUS SKIP LOCKED";
+    static final String CLAIM_SHARD = "UPDATE DIST_SHARD SET STATUS = 'CLAIMED', WORKER_ID = ?, ATTEMPTS = ATTEMPTS + 1, "
+        + "LEASE_UNTIL = SYSTIMESTAMP + NUMTODSINTERVAL(? / 1000, 'SECOND') WHERE SHARD_ID = ?";
+    static final String RENEW_LEASES = "UPDATE DIST_SHARD SET LEASE_UNTIL = SYSTIMESTAMP + NUMTODSINTERVAL(? / 1000, 'SECOND') "
+        + "WHERE WORKER_ID = ? AND STATUS = 'CLAIMED'";
+    static final String UPDATE_WORKER = "UPDATE DIST_WORKER SET HEARTBEAT_AT = SYSTIMESTAMP WHERE WORKER_ID = ?";
+    static final String INSERT_WORKER = "INSERT INTO DIST_WORKER (WORKER_ID, HOST, STARTED_AT, HEARTBEAT_AT) "
+        + "VALUES (?, ?, SYSTIMESTAMP, SYSTIMESTAMP)";
+    static final String DELETE_WORKER = "DELETE FROM DIST_WORKER WHERE WORKER_ID = ?";
+    static final String SELECT_OWNED = "SELECT S.SHARD_ID, E.STATUS FROM DIST_SHARD S "
+        + "JOIN DIST_EXECUTION E ON E.EXECUTION_ID = S.EXECUTION_ID WHERE S.WORKER_ID = ? AND S.STATUS = 'CLAIMED'";
+    static final String COMPLETE_SHARD = "UPDATE DIST_SHARD SET STATUS = 'DONE', COMPLETED_STEPS = ?, PASSED_STEPS = ?, "
+        + "FAILED_STEPS = ?, TIMED_OUT_STEPS = ?, RESULT_JSON = ?, FINISHED_AT = SYSTIMESTAMP "
+        + "WHERE SHARD_ID = ? AND WORKER_ID = ? AND STATUS = 'CLAIMED'";
+    static final String RELEASE_SHARD = "UPDATE DIST_SHARD SET STATUS = 'PENDING', WORKER_ID = NULL, LEASE_UNTIL = NULL "
+        + "WHERE SHARD_ID = ? AND WORKER_ID = ? AND STATUS = 'CLAIMED'";
+    static final String SELECT_EXHAUSTED = "SELECT SHARD_ID, EXECUTION_ID FROM DIST_SHARD "
+        + "WHERE STATUS IN ('PENDING', 'CLAIMED') AND ATTEMPTS >= ? AND (LEASE_UNTIL IS NULL OR LEASE_UNTIL < SYSTIMESTAMP)";
+    static final String FAIL_SHARD = "UPDATE DIST_SHARD SET STATUS = 'FAILED', FINISHED_AT = SYSTIMESTAMP "
+        + "WHERE SHARD_ID = ? AND STATUS IN ('PENDING', 'CLAIMED') AND ATTEMPTS >= ? "
+        + "AND (LEASE_UNTIL IS NULL OR LEASE_UNTIL < SYSTIMESTAMP)";
+    static final String FINISH_EXECUTION = "UPDATE DIST_EXECUTION SET STATUS = 'COMPLETED', FINISHED_AT = SYSTIMESTAMP "
+        + "WHERE EXECUTION_ID = ? AND STATUS = 'RUNNING' AND NOT EXISTS (SELECT 1 FROM DIST_SHARD "
+        + "WHERE EXECUTION_ID = ? AND STATUS NOT IN ('DONE', 'FAILED'))";
+    static final String CANCEL_EXECUTION = "UPDATE DIST_EXECUTION SET STATUS = 'CANCELLED', FINISHED_AT = SYSTIMESTAMP "
+        + "WHERE EXECUTION_ID = ? AND STATUS = 'RUNNING'";
+    static final String SELECT_EXECUTION = "SELECT EXECUTION_ID, CASE_ID, ENGINE, MAX_CONCURRENCY, STATUS, TOTAL_SHARDS, "
+        + "TOTAL_STEPS, CREATED_AT, FINISHED_AT FROM DIST_EXECUTION WHERE EXECUTION_ID = ?";
+    static final String SELECT_SHARDS = "SELECT SHARD_ID, SHARD_INDEX, SCENARIO_NAME, STEP_COUNT, STATUS, WORKER_ID, "
+        + "ATTEMPTS, COMPLETED_STEPS, PASSED_STEPS, FAILED_STEPS, TIMED_OUT_STEPS, RESULT_JSON "
+        + "FROM DIST_SHARD WHERE EXECUTION_ID = ? ORDER BY SHARD_INDEX";
+    static final String SELECT_WORKERS = "SELECT WORKER_ID, HOST, STARTED_AT, HEARTBEAT_AT, "
+        + "CASE WHEN HEARTBEAT_AT > SYSTIMESTAMP - NUMTODSINTERVAL(? / 1000, 'SECOND') THEN 'Y' ELSE 'N' END ALIVE_YN "
+        + "FROM DIST_WORKER ORDER BY STARTED_AT";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public DistributedWorkQueue(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Create a RUNNING execution with one PENDING shard per scenario.
+     */
+    public void createExecution(Execution execution, List<Shard> shards) {
+        List<Object[]> rows = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            rows.add(new Object[]{execution.getExecutionId(), shard.getShardIndex(), shard.getScenarioId(),
+                shard.getScenarioName(), shard.getStepCount(), shard.getScenarioJson()});
+        }
+        transactionTemplate.execute(status -> {
+            jdbcTemplate.update(INSERT_EXECUTION, execution.getExecutionId(), execution.getCaseId(), execution.getEngine(),
+                execution.getMaxConcurrency(), execution.isMatchRules() ? "Y" : "N", execution.getTotalShards(),
+                execution.getTotalSteps());
+            jdbcTemplate.batchUpdate(INSERT_SHARD, rows);
+            return null;
+        });
+    }
+
+    /**
+     * Claim up to {@code max} shards for {@code workerId}, oldest first.
+     */
+    public List<Shard> claim(String workerId, int max, long leaseMs, int maxAttempts) {
+        return transactionTemplate.execute(status -> {
+            List<Shard> claimed = jdbcTemplate.query(con -> {
+                PreparedStatement ps = con.prepareStatement(SELECT_CLAIMABLE);
+                // Rows are locked as they are fetched: fetch no more than will be claimed
+                ps.setFetchSize(max);
+                ps.setMaxRows(max);
+                ps.setInt(1, maxAttempts);
+                return ps;
+            }, rs -> {
+                List<Shard> shards = new ArrayList<>();
+                while (shards.size() < max && rs.next()) {
+                    shards.add(claimableShard(rs));
+                }
+                return shards;
+            });
+            if (!claimed.isEmpty()) {
+                List<Object[]> rows = new ArrayList<>(claimed.size());
+                for (Shard shard : claimed) {
+                    rows.add(new Object[]{workerId, leaseMs, shard.getShardId()});
+                }
+                jdbcTemplate.batchUpdate(CLAIM_SHARD, rows);
+            }
+            return claimed;
+        });
+    }
+
+    /**
+     * Record the worker as alive and extend the leases of its shards.
+     */
+    public void heartbeat(String workerId, String host, long leaseMs) {
+        if (jdbcTemplate.update(UPDATE_WORKER, workerId) == 0) {
+            jdbcTemplate.update(INSERT_WORKER, workerId, host);
+        }
+        jdbcTemplate.update(RENEW_LEASES, leaseMs, workerId);
+    }
+
+    public void removeWorker(String workerId) {
+        jdbcTemplate.update(DELETE_WORKER, workerId);
+    }
+
+    /**
+     * Shards the worker still holds, with the status of their execution.
+     */
+    public Map<Long, String> ownedShards(String workerId) {
+        Map<Long, String> owned = new HashMap<>();
+        jdbcTemplate.query(SELECT_OWNED, (rs, rowNum) -> owned.put(rs.getLong(1), rs.getString(2)), workerId);
+        return owned;
+    }
+
+    /**
+     * Store the shard's result; false if the worker no longer holds the shard.
+     */
+    public boolean complete(Shard shard, String workerId, int completed, int passed, int failed, int timedOut,
+                            String resultJson) {
+        return jdbcTemplate.update(COMPLETE_SHARD, completed, passed, failed, timedOut, resultJson,
+            shard.getShardId(), workerId) == 1;
+    }
+
+    /**
+     * Give an unfinished shard back without waiting for its lease to run out, e.g. on shutdown.
+     */
+    public void release(Shard shard, String workerId) {
+        jdbcTemplate.update(RELEASE_SHARD, shard.getShardId(), workerId);
+    }
+
+    /**
+     * Mark the execution COMPLETED if none of its shards is left to run.
+     */
+    public void finishIfDone(String executionId) {
+        jdbcTemplate.update(FINISH_EXECUTION, executionId, executionId);
+    }
+
+    /**
+     * Fail shards that used up their claims and are not held by anyone, finishing their executions.
+     */
+    public int failExhausted(int maxAttempts) {
+        List<Object[]> exhausted = jdbcTemplate.query(SELECT_EXHAUSTED,
+            (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getString(2)}, maxAttempts);
+        int failed = 0;
+        for (Object[] shard : exhausted) {
+            if (jdbcTemplate.update(FAIL_SHARD, shard[0], maxAttempts) == 1) {
+                failed++;
+                finishIfDone((String) shard[1]);
+            }
+        }
+        return failed;
+    }
+
+    public boolean cancel(String executionId) {
+        return jdbcTemplate.update(CANCEL_EXECUTION, executionId) == 1;
+    }
+
+    public Execution findExecution(String executionId) {
+        List<Execution> executions = jdbcTemplate.query(SELECT_EXECUTION, (rs, rowNum) -> {
+            Execution execution = new Execution();
+            execution.setExecutionId(rs.getString("EXECUTION_ID"));
+            execution.setCaseId(nullableLong(rs, "CASE_ID"));
+            execution.setEngine(rs.getString("ENGINE"));
+            execution.setMaxConcurrency(rs.getInt("MAX_CONCURRENCY"));
+            execution.setStatus(rs.getString("STATUS"));
+            execution.setTotalShards(rs.getInt("TOTAL_SHARDS"));
+            execution.setTotalSteps(rs.getInt("TOTAL_STEPS"));
+            execution.setCreatedAt(rs.getTimestamp("CREATED_AT"));
+            execution.setFinishedAt(rs.getTimestamp("FINISHED_AT"));
+            return execution;
+        }, executionId);
+        return executions.isEmpty() ? null : executions.get(0);
+    }
+
+    public List<Shard> findShards(String executionId) {
+        return jdbcTemplate.query(SELECT_SHARDS, (rs, rowNum) -> {
+            Shard shard = new Shard();
+            shard.setShardId(rs.getLong("SHARD_ID"));
+            shard.setExecutionId(executionId);
+            shard.setShardIndex(rs.getInt("SHARD_INDEX"));
+            shard.setScenarioName(rs.getString("SCENARIO_NAME"));
+            shard.setStepCount(rs.getInt("STEP_COUNT"));
+            shard.setStatus(rs.getString("STATUS"));
+            shard.setWorkerId(rs.getString("WORKER_ID"));
+            shard.setAttempts(rs.getInt("ATTEMPTS"));
+            shard.setCompletedSteps(rs.getInt("COMPLETED_STEPS"));
+            shard.setPassedSteps(rs.getInt("PASSED_STEPS"));
+            shard.setFailedSteps(rs.getInt("FAILED_STEPS"));
+            shard.setTimedOutSteps(rs.getInt("TIMED_OUT_STEPS"));
+            shard.setResultJson(rs.getString("RESULT_JSON"));
+            return shard;
+        }, executionId);
+    }
+
+    /**
+     * Registered workers; alive if they sent a heartbeat within {@code leaseMs}.
+     */
+    public List<Map<String, Object>> findWorkers(long leaseMs) {
+        RowMapper<Map<String, Object>> mapper = (rs, rowNum) -> {
+            Map<String, Object> worker = new HashMap<>();
+            worker.put("workerId", rs.getString("WORKER_ID"));
+            worker.put("host", rs.getString("HOST"));
+            worker.put("startedAt", rs.getTimestamp("STARTED_AT"));
+            worker.put("heartbeatAt", rs.getTimestamp("HEARTBEAT_AT"));
+            worker.put("alive", "Y".equals(rs.getString("ALIVE_YN")));
+            return worker;
+        };
+        return jdbcTemplate.query(SELECT_WORKERS, mapper, leaseMs);
+    }
+
+    private static Shard claimableShard(ResultSet rs) throws SQLException {
+        Shard shard = new Shard();
+        shard.setShardId(rs.getLong("SHARD_ID"));
+        shard.setExecutionId(rs.getString("EXECUTION_ID"));
+        shard.setShardIndex(rs.getInt("SHARD_INDEX"));
+        shard.setScenarioId(nullableLong(rs, "SCENARIO_ID"));
+        shard.setScenarioName(rs.getString("SCENARIO_NAME"));
+        shard.setStepCount(rs.getInt("STEP_COUNT"));
+        shard.setScenarioJson(rs.getString("SCENARIO_JSON"));
+        shard.setCaseId(nullableLong(rs, "CASE_ID"));
+        shard.setEngine(rs.getString("ENGINE"));
+        shard.setMaxConcurrency(rs.getInt("MAX_CONCURRENCY"));
+        shard.setMatchRules("Y".equals(rs.getString("MATCH_RULES")));
+        return shard;
+    }
+
+    private static Long nullableLong(ResultSet rs, String column) throws SQLException {
+        long value = rs.getLong(column);
+        return rs.wasNull() ? null : value;
+    }
+
+    /**
+     * A DIST_EXECUTION row.
+     */
+    @Data
+    public static class Execution {
+        private String executionId;
+        private Long caseId;
+        private String engine;
+        private int maxConcurrency;
+        private boolean matchRules;
+        private String status;        // RUNNING, COMPLETED, CANCELLED
+        private int totalShards;
+        private int totalSteps;
+        private Timestamp createdAt;
+        private Timestamp finishedAt;
+    }
+
+    /**
+     * A DIST_SHARD row, with its execution's run options when claimed.
+     */
+    @Data
+    public static class Shard {
+        private long shardId;
+        private String executionId;
+        private int shardIndex;       // scenario index in the execution
+        private Long scenarioId;      // stored scenario, steps read from TEST_STEP
+        private String scenarioName;
+        private int stepCount;
+        private String scenarioJson;  // inline scenario when scenarioId is null
+        private String status;        // PENDING, CLAIMED, DONE, FAILED (claims used up)
+        private String workerId;
+        private int attempts;
+        private int completedSteps;
+        private int passedSteps;
+        private int failedSteps;
+        private int timedOutSteps;
+        private String resultJson;    // ScenarioResult
+        // From the execution
+        private Long caseId;
+        private String engine;
+        private int maxConcurrency;
+        private boolean matchRules;
+    }
+}
@@ -0,0 +1,266 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionRequest;
+import com.example.apitest.dto.TestExecutionResult;
+import com.example.apitest.dto.TestExecutionResult.ScenarioResult;
+import com.example.apitest.service.DistributedWorkQueue.Shard;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This instance's worker for distributed executions. It claims shards from {@link DistributedWorkQueue} while
+ * it runs fewer than {@code maxShards}, runs each as a local single-scenario execution and stores the
+ * scenario's result on the shard.
+ *
+ * The heartbeat extends the leases of running shards. It also stops local runs whose shard is no longer held
+ * (the lease ran out and another worker took it) or whose execution was cancelled.
+ */
+public class DistributedWorker {
+
+    private static final Logger log = LoggerFactory.getLogger(DistributedWorker.class);
+
+    private final DistributedWorkQueue queue;
+    private final TestExecutionService executionService;
+    private final TestCaseService caseService;
+    private final ObjectMapper objectMapper;
+    private final Executor callbackExecutor;
+    private final String workerId;
+    private final String host;
+    private final int maxShards;
+    private final long pollIntervalMs;
+    private final long heartbeatIntervalMs;
+    private final long leaseMs;
+    private final int maxAttempts;
+
+    private final Map<Long, RunningShard> running = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean stopped;
+
+    public DistributedWorker(DistributedWorkQueue queue, TestExecutionService executionService,
+                             TestCaseService caseService, ObjectMapper objectMapper, Executor callbackExecutor,
+                             String workerId, String host, int maxShards, long pollIntervalMs,
+                             long heartbeatIntervalMs, long leaseMs, int maxAttempts) {
+        this.queue = queue;
+        this.executionService = executionService;
+        this.caseService = caseService;
+        this.objectMapper = objectMapper;
+        this.callbackExecutor = callbackExecutor;
+        this.workerId = workerId;
+        this.host = host;
+        this.maxShards = Math.max(1, maxShards);
+        this.pollIntervalMs = Math.max(1, pollIntervalMs);
+        this.heartbeatIntervalMs = Math.max(1, heartbeatIntervalMs);
+        this.leaseMs = leaseMs;
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "distributed-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        // Heartbeat first: the worker is registered before it claims anything
+        scheduler.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatIntervalMs, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::poll, pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        log.info("Distributed worker {} started (max shards: {})", workerId, maxShards);
+    }
+
+    /**
+     * Stop claiming, hand running shards back to the queue and cancel their local runs.
+     */
+    public void stop() {
+        stopped = true;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            try {
+                // A poll in progress may still be starting shards it claimed; release those too
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (RunningShard shard : running.values()) {
+            try {
+                queue.release(shard.shard, workerId);
+            } catch (RuntimeException e) {
+                log.warn("Failed to release shard {}, it is claimable once its lease expires: {}",
+                    shard.shard.getShardId(), e.getMessage());
+            }
+            shard.abandoned = true;
+            executionService.cancelExecution(shard.localExecutionId);
+        }
+        try {
+            queue.removeWorker(workerId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to unregister distributed worker {}: {}", workerId, e.getMessage());
+        }
+    }
+
+    public int getRunningShards() {
+        return running.size();
+    }
+
+    private void poll() {
+        int free = maxShards - running.size();
+        if (stopped || free <= 0) {
+            return;
+        }
+        List<Shard> claimed;
+        try {
+            claimed = queue.claim(workerId, free, leaseMs, maxAttempts);
+        } catch (RuntimeException e) {
+            log.warn("Distributed worker {}: failed to claim shards: {}", workerId, e.getMessage());
+            return;
+        }
+        for (Shard shard : claimed) {
+            run(shard);
+        }
+    }
+
+    private void run(Shard shard) {
+        String localExecutionId;
+        try {
+            localExecutionId = executionService.startExecution(toRequest(shard));
+        } catch (RuntimeException e) {
+            // e.g. an unreadable scenario or an invalid rule; the shard is claimed again until its claims run out
+            log.warn("Shard {} of execution {} could not start: {}", shard.getShardId(), shard.getExecutionId(),
+                e.getMessage());
+            release(shard);
+            return;
+        }
+        RunningShard runningShard = new RunningShard(shard, localExecutionId);
+        running.put(shard.getShardId(), runningShard);
+        log.debug("Shard {} of execution {} running as {}", shard.getShardId(), shard.getExecutionId(), localExecutionId);
+
+        CompletableFuture<?> finished = executionService.whenFinished(localExecutionId);
+        // Not on the thread that completed the execution, which may be an NIO I/O thread
+        finished.thenRunAsync(() -> finish(runningShard), callbackExecutor);
+    }
+
+    private TestExecutionRequest toRequest(Shard shard) {
+        TestExecutionRequest.ScenarioExecution scenario;
+        if (shard.getScenarioId() != null) {
+            scenario = new TestExecutionRequest.ScenarioExecution();
+            scenario.setScenarioName(shard.getScenarioName());
+            scenario.setScenarioId(shard.getScenarioId());
+            scenario.setSteps(caseService.getScenarioSteps(shard.getScenarioId(), shard.getStepCount()));
+        } else {
+            try {
+                scenario = objectMapper.readValue(shard.getScenarioJson(), TestExecutionRequest.ScenarioExecution.class);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Unreadable scenario of shard " + shard.getShardId(), e);
+            }
+        }
+        List<TestExecutionRequest.ScenarioExecution> scenarios = new ArrayList<>();
+        scenarios.add(scenario);
+
+        TestExecutionRequest request = new TestExecutionRequest();
+        request.setScenarios(scenarios);
+        request.setEngine(shard.getEngine());
+        request.setMaxConcurrency(shard.getMaxConcurrency());
+        request.setMatchRules(shard.isMatchRules());
+        if (shard.getScenarioId() != null) {
+            request.setCaseId(shard.getCaseId());
+        }
+        return request;
+    }
+
+    private void finish(RunningShard runningShard) {
+        Shard shard = runningShard.shard;
+        running.remove(shard.getShardId());
+        if (runningShard.abandoned) {
+            // Released or taken over by another worker, its result is not ours to store
+            return;
+        }
+        TestExecutionResult result = executionService.getResult(runningShard.localExecutionId);
+        try {
+            ScenarioResult scenarioResult;
+            if (result != null && !result.getScenarioResults().isEmpty()) {
+                scenarioResult = result.getScenarioResults().get(0);
+            } else {
+                scenarioResult = new ScenarioResult();
+                scenarioResult.setStepResults(new ArrayList<>());
+                scenarioResult.setStatus(result != null ? result.getStatus() : "FAILED");
+            }
+            scenarioResult.setScenarioIndex(shard.getShardIndex());
+            scenarioResult.setScenarioName(shard.getScenarioName());
+
+            int completed = result != null ? result.getCompletedSteps() : 0;
+            int passed = result != null ? result.getPassedSteps() : 0;
+            int failed = result != null ? result.getFailedSteps() : 0;
+            int timedOut = result != null ? result.getTimedOutSteps() : 0;
+            if (!queue.complete(shard, workerId, completed, passed, failed, timedOut,
+                    objectMapper.writeValueAsString(scenarioResult))) {
+                log.warn("Shard {} of execution {} was taken over by another worker, result dropped",
+                    shard.getShardId(), shard.getExecutionId());
+                return;
+            }
+            queue.finishIfDone(shard.getExecutionId());
+        } catch (Exception e) {
+            // The lease runs out and another worker runs the shard again
+            log.warn("Failed to store result of shard {} of execution {}: {}", shard.getShardId(),
+                shard.getExecutionId(), e.getMessage());
+        }
+    }
+
+    private void heartbeat() {
+        if (stopped) {
+            return;
+        }
+        try {
+            queue.heartbeat(workerId, host, leaseMs);
+            Map<Long, String> owned = queue.ownedShards(workerId);
+            for (RunningShard runningShard : running.values()) {
+                String executionStatus = owned.get(runningShard.shard.getShardId());
+                if (executionStatus == null) {
+                    log.warn("Lost the lease of shard {} of execution {}, stopping its run",
+                        runningShard.shard.getShardId(), runningShard.shard.getExecutionId());
+                    runningShard.abandoned = true;
+                    executionService.cancelExecution(runningShard.localExecutionId);
+                } else if (!"RUNNING".equals(executionStatus)) {
+                    // Cancelled: what ran so far is still stored on the shard
+                    executionService.cancelExecution(runningShard.localExecutionId);
+                }
+            }
+            queue.failExhausted(maxAttempts);
+        } catch (RuntimeException e) {
+            // Leases run out if this goes on; the shards' fenced completion then fails
+            log.warn("Distributed worker {}: heartbeat failed: {}", workerId, e.getMessage());
+        }
+    }
+
+    private void release(Shard shard) {
+        try {
+            queue.release(shard, workerId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to release shard {}: {}", shard.getShardId(), e.getMessage());
+        }
+    }
+
+    private static final class RunningShard {
+        final Shard shard;
+        final String localExecutionId;
+        volatile boolean abandoned;
+
+        RunningShard(Shard shard, String localExecutionId) {
+            this.shard = shard;
+            this.localExecutionId = localExecutionId;
+        }
+    }
+}
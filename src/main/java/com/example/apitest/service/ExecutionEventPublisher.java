@@ -0,0 +1,254 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.ExecutionProgress;
+import com.example.apitest.dto.StepResultEvent;
+import com.example.apitest.dto.TestExecutionResult;
+import com.example.apitest.dto.TestExecutionResult.ScenarioResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Pushes step results and progress of running executions to Server-Sent Events subscribers.
+ * Execution threads only offer events to a bounded per-subscriber queue and never wait on a client;
+ * a sender task drains the queue to the connection. Progress is sent once per drained batch, so a
+ * slow client gets fewer progress updates, and a client that falls a full queue behind is sent an
+ * {@code overflow} event and disconnected, after which it can reconnect for a fresh snapshot.
+ *
+ * <p>Events: {@code snapshot} (full result, first), {@code step}, {@code progress}, {@code overflow}
+ * and {@code complete} (last, when the execution has finished).
+ */
+public class ExecutionEventPublisher {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionEventPublisher.class);
+    private static final int MAX_EVENTS_PER_BATCH = 256;
+
+    private final Map<String, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ExecutorService senderExecutor;
+    private final int queueCapacity;
+    private final long timeoutMs;
+
+    public ExecutionEventPublisher(ExecutorService senderExecutor, int queueCapacity, long timeoutMs) {
+        this.senderExecutor = senderExecutor;
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.timeoutMs = timeoutMs;
+    }
+
+    /**
+     * Register a subscriber. Steps recorded after this call are pushed as events, earlier ones
+     * are part of the snapshot sent first.
+     *
+     * @param snapshot current result of the execution, taken once when the subscriber starts
+     * @param progress current counters of the execution, taken once per sent batch
+     */
+    public SseEmitter subscribe(String executionId, Supplier<TestExecutionResult> snapshot,
+                                Supplier<ExecutionProgress> progress) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber subscriber = new Subscriber(executionId, emitter, snapshot, progress, queueCapacity);
+
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onTimeout(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+
+        subscribers.computeIfAbsent(executionId, id -> new CopyOnWriteArrayList<>()).add(subscriber);
+        schedule(subscriber);
+        return emitter;
+    }
+
+    public void publishStep(String executionId, StepResultEvent event) {
+        List<Subscriber> list = subscribers.get(executionId);
+        if (list == null) {
+            return;
+        }
+        for (Subscriber subscriber : list) {
+            if (!subscriber.queue.offer(event)) {
+                subscriber.overflowed = true;
+            }
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * Send a progress update without a new step, e.g. after pause or resume.
+     */
+    public void publishProgress(String executionId) {
+        List<Subscriber> list = subscribers.get(executionId);
+        if (list == null) {
+            return;
+        }
+        for (Subscriber subscriber : list) {
+            subscriber.progressChanged = true;
+            schedule(subscriber);
+        }
+    }
+
+    /**
+     * The execution has finished: send what is queued, a last progress update and close the streams.
+     */
+    public void complete(String executionId) {
+        List<Subscriber> list = subscribers.get(executionId);
+        if (list == null) {
+            return;
+        }
+        for (Subscriber subscriber : list) {
+            subscriber.finishing = true;
+            schedule(subscriber);
+        }
+    }
+
+    public int getSubscriberCount(String executionId) {
+        List<Subscriber> list = subscribers.get(executionId);
+        return list != null ? list.size() : 0;
+    }
+
+    public void close() {
+        subscribers.values().forEach(list -> list.forEach(subscriber -> {
+            subscriber.closed = true;
+            subscriber.emitter.complete();
+        }));
+        subscribers.clear();
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.closed || !subscriber.scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            senderExecutor.execute(() -> drain(subscriber));
+        } catch (RejectedExecutionException e) {
+            subscriber.scheduled.set(false);
+            remove(subscriber);
+        }
+    }
+
+    /**
+     * Runs on a sender thread, one drain at a time per subscriber. Writes may block on a slow client.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            if (subscriber.stepsInSnapshot == null) {
+                sendSnapshot(subscriber);
+            }
+
+            if (subscriber.overflowed) {
+                log.debug("Execution stream subscriber of {} fell {} events behind, disconnecting",
+                    subscriber.executionId, queueCapacity);
+                subscriber.queue.clear();
+                send(subscriber, "overflow", "Client too slow, reconnect or poll the result");
+                finish(subscriber);
+                return;
+            }
+
+            int sent = 0;
+            StepResultEvent event;
+            while (sent < MAX_EVENTS_PER_BATCH && !subscriber.overflowed && (event = subscriber.queue.poll()) != null) {
+                if (event.getStepIndex() < subscriber.stepsInSnapshot(event.getScenarioIndex())) {
+                    // Recorded between registration and snapshot, already sent
+                    continue;
+                }
+                // The sequence is the event id, a client that drops out can continue with the sinceSeq query
+                subscriber.emitter.send(SseEmitter.event().id(String.valueOf(event.getStepResult().getSeq()))
+                    .name("step").data(event, MediaType.APPLICATION_JSON));
+                sent++;
+            }
+
+            boolean finishing = subscriber.finishing && subscriber.queue.isEmpty();
+            if (sent > 0 || subscriber.progressChanged || finishing) {
+                subscriber.progressChanged = false;
+                send(subscriber, "progress", subscriber.progress.get());
+            }
+            if (finishing) {
+                send(subscriber, "complete", subscriber.executionId);
+                finish(subscriber);
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or the emitter already completed
+            log.debug("Execution stream subscriber of {} disconnected: {}", subscriber.executionId, e.getMessage());
+            remove(subscriber);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+
+        // Events offered while this drain was finishing
+        if (!subscriber.closed && (!subscriber.queue.isEmpty() || subscriber.overflowed
+                || subscriber.progressChanged || subscriber.finishing)) {
+            schedule(subscriber);
+        }
+    }
+
+    private void sendSnapshot(Subscriber subscriber) throws IOException {
+        TestExecutionResult result = subscriber.snapshot.get();
+        int scenarioCount = 0;
+        for (ScenarioResult scenarioResult : result.getScenarioResults()) {
+            scenarioCount = Math.max(scenarioCount, scenarioResult.getScenarioIndex() + 1);
+        }
+        int[] stepsInSnapshot = new int[scenarioCount];
+        for (ScenarioResult scenarioResult : result.getScenarioResults()) {
+            stepsInSnapshot[scenarioResult.getScenarioIndex()] = scenarioResult.getStepResults().size();
+        }
+        subscriber.stepsInSnapshot = stepsInSnapshot;
+        send(subscriber, "snapshot", result);
+
+        if (TestExecutionService.isFinished(result.getStatus())) {
+            // Subscribed after the run finished (completed, cancelled or timed out), nothing more will be published
+            subscriber.finishing = true;
+        }
+    }
+
+    private void send(Subscriber subscriber, String name, Object data) throws IOException {
+        subscriber.emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+    }
+
+    private void finish(Subscriber subscriber) {
+        remove(subscriber);
+        subscriber.emitter.complete();
+    }
+
+    private void remove(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.computeIfPresent(subscriber.executionId, (id, list) -> {
+            list.remove(subscriber);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    private static final class Subscriber {
+        final String executionId;
+        final SseEmitter emitter;
+        final Supplier<TestExecutionResult> snapshot;
+        final Supplier<ExecutionProgress> progress;
+        final ArrayBlockingQueue<StepResultEvent> queue;
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        volatile boolean progressChanged;
+        volatile boolean overflowed;
+        volatile boolean finishing;
+        volatile boolean closed;
+        // Steps per scenario index already sent in the snapshot, set by the first drain
+        int[] stepsInSnapshot;
+
+        Subscriber(String executionId, SseEmitter emitter, Supplier<TestExecutionResult> snapshot,
+                   Supplier<ExecutionProgress> progress, int queueCapacity) {
+            this.executionId = executionId;
+            this.emitter = emitter;
+            this.snapshot = snapshot;
+            this.progress = progress;
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        }
+
+        int stepsInSnapshot(int scenarioIndex) {
+            return scenarioIndex < stepsInSnapshot.length ? stepsInSnapshot[scenarioIndex] : 0;
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.ExecutionProgress;
+import com.example.apitest.dto.StepResultEvent;
+import com.example.apitest.dto.TestExecutionResult.StepResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes executions to TEST_RUN / TEST_RUN_STEP behind the execution. Execution threads only put records
+ * on a queue; one writer thread drains it and inserts steps with JDBC batches of up to
+ * {@code batchSize}, flushing a partial batch once the oldest record in it has waited {@code flushIntervalMs}.
+ * At most {@code queueCapacity} steps wait in the queue. When it is full, a blocking-engine worker waits
+ * for room, which slows the run down to what the database takes. NIO steps are recorded on selector
+ * threads, which must not wait: they are handed to one overflow thread that waits in their place and
+ * queues them in order. No step is dropped. A batch the database rejects is logged and dropped.
+ */
+public class ExecutionHistoryWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionHistoryWriter.class);
+    private static final int MAX_ERROR_MESSAGE = 1000;
+
+    static final String INSERT_RUN = "INSERT INTO TEST_RUN (EXECUTION_ID, CASE_ID, ENGINE, PARALLEL_YN, STATUS, "
+        + "TOTAL_STEPS, STARTED_AT) VALUES (?, ?, ?, ?, 'RUNNING', ?, ?)";
+    static final String INSERT_STEP = "INSERT INTO TEST_RUN_STEP (RUN_STEP_ID, EXECUTION_ID, SEQ, SCENARIO_INDEX, "
+        + "SCENARIO_NAME, STEP_INDEX, CASE_NO, PRIORITY, STATUS, EXECUTED_AT, EXECUTION_TIME_MS, ERROR_MESSAGE, "
+        + "REQUEST_JSON, MISMATCH_JSON) VALUES (SEQ_TEST_RUN_STEP.NEXTVAL, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    static final String FINISH_RUN = "UPDATE TEST_RUN SET STATUS = ?, COMPLETED_STEPS = ?, PASSED_STEPS = ?, "
+        + "FAILED_STEPS = ?, TIMED_OUT_STEPS = ?, FINISHED_AT = ? WHERE EXECUTION_ID = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    // One permit per step that may wait in the queue, taken before queueing and returned once written
+    private final Semaphore stepSlots;
+    private final int batchSize;
+    private final long flushIntervalMs;
+    private final Thread writerThread;
+    // Waits for a step slot in place of NIO I/O threads, in the order their steps were recorded
+    private final ExecutorService overflow;
+    private final AtomicInteger overflowPending = new AtomicInteger();
+    private final AtomicLong overflowedSteps = new AtomicLong();
+    private final AtomicLong droppedRecords = new AtomicLong();
+    private volatile boolean closed;
+
+    public ExecutionHistoryWriter(JdbcTemplate jdbcTemplate, int queueCapacity, int batchSize, long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.stepSlots = new Semaphore(Math.max(1, queueCapacity));
+        this.batchSize = Math.max(1, batchSize);
+        this.flushIntervalMs = Math.max(1, flushIntervalMs);
+        this.writerThread = new Thread(this::writeLoop, "execution-history-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        this.overflow = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "execution-history-overflow");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public void runStarted(String executionId, Long caseId, String engine, boolean parallel, int totalSteps) {
+        enqueue(new RunStarted(executionId, caseId, engine, parallel, totalSteps, System.currentTimeMillis()));
+    }
+
+    /**
+     * Queue the step. If {@code queueCapacity} steps are already waiting, the database is behind: with
+     * {@code mayBlock} the caller waits for room, otherwise the overflow thread waits in its place.
+     *
+     * @param mayBlock false on NIO I/O threads, which must never wait
+     */
+    public void stepRecorded(String executionId, StepResultEvent event, boolean mayBlock) {
+        StepRecorded record = new StepRecorded(executionId, event);
+        if (overflowPending.get() == 0 && stepSlots.tryAcquire()) {
+            enqueue(record);
+            return;
+        }
+        if (mayBlock) {
+            try {
+                stepSlots.acquire();
+                enqueue(record);
+                return;
+            } catch (InterruptedException e) {
+                // A cancel interrupts the worker; the step is still written, by the overflow thread
+                Thread.currentThread().interrupt();
+            }
+        }
+        overflowedSteps.incrementAndGet();
+        handOff(() -> {
+            stepSlots.acquireUninterruptibly();
+            enqueue(record);
+        });
+    }
+
+    public void runFinished(ExecutionProgress progress) {
+        RunFinished record = new RunFinished(progress, System.currentTimeMillis());
+        if (overflowPending.get() > 0) {
+            // Behind the run's steps that are still waiting for room
+            handOff(() -> enqueue(record));
+        } else {
+            enqueue(record);
+        }
+    }
+
+    private void handOff(Runnable task) {
+        overflowPending.incrementAndGet();
+        overflow.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                overflowPending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Steps that found the queue full on a thread that must not wait, and were queued by the overflow thread.
+     */
+    public long getOverflowedSteps() {
+        return overflowedSteps.get();
+    }
+
+    /**
+     * Records lost to database errors.
+     */
+    public long getDroppedRecords() {
+        return droppedRecords.get();
+    }
+
+    /**
+     * Write what is queued and stop, waiting at most {@code timeoutMs}.
+     */
+    public void close(long timeoutMs) {
+        // The writer keeps freeing step slots while the overflow thread queues what it holds
+        overflow.shutdown();
+        try {
+            if (!overflow.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS)) {
+                log.warn("Execution history overflow not queued in {}ms, {} records not written", timeoutMs,
+                    overflowPending.get());
+                overflow.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        closed = true;
+        try {
+            writerThread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            log.warn("Execution history writer did not finish in {}ms, {} records not written", timeoutMs, queue.size());
+            writerThread.interrupt();
+        }
+    }
+
+    private void enqueue(Object record) {
+        // Unbounded: steps are bounded by stepSlots, runs add two records each
+        queue.add(record);
+    }
+
+    private void writeLoop() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Object first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long flushAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < batchSize) {
+                    if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+                        continue;
+                    }
+                    long remaining = flushAt - System.nanoTime();
+                    if (remaining <= 0 || closed) {
+                        break;
+                    }
+                    Object next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                write(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(List<Object> batch) {
+        // Queue order is kept per kind; a run's start precedes and its finish follows its steps in the queue,
+        // so inserting starts, then steps, then finishes keeps every run consistent
+        List<Object[]> starts = new ArrayList<>();
+        List<Object[]> steps = new ArrayList<>();
+        List<Object[]> finishes = new ArrayList<>();
+        for (Object record : batch) {
+            if (record instanceof StepRecorded) {
+                stepSlots.release();
+                steps.add(((StepRecorded) record).toRow(mapper));
+            } else if (record instanceof RunStarted) {
+                starts.add(((RunStarted) record).toRow());
+            } else {
+                finishes.add(((RunFinished) record).toRow());
+            }
+        }
+        execute(INSERT_RUN, starts);
+        execute(INSERT_STEP, steps);
+        execute(FINISH_RUN, finishes);
+    }
+
+    private void execute(String sql, List<Object[]> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(sql, rows);
+        } catch (RuntimeException e) {
+            droppedRecords.addAndGet(rows.size());
+            log.warn("Failed to write {} execution history rows: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    private static String truncate(String value, int max) {
+        return value != null && value.length() > max ? value.substring(0, max) : value;
+    }
+
+    private static final class RunStarted {
+        final String executionId;
+        final Long caseId;
+        final String engine;
+        final boolean parallel;
+        final int totalSteps;
+        final long startedAt;
+
+        RunStarted(String executionId, Long caseId, String engine, boolean parallel, int totalSteps, long startedAt) {
+            this.executionId = executionId;
+            this.caseId = caseId;
+            this.engine = engine;
+            this.parallel = parallel;
+            this.totalSteps = totalSteps;
+            this.startedAt = startedAt;
+        }
+
+        Object[] toRow() {
+            return new Object[]{executionId, caseId, engine, parallel ? "Y" : "N", totalSteps, new Timestamp(startedAt)};
+        }
+    }
+
+    private static final class StepRecorded {
+        final String executionId;
+        final StepResultEvent event;
+
+        StepRecorded(String executionId, StepResultEvent event) {
+            this.executionId = executionId;
+            this.event = event;
+        }
+
+        Object[] toRow(ObjectMapper mapper) {
+            StepResult step = event.getStepResult();
+            return new Object[]{executionId, step.getSeq(), event.getScenarioIndex(), event.getScenarioName(),
+                event.getStepIndex(), step.getCaseNo(), step.getPriority(), step.getStatus(),
+                new Timestamp(step.getExecutionTimestamp()), step.getExecutionTime(),
+                truncate(step.getErrorMessage(), MAX_ERROR_MESSAGE),
+                // A passed step's request is in its case, or in the request that started the run
+                "PASS".equals(step.getStatus()) ? null : json(mapper, step.getRequestData()),
+                json(mapper, step.getMismatches())};
+        }
+
+        private static String json(ObjectMapper mapper, Map<String, ?> value) {
+            if (value == null || value.isEmpty()) {
+                return null;
+            }
+            try {
+                return mapper.writeValueAsString(value);
+            } catch (JsonProcessingException e) {
+                return null;
+            }
+        }
+    }
+
+    private static final class RunFinished {
+        final ExecutionProgress progress;
+        final long finishedAt;
+
+        RunFinished(ExecutionProgress progress, long finishedAt) {
+            this.progress = progress;
+            this.finishedAt = finishedAt;
+        }
+
+        Object[] toRow() {
+            return new Object[]{progress.getStatus(), progress.getCompletedSteps(), progress.getPassedSteps(),
+                progress.getFailedSteps(), progress.getTimedOutSteps(), new Timestamp(finishedAt),
+                progress.getExecutionId()};
+        }
+    }
+}
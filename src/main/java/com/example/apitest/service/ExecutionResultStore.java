@@ -0,0 +1,90 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionResult;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Finished execution results evicted from memory, one gzip-compressed JSON file per execution.
+ * Fixed-length telegram fields repeat heavily across steps, so results compress to a small fraction.
+ */
+public class ExecutionResultStore {
+
+    private static final Logger log = LoggerFactory.getLogger(ExecutionResultStore.class);
+    private static final String SUFFIX = ".json.gz";
+    // Execution ids are UUIDs; anything else must not reach the file system
+    private static final Pattern EXECUTION_ID = Pattern.compile("[A-Za-z0-9-]{1,64}");
+
+    private final ObjectMapper mapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final Path directory;
+
+    public ExecutionResultStore(Path directory) {
+        this.directory = directory;
+    }
+
+    public void save(TestExecutionResult result) throws IOException {
+        Files.createDirectories(directory);
+        Path target = path(result.getExecutionId());
+        Path temp = Files.createTempFile(directory, result.getExecutionId(), ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)), 64 * 1024)) {
+                mapper.writeValue(out, result);
+            }
+            // Readers see either no file or the whole file
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @return the stored result, or null if there is none
+     */
+    public TestExecutionResult load(String executionId) throws IOException {
+        if (!EXECUTION_ID.matcher(executionId).matches()) {
+            return null;
+        }
+        Path path = path(executionId);
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(path)), 64 * 1024)) {
+            return mapper.readValue(in, TestExecutionResult.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Delete stored results last written before {@code cutoffMillis}.
+     */
+    public void deleteOlderThan(long cutoffMillis) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        int deleted = 0;
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))::iterator) {
+                if (Files.getLastModifiedTime(path).toMillis() < cutoffMillis && Files.deleteIfExists(path)) {
+                    deleted++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up stored execution results in {}: {}", directory, e.getMessage());
+        }
+        if (deleted > 0) {
+            log.info("Deleted {} stored execution results from {}", deleted, directory);
+        }
+    }
+
+    private Path path(String executionId) {
+        return directory.resolve(executionId + SUFFIX);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.apitest.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Grants step permits to concurrent executions.
+ * A global cap bounds the steps in flight across all executions, each execution has its own
+ * concurrency limit, and waiting executions are served round-robin so one large run cannot
+ * starve another. Every granted permit must be returned with {@link #release}.
+ */
+public class ExecutionScheduler {
+
+    // Callbacks granted on this thread while it is already running one, see dispatch()
+    private static final ThreadLocal<Trampoline> TRAMPOLINE = ThreadLocal.withInitial(Trampoline::new);
+
+    private final int maxInFlightSteps;
+    private final ReentrantLock lock = new ReentrantLock();
+    // Executions that have waiting steps, in round-robin order
+    private final ArrayDeque<RunQueue> ready = new ArrayDeque<>();
+    private int inFlightSteps = 0;
+
+    public ExecutionScheduler(int maxInFlightSteps) {
+        this.maxInFlightSteps = Math.max(1, maxInFlightSteps);
+    }
+
+    public RunQueue register(String executionId, int maxConcurrency) {
+        return new RunQueue(executionId, Math.max(1, maxConcurrency));
+    }
+
+    /**
+     * Block until the execution may start one more step.
+     */
+    public void acquire(RunQueue run) throws InterruptedException {
+        Waiter waiter = new Waiter(null);
+        enqueue(run, waiter);
+        try {
+            waiter.granted.get();
+        } catch (InterruptedException e) {
+            cancel(run, waiter);
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Run {@code onGranted} once the execution may start one more step.
+     * The callback runs on the thread that frees the permit (or the caller), so it must not block.
+     * A callback granted while another one runs on the same thread runs after it returns, so a chain
+     * of grant, release and grant again loops instead of growing the stack.
+     */
+    public void acquireAsync(RunQueue run, Runnable onGranted) {
+        enqueue(run, new Waiter(onGranted));
+    }
+
+    public void release(RunQueue run) {
+        lock.lock();
+        try {
+            run.inFlight--;
+            inFlightSteps--;
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+    }
+
+    public int getInFlightSteps() {
+        lock.lock();
+        try {
+            return inFlightSteps;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getMaxInFlightSteps() {
+        return maxInFlightSteps;
+    }
+
+    private void enqueue(RunQueue run, Waiter waiter) {
+        lock.lock();
+        try {
+            run.waiters.add(waiter);
+            if (!run.inReadyQueue) {
+                run.inReadyQueue = true;
+                ready.add(run);
+            }
+        } finally {
+            lock.unlock();
+        }
+        dispatch();
+    }
+
+    private void cancel(RunQueue run, Waiter waiter) {
+        boolean granted;
+        lock.lock();
+        try {
+            granted = !run.waiters.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+        if (granted) {
+            // The permit was handed over while we were being interrupted
+            release(run);
+        }
+    }
+
+    private void dispatch() {
+        List<Waiter> granted = new ArrayList<>();
+        lock.lock();
+        try {
+            while (inFlightSteps < maxInFlightSteps && !ready.isEmpty()) {
+                Waiter waiter = grantNext();
+                if (waiter == null) {
+                    break;
+                }
+                granted.add(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Hand over permits outside the lock, callbacks may acquire again
+        Trampoline trampoline = TRAMPOLINE.get();
+        for (Waiter waiter : granted) {
+            if (waiter.onGranted != null) {
+                trampoline.callbacks.add(waiter.onGranted);
+            } else {
+                waiter.granted.complete(null);
+            }
+        }
+        if (trampoline.running) {
+            // A callback further up this thread's stack released or acquired: its loop runs these
+            return;
+        }
+
+        trampoline.running = true;
+        RuntimeException failure = null;
+        try {
+            Runnable callback;
+            while ((callback = trampoline.callbacks.poll()) != null) {
+                try {
+                    callback.run();
+                } catch (RuntimeException e) {
+                    // Keep going: every queued callback holds a permit
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+        } finally {
+            trampoline.running = false;
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * One round-robin pass: grant the first execution below its own limit, then move it to the back.
+     */
+    private Waiter grantNext() {
+        int candidates = ready.size();
+        for (int i = 0; i < candidates; i++) {
+            RunQueue run = ready.poll();
+            if (run.waiters.isEmpty()) {
+                run.inReadyQueue = false;
+                continue;
+            }
+            if (run.inFlight >= run.maxConcurrency) {
+                ready.add(run);
+                continue;
+            }
+
+            Waiter waiter = run.waiters.poll();
+            long waitNanos = System.nanoTime() - waiter.enqueuedAt;
+            run.totalWaitNanos += waitNanos;
+            run.maxWaitNanos = Math.max(run.maxWaitNanos, waitNanos);
+            run.grantedSteps++;
+            run.inFlight++;
+            inFlightSteps++;
+
+            if (run.waiters.isEmpty()) {
+                run.inReadyQueue = false;
+            } else {
+                ready.add(run);
+            }
+            return waiter;
+        }
+        return null;
+    }
+
+    private static final class Trampoline {
+        final ArrayDeque<Runnable> callbacks = new ArrayDeque<>();
+        boolean running;
+    }
+
+    private static final class Waiter {
+        final long enqueuedAt = System.nanoTime();
+        final Runnable onGranted;
+        final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+        Waiter(Runnable onGranted) {
+            this.onGranted = onGranted;
+        }
+    }
+
+    /**
+     * Scheduling state of one execution. Guarded by the scheduler lock.
+     */
+    public final class RunQueue {
+        private final String executionId;
+        private final int maxConcurrency;
+        private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+        private boolean inReadyQueue;
+        private int inFlight;
+        private long grantedSteps;
+        private long totalWaitNanos;
+        private long maxWaitNanos;
+
+        private RunQueue(String executionId, int maxConcurrency) {
+            this.executionId = executionId;
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public String getExecutionId() {
+            return executionId;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        /**
+         * Steps waiting for a permit.
+         */
+        public int getQueueDepth() {
+            lock.lock();
+            try {
+                return waiters.size();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public int getInFlight() {
+            lock.lock();
+            try {
+                return inFlight;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public double getAverageWaitMillis() {
+            lock.lock();
+            try {
+                return grantedSteps == 0 ? 0 : totalWaitNanos / (double) grantedSteps / 1_000_000;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public double getMaxWaitMillis() {
+            lock.lock();
+            try {
+                return maxWaitNanos / 1_000_000.0;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
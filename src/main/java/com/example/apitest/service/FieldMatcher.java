@@ -0,0 +1,219 @@
+package com.example.apitest.service;
+
+import java.math.BigDecimal;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * One expected value of a step, compiled once per run. Expected values are compared literally
+ * ({@link #literal}) unless the case opts in to rules ({@code matchRules}), in which case the expected
+ * value selects the rule ({@link #compile}):
+ * <ul>
+ *   <li>{@code *}: ignore the field</li>
+ *   <li>{@code trim:value}: equal after trimming whitespace on both sides</li>
+ *   <li>{@code num:10000} or {@code num:10000±5} ({@code +-} also accepted): numerically equal, within the tolerance</li>
+ *   <li>{@code re:pattern}: the whole value matches the regular expression</li>
+ *   <li>{@code like:pattern}: wildcard match, {@code *} any characters and {@code ?} one character</li>
+ *   <li>{@code eq:value} or anything else: exact match ({@code eq:} only to escape values that look like a rule)</li>
+ * </ul>
+ * Instances are immutable and shared by every step with the same expected value.
+ */
+public final class FieldMatcher {
+
+    enum Kind { EXACT, TRIM, NUMERIC, REGEX, WILDCARD, IGNORE }
+
+    private static final FieldMatcher IGNORE = new FieldMatcher(Kind.IGNORE, null, null, 0, 0, null, null);
+
+    private final Kind kind;
+    private final String value;
+    private final Pattern pattern;
+    // Integral numbers compare as longs without allocating, others through BigDecimal
+    private final long center;
+    private final long tolerance;
+    private final BigDecimal decimalCenter;
+    private final BigDecimal decimalTolerance;
+
+    private FieldMatcher(Kind kind, String value, Pattern pattern, long center, long tolerance,
+                         BigDecimal decimalCenter, BigDecimal decimalTolerance) {
+        this.kind = kind;
+        this.value = value;
+        this.pattern = pattern;
+        this.center = center;
+        this.tolerance = tolerance;
+        this.decimalCenter = decimalCenter;
+        this.decimalTolerance = decimalTolerance;
+    }
+
+    /**
+     * Exact match of the value as written, whatever it looks like.
+     */
+    public static FieldMatcher literal(String expected) {
+        return exact(expected != null ? expected : "");
+    }
+
+    /**
+     * Read {@code expected} as a rule.
+     *
+     * @throws IllegalArgumentException if a regular expression or number does not parse
+     */
+    public static FieldMatcher compile(String expected) {
+        if (expected == null) {
+            return exact("");
+        }
+        if (expected.equals("*")) {
+            return IGNORE;
+        }
+        if (expected.startsWith("eq:")) {
+            return exact(expected.substring(3));
+        }
+        if (expected.startsWith("trim:")) {
+            return new FieldMatcher(Kind.TRIM, expected.substring(5).trim(), null, 0, 0, null, null);
+        }
+        if (expected.startsWith("num:")) {
+            return numeric(expected.substring(4));
+        }
+        if (expected.startsWith("re:")) {
+            try {
+                return new FieldMatcher(Kind.REGEX, null, Pattern.compile(expected.substring(3)), 0, 0, null, null);
+            } catch (PatternSyntaxException e) {
+                throw new IllegalArgumentException("Invalid regular expression in '" + expected + "': " + e.getDescription());
+            }
+        }
+        if (expected.startsWith("like:")) {
+            return new FieldMatcher(Kind.WILDCARD, expected.substring(5), null, 0, 0, null, null);
+        }
+        return exact(expected);
+    }
+
+    private static FieldMatcher exact(String value) {
+        return new FieldMatcher(Kind.EXACT, value, null, 0, 0, null, null);
+    }
+
+    private static FieldMatcher numeric(String spec) {
+        String number = spec;
+        String tolerance = "0";
+        int separator = spec.indexOf('±');
+        int separatorLength = 1;
+        if (separator < 0) {
+            separator = spec.indexOf("+-");
+            separatorLength = 2;
+        }
+        if (separator >= 0) {
+            number = spec.substring(0, separator);
+            tolerance = spec.substring(separator + separatorLength);
+        }
+
+        BigDecimal decimalCenter;
+        BigDecimal decimalTolerance;
+        try {
+            decimalCenter = new BigDecimal(number.trim());
+            decimalTolerance = new BigDecimal(tolerance.trim()).abs();
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number in 'num:" + spec + "'");
+        }
+        try {
+            return new FieldMatcher(Kind.NUMERIC, null, null,
+                decimalCenter.longValueExact(), decimalTolerance.longValueExact(), null, null);
+        } catch (ArithmeticException e) {
+            return new FieldMatcher(Kind.NUMERIC, null, null, 0, 0, decimalCenter, decimalTolerance);
+        }
+    }
+
+    public boolean isIgnored() {
+        return kind == Kind.IGNORE;
+    }
+
+    /**
+     * Whether the rule is a plain comparison, so a match means the actual value equals the expected one.
+     */
+    public boolean isExact() {
+        return kind == Kind.EXACT;
+    }
+
+    public boolean matches(String actual) {
+        switch (kind) {
+            case EXACT:
+                return value.equals(actual);
+            case TRIM:
+                return value.equals(actual.trim());
+            case NUMERIC:
+                return decimalCenter == null ? matchesLong(actual) : matchesDecimal(actual);
+            case REGEX:
+                return pattern.matcher(actual).matches();
+            case WILDCARD:
+                return wildcardMatches(value, actual);
+            default:
+                return true;
+        }
+    }
+
+    private boolean matchesLong(String actual) {
+        int start = 0;
+        int end = actual.length();
+        while (start < end && actual.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && actual.charAt(end - 1) == ' ') {
+            end--;
+        }
+        boolean negative = start < end && actual.charAt(start) == '-';
+        int pos = negative || (start < end && actual.charAt(start) == '+') ? start + 1 : start;
+        if (pos == end || end - pos > 18) {
+            return pos < end && matchesDecimal(actual);
+        }
+
+        long number = 0;
+        for (; pos < end; pos++) {
+            int digit = actual.charAt(pos) - '0';
+            if (digit < 0 || digit > 9) {
+                // Decimal point or exponent: rare, take the slow path
+                return matchesDecimal(actual);
+            }
+            number = number * 10 + digit;
+        }
+        if (negative) {
+            number = -number;
+        }
+        return Math.abs(number - center) <= tolerance;
+    }
+
+    private boolean matchesDecimal(String actual) {
+        BigDecimal number;
+        try {
+            number = new BigDecimal(actual.trim());
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        BigDecimal expectedCenter = decimalCenter != null ? decimalCenter : BigDecimal.valueOf(center);
+        BigDecimal expectedTolerance = decimalTolerance != null ? decimalTolerance : BigDecimal.valueOf(tolerance);
+        return number.subtract(expectedCenter).abs().compareTo(expectedTolerance) <= 0;
+    }
+
+    /**
+     * Glob match without backtracking blow-up: on a mismatch, retry from just after the last {@code *}.
+     */
+    static boolean wildcardMatches(String pattern, String text) {
+        int p = 0;
+        int t = 0;
+        int star = -1;
+        int starText = 0;
+        while (t < text.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == text.charAt(t))) {
+                p++;
+                t++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                starText = t;
+            } else if (star >= 0) {
+                p = star + 1;
+                t = ++starText;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.apitest.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size log-linear histogram of microsecond values, safe to record from many threads.
+ * Values below 256 are exact; above that each power of two is split into 128 buckets,
+ * so a reported percentile is within 0.8% of the recorded value.
+ * Requests that never got an answer are recorded as {@link #recordUnanswered() unanswered}: they count
+ * as longer than every recorded value, so a percentile that falls among them is {@link #UNANSWERED}
+ * instead of the histogram quietly describing only the requests that were answered.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Percentile or maximum that lies among the unanswered requests.
+     */
+    public static final long UNANSWERED = Long.MAX_VALUE;
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * HALF_SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder unanswered = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(index(value));
+        count.increment();
+        sum.add(value);
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Record a request that was due but never answered (not sent, or no response in time).
+     */
+    public void recordUnanswered() {
+        unanswered.increment();
+    }
+
+    /**
+     * Answered and unanswered requests.
+     */
+    public long getCount() {
+        return count.sum() + unanswered.sum();
+    }
+
+    public long getUnansweredCount() {
+        return unanswered.sum();
+    }
+
+    /**
+     * Mean of the answered requests only.
+     */
+    public double getMeanMicros() {
+        long n = count.sum();
+        return n == 0 ? 0 : sum.sum() / (double) n;
+    }
+
+    /**
+     * @return {@link #UNANSWERED} if any request was unanswered
+     */
+    public long getMaxMicros() {
+        return unanswered.sum() > 0 ? UNANSWERED : max.get();
+    }
+
+    /**
+     * @param percentile 0-100, e.g. 99.9
+     * @return {@link #UNANSWERED} if the percentile lies among the unanswered requests
+     */
+    public long getValueAtPercentile(double percentile) {
+        long answered = count.sum();
+        long total = answered + unanswered.sum();
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        if (target > answered) {
+            return UNANSWERED;
+        }
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts.get(i);
+            if (cumulative >= target) {
+                return Math.min(valueOf(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // Keep the top SUB_BUCKET_BITS bits: value >>> shift falls in [128, 256)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        return shift * HALF_SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Middle of the bucket's value range.
+     */
+    private static long valueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - HALF_SUB_BUCKETS) / HALF_SUB_BUCKETS;
+        long subBucket = index - (long) shift * HALF_SUB_BUCKETS;
+        return (subBucket << shift) + (1L << shift) / 2;
+    }
+}
@@ -0,0 +1,315 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.LoadTestRequest;
+import com.example.apitest.dto.LoadTestResult;
+import com.example.apitest.tcp.NioTcpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * One open-model load run. A pacer thread sends the i-th request at its scheduled time, derived from
+ * the (ramped) rate alone, and never waits for responses. Latency is measured from the scheduled time,
+ * not the actual send, so a stalled host or a pacer that falls behind shows up in the percentiles
+ * instead of silently lowering the send rate (coordinated omission). Requests dropped at
+ * {@code maxOutstanding} and requests still unanswered when the drain ends are exactly what a stalled
+ * host produces, so they stay in the percentiles as unanswered samples rather than only in a counter.
+ */
+public class LoadTestRun {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRun.class);
+    private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    // Set on the outstanding count when the run stops measuring, responses after that are not recorded
+    private static final long MEASUREMENT_CLOSED = 1L << 62;
+
+    private final String loadTestId;
+    private final LoadTestRequest request;
+    private final List<PreparedStep> steps;
+    private final NioTcpClient client;
+    private final int responseLength;
+    private final int maxOutstanding;
+    private final long drainTimeoutMs;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LatencyHistogram serviceTime = new LatencyHistogram();
+    private final AtomicLong outstanding = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong mismatched = new AtomicLong();
+    private final AtomicLong transportErrors = new AtomicLong();
+    private final AtomicLongArray sentPerSecond;
+    private final AtomicLongArray completedPerSecond;
+    private final AtomicLongArray errorsPerSecond;
+    // Written by the pacer thread only
+    private volatile long scheduled;
+    private volatile long sent;
+    private volatile long dropped;
+    // Sent but not answered when measurement closed, set once by the pacer thread
+    private volatile long unanswered;
+
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile boolean stopRequested;
+    private volatile String status = "RUNNING";
+    private volatile long finishedAt;
+
+    public LoadTestRun(String loadTestId, LoadTestRequest request, List<PreparedStep> steps, NioTcpClient client,
+                       int responseLength, int maxOutstanding, long drainTimeoutMs) {
+        this.loadTestId = loadTestId;
+        this.request = request;
+        this.steps = steps;
+        this.client = client;
+        this.responseLength = responseLength;
+        this.maxOutstanding = maxOutstanding;
+        this.drainTimeoutMs = drainTimeoutMs;
+
+        int seconds = request.getDurationSeconds() + (int) TimeUnit.MILLISECONDS.toSeconds(drainTimeoutMs) + 2;
+        this.sentPerSecond = new AtomicLongArray(seconds);
+        this.completedPerSecond = new AtomicLongArray(seconds);
+        this.errorsPerSecond = new AtomicLongArray(seconds);
+    }
+
+    /**
+     * Pacer loop, runs on the calling thread until the duration is over and responses have drained.
+     */
+    public void run() {
+        startNanos = System.nanoTime();
+        long total = (long) Math.floor(dueAt(request.getDurationSeconds()));
+        log.info("Load test {} started: {} requests over {}s", loadTestId, total, request.getDurationSeconds());
+
+        long i = 0;
+        while (i < total && !stopRequested) {
+            long intended = startNanos + intendedOffsetNanos(i);
+            long now = System.nanoTime();
+            if (intended > now) {
+                LockSupport.parkNanos(Math.min(intended - now, MAX_PARK_NANOS));
+                continue;
+            }
+            // Behind schedule: catch up back to back, each request keeps its own scheduled time
+            fire(steps.get((int) (i % steps.size())), intended);
+            scheduled = ++i;
+        }
+        endNanos = System.nanoTime();
+
+        long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        while (outstanding.get() > 0 && System.nanoTime() < drainDeadline && !stopRequested) {
+            LockSupport.parkNanos(MAX_PARK_NANOS);
+        }
+        // Whatever is still outstanding now never counts as answered, however late its response comes
+        long stillOutstanding = outstanding.getAndAdd(MEASUREMENT_CLOSED);
+        for (long n = 0; n < stillOutstanding; n++) {
+            latency.recordUnanswered();
+            serviceTime.recordUnanswered();
+        }
+        unanswered = stillOutstanding;
+
+        finishedAt = System.currentTimeMillis();
+        status = stopRequested ? "STOPPED" : "COMPLETED";
+        log.info("Load test {} {}: sent={}, completed={}, dropped={}, unanswered={}, p99={}", loadTestId, status,
+            sent, completed.get(), dropped, stillOutstanding, formatMillis(latency.getValueAtPercentile(99)));
+    }
+
+    private void fire(PreparedStep step, long intended) {
+        int second = secondOf(intended);
+        if (outstanding.get() >= maxOutstanding) {
+            // Counted as an error rather than skipped, so the schedule stays open-model,
+            // and as an unanswered latency sample: it was due and never got a response
+            dropped++;
+            latency.recordUnanswered();
+            errorsPerSecond.incrementAndGet(second);
+            return;
+        }
+
+        outstanding.incrementAndGet();
+        sent++;
+        sentPerSecond.incrementAndGet(second);
+        long sentAt = System.nanoTime();
+        client.send(step.request, responseLength).whenComplete((response, error) -> {
+            if (!settle()) {
+                // Already recorded as unanswered when the drain ended
+                return;
+            }
+            long done = System.nanoTime();
+            latency.record(TimeUnit.NANOSECONDS.toMicros(done - intended));
+            serviceTime.record(TimeUnit.NANOSECONDS.toMicros(done - sentAt));
+
+            int completedSecond = secondOf(done);
+            if (error != null) {
+                transportErrors.incrementAndGet();
+                errorsPerSecond.incrementAndGet(completedSecond);
+            } else if (!step.expectations.matches(response, 0)) {
+                mismatched.incrementAndGet();
+                errorsPerSecond.incrementAndGet(completedSecond);
+            }
+            completedPerSecond.incrementAndGet(completedSecond);
+            completed.incrementAndGet();
+        });
+    }
+
+    /**
+     * Take one response off the outstanding count, false once measurement has closed.
+     */
+    private boolean settle() {
+        while (true) {
+            long current = outstanding.get();
+            if ((current & MEASUREMENT_CLOSED) != 0) {
+                return false;
+            }
+            if (outstanding.compareAndSet(current, current - 1)) {
+                return true;
+            }
+        }
+    }
+
+    private int secondOf(long nanos) {
+        long second = TimeUnit.NANOSECONDS.toSeconds(nanos - startNanos);
+        return (int) Math.max(0, Math.min(second, sentPerSecond.length() - 1));
+    }
+
+    /**
+     * Scheduled rate at {@code t} seconds: linear ramp, then constant.
+     */
+    private double rateAt(double t) {
+        int ramp = request.getRampSeconds();
+        if (ramp <= 0 || t >= ramp) {
+            return request.getTargetTps();
+        }
+        return request.getStartTps() + (request.getTargetTps() - request.getStartTps()) * t / ramp;
+    }
+
+    /**
+     * Requests due within the first {@code t} seconds, the integral of {@link #rateAt}.
+     */
+    double dueAt(double t) {
+        int ramp = request.getRampSeconds();
+        double start = request.getStartTps();
+        double target = request.getTargetTps();
+        if (ramp <= 0) {
+            return target * t;
+        }
+        if (t <= ramp) {
+            return start * t + (target - start) * t * t / (2.0 * ramp);
+        }
+        return (start + target) * ramp / 2.0 + target * (t - ramp);
+    }
+
+    /**
+     * Scheduled send time of the i-th request, the inverse of {@link #dueAt}.
+     */
+    long intendedOffsetNanos(long i) {
+        int ramp = request.getRampSeconds();
+        double start = request.getStartTps();
+        double target = request.getTargetTps();
+        double seconds;
+        if (ramp <= 0) {
+            seconds = i / target;
+        } else if (i >= dueAt(ramp)) {
+            seconds = ramp + (i - dueAt(ramp)) / target;
+        } else {
+            double slope = (target - start) / ramp;
+            seconds = slope == 0
+                ? i / start
+                : (-start + Math.sqrt(start * start + 2 * slope * i)) / slope;
+        }
+        return (long) (seconds * 1_000_000_000L);
+    }
+
+    public void stop() {
+        stopRequested = true;
+    }
+
+    public boolean isFinished() {
+        return !"RUNNING".equals(status);
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public LoadTestResult toResult() {
+        LoadTestResult result = new LoadTestResult();
+        result.setLoadTestId(loadTestId);
+        result.setStatus(status);
+        result.setTargetTps(request.getTargetTps());
+        result.setStartTps(request.getStartTps());
+        result.setRampSeconds(request.getRampSeconds());
+        result.setDurationSeconds(request.getDurationSeconds());
+
+        long started = startNanos;
+        long sendingEnded = endNanos;
+        long elapsedNanos = started == 0 ? 0 : (sendingEnded != 0 ? sendingEnded : System.nanoTime()) - started;
+        result.setElapsedMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+
+        long scheduledCount = scheduled;
+        long completedCount = completed.get();
+        long errors = mismatched.get() + transportErrors.get() + dropped + unanswered;
+        result.setScheduledRequests(scheduledCount);
+        result.setSentRequests(sent);
+        result.setCompletedRequests(completedCount);
+        result.setMismatchedRequests(mismatched.get());
+        result.setTransportErrors(transportErrors.get());
+        result.setDroppedRequests(dropped);
+        result.setUnansweredRequests(unanswered);
+        result.setOutstandingRequests(outstanding.get() & ~MEASUREMENT_CLOSED);
+        result.setAchievedTps(elapsedNanos > 0 ? completedCount / (elapsedNanos / 1e9) : 0);
+        result.setErrorRate(scheduledCount > 0 ? errors / (double) scheduledCount : 0);
+        result.setLatency(summary(latency));
+        result.setServiceTime(summary(serviceTime));
+
+        List<LoadTestResult.Interval> intervals = new ArrayList<>();
+        int lastSecond = started == 0 ? -1 : secondOf(System.nanoTime());
+        for (int second = 0; second <= lastSecond; second++) {
+            LoadTestResult.Interval interval = new LoadTestResult.Interval();
+            interval.setSecond(second);
+            interval.setTargetTps(second < request.getDurationSeconds() ? rateAt(second + 0.5) : 0);
+            interval.setSent(sentPerSecond.get(second));
+            interval.setCompleted(completedPerSecond.get(second));
+            interval.setErrors(errorsPerSecond.get(second));
+            intervals.add(interval);
+        }
+        result.setIntervals(intervals);
+        return result;
+    }
+
+    private LoadTestResult.LatencySummary summary(LatencyHistogram histogram) {
+        LoadTestResult.LatencySummary summary = new LoadTestResult.LatencySummary();
+        summary.setCount(histogram.getCount());
+        summary.setUnanswered(histogram.getUnansweredCount());
+        summary.setMeanMs(histogram.getMeanMicros() / 1000.0);
+        summary.setP50Ms(toMillis(histogram.getValueAtPercentile(50)));
+        summary.setP90Ms(toMillis(histogram.getValueAtPercentile(90)));
+        summary.setP99Ms(toMillis(histogram.getValueAtPercentile(99)));
+        summary.setP999Ms(toMillis(histogram.getValueAtPercentile(99.9)));
+        summary.setMaxMs(toMillis(histogram.getMaxMicros()));
+        return summary;
+    }
+
+    /**
+     * Milliseconds of a histogram value, null if it lies among the unanswered requests.
+     */
+    private static Double toMillis(long micros) {
+        return micros == LatencyHistogram.UNANSWERED ? null : micros / 1000.0;
+    }
+
+    private static String formatMillis(long micros) {
+        return micros == LatencyHistogram.UNANSWERED ? "unanswered" : micros / 1000.0 + "ms";
+    }
+
+    /**
+     * A step with its request telegram encoded and its expectations compiled once up front.
+     */
+    public static final class PreparedStep {
+        private final byte[] request;
+        private final ResponseExpectations expectations;
+
+        public PreparedStep(byte[] request, ResponseExpectations expectations) {
+            this.request = request;
+            this.expectations = expectations;
+        }
+    }
+}
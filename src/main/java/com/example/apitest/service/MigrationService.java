@@ -70,6 +70,7 @@ public class MigrationService {
                 .versionNumber(1)
                 .category(extractCategory(title))
                 .isActive("Y")
+                .matchRules("N")  // 기존 파일의 기댓값은 적힌 그대로 비교
                 .build();
         
         // 4. Scenario와 Step 생성
@@ -0,0 +1,87 @@
+package com.example.apitest.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pause/resume switch of one execution, checked at step boundaries.
+ * Blocking workers park on a condition and asynchronous step chains hand over a continuation;
+ * nothing polls while paused, and resume wakes each parked scenario exactly once.
+ */
+public class PauseGate {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition resumed = lock.newCondition();
+    private final List<Runnable> parkedContinuations = new ArrayList<>();
+    private volatile boolean paused = false;
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public void pause() {
+        lock.lock();
+        try {
+            paused = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wake parked workers and run parked continuations on the calling thread.
+     */
+    public void resume() {
+        List<Runnable> continuations;
+        lock.lock();
+        try {
+            paused = false;
+            resumed.signalAll();
+            continuations = new ArrayList<>(parkedContinuations);
+            parkedContinuations.clear();
+        } finally {
+            lock.unlock();
+        }
+        continuations.forEach(Runnable::run);
+    }
+
+    /**
+     * Park the calling thread until the execution is resumed.
+     */
+    public void awaitResumed() throws InterruptedException {
+        if (!paused) {
+            return;
+        }
+        lock.lockInterruptibly();
+        try {
+            while (paused) {
+                resumed.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Keep {@code continuation} for {@link #resume()} if paused.
+     *
+     * @return true if parked, false if the caller should continue right away
+     */
+    public boolean parkIfPaused(Runnable continuation) {
+        if (!paused) {
+            return false;
+        }
+        lock.lock();
+        try {
+            if (!paused) {
+                return false;
+            }
+            parkedContinuations.add(continuation);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
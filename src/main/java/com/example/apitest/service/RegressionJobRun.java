@@ -0,0 +1,273 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.ExecutionProgress;
+import com.example.apitest.dto.TestExecutionRequest;
+import com.example.apitest.entity.RegressionJobEntity;
+import com.example.apitest.repository.RegressionJobRepository;
+import com.example.apitest.repository.TestCaseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * One regression job while it runs on this instance. The dispatcher walks matching case IDs in keyset pages
+ * and starts each case as an execution (steps streamed from the database, see {@link StoredScenarioSteps}),
+ * keeping at most {@code parallelism} cases running.
+ *
+ * Cases finish out of order, so the checkpoint is the highest case ID up to which every case has finished:
+ * counters are added to the job when the checkpoint passes a case, and a restarted job continues after it.
+ * Cases that finished past the checkpoint run again after a restart, they are not counted twice.
+ */
+class RegressionJobRun implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(RegressionJobRun.class);
+    // Finished cases that may wait behind a slower one for the checkpoint, per running case
+    private static final int PENDING_PER_SLOT = 64;
+
+    private final RegressionJobEntity job;
+    private final RegressionJobRepository jobRepository;
+    private final TestCaseRepository caseRepository;
+    private final TestCaseService caseService;
+    private final TestExecutionService executionService;
+    private final Executor callbackExecutor;
+    private final int parallelism;
+    private final int pageSize;
+    private final long checkpointIntervalMs;
+
+    // Dispatched cases in case ID order; the outcome is null while the case runs
+    private final TreeMap<Long, ExecutionProgress> pending = new TreeMap<>();
+    private final Set<String> runningExecutions = ConcurrentHashMap.newKeySet();
+    private int running;
+    private long lastCheckpointAt;
+    private volatile boolean cancelled;
+    private volatile boolean shuttingDown;
+
+    RegressionJobRun(RegressionJobEntity job, RegressionJobRepository jobRepository, TestCaseRepository caseRepository,
+                     TestCaseService caseService, TestExecutionService executionService, Executor callbackExecutor,
+                     int pageSize, long checkpointIntervalMs) {
+        this.job = job;
+        this.jobRepository = jobRepository;
+        this.caseRepository = caseRepository;
+        this.caseService = caseService;
+        this.executionService = executionService;
+        this.callbackExecutor = callbackExecutor;
+        this.parallelism = Math.max(1, job.getParallelism());
+        this.pageSize = Math.max(1, pageSize);
+        this.checkpointIntervalMs = checkpointIntervalMs;
+    }
+
+    RegressionJobEntity getJob() {
+        return job;
+    }
+
+    @Override
+    public void run() {
+        log.info("Regression job {} {} after case {}", job.getJobId(),
+            job.getLastCaseId() == null ? "starting" : "resuming", job.getLastCaseId());
+        String error = null;
+        try {
+            long afterCaseId = job.getLastCaseId() != null ? job.getLastCaseId() : 0L;
+            while (!isStopping()) {
+                List<Long> caseIds = caseRepository.findRegressionCaseIds(job.getCategory(), job.getVersionStatus(),
+                    job.getPriority(), afterCaseId, PageRequest.of(0, pageSize));
+                for (Long caseId : caseIds) {
+                    if (!awaitSlot(caseId)) {
+                        break;
+                    }
+                    try {
+                        dispatch(caseId);
+                    } catch (RuntimeException e) {
+                        abandon(caseId);
+                        throw e;
+                    }
+                    afterCaseId = caseId;
+                }
+                if (caseIds.size() < pageSize) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // Executor shut down with the application, the final checkpoint is still saved
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // e.g. the database went away: keep the checkpoint, the job can be resumed
+            log.error("Regression job {} failed", job.getJobId(), e);
+            error = String.valueOf(e.getMessage());
+        }
+        try {
+            awaitRunningCases();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finish(error);
+    }
+
+    /**
+     * Stop starting cases and cancel the running ones. Cancelled cases are not checkpointed, a resumed job runs them.
+     */
+    void cancel() {
+        cancelled = true;
+        for (String executionId : runningExecutions) {
+            executionService.cancelExecution(executionId);
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * The application is stopping: dispatch nothing more and leave the job RUNNING, so it resumes on the next start.
+     */
+    void shutdown() {
+        shuttingDown = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    private boolean isStopping() {
+        return cancelled || shuttingDown;
+    }
+
+    /**
+     * Wait until the case may start and register it as running; false if the job is stopping.
+     */
+    private synchronized boolean awaitSlot(long caseId) throws InterruptedException {
+        while (!isStopping() && (running >= parallelism || pending.size() >= parallelism * PENDING_PER_SLOT)) {
+            wait();
+        }
+        if (isStopping()) {
+            return false;
+        }
+        pending.put(caseId, null);
+        running++;
+        return true;
+    }
+
+    private void dispatch(long caseId) {
+        TestExecutionRequest options = new TestExecutionRequest();
+        options.setEngine(job.getEngine());
+
+        TestExecutionRequest request;
+        try {
+            request = caseService.getCaseAsExecutionRequest(caseId, options);
+        } catch (IllegalArgumentException e) {
+            // Deleted since it was selected
+            caseFinished(caseId, emptyOutcome("COMPLETED"));
+            return;
+        }
+        if (request.getScenarios().isEmpty()) {
+            caseFinished(caseId, emptyOutcome("COMPLETED"));
+            return;
+        }
+
+        String executionId;
+        try {
+            executionId = executionService.startExecution(request);
+        } catch (RuntimeException e) {
+            log.warn("Regression job {}: case {} could not start: {}", job.getJobId(), caseId, e.getMessage());
+            caseFinished(caseId, emptyOutcome("FAILED"));
+            return;
+        }
+        runningExecutions.add(executionId);
+        if (cancelled) {
+            executionService.cancelExecution(executionId);
+        }
+        CompletableFuture<ExecutionProgress> finished = executionService.whenFinished(executionId);
+        if (finished == null) {
+            runningExecutions.remove(executionId);
+            caseFinished(caseId, emptyOutcome("FAILED"));
+            return;
+        }
+        // Not on the thread that completed the execution, which may be an NIO I/O thread
+        finished.thenAcceptAsync(progress -> {
+            runningExecutions.remove(executionId);
+            caseFinished(caseId, progress);
+        }, callbackExecutor);
+    }
+
+    private synchronized void abandon(long caseId) {
+        pending.remove(caseId);
+        running--;
+        notifyAll();
+    }
+
+    private ExecutionProgress emptyOutcome(String status) {
+        ExecutionProgress outcome = new ExecutionProgress();
+        outcome.setStatus(status);
+        return outcome;
+    }
+
+    private synchronized void caseFinished(long caseId, ExecutionProgress outcome) {
+        pending.put(caseId, outcome);
+        running--;
+        advanceCheckpoint();
+        if (System.currentTimeMillis() - lastCheckpointAt >= checkpointIntervalMs) {
+            saveCheckpoint();
+        }
+        notifyAll();
+    }
+
+    private void advanceCheckpoint() {
+        while (!pending.isEmpty()) {
+            Map.Entry<Long, ExecutionProgress> first = pending.firstEntry();
+            ExecutionProgress outcome = first.getValue();
+            if (outcome == null) {
+                break;
+            }
+            if ("CANCELLED".equals(outcome.getStatus()) && isStopping()) {
+                // Stopped by the job, not a result: the case runs again when the job resumes
+                break;
+            }
+            pending.pollFirstEntry();
+
+            long failed = outcome.getTotalSteps() - outcome.getPassedSteps();
+            job.setLastCaseId(first.getKey());
+            job.setFinishedCases(job.getFinishedCases() + 1);
+            job.setTotalSteps(job.getTotalSteps() + outcome.getTotalSteps());
+            job.setPassedSteps(job.getPassedSteps() + outcome.getPassedSteps());
+            job.setFailedSteps(job.getFailedSteps() + failed);
+            if (failed > 0 || !"COMPLETED".equals(outcome.getStatus())) {
+                job.setFailedCases(job.getFailedCases() + 1);
+            }
+        }
+    }
+
+    private void saveCheckpoint() {
+        lastCheckpointAt = System.currentTimeMillis();
+        try {
+            jobRepository.save(job);
+        } catch (RuntimeException e) {
+            // Retried with the next checkpoint; a restart resumes from the last saved one
+            log.warn("Regression job {}: failed to save checkpoint: {}", job.getJobId(), e.getMessage());
+        }
+    }
+
+    private synchronized void awaitRunningCases() throws InterruptedException {
+        // On shutdown the executions are being torn down and may never report back
+        while (running > 0 && !shuttingDown) {
+            wait();
+        }
+    }
+
+    private synchronized void finish(String error) {
+        if (!shuttingDown && !Thread.currentThread().isInterrupted()) {
+            job.setStatus(cancelled ? "CANCELLED" : error != null ? "FAILED" : "COMPLETED");
+            job.setErrorMessage(error);
+            job.setFinishedAt(LocalDateTime.now());
+        }
+        saveCheckpoint();
+        log.info("Regression job {} {}: {} cases ({} failed), {} steps ({} passed), checkpoint at case {}",
+            job.getJobId(), job.getStatus(), job.getFinishedCases(), job.getFailedCases(), job.getTotalSteps(),
+            job.getPassedSteps(), job.getLastCaseId());
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.RegressionJobRequest;
+import com.example.apitest.dto.TestExecutionRequest;
+import com.example.apitest.entity.RegressionJobEntity;
+import com.example.apitest.repository.RegressionJobRepository;
+import com.example.apitest.repository.TestCaseRepository;
+import com.example.apitest.util.ThreadExecutors;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RegressionJobService {
+    
+    private final RegressionJobRepository regressionJobRepository;
+    private final TestCaseRepository testCaseRepository;
+    private final TestCaseService testCaseService;
+    private final TestExecutionService testExecutionService;
+    
+    @Value("${app.regression.parallelism:4}")
+    private int defaultParallelism;
+    
+    @Value("${app.regression.case-page-size:500}")
+    private int casePageSize;
+    
+    @Value("${app.regression.checkpoint-interval-ms:1000}")
+    private long checkpointIntervalMs;
+    
+    @Value("${app.execution.thread-type:platform}")
+    private String threadType;
+    
+    private final Map<Long, RegressionJobRun> runs = new ConcurrentHashMap<>();
+    private ExecutorService jobExecutor;
+    
+    @PostConstruct
+    public void init() {
+        jobExecutor = ThreadExecutors.newExecutor(threadType, "regression-job");
+    }
+    
+    /**
+     * 재시작 전에 실행 중이던 작업을 체크포인트 다음 케이스부터 이어서 실행
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        for (RegressionJobEntity job : regressionJobRepository.findByStatus("RUNNING")) {
+            log.info("Resuming regression job {} interrupted by a restart", job.getJobId());
+            launch(job);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        runs.values().forEach(RegressionJobRun::shutdown);
+        jobExecutor.shutdownNow();
+    }
+    
+    /**
+     * 회귀 실행 작업 시작
+     */
+    public RegressionJobEntity startJob(RegressionJobRequest request) {
+        String engine = request.getEngine() != null ? request.getEngine() : TestExecutionRequest.ENGINE_BLOCKING;
+        if (!TestExecutionRequest.ENGINE_BLOCKING.equalsIgnoreCase(engine)
+                && !TestExecutionRequest.ENGINE_NIO.equalsIgnoreCase(engine)) {
+            throw new IllegalArgumentException("Unknown engine: " + engine);
+        }
+        
+        RegressionJobEntity job = RegressionJobEntity.builder()
+                .category(request.getCategory())
+                .versionStatus(request.getVersionStatus())
+                .priority(request.getPriority())
+                .parallelism(request.getParallelism() > 0 ? request.getParallelism() : defaultParallelism)
+                .engine(engine)
+                .status("RUNNING")
+                .totalCases(testCaseRepository.countRegressionCases(
+                        request.getCategory(), request.getVersionStatus(), request.getPriority()))
+                .finishedCases(0L)
+                .failedCases(0L)
+                .totalSteps(0L)
+                .passedSteps(0L)
+                .failedSteps(0L)
+                .build();
+        job = regressionJobRepository.save(job);
+        
+        log.info("Created regression job {}: {} cases", job.getJobId(), job.getTotalCases());
+        launch(job);
+        return job;
+    }
+    
+    /**
+     * 작업 조회 (실행 중이면 현재 진행 상황)
+     */
+    public RegressionJobEntity getJob(Long jobId) {
+        RegressionJobRun run = runs.get(jobId);
+        if (run != null) {
+            return run.getJob();
+        }
+        return regressionJobRepository.findById(jobId).orElse(null);
+    }
+    
+    /**
+     * 최근 작업 목록
+     */
+    public List<RegressionJobEntity> getRecentJobs() {
+        return regressionJobRepository.findTop50ByOrderByJobIdDesc().stream()
+                .map(job -> {
+                    RegressionJobRun run = runs.get(job.getJobId());
+                    return run != null ? run.getJob() : job;
+                })
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 작업 취소 (실행 중인 케이스도 취소, 체크포인트는 유지)
+     */
+    public boolean cancelJob(Long jobId) {
+        RegressionJobRun run = runs.get(jobId);
+        if (run == null) {
+            return false;
+        }
+        run.cancel();
+        return true;
+    }
+    
+    /**
+     * 취소/실패한 작업을 체크포인트 다음 케이스부터 다시 실행
+     */
+    public RegressionJobEntity resumeJob(Long jobId) {
+        if (runs.containsKey(jobId)) {
+            throw new IllegalArgumentException("Regression job is running: " + jobId);
+        }
+        RegressionJobEntity job = regressionJobRepository.findById(jobId)
+                .orElseThrow(() -> new IllegalArgumentException("Regression job not found: " + jobId));
+        if ("COMPLETED".equals(job.getStatus())) {
+            throw new IllegalArgumentException("Regression job is already completed: " + jobId);
+        }
+        
+        job.setStatus("RUNNING");
+        job.setErrorMessage(null);
+        job.setFinishedAt(null);
+        job = regressionJobRepository.save(job);
+        launch(job);
+        return job;
+    }
+    
+    private void launch(RegressionJobEntity job) {
+        RegressionJobRun run = new RegressionJobRun(job, regressionJobRepository, testCaseRepository, testCaseService,
+                testExecutionService, jobExecutor, casePageSize, checkpointIntervalMs);
+        if (runs.putIfAbsent(job.getJobId(), run) != null) {
+            return;
+        }
+        jobExecutor.execute(() -> {
+            try {
+                run.run();
+            } finally {
+                runs.remove(job.getJobId());
+            }
+        });
+    }
+}
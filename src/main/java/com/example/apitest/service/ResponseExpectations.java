@@ -0,0 +1,178 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionRequest;
+import com.example.apitest.dto.TestExecutionResult.FieldComparison;
+import com.example.apitest.dto.TestExecutionResult.StepResult;
+import com.example.apitest.telegram.TelegramLayout;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A step's expected fields compiled against the response layout. Fields are decoded straight from the
+ * response telegram; a passed step records no per-field objects, only the actual values of fields
+ * compared by a rule.
+ * Steps with the same expected data share one instance.
+ */
+public final class ResponseExpectations {
+
+    private final TelegramLayout layout;
+    private final String[] fields;
+    private final String[] expectedValues;
+    private final FieldMatcher[] matchers;
+    private final int[] layoutFields;
+    // Some field is compared by a rule, so a match does not tell its actual value
+    private final boolean hasRules;
+
+    private ResponseExpectations(Map<String, String> expectedData, TelegramLayout layout, boolean rules,
+                                 Map<String, FieldMatcher> matcherCache) {
+        this.layout = layout;
+        int size = expectedData != null ? expectedData.size() : 0;
+        this.fields = new String[size];
+        this.expectedValues = new String[size];
+        this.matchers = new FieldMatcher[size];
+        this.layoutFields = new int[size];
+
+        int i = 0;
+        boolean anyRule = false;
+        if (expectedData != null) {
+            for (Map.Entry<String, String> expected : expectedData.entrySet()) {
+                fields[i] = expected.getKey();
+                expectedValues[i] = expected.getValue();
+                if (!rules) {
+                    matchers[i] = FieldMatcher.literal(expected.getValue());
+                } else if (expected.getValue() != null) {
+                    matchers[i] = matcherCache.computeIfAbsent(expected.getValue(), FieldMatcher::compile);
+                } else {
+                    matchers[i] = FieldMatcher.compile(null);
+                }
+                anyRule |= !matchers[i].isExact();
+                layoutFields[i] = layout.fieldIndex(expected.getKey());
+                i++;
+            }
+        }
+        this.hasRules = anyRule;
+    }
+
+    /**
+     * Compile every step of a run, indexed [scenario][step]. Identical expected data and identical
+     * expected values are compiled once. Expected values are rules only if the request opts in
+     * ({@link TestExecutionRequest#isMatchRules()}).
+     *
+     * @throws IllegalArgumentException if an expected value is not a valid rule
+     */
+    public static ResponseExpectations[][] compile(TestExecutionRequest request, TelegramLayout layout) {
+        Cache cache = new Cache(layout, Integer.MAX_VALUE, request.isMatchRules());
+        List<TestExecutionRequest.ScenarioExecution> scenarios = request.getScenarios();
+
+        ResponseExpectations[][] compiled = new ResponseExpectations[scenarios.size()][];
+        for (int s = 0; s < scenarios.size(); s++) {
+            List<TestExecutionRequest.StepExecution> steps = scenarios.get(s).getSteps();
+            compiled[s] = new ResponseExpectations[steps.size()];
+            for (int i = 0; i < steps.size(); i++) {
+                compiled[s][i] = cache.get(steps.get(i).getExpectedData());
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * Compile a single step's expectations, reading the expected values as rules if {@code rules} is set.
+     *
+     * @throws IllegalArgumentException if an expected value is not a valid rule
+     */
+    public static ResponseExpectations compile(Map<String, String> expectedData, TelegramLayout layout, boolean rules) {
+        return new ResponseExpectations(expectedData, layout, rules, new HashMap<>());
+    }
+
+    /**
+     * Compiles steps as they are reached, for runs whose steps are not all in memory up front.
+     * Identical expected data is compiled once while the cache holds fewer than {@code maxEntries}
+     * entries; beyond that, new expected data is compiled per step.
+     */
+    public static final class Cache {
+
+        private final TelegramLayout layout;
+        private final int maxEntries;
+        private final boolean rules;
+        private final Map<Map<String, String>, ResponseExpectations> byExpectedData = new ConcurrentHashMap<>();
+        private final Map<String, FieldMatcher> matcherCache = new ConcurrentHashMap<>();
+
+        /**
+         * @param rules read expected values as rules, otherwise compare them literally
+         */
+        public Cache(TelegramLayout layout, int maxEntries, boolean rules) {
+            this.layout = layout;
+            this.maxEntries = maxEntries;
+            this.rules = rules;
+        }
+
+        /**
+         * @throws IllegalArgumentException if an expected value is not a valid rule
+         */
+        public ResponseExpectations get(Map<String, String> expectedData) {
+            Map<String, String> key = expectedData != null ? expectedData : Map.of();
+            ResponseExpectations expectations = byExpectedData.get(key);
+            if (expectations == null) {
+                Map<String, FieldMatcher> matchers = matcherCache.size() < maxEntries ? matcherCache : new HashMap<>();
+                expectations = new ResponseExpectations(expectedData, layout, rules, matchers);
+                if (byExpectedData.size() < maxEntries) {
+                    byExpectedData.putIfAbsent(key, expectations);
+                }
+            }
+            return expectations;
+        }
+    }
+
+    /**
+     * Whether every expected field matches the response telegram at {@code offset}.
+     */
+    public boolean matches(byte[] response, int offset) {
+        for (int i = 0; i < matchers.length; i++) {
+            if (!matchers[i].isIgnored() && !matchers[i].matches(actual(response, offset, i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare the response telegram at {@code offset} and record the outcome on {@code result}:
+     * the shared field list, the actual values of fields compared by a rule, and details of
+     * mismatched fields. A field compared exactly that matched needs no actual value of its own.
+     */
+    public void compare(byte[] response, int offset, StepResult result) {
+        Map<String, FieldComparison> mismatches = null;
+        String[] actualValues = hasRules ? new String[matchers.length] : null;
+        for (int i = 0; i < matchers.length; i++) {
+            String actual = actual(response, offset, i);
+            if (!matchers[i].isExact()) {
+                actualValues[i] = actual;
+            }
+            if (!matchers[i].isIgnored() && !matchers[i].matches(actual)) {
+                if (mismatches == null) {
+                    mismatches = new LinkedHashMap<>();
+                }
+                FieldComparison comparison = new FieldComparison();
+                comparison.setExpectedValue(expectedValues[i]);
+                comparison.setActualValue(actual);
+                comparison.setMatch(false);
+                mismatches.put(fields[i], comparison);
+            }
+        }
+
+        result.setExpectedFields(fields);
+        result.setExpectedValues(expectedValues);
+        result.setActualValues(actualValues);
+        result.setMismatches(mismatches);
+        result.setStatus(mismatches == null ? "PASS" : "FAIL");
+    }
+
+    private String actual(byte[] response, int offset, int i) {
+        // Fields the layout does not have compare as empty
+        return layoutFields[i] >= 0 ? layout.decodeField(response, offset, layoutFields[i]) : "";
+    }
+}
@@ -0,0 +1,281 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionRequest.StepExecution;
+import com.example.apitest.dto.TestExecutionResult.ScenarioResult;
+import com.example.apitest.dto.TestExecutionResult.StepResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only step results of one running scenario.
+ * Steps of a scenario complete one after another, so there is a single writer at a time and
+ * no lock: the step count and outcome counters are packed into one atomic word that is
+ * published after the step itself, which lets readers take a consistent snapshot at any time.
+ *
+ * Results are kept compact: a passed step is a bit in the pass bitmap plus its sequence, timing,
+ * expected-field set, case number, priority and, when rules compared it, actual values in column arrays.
+ * Its request data is not kept: views take it from the scenario's steps by step index when the request
+ * holds them in memory, and leave it out for stored cases, whose steps are read from the database once
+ * and not kept. Only steps that did not pass keep their {@link StepResult}, request data included, which
+ * holds details of the mismatched fields only. {@link #snapshot} and {@link #stepResult} build the
+ * {@link StepResult} view on demand.
+ */
+public class ScenarioResultBuffer {
+
+    private static final int COUNTER_BITS = 21;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    public static final int MAX_STEPS = (int) COUNTER_MASK;
+    // Distinct expected-field sets kept per scenario; passed steps beyond it keep their StepResult
+    private static final int MAX_SHAPES = 256;
+
+    private final int scenarioIndex;
+    private final String scenarioName;
+    private final List<StepExecution> requestSteps;
+    private final long baseTimestamp = System.currentTimeMillis();
+    private volatile Columns columns;
+    private volatile ExpectedShape[] shapes = new ExpectedShape[0];
+    private ExpectedShape lastShape;
+    // Steps that did not pass (or could not be packed), by step index
+    private final Map<Integer, StepResult> details = new ConcurrentHashMap<>();
+    // size | passed << 21 | timedOut << 42, every other step (FAIL, CANCELLED) counts as failed
+    private final AtomicLong state = new AtomicLong();
+    private volatile String status = "RUNNING";
+
+    /**
+     * @param stepCount    the scenario's steps, the initial column capacity
+     * @param requestSteps the scenario's steps if they are held in memory, for the request data of
+     *                     passed steps; null for stored cases
+     */
+    public ScenarioResultBuffer(int scenarioIndex, String scenarioName, int stepCount, List<StepExecution> requestSteps) {
+        this.scenarioIndex = scenarioIndex;
+        this.scenarioName = scenarioName;
+        this.requestSteps = requestSteps;
+        this.columns = new Columns(Math.max(1, stepCount));
+    }
+
+    /**
+     * Called by the thread that just finished the scenario's current step.
+     */
+    public void append(StepResult stepResult) {
+        long current = state.get();
+        int size = size(current);
+        if (size >= MAX_STEPS) {
+            throw new IllegalStateException("Scenario '" + scenarioName + "' exceeds " + MAX_STEPS + " steps");
+        }
+
+        Columns array = columns;
+        if (size == array.seqs.length) {
+            array = array.grow(Math.min(MAX_STEPS, array.seqs.length * 2));
+            columns = array;
+        }
+        array.seqs[size] = (int) stepResult.getSeq();
+        array.durations[size] = (int) Math.min(Integer.MAX_VALUE, stepResult.getExecutionTime());
+        array.timestamps[size] = (int) (stepResult.getExecutionTimestamp() - baseTimestamp);
+
+        int shape = "PASS".equals(stepResult.getStatus()) && stepResult.getErrorMessage() == null
+            && stepResult.getMismatches() == null ? shapeIndex(stepResult) : -1;
+        if (shape >= 0) {
+            array.shapes[size] = shape;
+            array.actuals[size] = stepResult.getActualValues();
+            array.caseNos[size] = stepResult.getCaseNo();
+            array.priorities[size] = stepResult.getPriority();
+            array.passBits[size >>> 6] |= 1L << size;
+        } else {
+            details.put(size, stepResult);
+        }
+
+        long next = current + 1;
+        if ("PASS".equals(stepResult.getStatus())) {
+            next += 1L << COUNTER_BITS;
+        } else if ("TIMEOUT".equals(stepResult.getStatus())) {
+            next += 1L << (COUNTER_BITS * 2);
+        }
+        state.set(next);
+    }
+
+    /**
+     * Index of the step's expected-field set, or -1 if the scenario already has too many.
+     * Steps with the same expectations share the field and value arrays, so identity is enough.
+     */
+    private int shapeIndex(StepResult stepResult) {
+        String[] fields = stepResult.getExpectedFields();
+        String[] values = stepResult.getExpectedValues();
+        if (lastShape != null && lastShape.is(fields, values)) {
+            return lastShape.index;
+        }
+        ExpectedShape[] known = shapes;
+        for (ExpectedShape shape : known) {
+            if (shape.is(fields, values)) {
+                lastShape = shape;
+                return shape.index;
+            }
+        }
+        if (known.length >= MAX_SHAPES) {
+            return -1;
+        }
+        ExpectedShape shape = new ExpectedShape(known.length, fields, values);
+        ExpectedShape[] grown = Arrays.copyOf(known, known.length + 1);
+        grown[known.length] = shape;
+        shapes = grown;
+        lastShape = shape;
+        return shape.index;
+    }
+
+    public void complete() {
+        status = "COMPLETED";
+    }
+
+    /**
+     * The scenario stopped before its last step, e.g. CANCELLED or TIMEOUT.
+     */
+    public void stop(String finalStatus) {
+        status = finalStatus;
+    }
+
+    /**
+     * Steps recorded so far, which is also the index of the scenario's next step.
+     */
+    public int size() {
+        return size(state.get());
+    }
+
+    public int getScenarioIndex() {
+        return scenarioIndex;
+    }
+
+    public String getScenarioName() {
+        return scenarioName;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * Packed counters, decode with {@link #size}, {@link #passed}, {@link #failed} and {@link #timedOut}.
+     */
+    public long getState() {
+        return state.get();
+    }
+
+    /**
+     * View of the steps published up to {@code packedState}, taken from {@link #getState()}.
+     * Read {@link #getStatus()} before the state so a COMPLETED status always comes with every step.
+     */
+    public ScenarioResult snapshot(String status, long packedState) {
+        int size = size(packedState);
+        List<StepResult> steps = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            steps.add(stepResult(i));
+        }
+
+        ScenarioResult result = new ScenarioResult();
+        result.setScenarioIndex(scenarioIndex);
+        result.setScenarioName(scenarioName);
+        result.setStatus(status);
+        result.setStepResults(steps);
+        return result;
+    }
+
+    /**
+     * View of a recorded step, {@code index} must be below {@link #size()} as read before the call.
+     */
+    public StepResult stepResult(int index) {
+        Columns array = columns;
+        if ((array.passBits[index >>> 6] & (1L << index)) == 0) {
+            return details.get(index);
+        }
+
+        StepResult result = new StepResult();
+        result.setSeq(array.seqs[index]);
+        result.setStatus("PASS");
+        result.setExecutionTime(array.durations[index]);
+        result.setExecutionTimestamp(baseTimestamp + array.timestamps[index]);
+
+        ExpectedShape shape = shapes[array.shapes[index]];
+        result.setExpectedFields(shape.fields);
+        result.setExpectedValues(shape.values);
+        result.setActualValues(array.actuals[index]);
+        result.setCaseNo(array.caseNos[index]);
+        result.setPriority(array.priorities[index]);
+        if (requestSteps != null) {
+            result.setRequestData(requestSteps.get(index).getRequestData());
+        }
+        return result;
+    }
+
+    public static int size(long packedState) {
+        return (int) (packedState & COUNTER_MASK);
+    }
+
+    public static int passed(long packedState) {
+        return (int) ((packedState >>> COUNTER_BITS) & COUNTER_MASK);
+    }
+
+    public static int failed(long packedState) {
+        return size(packedState) - passed(packedState) - timedOut(packedState);
+    }
+
+    public static int timedOut(long packedState) {
+        return (int) ((packedState >>> (COUNTER_BITS * 2)) & COUNTER_MASK);
+    }
+
+    /**
+     * Column arrays by step index, replaced as a whole when they grow.
+     */
+    private static final class Columns {
+        final long[] passBits;
+        final int[] seqs;
+        final int[] durations;   // milliseconds
+        final int[] timestamps;  // milliseconds after baseTimestamp
+        final int[] shapes;      // index into shapes, passed steps only
+        final String[][] actuals; // actual values of rule-compared fields, passed steps only, null if none
+        // Display fields of passed steps
+        final String[] caseNos;
+        final String[] priorities;
+
+        Columns(int capacity) {
+            this(new long[(capacity + 63) >>> 6], new int[capacity], new int[capacity], new int[capacity], new int[capacity],
+                new String[capacity][], new String[capacity], new String[capacity]);
+        }
+
+        private Columns(long[] passBits, int[] seqs, int[] durations, int[] timestamps, int[] shapes, String[][] actuals,
+                        String[] caseNos, String[] priorities) {
+            this.passBits = passBits;
+            this.seqs = seqs;
+            this.durations = durations;
+            this.timestamps = timestamps;
+            this.shapes = shapes;
+            this.actuals = actuals;
+            this.caseNos = caseNos;
+            this.priorities = priorities;
+        }
+
+        Columns grow(int capacity) {
+            return new Columns(Arrays.copyOf(passBits, (capacity + 63) >>> 6), Arrays.copyOf(seqs, capacity),
+                Arrays.copyOf(durations, capacity), Arrays.copyOf(timestamps, capacity), Arrays.copyOf(shapes, capacity),
+                Arrays.copyOf(actuals, capacity), Arrays.copyOf(caseNos, capacity), Arrays.copyOf(priorities, capacity));
+        }
+    }
+
+    private static final class ExpectedShape {
+        final int index;
+        final String[] fields;
+        final String[] values;
+
+        ExpectedShape(int index, String[] fields, String[] values) {
+            this.index = index;
+            this.fields = fields;
+            this.values = values;
+        }
+
+        boolean is(String[] fields, String[] values) {
+            return this.fields == fields && this.values == values;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionRequest.StepExecution;
+import com.example.apitest.entity.TestStepEntity;
+import com.example.apitest.repository.TestStepRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.AbstractList;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Steps of one stored scenario, read from TEST_STEP in step order while the scenario runs.
+ * Rows are fetched in keyset pages of {@code prefetch}; the next page is requested in the background
+ * once half of the current one is used, so at most two pages of rows are held per running scenario.
+ * REQUEST_JSON/EXPECTED_JSON are parsed only when the step is reached.
+ *
+ * Steps are run in order: {@link #get} reads ahead for the step after the last one (or returns the last
+ * one again), which is how executions walk a scenario. Nothing is read before the first {@link #get}.
+ * Once a read fails, every later read ahead throws the same exception. Earlier steps are not kept;
+ * result views take what they show from {@link ScenarioResultBuffer}.
+ *
+ * {@link #get} waits for a page that is still being fetched. Callers that must not wait, such as NIO
+ * I/O threads, ask {@link #pendingRead} first and continue once it completes.
+ */
+class StoredScenarioSteps extends AbstractList<StepExecution> {
+
+    private static final Logger log = LoggerFactory.getLogger(StoredScenarioSteps.class);
+
+    private final TestStepRepository stepRepository;
+    private final ObjectMapper objectMapper;
+    private final Executor prefetchExecutor;
+    private final long scenarioId;
+    private final int size;
+    private final int prefetch;
+
+    private final ArrayDeque<TestStepEntity> rows = new ArrayDeque<>();
+    private CompletableFuture<List<TestStepEntity>> nextPage;
+    private int nextIndex;
+    private StepExecution lastStep;
+    // Keyset of the last fetched row
+    private int afterOrder = Integer.MIN_VALUE;
+    private long afterId = Long.MIN_VALUE;
+    private boolean exhausted;
+    private RuntimeException failure;
+
+    StoredScenarioSteps(TestStepRepository stepRepository, ObjectMapper objectMapper, Executor prefetchExecutor,
+                        long scenarioId, int size, int prefetch) {
+        this.stepRepository = stepRepository;
+        this.objectMapper = objectMapper;
+        this.prefetchExecutor = prefetchExecutor;
+        this.scenarioId = scenarioId;
+        this.size = size;
+        this.prefetch = Math.max(1, prefetch);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized StepExecution get(int index) {
+        if (failure != null) {
+            throw failure;
+        }
+        if (index == nextIndex - 1 && lastStep != null) {
+            return lastStep;
+        }
+        if (index != nextIndex || index >= size) {
+            throw new IllegalStateException("Stored steps are read in order: step " + index
+                + " requested, next is " + nextIndex + " of " + size);
+        }
+        if (rows.isEmpty()) {
+            CompletableFuture<List<TestStepEntity>> page = nextPage != null ? nextPage : fetchAsync();
+            nextPage = null;
+            await(page);
+        }
+        TestStepEntity row = rows.poll();
+        if (row == null) {
+            failure = new IllegalStateException("Scenario " + scenarioId + " has fewer steps than counted"
+                + " at start (" + index + " of " + size + "), it was changed while running");
+            log.error(failure.getMessage());
+            throw failure;
+        }
+        if (nextPage == null && !exhausted && rows.size() <= prefetch / 2) {
+            nextPage = fetchAsync();
+        }
+        nextIndex++;
+        lastStep = toStep(row);
+        return lastStep;
+    }
+
+    /**
+     * The fetch that {@link #get}{@code (index)} would wait for, or null if it returns without waiting.
+     * Starts the fetch if it is not running yet. The future may complete exceptionally; {@link #get}
+     * then throws.
+     */
+    synchronized CompletableFuture<?> pendingRead(int index) {
+        if (failure != null || !rows.isEmpty() || index != nextIndex || index >= size) {
+            return null;
+        }
+        if (nextPage == null) {
+            nextPage = fetchAsync();
+        }
+        return nextPage.isDone() ? null : nextPage;
+    }
+
+    private CompletableFuture<List<TestStepEntity>> fetchAsync() {
+        int order = afterOrder;
+        long id = afterId;
+        return CompletableFuture.supplyAsync(
+            () -> stepRepository.findStepsAfter(scenarioId, order, id, PageRequest.of(0, prefetch)), prefetchExecutor);
+    }
+
+    private void await(CompletableFuture<List<TestStepEntity>> page) {
+        List<TestStepEntity> fetched;
+        try {
+            fetched = page.get();
+        } catch (InterruptedException e) {
+            // Not sticky: a stopped execution interrupts its workers and reads no further
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while reading steps of scenario " + scenarioId);
+        } catch (ExecutionException e) {
+            failure = new IllegalStateException("Failed to read steps of scenario " + scenarioId, e.getCause());
+            log.error(failure.getMessage(), e.getCause());
+            throw failure;
+        }
+        rows.addAll(fetched);
+        if (fetched.size() < prefetch) {
+            exhausted = true;
+        }
+        if (!fetched.isEmpty()) {
+            TestStepEntity last = fetched.get(fetched.size() - 1);
+            afterOrder = last.getStepOrder();
+            afterId = last.getStepId();
+        }
+    }
+
+    private StepExecution toStep(TestStepEntity row) {
+        StepExecution step = new StepExecution();
+        step.setCaseNo(row.getCaseNo());
+        step.setPriority(row.getPriority());
+        step.setRequestData(parse(row.getRequestJson(), row));
+        step.setExpectedData(parse(row.getExpectedJson(), row));
+        return step;
+    }
+
+    private Map<String, String> parse(String json, TestStepEntity row) {
+        Map<String, String> values = new LinkedHashMap<>();
+        if (json == null) {
+            return values;
+        }
+        try {
+            Map<String, Object> parsed = objectMapper.readValue(json,
+                objectMapper.getTypeFactory().constructMapType(LinkedHashMap.class, String.class, Object.class));
+            // Values are compared as strings, same as the case editor shows them
+            parsed.forEach((key, value) -> values.put(key, value != null ? value.toString() : ""));
+        } catch (Exception e) {
+            log.error("Failed to parse JSON for step ID: {}", row.getStepId(), e);
+        }
+        return values;
+    }
+}
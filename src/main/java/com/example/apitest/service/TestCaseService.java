@@ -1,5 +1,6 @@
 package com.example.apitest.service;
 
+import com.example.apitest.dto.TestExecutionRequest;
 import com.example.apitest.entity.TestCaseEntity;
 import com.example.apitest.entity.TestScenarioEntity;
 import com.example.apitest.entity.TestStepEntity;
@@ -10,7 +11,10 @@ import com.example.apitest.repository.TestCaseRepository;
 import com.example.apitest.repository.TestScenarioRepository;
 import com.example.apitest.repository.TestStepRepository;
 import com.example.apitest.util.TestCaseFileWriter;
+import com.example.apitest.util.ThreadExecutors;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,7 +26,10 @@ import org.springframework.transaction.annotation.Transactional;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
 @Service
@@ -38,6 +45,24 @@ public class TestCaseService {
     @Value("${app.backup.txt.enabled:true}")
     private boolean txtBackupEnabled;
     
+    @Value("${app.execution.case-prefetch:200}")
+    private int casePrefetch;
+    
+    @Value("${app.execution.thread-type:platform}")
+    private String threadType;
+    
+    private ExecutorService prefetchExecutor;
+    
+    @PostConstruct
+    public void init() {
+        prefetchExecutor = ThreadExecutors.newExecutor(threadType, "case-prefetch");
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        prefetchExecutor.shutdownNow();
+    }
+    
     /**
      * 모든 테스트 케이스 조회 (페이징)
      */
@@ -70,6 +95,7 @@ public class TestCaseService {
         TestForm form = new TestForm();
         form.setTitle(entity.getTitle());
         form.setNote(entity.getNote());
+        form.setMatchRules("Y".equals(entity.getMatchRules()));
         
         List<TestScenario> scenarios = entity.getScenarios().stream()
                 .map(this::convertScenarioEntityToModel)
@@ -79,6 +105,48 @@ public class TestCaseService {
         return form;
     }
     
+    /**
+     * 저장된 테스트 케이스를 실행 요청으로 변환 (스텝은 실행 중 DB에서 순서대로 읽음)
+     * 시나리오 목록과 스텝 개수만 먼저 조회하고, 스텝은 시나리오별로 app.execution.case-prefetch 건씩 미리 읽어둠
+     * 스텝이 없는 시나리오는 제외
+     */
+    @Transactional(readOnly = true)
+    public TestExecutionRequest getCaseAsExecutionRequest(Long caseId, TestExecutionRequest options) {
+        TestCaseEntity testCase = testCaseRepository.findById(caseId)
+                .orElseThrow(() -> new IllegalArgumentException("Case not found: " + caseId));
+        
+        Map<Long, Integer> stepCounts = new HashMap<>();
+        for (Object[] row : testStepRepository.countByScenarioForCase(caseId)) {
+            stepCounts.put((Long) row[0], ((Number) row[1]).intValue());
+        }
+        
+        List<TestExecutionRequest.ScenarioExecution> scenarios = new ArrayList<>();
+        for (TestScenarioEntity scenario : testScenarioRepository.findByCaseIdOrderByScenarioOrder(caseId)) {
+            int stepCount = stepCounts.getOrDefault(scenario.getScenarioId(), 0);
+            if (stepCount == 0) continue;
+            
+            TestExecutionRequest.ScenarioExecution execution = new TestExecutionRequest.ScenarioExecution();
+            execution.setScenarioName(scenario.getScenarioName());
+            execution.setScenarioId(scenario.getScenarioId());
+            execution.setSteps(getScenarioSteps(scenario.getScenarioId(), stepCount));
+            scenarios.add(execution);
+        }
+        
+        TestExecutionRequest request = options != null ? options : new TestExecutionRequest();
+        request.setCaseId(caseId);
+        request.setMatchRules("Y".equals(testCase.getMatchRules()));
+        request.setScenarios(scenarios);
+        return request;
+    }
+    
+    /**
+     * 저장된 시나리오의 스텝 (실행 중 DB에서 순서대로 읽음, 분산 실행 샤드에서도 사용)
+     */
+    public List<TestExecutionRequest.StepExecution> getScenarioSteps(Long scenarioId, int stepCount) {
+        return new StoredScenarioSteps(testStepRepository, objectMapper, prefetchExecutor,
+                scenarioId, stepCount, casePrefetch);
+    }
+    
     /**
      * 테스트 케이스 생성
      */
@@ -93,6 +161,7 @@ public class TestCaseService {
                 .versionStatus("DRAFT")
                 .versionNumber(1)
                 .isActive("Y")
+                .matchRules(form.isMatchRules() ? "Y" : "N")
                 .createdBy("system")
                 .updatedBy("system")
                 .build();
@@ -123,6 +192,7 @@ public class TestCaseService {
         // 2. 메타데이터 업데이트
         testCase.setTitle(form.getTitle());
         testCase.setNote(form.getNote());
+        testCase.setMatchRules(form.isMatchRules() ? "Y" : "N");
         testCase.setUpdatedAt(LocalDateTime.now());
         testCase.setUpdatedBy("system");
         
@@ -1,28 +1,300 @@
 package com.example.apitest.service;
 
+import com.example.apitest.dto.ExecutionProgress;
+import com.example.apitest.dto.LoadTestRequest;
+import com.example.apitest.dto.LoadTestResult;
+import com.example.apitest.dto.StepResultEvent;
+import com.example.apitest.dto.TestExecutionDelta;
 import com.example.apitest.dto.TestExecutionRequest;
 import com.example.apitest.dto.TestExecutionResult;
 import com.example.apitest.dto.TestExecutionResult.*;
+import com.example.apitest.tcp.NioTcpClient;
+import com.example.apitest.tcp.TcpConnectionPool;
+import com.example.apitest.tcp.TelegramFraming;
+import com.example.apitest.tcp.TrafficJournal;
+import com.example.apitest.telegram.TelegramLayout;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import com.example.apitest.util.ThreadExecutors;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.nio.charset.Charset;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 @Service
 public class TestExecutionService {
     
     private static final Logger log = LoggerFactory.getLogger(TestExecutionService.class);
-    private static final Charset MS949 = Charset.forName("MS949");
-    private static final String TCP_HOST = "localhost";
-    private static final int TCP_PORT = 9090;
+    // Distinct expected data a stored-case run compiles once, further ones are compiled per step
+    private static final int STORED_EXPECTATION_CACHE_SIZE = 4096;
+    // How long shutdown waits for execution and I/O threads before closing the journal under them
+    private static final long SHUTDOWN_WAIT_SECONDS = 5;
     
     private final Map<String, TestExecutionContext> executionContexts = new ConcurrentHashMap<>();
-    private final ExecutorService executorService = Executors.newCachedThreadPool();
+    private final Map<String, LoadTestRun> loadTests = new ConcurrentHashMap<>();
+    private ExecutorService executorService;
+    
+    @Autowired
+    private TelegramLayoutRegistry layoutRegistry;
+    
+    @Autowired(required = false)
+    private JdbcTemplate jdbcTemplate;
+    
+    @Value("${app.telegram.request-layout:approval-request}")
+    private String requestLayoutName;
+    
+    @Value("${app.telegram.response-layout:approval-response}")
+    private String responseLayoutName;
+    
+    @Value("${app.execution.thread-type:platform}")
+    private String threadType;
+    
+    @Value("${app.tcp.host:localhost}")
+    private String tcpHost;
+    
+    @Value("${app.tcp.port:9090}")
+    private int tcpPort;
+    
+    @Value("${app.tcp.connect-timeout-ms:5000}")
+    private long tcpConnectTimeoutMs;
+    
+    @Value("${app.tcp.read-timeout-ms:30000}")
+    private long tcpReadTimeoutMs;
+    
+    @Value("${app.tcp.framing.mode:FIXED}")
+    private String framingMode;
+    
+    @Value("${app.tcp.framing.length-header-digits:4}")
+    private int framingHeaderDigits;
+    
+    @Value("${app.tcp.framing.length-includes-header:false}")
+    private boolean framingLengthIncludesHeader;
+    
+    @Value("${app.tcp.pool.enabled:true}")
+    private boolean poolEnabled;
+    
+    @Value("${app.tcp.pool.max-size:50}")
+    private int poolMaxSize;
+    
+    @Value("${app.tcp.pool.idle-timeout-ms:60000}")
+    private long poolIdleTimeoutMs;
+    
+    @Value("${app.tcp.pool.validation-interval-ms:5000}")
+    private long poolValidationIntervalMs;
+    
+    @Value("${app.tcp.pool.borrow-timeout-ms:10000}")
+    private long poolBorrowTimeoutMs;
+    
+    @Value("${app.tcp.circuit-breaker.enabled:true}")
+    private boolean circuitBreakerEnabled;
+    
+    @Value("${app.tcp.circuit-breaker.failure-threshold:5}")
+    private int circuitBreakerFailureThreshold;
+    
+    @Value("${app.tcp.circuit-breaker.open-ms:1000}")
+    private long circuitBreakerOpenMs;
+    
+    @Value("${app.tcp.circuit-breaker.max-open-ms:30000}")
+    private long circuitBreakerMaxOpenMs;
+    
+    @Value("${app.tcp.circuit-breaker.half-open-probes:1}")
+    private int circuitBreakerHalfOpenProbes;
+    
+    @Value("${app.tcp.nio.io-threads:2}")
+    private int nioIoThreads;
+    
+    @Value("${app.tcp.nio.connections:64}")
+    private int nioConnections;
+    
+    @Value("${app.tcp.nio.pipeline-depth:1}")
+    private int nioPipelineDepth;
+    
+    @Value("${app.tcp.journal.record:false}")
+    private boolean journalRecord;
+    
+    @Value("${app.tcp.journal.file:./traffic-journal.dat}")
+    private String journalFile;
+    
+    @Value("${app.tcp.journal.max-records:10000000}")
+    private int journalMaxRecords;
+    
+    @Value("${app.execution.max-in-flight-steps:200}")
+    private int maxInFlightSteps;
+    
+    @Value("${app.execution.default-max-concurrency:50}")
+    private int defaultMaxConcurrency;
+    
+    @Value("${app.execution.step-timeout-ms:60000}")
+    private long stepTimeoutMs;
+    
+    @Value("${app.execution.timeout-ms:0}")
+    private long executionTimeoutMs;
+    
+    @Value("${app.execution.stream.queue-capacity:1000}")
+    private int streamQueueCapacity;
+    
+    @Value("${app.execution.stream.timeout-ms:1800000}")
+    private long streamTimeoutMs;
+    
+    @Value("${app.execution.retention.ttl-ms:600000}")
+    private long retentionTtlMs;
+    
+    @Value("${app.execution.retention.max-completed:20}")
+    private int retentionMaxCompleted;
+    
+    @Value("${app.execution.retention.directory:./execution-results}")
+    private String retentionDirectory;
+    
+    @Value("${app.execution.retention.disk-ttl-ms:604800000}")
+    private long retentionDiskTtlMs;
+    
+    @Value("${app.execution.history.enabled:true}")
+    private boolean historyEnabled;
+    
+    @Value("${app.execution.history.queue-capacity:10000}")
+    private int historyQueueCapacity;
+    
+    @Value("${app.execution.history.batch-size:500}")
+    private int historyBatchSize;
+    
+    @Value("${app.execution.history.flush-interval-ms:1000}")
+    private long historyFlushIntervalMs;
+    
+    @Value("${app.load.max-outstanding:10000}")
+    private int loadMaxOutstanding;
+    
+    @Value("${app.load.drain-timeout-ms:10000}")
+    private long loadDrainTimeoutMs;
+    
+    private TelegramFraming framing;
+    private TelegramLayout requestLayout;
+    private TelegramLayout responseLayout;
+    private ExecutionScheduler scheduler;
+    private ExecutionResultStore resultStore;
+    private ScheduledExecutorService timer;
+    private ExecutionEventPublisher eventPublisher;
+    private TcpConnectionPool connectionPool;
+    private volatile NioTcpClient nioClient;
+    private CircuitBreaker targetBreaker;
+    // Runs paused for target-down send no steps, so a timer probes the target for them
+    private final AtomicBoolean targetProbeScheduled = new AtomicBoolean();
+    private ExecutionHistoryWriter historyWriter;
+    private TrafficJournal trafficJournal;
+    private final AtomicBoolean journalFullReported = new AtomicBoolean();
+    
+    @PostConstruct
+    public void init() {
+        framing = new TelegramFraming(framingMode, framingHeaderDigits, framingLengthIncludesHeader);
+        requestLayout = layoutRegistry.get(requestLayoutName);
+        responseLayout = layoutRegistry.get(responseLayoutName);
+        executorService = ThreadExecutors.newExecutor(threadType, "test-execution");
+        scheduler = new ExecutionScheduler(maxInFlightSteps);
+        eventPublisher = new ExecutionEventPublisher(ThreadExecutors.newExecutor(threadType, "execution-stream"),
+            streamQueueCapacity, streamTimeoutMs);
+        
+        // Completed runs stay in memory for the TTL (or until the budget is exceeded), then are served from disk.
+        // The same timer fires execution deadlines.
+        resultStore = new ExecutionResultStore(Paths.get(retentionDirectory));
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "execution-timer");
+            t.setDaemon(true);
+            return t;
+        });
+        long evictionPeriod = Math.min(60000, Math.max(1000, retentionTtlMs / 2));
+        timer.scheduleWithFixedDelay(this::evictCompletedExecutions, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+        
+        if (circuitBreakerEnabled) {
+            targetBreaker = new CircuitBreaker(tcpHost + ":" + tcpPort, circuitBreakerFailureThreshold,
+                circuitBreakerOpenMs, circuitBreakerMaxOpenMs, circuitBreakerHalfOpenProbes,
+                () -> executorService.execute(this::resumeTargetDownExecutions));
+        }
+        
+        if (poolEnabled) {
+            connectionPool = new TcpConnectionPool(tcpHost, tcpPort, poolMaxSize,
+                poolIdleTimeoutMs, poolValidationIntervalMs, poolBorrowTimeoutMs, tcpConnectTimeoutMs);
+            log.info("TCP connection pool enabled: {}:{} (max size: {})", tcpHost, tcpPort, poolMaxSize);
+        }
+        
+        // Every exchange with the host is appended to a memory-mapped journal that TcpMockServer can replay
+        if (journalRecord) {
+            try {
+                trafficJournal = TrafficJournal.openForAppend(Paths.get(journalFile), requestLayout.getLength(),
+                    responseLayout.getLength(), journalMaxRecords);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot open traffic journal " + journalFile, e);
+            }
+            log.info("Recording exchanges with {}:{} to {} ({} records so far)", tcpHost, tcpPort, journalFile,
+                trafficJournal.getRecordCount());
+        }
+        
+        // Runs are written to TEST_RUN / TEST_RUN_STEP by a background writer, never on the step's thread
+        if (historyEnabled && jdbcTemplate != null) {
+            historyWriter = new ExecutionHistoryWriter(jdbcTemplate, historyQueueCapacity, historyBatchSize,
+                historyFlushIntervalMs);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        loadTests.values().forEach(LoadTestRun::stop);
+        eventPublisher.close();
+        if (connectionPool != null) {
+            connectionPool.close();
+        }
+        if (nioClient != null) {
+            nioClient.close();
+        }
+        executorService.shutdownNow();
+        // Steps still finishing append to the journal, which must not be closed while they do
+        awaitTermination();
+        if (trafficJournal != null) {
+            try {
+                trafficJournal.close();
+            } catch (IOException e) {
+                log.warn("Error closing traffic journal: {}", e.getMessage());
+            }
+        }
+        if (historyWriter != null) {
+            historyWriter.close(historyFlushIntervalMs + 10000);
+        }
+    }
+    
+    private void awaitTermination() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_WAIT_SECONDS);
+        try {
+            if (!executorService.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                log.warn("Execution threads still running after {}s, closing the traffic journal anyway",
+                    SHUTDOWN_WAIT_SECONDS);
+            }
+            NioTcpClient client = nioClient;
+            if (client != null && !client.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                log.warn("NIO client threads still running after {}s, closing the traffic journal anyway",
+                    SHUTDOWN_WAIT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
     
     public String startExecution(TestExecutionRequest request) {
         String executionId = UUID.randomUUID().toString();
@@ -30,21 +302,36 @@ public class TestExecutionService {
         TestExecutionContext context = new TestExecutionContext();
         context.executionId = executionId;
         context.request = request;
-        context.result = new TestExecutionResult();
-        context.result.setExecutionId(executionId);
-        context.result.setStatus("RUNNING");
-        context.result.setScenarioResults(new ArrayList<>());
-        context.paused = false;
-        
-        int totalSteps = request.getScenarios().stream()
+        if (request.getCaseId() == null) {
+            // Rejects invalid rules (e.g. a broken re: pattern) before anything runs
+            context.expectations = ResponseExpectations.compile(request, responseLayout);
+        } else {
+            // Stored case: steps are read while the run goes, an invalid rule fails its step
+            context.expectationCache = new ResponseExpectations.Cache(responseLayout, STORED_EXPECTATION_CACHE_SIZE,
+                request.isMatchRules());
+        }
+        context.pauseGate = new PauseGate();
+        context.scenarioResults = new AtomicReferenceArray<>(request.getScenarios().size());
+        context.totalSteps = request.getScenarios().stream()
             .mapToInt(s -> s.getSteps().size())
             .sum();
-        context.result.setTotalSteps(totalSteps);
-        context.result.setCompletedSteps(0);
-        context.result.setPassedSteps(0);
-        context.result.setFailedSteps(0);
+        context.stepLog = new AtomicLongArray(context.totalSteps);
+        
+        // Sequential runs never have more than one step in flight
+        int maxConcurrency = request.getMaxConcurrency() > 0 ? request.getMaxConcurrency() : defaultMaxConcurrency;
+        context.runQueue = scheduler.register(executionId, request.isParallel() ? maxConcurrency : 1);
         
         executionContexts.put(executionId, context);
+        if (historyWriter != null) {
+            historyWriter.runStarted(executionId, request.getCaseId(),
+                request.getEngine() != null ? request.getEngine().toUpperCase() : TestExecutionRequest.ENGINE_BLOCKING,
+                request.isParallel(), context.totalSteps);
+        }
+        
+        long timeoutMs = request.getTimeoutMs() > 0 ? request.getTimeoutMs() : executionTimeoutMs;
+        if (timeoutMs > 0) {
+            context.deadlineTask = timer.schedule(() -> stopExecution(context, "TIMEOUT"), timeoutMs, TimeUnit.MILLISECONDS);
+        }
         
         // Execute scenarios in parallel
         executorService.submit(() -> executeScenarios(context));
@@ -52,46 +339,506 @@ public class TestExecutionService {
         return executionId;
     }
     
+    /**
+     * Starts an open-model load run over the NIO client, see {@link LoadTestRun}.
+     * Load runs bypass the step scheduler; {@code maxOutstanding} bounds what they keep in flight.
+     */
+    public String startLoadTest(LoadTestRequest request) throws IOException {
+        if (request.getTargetTps() <= 0 || request.getDurationSeconds() <= 0) {
+            throw new IllegalArgumentException("targetTps and durationSeconds must be positive");
+        }
+        if (request.getRampSeconds() < 0 || request.getRampSeconds() > request.getDurationSeconds()
+                || (request.getRampSeconds() > 0 && request.getStartTps() < 0)) {
+            throw new IllegalArgumentException("rampSeconds must be within durationSeconds, startTps must not be negative");
+        }
+        
+        // Encode every telegram once, the pacer only picks them round-robin
+        List<LoadTestRun.PreparedStep> steps = new ArrayList<>();
+        if (request.getScenarios() != null) {
+            for (TestExecutionRequest.ScenarioExecution scenario : request.getScenarios()) {
+                for (TestExecutionRequest.StepExecution step : scenario.getSteps()) {
+                    steps.add(new LoadTestRun.PreparedStep(encodeRequest(step.getRequestData()),
+                        ResponseExpectations.compile(step.getExpectedData(), responseLayout, request.isMatchRules())));
+                }
+            }
+        }
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("Load test has no steps");
+        }
+        
+        String loadTestId = UUID.randomUUID().toString();
+        int maxOutstanding = request.getMaxOutstanding() > 0 ? request.getMaxOutstanding() : loadMaxOutstanding;
+        LoadTestRun run = new LoadTestRun(loadTestId, request, steps, getNioClient(), responseLayout.getLength(),
+            maxOutstanding, loadDrainTimeoutMs);
+        loadTests.put(loadTestId, run);
+        executorService.submit(run::run);
+        return loadTestId;
+    }
+    
+    public LoadTestResult getLoadTestResult(String loadTestId) {
+        LoadTestRun run = loadTests.get(loadTestId);
+        return run != null ? run.toResult() : null;
+    }
+    
+    public boolean stopLoadTest(String loadTestId) {
+        LoadTestRun run = loadTests.get(loadTestId);
+        if (run == null) {
+            return false;
+        }
+        run.stop();
+        return true;
+    }
+    
+    /**
+     * Completes with the final counters when the execution has finished; null for an unknown execution.
+     */
+    public CompletableFuture<ExecutionProgress> whenFinished(String executionId) {
+        TestExecutionContext context = executionContexts.get(executionId);
+        if (context != null) {
+            return context.finished;
+        }
+        // Already finished and moved to disk
+        TestExecutionResult stored = loadStoredResult(executionId);
+        return stored != null ? CompletableFuture.completedFuture(progress(stored)) : null;
+    }
+    
     public TestExecutionResult getResult(String executionId) {
         TestExecutionContext context = executionContexts.get(executionId);
-        return context != null ? context.result : null;
+        return context != null ? snapshot(context) : loadStoredResult(executionId);
+    }
+    
+    private TestExecutionResult loadStoredResult(String executionId) {
+        try {
+            return resultStore.load(executionId);
+        } catch (IOException e) {
+            log.warn("Failed to read stored result of execution {}: {}", executionId, e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Step results recorded after {@code sinceSeq}, at most {@code limit} of them, with the current counters.
+     * Steps are returned without gaps: a step still being recorded ends the response even if later
+     * sequences are already recorded, so {@code lastSeq} is always safe to continue from.
+     */
+    public TestExecutionDelta getResultDelta(String executionId, long sinceSeq, int limit) {
+        TestExecutionContext context = executionContexts.get(executionId);
+        if (context == null) {
+            TestExecutionResult stored = loadStoredResult(executionId);
+            return stored != null ? storedDelta(stored, sinceSeq, limit) : null;
+        }
+        
+        AtomicLongArray stepLog = context.stepLog;
+        int seq = (int) Math.min(Math.max(0, sinceSeq), stepLog.length());
+        int end = (int) Math.min((long) seq + Math.max(1, limit), stepLog.length());
+        List<StepResultEvent> steps = new ArrayList<>(Math.min(end - seq, 1024));
+        long position;
+        while (seq < end && (position = stepLog.get(seq)) != 0) {
+            steps.add(stepEvent(context, position));
+            seq++;
+        }
+        
+        TestExecutionDelta delta = new TestExecutionDelta();
+        delta.setSinceSeq(sinceSeq);
+        delta.setLastSeq(seq);
+        delta.setHasMore(seq < stepLog.length() && stepLog.get(seq) != 0);
+        delta.setProgress(progress(context));
+        delta.setSteps(steps);
+        return delta;
+    }
+    
+    /**
+     * The recorded step at a step log position, built from the scenario's compact results.
+     */
+    private StepResultEvent stepEvent(TestExecutionContext context, long position) {
+        int scenarioIndex = (int) (position >>> 32) - 1;
+        int stepIndex = (int) position;
+        ScenarioResultBuffer buffer = context.scenarioResults.get(scenarioIndex);
+        return new StepResultEvent(scenarioIndex, buffer.getScenarioName(), stepIndex, buffer.stepResult(stepIndex));
+    }
+    
+    /**
+     * Delta of a run evicted to disk: every step is recorded, so the steps are simply cut at the cursor.
+     */
+    private TestExecutionDelta storedDelta(TestExecutionResult stored, long sinceSeq, int limit) {
+        List<StepResultEvent> steps = new ArrayList<>();
+        for (ScenarioResult scenarioResult : stored.getScenarioResults()) {
+            List<StepResult> stepResults = scenarioResult.getStepResults();
+            for (int i = 0; i < stepResults.size(); i++) {
+                if (stepResults.get(i).getSeq() > sinceSeq) {
+                    steps.add(new StepResultEvent(scenarioResult.getScenarioIndex(),
+                        scenarioResult.getScenarioName(), i, stepResults.get(i)));
+                }
+            }
+        }
+        steps.sort(Comparator.comparingLong(event -> event.getStepResult().getSeq()));
+        
+        int count = Math.min(steps.size(), Math.max(1, limit));
+        TestExecutionDelta delta = new TestExecutionDelta();
+        delta.setSinceSeq(sinceSeq);
+        delta.setLastSeq(count > 0 ? steps.get(count - 1).getStepResult().getSeq() : Math.max(sinceSeq, stored.getLastSeq()));
+        delta.setHasMore(count < steps.size());
+        delta.setProgress(progress(stored));
+        delta.setSteps(new ArrayList<>(steps.subList(0, count)));
+        return delta;
+    }
+    
+    /**
+     * Streams the execution's step results and progress as Server-Sent Events, see {@link ExecutionEventPublisher}.
+     */
+    public SseEmitter streamExecution(String executionId) {
+        TestExecutionContext context = executionContexts.get(executionId);
+        if (context == null) {
+            // Evicted run: the subscriber gets the stored result as snapshot and the stream completes
+            TestExecutionResult stored = loadStoredResult(executionId);
+            return stored != null ? eventPublisher.subscribe(executionId, () -> stored, () -> progress(stored)) : null;
+        }
+        return eventPublisher.subscribe(executionId, () -> snapshot(context), () -> progress(context));
+    }
+    
+    /**
+     * Builds a detached copy of the execution's progress without blocking the workers.
+     * Counters are summed from the same per-scenario states the step lists are cut at,
+     * so they always agree with the steps in the snapshot.
+     */
+    private TestExecutionResult snapshot(TestExecutionContext context) {
+        TestExecutionResult result = new TestExecutionResult();
+        result.setExecutionId(context.executionId);
+        result.setStatus(context.status.get());
+        result.setTotalSteps(context.totalSteps);
+        // Taken before the steps, so every step up to it is in the snapshot
+        result.setLastSeq(recordedSeq(context));
+        
+        List<ScenarioResult> scenarioResults = new ArrayList<>();
+        int completed = 0;
+        int passed = 0;
+        int failed = 0;
+        int timedOut = 0;
+        for (int i = 0; i < context.scenarioResults.length(); i++) {
+            ScenarioResultBuffer buffer = context.scenarioResults.get(i);
+            if (buffer == null) {
+                continue;
+            }
+            String scenarioStatus = buffer.getStatus();
+            long state = buffer.getState();
+            scenarioResults.add(buffer.snapshot(scenarioStatus, state));
+            completed += ScenarioResultBuffer.size(state);
+            passed += ScenarioResultBuffer.passed(state);
+            failed += ScenarioResultBuffer.failed(state);
+            timedOut += ScenarioResultBuffer.timedOut(state);
+        }
+        result.setScenarioResults(scenarioResults);
+        result.setCompletedSteps(completed);
+        result.setPassedSteps(passed);
+        result.setFailedSteps(failed);
+        result.setTimedOutSteps(timedOut);
+        
+        ExecutionScheduler.RunQueue runQueue = context.runQueue;
+        result.setMaxConcurrency(runQueue.getMaxConcurrency());
+        result.setQueuedSteps(runQueue.getQueueDepth());
+        result.setInFlightSteps(runQueue.getInFlight());
+        result.setAverageQueueWaitMs(runQueue.getAverageWaitMillis());
+        result.setMaxQueueWaitMs(runQueue.getMaxWaitMillis());
+        return result;
+    }
+    
+    /**
+     * Highest sequence up to which every step has been recorded.
+     */
+    private long recordedSeq(TestExecutionContext context) {
+        AtomicLongArray stepLog = context.stepLog;
+        int seq = (int) context.recordedSeq.get();
+        while (seq < stepLog.length() && stepLog.get(seq) != 0) {
+            seq++;
+        }
+        context.recordedSeq.accumulateAndGet(seq, Math::max);
+        return seq;
+    }
+    
+    private ExecutionProgress progress(TestExecutionContext context) {
+        ExecutionProgress progress = new ExecutionProgress();
+        progress.setExecutionId(context.executionId);
+        progress.setStatus(context.status.get());
+        progress.setTotalSteps(context.totalSteps);
+        
+        int completed = 0;
+        int passed = 0;
+        int failed = 0;
+        int timedOut = 0;
+        for (int i = 0; i < context.scenarioResults.length(); i++) {
+            ScenarioResultBuffer buffer = context.scenarioResults.get(i);
+            if (buffer != null) {
+                long state = buffer.getState();
+                completed += ScenarioResultBuffer.size(state);
+                passed += ScenarioResultBuffer.passed(state);
+                failed += ScenarioResultBuffer.failed(state);
+                timedOut += ScenarioResultBuffer.timedOut(state);
+            }
+        }
+        progress.setCompletedSteps(completed);
+        progress.setPassedSteps(passed);
+        progress.setFailedSteps(failed);
+        progress.setTimedOutSteps(timedOut);
+        progress.setQueuedSteps(context.runQueue.getQueueDepth());
+        progress.setInFlightSteps(context.runQueue.getInFlight());
+        return progress;
+    }
+    
+    private ExecutionProgress progress(TestExecutionResult result) {
+        ExecutionProgress progress = new ExecutionProgress();
+        progress.setExecutionId(result.getExecutionId());
+        progress.setStatus(result.getStatus());
+        progress.setTotalSteps(result.getTotalSteps());
+        progress.setCompletedSteps(result.getCompletedSteps());
+        progress.setPassedSteps(result.getPassedSteps());
+        progress.setFailedSteps(result.getFailedSteps());
+        progress.setTimedOutSteps(result.getTimedOutSteps());
+        return progress;
+    }
+    
+    /**
+     * Moves finished executions past the TTL, and the oldest ones beyond the in-memory budget, to disk.
+     */
+    private void evictCompletedExecutions() {
+        long now = System.currentTimeMillis();
+        List<TestExecutionContext> completed = new ArrayList<>();
+        for (TestExecutionContext context : executionContexts.values()) {
+            if (isFinished(context.status.get())) {
+                completed.add(context);
+            }
+        }
+        completed.sort(Comparator.comparingLong(context -> context.completedAt));
+        
+        int overBudget = completed.size() - retentionMaxCompleted;
+        for (int i = 0; i < completed.size(); i++) {
+            TestExecutionContext context = completed.get(i);
+            if (i < overBudget || now - context.completedAt >= retentionTtlMs) {
+                spill(context);
+            }
+        }
+        
+        resultStore.deleteOlderThan(now - retentionDiskTtlMs);
+        evictFinishedLoadTests();
+    }
+    
+    /**
+     * Load results are small and not stored on disk; only the newest finished ones within the budget are kept.
+     */
+    private void evictFinishedLoadTests() {
+        List<Map.Entry<String, LoadTestRun>> finished = new ArrayList<>();
+        for (Map.Entry<String, LoadTestRun> entry : loadTests.entrySet()) {
+            if (entry.getValue().isFinished()) {
+                finished.add(entry);
+            }
+        }
+        finished.sort(Comparator.comparingLong(entry -> entry.getValue().getFinishedAt()));
+        for (int i = 0; i < finished.size() - retentionMaxCompleted; i++) {
+            loadTests.remove(finished.get(i).getKey(), finished.get(i).getValue());
+        }
+    }
+    
+    private void spill(TestExecutionContext context) {
+        try {
+            // Written before the context is dropped, so getResult always finds one of them
+            resultStore.save(snapshot(context));
+            executionContexts.remove(context.executionId, context);
+            log.debug("Moved result of execution {} to disk", context.executionId);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to store result of execution {}, keeping it in memory: {}", context.executionId, e.getMessage());
+        }
     }
     
     public void pauseExecution(String executionId) {
         TestExecutionContext context = executionContexts.get(executionId);
-        if (context != null) {
-            context.paused = true;
-            context.result.setStatus("PAUSED");
+        if (context != null && context.status.compareAndSet("RUNNING", "PAUSED")) {
+            // Steps already in flight finish and are recorded, workers park at their next step
+            pause(context);
+            eventPublisher.publishProgress(executionId);
+        }
+    }
+    
+    private void pause(TestExecutionContext context) {
+        context.pauseGate.pause();
+        if (context.stopStatus != null) {
+            // A stop raced with the pause: its resume may have run first, nothing may stay parked
+            context.pauseGate.resume();
         }
     }
     
     public void resumeExecution(String executionId) {
         TestExecutionContext context = executionContexts.get(executionId);
-        if (context != null) {
-            context.paused = false;
-            context.result.setStatus("RUNNING");
-            executorService.submit(() -> executeScenarios(context));
+        if (context != null && context.status.compareAndSet("PAUSED", "RUNNING")) {
+            context.pausedForTargetDown = false;
+            // Parked scenarios continue from their checkpoint, nothing is re-submitted
+            eventPublisher.publishProgress(executionId);
+            context.pauseGate.resume();
+        }
+    }
+    
+    /**
+     * Stop a running or paused execution, see {@link #stopExecution}.
+     *
+     * @return false if the execution is unknown
+     */
+    public boolean cancelExecution(String executionId) {
+        TestExecutionContext context = executionContexts.get(executionId);
+        if (context == null) {
+            // Runs on disk have finished already
+            return loadStoredResult(executionId) != null;
+        }
+        stopExecution(context, "CANCELLED");
+        return true;
+    }
+    
+    /**
+     * No further steps start, and steps in flight are aborted right away: blocked workers are
+     * interrupted, their sockets closed and pending NIO exchanges cancelled. Aborted steps and the
+     * execution end with {@code finalStatus} (CANCELLED or TIMEOUT); steps recorded so far are kept.
+     */
+    private void stopExecution(TestExecutionContext context, String finalStatus) {
+        synchronized (context) {
+            if (context.stopStatus != null || isFinished(context.status.get())) {
+                return;
+            }
+            context.stopStatus = finalStatus;
+        }
+        log.info("Stopping execution {}: {}", context.executionId, finalStatus);
+        
+        // Paused workers and chains wake up and see the stop at the step boundary
+        context.pauseGate.resume();
+        synchronized (context.workers) {
+            for (Thread worker : context.workers) {
+                worker.interrupt();
+            }
+        }
+        for (Socket socket : context.sockets) {
+            closeQuietly(socket);
+        }
+        for (CompletableFuture<byte[]> exchange : context.nioExchanges) {
+            exchange.cancel(false);
+        }
+        eventPublisher.publishProgress(context.executionId);
+    }
+    
+    /**
+     * Whether the execution has ended: COMPLETED, CANCELLED or TIMEOUT.
+     */
+    static boolean isFinished(String status) {
+        return "COMPLETED".equals(status) || "CANCELLED".equals(status) || "TIMEOUT".equals(status);
+    }
+    
+    /**
+     * The circuit closed again: resume the executions it paused, not the ones a user paused.
+     */
+    private void resumeTargetDownExecutions() {
+        for (TestExecutionContext context : executionContexts.values()) {
+            resumeIfPausedForTargetDown(context);
+        }
+    }
+    
+    private void resumeIfPausedForTargetDown(TestExecutionContext context) {
+        if (context.pausedForTargetDown) {
+            context.pausedForTargetDown = false;
+            log.info("Resuming execution {}: target {}:{} is reachable again", context.executionId, tcpHost, tcpPort);
+            resumeExecution(context.executionId);
+        }
+    }
+    
+    /**
+     * Probe the target once the open interval has passed, unless a probe is already scheduled.
+     */
+    private void scheduleTargetProbe() {
+        if (!targetProbeScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        long delayMs = Math.max(targetBreaker.getRemainingOpenMs(), 1);
+        try {
+            // The connect may block for the connect timeout, so it runs on an execution thread
+            timer.schedule(() -> executorService.execute(this::probeTarget), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+            targetProbeScheduled.set(false);
+        }
+    }
+    
+    /**
+     * Open a connection to the target as the half-open probe, for runs paused for target-down:
+     * they send no steps that could probe it. A connect that succeeds closes the circuit and resumes them.
+     */
+    private void probeTarget() {
+        targetProbeScheduled.set(false);
+        if (executionContexts.values().stream().noneMatch(context -> context.pausedForTargetDown)) {
+            return;
+        }
+        if (targetBreaker.getState() == CircuitBreaker.State.CLOSED) {
+            resumeTargetDownExecutions();
+            return;
+        }
+        if (!targetBreaker.tryAcquire()) {
+            // Still open after a failed probe, or the probe slots are taken by steps of other runs
+            scheduleTargetProbe();
+            return;
+        }
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(tcpHost, tcpPort), (int) tcpConnectTimeoutMs);
+            targetBreaker.onSuccess();
+        } catch (IOException e) {
+            log.debug("Probe of {}:{} failed: {}", tcpHost, tcpPort, e.getMessage());
+            targetBreaker.onFailure();
+            scheduleTargetProbe();
         }
     }
     
     private void executeScenarios(TestExecutionContext context) {
-        if (context.request.isParallel()) {
-            // Parallel execution: scenarios run in parallel
-            executeScenariorsParallel(context);
-        } else {
-            // Sequential execution: all scenarios run sequentially
-            executeScenariorsSequential(context);
+        if (TestExecutionRequest.ENGINE_NIO.equalsIgnoreCase(context.request.getEngine())) {
+            // Non-blocking engine: steps are chained from completion callbacks, no thread waits on I/O
+            executeScenariosNio(context);
+            return;
         }
         
-        context.result.setStatus("COMPLETED");
+        try {
+            if (context.request.isParallel()) {
+                // Parallel execution: scenarios run in parallel
+                executeScenariorsParallel(context);
+            } else {
+                // Sequential execution: all scenarios run sequentially
+                executeScenariorsSequential(context);
+            }
+        } finally {
+            completeExecution(context);
+        }
+    }
+    
+    private void completeExecution(TestExecutionContext context) {
+        if (context.deadlineTask != null) {
+            context.deadlineTask.cancel(false);
+        }
+        context.completedAt = System.currentTimeMillis();
+        synchronized (context) {
+            context.status.set(context.stopStatus != null ? context.stopStatus : "COMPLETED");
+        }
+        eventPublisher.complete(context.executionId);
+        ExecutionProgress progress = progress(context);
+        if (historyWriter != null) {
+            historyWriter.runFinished(progress);
+        }
+        context.finished.complete(progress);
     }
     
     private void executeScenariorsParallel(TestExecutionContext context) {
+        List<TestExecutionRequest.ScenarioExecution> scenarios = context.request.getScenarios();
         List<Future<?>> futures = new ArrayList<>();
+        AtomicInteger nextScenario = new AtomicInteger();
         
-        // Execute each scenario in parallel
-        for (TestExecutionRequest.ScenarioExecution scenario : context.request.getScenarios()) {
-            Future<?> future = executorService.submit(() -> executeScenario(context, scenario));
+        // Only as many workers as the run may have steps in flight; each worker takes the next scenario
+        int workers = Math.min(context.runQueue.getMaxConcurrency(), scenarios.size());
+        for (int i = 0; i < workers; i++) {
+            Future<?> future = executorService.submit(() -> {
+                int index;
+                while ((index = nextScenario.getAndIncrement()) < scenarios.size()) {
+                    executeScenario(context, index);
+                }
+            });
             futures.add(future);
         }
         
@@ -107,89 +854,300 @@ public class TestExecutionService {
     
     private void executeScenariorsSequential(TestExecutionContext context) {
         // Execute each scenario sequentially
-        for (TestExecutionRequest.ScenarioExecution scenario : context.request.getScenarios()) {
-            executeScenario(context, scenario);
+        for (int index = 0; index < context.request.getScenarios().size(); index++) {
+            executeScenario(context, index);
         }
     }
     
-    private void executeScenario(TestExecutionContext context, TestExecutionRequest.ScenarioExecution scenario) {
-        ScenarioResult scenarioResult = new ScenarioResult();
-        scenarioResult.setScenarioName(scenario.getScenarioName());
-        scenarioResult.setStepResults(new ArrayList<>());
-        scenarioResult.setStatus("RUNNING");
-        
-        synchronized (context.result) {
-            context.result.getScenarioResults().add(scenarioResult);
+    private void executeScenario(TestExecutionContext context, int scenarioIndex) {
+        if (context.stopStatus != null) {
+            return;
         }
+        TestExecutionRequest.ScenarioExecution scenario = context.request.getScenarios().get(scenarioIndex);
+        ScenarioResultBuffer scenarioResult = startScenarioResult(context, scenarioIndex);
         
-        // Execute steps sequentially within a scenario
-        for (TestExecutionRequest.StepExecution step : scenario.getSteps()) {
-            // Check if paused
-            while (context.paused) {
+        // Registered so a stop can interrupt the worker wherever it blocks
+        synchronized (context.workers) {
+            context.workers.add(Thread.currentThread());
+        }
+        try {
+            // Execute steps sequentially within a scenario.
+            // The number of recorded steps is the scenario's checkpoint: the index of the next step to run.
+            List<TestExecutionRequest.StepExecution> steps = scenario.getSteps();
+            for (int stepIndex = scenarioResult.size(); stepIndex < steps.size(); stepIndex = scenarioResult.size()) {
+                if (context.stopStatus != null) {
+                    scenarioResult.stop(context.stopStatus);
+                    return;
+                }
+                TestExecutionRequest.StepExecution step = readStep(context, scenarioResult, steps, stepIndex);
+                if (step == null) {
+                    continue;
+                }
+                
+                StepResult stepResult;
                 try {
-                    Thread.sleep(100);
+                    acquireStepPermit(context);
                 } catch (InterruptedException e) {
+                    if (context.stopStatus != null) {
+                        continue;
+                    }
                     Thread.currentThread().interrupt();
                     return;
                 }
+                if (!admitStep(context, scenarioResult, step)) {
+                    scheduler.release(context.runQueue);
+                    continue;
+                }
+                try {
+                    stepResult = executeStep(context, step, scenarioIndex, stepIndex);
+                } finally {
+                    scheduler.release(context.runQueue);
+                }
+                recordStep(context, scenarioResult, stepResult);
             }
             
-            StepResult stepResult = executeStep(step);
-            
-            synchronized (context.result) {
-                scenarioResult.getStepResults().add(stepResult);
-                context.result.setCompletedSteps(context.result.getCompletedSteps() + 1);
-                
-                if ("PASS".equals(stepResult.getStatus())) {
-                    context.result.setPassedSteps(context.result.getPassedSteps() + 1);
-                } else if ("FAIL".equals(stepResult.getStatus())) {
-                    context.result.setFailedSteps(context.result.getFailedSteps() + 1);
-                }
+            scenarioResult.complete();
+        } finally {
+            synchronized (context.workers) {
+                context.workers.remove(Thread.currentThread());
             }
+            if (context.stopStatus != null) {
+                // A stop's interrupt may land after the last blocking call, don't leak it to the pooled thread
+                Thread.interrupted();
+            }
+        }
+    }
+    
+    private void acquireStepPermit(TestExecutionContext context) throws InterruptedException {
+        while (true) {
+            // Park at the step boundary while paused
+            context.pauseGate.awaitResumed();
+            scheduler.acquire(context.runQueue);
+            if (!context.pauseGate.isPaused()) {
+                return;
+            }
+            // Paused while waiting for the permit: give it back to other executions
+            scheduler.release(context.runQueue);
         }
+    }
+    
+    private ScenarioResultBuffer startScenarioResult(TestExecutionContext context, int scenarioIndex) {
+        TestExecutionRequest.ScenarioExecution scenario = context.request.getScenarios().get(scenarioIndex);
+        List<TestExecutionRequest.StepExecution> steps = scenario.getSteps();
+        ScenarioResultBuffer scenarioResult = new ScenarioResultBuffer(scenarioIndex, scenario.getScenarioName(),
+            steps.size(), steps instanceof StoredScenarioSteps ? null : steps);
+        context.scenarioResults.set(scenarioIndex, scenarioResult);
+        return scenarioResult;
+    }
+    
+    private void recordStep(TestExecutionContext context, ScenarioResultBuffer scenarioResult, StepResult stepResult) {
+        long seq = context.nextSeq.incrementAndGet();
+        stepResult.setSeq(seq);
+        int stepIndex = scenarioResult.size();
+        StepResultEvent event = new StepResultEvent(scenarioResult.getScenarioIndex(),
+            scenarioResult.getScenarioName(), stepIndex, stepResult);
         
-        scenarioResult.setStatus("COMPLETED");
+        // Only the compact form stays in memory, the event is for subscribers and the history writer
+        scenarioResult.append(stepResult);
+        context.stepLog.set((int) seq - 1, ((long) (scenarioResult.getScenarioIndex() + 1) << 32) | stepIndex);
+        eventPublisher.publishStep(context.executionId, event);
+        if (historyWriter != null) {
+            // NIO steps are recorded on selector threads, which must not wait for the database
+            historyWriter.stepRecorded(context.executionId, event,
+                !TestExecutionRequest.ENGINE_NIO.equalsIgnoreCase(context.request.getEngine()));
+        }
     }
     
-    private StepResult executeStep(TestExecutionRequest.StepExecution step) {
-        StepResult result = new StepResult();
-        result.setCaseNo(step.getCaseNo());
-        result.setPriority(step.getPriority());
-        result.setRequestData(step.getRequestData());
-        result.setFieldComparisons(new HashMap<>());
+    private void executeScenariosNio(TestExecutionContext context) {
+        NioTcpClient client;
+        try {
+            client = getNioClient();
+        } catch (IOException e) {
+            log.error("Failed to start NIO TCP client", e);
+            completeExecution(context);
+            return;
+        }
         
-        long startTime = System.currentTimeMillis();
-        result.setExecutionTimestamp(startTime);
+        // Sequential runs have a single chain, parallel runs one chain per allowed in-flight step
+        List<TestExecutionRequest.ScenarioExecution> scenarios = context.request.getScenarios();
+        AtomicInteger nextScenario = new AtomicInteger();
+        int chains = Math.min(context.runQueue.getMaxConcurrency(), scenarios.size());
+        CompletableFuture<?>[] chainFutures = new CompletableFuture<?>[chains];
+        for (int i = 0; i < chains; i++) {
+            chainFutures[i] = executeRemainingScenariosNio(context, client, scenarios, nextScenario);
+        }
         
-        try {
-            // Send TCP request and get response
-            Map<String, String> actualResponse = sendTcpRequest(step.getRequestData());
-            
-            // Compare expected vs actual
-            boolean allMatch = true;
-            for (Map.Entry<String, String> expected : step.getExpectedData().entrySet()) {
-                String key = expected.getKey();
-                String expectedValue = expected.getValue();
-                String actualValue = actualResponse.getOrDefault(key, "");
-                
-                FieldComparison comparison = new FieldComparison();
-                comparison.setExpectedValue(expectedValue);
-                comparison.setActualValue(actualValue);
-                comparison.setMatch(expectedValue.equals(actualValue));
-                
-                result.getFieldComparisons().put(key, comparison);
-                
-                if (!comparison.isMatch()) {
-                    allMatch = false;
+        CompletableFuture.allOf(chainFutures).whenComplete((v, e) -> {
+            if (e != null) {
+                log.error("Error executing scenarios", e);
+            }
+            completeExecution(context);
+        });
+    }
+    
+    private CompletableFuture<Void> executeRemainingScenariosNio(TestExecutionContext context, NioTcpClient client,
+                                                                 List<TestExecutionRequest.ScenarioExecution> scenarios,
+                                                                 AtomicInteger nextScenario) {
+        int index = nextScenario.getAndIncrement();
+        if (index >= scenarios.size() || context.stopStatus != null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return executeScenarioNio(context, client, index)
+            .thenCompose(v -> executeRemainingScenariosNio(context, client, scenarios, nextScenario));
+    }
+    
+    private CompletableFuture<Void> executeScenarioNio(TestExecutionContext context, NioTcpClient client, int scenarioIndex) {
+        TestExecutionRequest.ScenarioExecution scenario = context.request.getScenarios().get(scenarioIndex);
+        ScenarioResultBuffer scenarioResult = startScenarioResult(context, scenarioIndex);
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        executeNextStepNio(context, client, scenario.getSteps(), scenarioResult, done);
+        return done;
+    }
+    
+    private void executeNextStepNio(TestExecutionContext context, NioTcpClient client,
+                                    List<TestExecutionRequest.StepExecution> steps,
+                                    ScenarioResultBuffer scenarioResult, CompletableFuture<Void> done) {
+        // The number of recorded steps is the scenario's checkpoint: the index of the next step to run
+        int stepIndex = scenarioResult.size();
+        // Steps skipped while the circuit is open, or that cannot be encoded, are recorded in this loop,
+        // not through nested permit callbacks
+        boolean admitted = false;
+        TestExecutionRequest.StepExecution step = null;
+        byte[] requestBytes = null;
+        ResponseExpectations expectations = null;
+        while (stepIndex < steps.size() && context.stopStatus == null && !context.pauseGate.isPaused()) {
+            if (steps instanceof StoredScenarioSteps) {
+                // The prefetch fell behind: continue once the page is in, the database read must not
+                // hold the I/O thread and every connection it serves
+                CompletableFuture<?> read = ((StoredScenarioSteps) steps).pendingRead(stepIndex);
+                if (read != null) {
+                    read.whenCompleteAsync((page, error) -> executeNextStepNio(context, client, steps, scenarioResult, done),
+                        executorService);
+                    return;
                 }
             }
-            
-            result.setStatus(allMatch ? "PASS" : "FAIL");
-            
+            step = readStep(context, scenarioResult, steps, stepIndex);
+            if (step != null && admitStep(context, scenarioResult, step)) {
+                try {
+                    expectations = expectationsFor(context, scenarioResult.getScenarioIndex(), stepIndex, step);
+                    requestBytes = encodeRequest(step.getRequestData());
+                    admitted = true;
+                    break;
+                } catch (RuntimeException e) {
+                    recordTargetOutcome(context, e, false);
+                    StepResult result = newStepResult(step);
+                    failStep(context, result, e);
+                    recordStep(context, scenarioResult, result);
+                }
+            }
+            stepIndex = scenarioResult.size();
+        }
+        if (stepIndex >= steps.size()) {
+            scenarioResult.complete();
+            done.complete(null);
+            return;
+        }
+        if (context.stopStatus != null) {
+            if (admitted) {
+                recordTargetOutcome(context, null, true);
+            }
+            scenarioResult.stop(context.stopStatus);
+            done.complete(null);
+            return;
+        }
+        
+        Runnable continuation = () -> executeNextStepNio(context, client, steps, scenarioResult, done);
+        if (context.pauseGate.parkIfPaused(continuation)) {
+            if (admitted) {
+                recordTargetOutcome(context, null, true);
+            }
+            return;
+        }
+        if (!admitted) {
+            // Paused or stopped during the loop and already over again
+            continuation.run();
+            return;
+        }
+        
+        // Admitted by the circuit breaker, which must hear back whatever happens to the step
+        TestExecutionRequest.StepExecution admittedStep = step;
+        byte[] admittedRequest = requestBytes;
+        ResponseExpectations admittedExpectations = expectations;
+        scheduler.acquireAsync(context.runQueue, () -> {
+            if (context.stopStatus != null) {
+                scheduler.release(context.runQueue);
+                recordTargetOutcome(context, null, true);
+                continuation.run();
+                return;
+            }
+            if (context.pauseGate.parkIfPaused(continuation)) {
+                // Paused while waiting for the permit: give it back to other executions
+                scheduler.release(context.runQueue);
+                recordTargetOutcome(context, null, true);
+                return;
+            }
+            sendStepNio(context, client, admittedStep, admittedRequest, admittedExpectations, steps, scenarioResult, done);
+        });
+    }
+    
+    private void sendStepNio(TestExecutionContext context, NioTcpClient client,
+                             TestExecutionRequest.StepExecution step, byte[] requestBytes,
+                             ResponseExpectations expectations, List<TestExecutionRequest.StepExecution> steps,
+                             ScenarioResultBuffer scenarioResult, CompletableFuture<Void> done) {
+        StepResult result = newStepResult(step);
+        long startTime = result.getExecutionTimestamp();
+        
+        // Completed on an NIO I/O thread: finish the StepResult and chain the next step of this scenario
+        CompletableFuture<byte[]> exchange = client.send(requestBytes, responseLayout.getLength(),
+            earliest(readDeadline(), stepDeadline()));
+        context.nioExchanges.add(exchange);
+        if (context.stopStatus != null) {
+            exchange.cancel(false);
+        }
+        exchange.whenComplete((responseBytes, error) -> {
+            context.nioExchanges.remove(exchange);
+            scheduler.release(context.runQueue);
+            recordTargetOutcome(context, error, false);
+            if (error != null) {
+                failStep(context, result, error);
+            } else {
+                journal(requestBytes, 0, responseBytes, 0);
+                handleResponse(responseBytes, 0, expectations, result);
+            }
+            result.setExecutionTime(System.currentTimeMillis() - startTime);
+            recordStep(context, scenarioResult, result);
+            executeNextStepNio(context, client, steps, scenarioResult, done);
+        });
+    }
+    
+    private NioTcpClient getNioClient() throws IOException {
+        NioTcpClient client = nioClient;
+        if (client == null) {
+            synchronized (this) {
+                client = nioClient;
+                if (client == null) {
+                    client = new NioTcpClient(tcpHost, tcpPort, nioIoThreads, nioConnections, nioPipelineDepth, framing,
+                        tcpConnectTimeoutMs, tcpReadTimeoutMs);
+                    nioClient = client;
+                }
+            }
+        }
+        return client;
+    }
+    
+    private StepResult executeStep(TestExecutionContext context, TestExecutionRequest.StepExecution step,
+                                   int scenarioIndex, int stepIndex) {
+        StepResult result = newStepResult(step);
+        long startTime = result.getExecutionTimestamp();
+        
+        try {
+            // Send TCP request and compare the response
+            ResponseExpectations expectations = expectationsFor(context, scenarioIndex, stepIndex, step);
+            sendTcpRequest(context, step.getRequestData(), expectations, result);
+            recordTargetOutcome(context, null, false);
         } catch (Exception e) {
-            log.error("Error executing step", e);
-            result.setStatus("FAIL");
-            result.setErrorMessage(e.getMessage());
+            recordTargetOutcome(context, e, false);
+            failStep(context, result, e);
         }
         
         result.setExecutionTime(System.currentTimeMillis() - startTime);
@@ -197,81 +1155,350 @@ public class TestExecutionService {
         return result;
     }
     
-    private Map<String, String> sendTcpRequest(Map<String, String> requestData) throws IOException {
-        String cardNo = padRight(requestData.getOrDefault("cardNo", ""), 16);
-        String settlementAmount = padRight(requestData.getOrDefault("settlementAmount", ""), 12);
-        String requestMethod = padRight(requestData.getOrDefault("requestMethod", ""), 2);
+    private ResponseExpectations expectationsFor(TestExecutionContext context, int scenarioIndex, int stepIndex,
+                                                 TestExecutionRequest.StepExecution step) {
+        if (context.expectations != null) {
+            return context.expectations[scenarioIndex][stepIndex];
+        }
+        return context.expectationCache.get(step.getExpectedData());
+    }
+    
+    /**
+     * The step at {@code stepIndex}, or null after recording it as failed when it could not be read
+     * (a stored case whose steps were changed or could not be fetched while it ran).
+     */
+    private TestExecutionRequest.StepExecution readStep(TestExecutionContext context, ScenarioResultBuffer scenarioResult,
+                                                        List<TestExecutionRequest.StepExecution> steps, int stepIndex) {
+        try {
+            return steps.get(stepIndex);
+        } catch (RuntimeException e) {
+            log.debug("Step {} of scenario {} not readable: {}", stepIndex, scenarioResult.getScenarioName(), e.toString());
+            StepResult result = new StepResult();
+            result.setExecutionTimestamp(System.currentTimeMillis());
+            result.setStatus(context.stopStatus != null ? context.stopStatus : "FAIL");
+            result.setErrorMessage(e.getMessage());
+            recordStep(context, scenarioResult, result);
+            return null;
+        }
+    }
+    
+    private StepResult newStepResult(TestExecutionRequest.StepExecution step) {
+        StepResult result = new StepResult();
+        result.setCaseNo(step.getCaseNo());
+        result.setPriority(step.getPriority());
+        result.setRequestData(step.getRequestData());
+        result.setExecutionTimestamp(System.currentTimeMillis());
+        return result;
+    }
+    
+    /**
+     * Whether the step may go to the target. With the circuit open it is recorded as SKIPPED_TARGET_DOWN
+     * right away, or, for runs with {@code targetDownAction=PAUSE}, the execution pauses and the step
+     * runs after resume.
+     */
+    private boolean admitStep(TestExecutionContext context, ScenarioResultBuffer scenarioResult,
+                              TestExecutionRequest.StepExecution step) {
+        if (targetBreaker == null || targetBreaker.tryAcquire()) {
+            return true;
+        }
+        if (TestExecutionRequest.TARGET_DOWN_PAUSE.equalsIgnoreCase(context.request.getTargetDownAction())) {
+            // Resumed automatically once a probe closes the circuit, see probeTarget
+            if (context.status.compareAndSet("RUNNING", "PAUSED")) {
+                log.warn("Pausing execution {}: target {}:{} is down", context.executionId, tcpHost, tcpPort);
+                context.pausedForTargetDown = true;
+                pause(context);
+                eventPublisher.publishProgress(context.executionId);
+                if (targetBreaker.getState() == CircuitBreaker.State.CLOSED) {
+                    // Closed after tryAcquire but before the flag was set, so onClosed did not see this run
+                    resumeIfPausedForTargetDown(context);
+                } else {
+                    scheduleTargetProbe();
+                }
+            }
+            return false;
+        }
+        StepResult result = newStepResult(step);
+        result.setStatus("SKIPPED_TARGET_DOWN");
+        result.setErrorMessage("Target " + tcpHost + ":" + tcpPort + " is down (circuit open)");
+        result.setExecutionTime(0);
+        recordStep(context, scenarioResult, result);
+        return false;
+    }
+    
+    /**
+     * Report an admitted step's outcome to the circuit breaker. Only transport errors count as
+     * failures; a stop, a cancelled exchange, a full connection pool or a request that could not be
+     * encoded says nothing about the target.
+     */
+    private void recordTargetOutcome(TestExecutionContext context, Throwable error, boolean notSent) {
+        if (targetBreaker == null) {
+            return;
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (notSent || context.stopStatus != null) {
+            targetBreaker.onIgnored();
+        } else if (cause == null) {
+            targetBreaker.onSuccess();
+        } else if (cause instanceof TcpConnectionPool.PoolExhaustedException) {
+            // Every pooled connection busy with other steps, the target may well be fine
+            targetBreaker.onIgnored();
+        } else if (cause instanceof IOException) {
+            targetBreaker.onFailure();
+        } else {
+            targetBreaker.onIgnored();
+        }
+    }
+    
+    /**
+     * A step aborted by a stop takes the execution's final status, a missed deadline is TIMEOUT,
+     * anything else FAIL.
+     */
+    private void failStep(TestExecutionContext context, StepResult result, Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        String stopStatus = context.stopStatus;
+        if (stopStatus != null) {
+            log.debug("Step {} aborted: execution {}", result.getCaseNo(), stopStatus);
+            result.setStatus(stopStatus);
+            result.setErrorMessage("TIMEOUT".equals(stopStatus) ? "Execution timed out" : "Execution cancelled");
+        } else if (cause instanceof SocketTimeoutException) {
+            log.warn("Step {} timed out: {}", result.getCaseNo(), cause.getMessage());
+            result.setStatus("TIMEOUT");
+            result.setErrorMessage(cause.getMessage());
+        } else if (cause instanceof IOException) {
+            // Expected while the target is unreachable, one line each and the breaker reports the outage
+            log.warn("Step {} failed: {}", result.getCaseNo(), cause.toString());
+            result.setStatus("FAIL");
+            result.setErrorMessage(cause.getMessage());
+        } else {
+            log.error("Error executing step", cause);
+            result.setStatus("FAIL");
+            result.setErrorMessage(cause.getMessage());
+        }
+    }
+    
+    private void sendTcpRequest(TestExecutionContext context, Map<String, String> requestData,
+                                ResponseExpectations expectations, StepResult result) throws IOException {
+        long stepDeadline = stepDeadline();
+        if (connectionPool != null) {
+            exchangePooled(context, requestData, expectations, result, stepDeadline);
+        } else {
+            exchange(context, requestData, expectations, result, stepDeadline);
+        }
+    }
+    
+    private byte[] encodeRequest(Map<String, String> requestData) {
+        byte[] requestBytes = requestLayout.encode(requestData);
         
-        String request = cardNo + settlementAmount + requestMethod;
-        byte[] requestBytes = request.getBytes(MS949);
+        if (log.isDebugEnabled()) {
+            log.debug("Sending request ({} bytes): {}", requestBytes.length, requestData);
+        }
         
-        if (requestBytes.length != 30) {
-            log.warn("Request byte length is {} instead of 30. Request: {}", requestBytes.length, request);
+        return requestBytes;
+    }
+    
+    /**
+     * Encode the request telegram behind its frame header into {@code frame}.
+     */
+    private void encodeFrame(Map<String, String> requestData, byte[] frame) {
+        framing.writeHeader(frame, 0, requestLayout.getLength());
+        requestLayout.encode(requestData, frame, framing.getHeaderLength());
+        
+        if (log.isDebugEnabled()) {
+            log.debug("Sending request ({} bytes): {}", requestLayout.getLength(), requestData);
+        }
+    }
+    
+    /**
+     * Compare the response telegram at {@code offset} with the step's compiled expectations.
+     * Only the expected fields are decoded; fields are cut by byte offsets, so MS949 multi-byte
+     * characters never shift later fields.
+     */
+    private void handleResponse(byte[] buffer, int offset, ResponseExpectations expectations, StepResult result) {
+        if (log.isDebugEnabled()) {
+            log.debug("Received response ({} bytes): {}", responseLayout.getLength(), responseLayout.decode(buffer, offset));
+        }
+        expectations.compare(buffer, offset, result);
+    }
+    
+    /**
+     * Append a completed exchange (telegrams without frame headers) to the traffic journal when recording.
+     */
+    private void journal(byte[] request, int requestOffset, byte[] response, int responseOffset) {
+        if (trafficJournal == null) {
+            return;
+        }
+        try {
+            if (!trafficJournal.append(request, requestOffset, response, responseOffset)
+                    && journalFullReported.compareAndSet(false, true)) {
+                log.warn("Traffic journal {} is full ({} records), further exchanges are not recorded",
+                    journalFile, journalMaxRecords);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to record exchange to {}: {}", journalFile, e.getMessage());
         }
+    }
+    
+    /**
+     * Deadline for a whole response frame, however many segments it arrives in.
+     */
+    private long readDeadline() {
+        return tcpReadTimeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(tcpReadTimeoutMs) : 0;
+    }
+    
+    /**
+     * Deadline for a whole step: waiting for a connection, connecting, writing and reading.
+     */
+    private long stepDeadline() {
+        return stepTimeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stepTimeoutMs) : 0;
+    }
+    
+    /**
+     * The earlier of two {@link System#nanoTime()} deadlines, 0 meaning none.
+     */
+    private static long earliest(long deadline, long other) {
+        if (deadline == 0) {
+            return other;
+        }
+        return other != 0 && other - deadline < 0 ? other : deadline;
+    }
+    
+    private static long remainingMillis(long deadline) {
+        return deadline == 0 ? Long.MAX_VALUE : Math.max(0, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+    }
+    
+    private void exchange(TestExecutionContext context, Map<String, String> requestData, ResponseExpectations expectations,
+                          StepResult result, long stepDeadline) throws IOException {
+        byte[] frame = new byte[framing.frameLength(requestLayout.getLength())];
+        encodeFrame(requestData, frame);
+        byte[] buffer = new byte[framing.frameLength(responseLayout.getLength())];
         
-        try (Socket socket = new Socket(TCP_HOST, TCP_PORT);
-             OutputStream out = socket.getOutputStream();
-             InputStream in = socket.getInputStream()) {
-            
-            log.debug("Sending request ({} bytes): cardNo={}, amount={}, method={}", 
-                requestBytes.length, cardNo.trim(), settlementAmount.trim(), requestMethod.trim());
+        Socket socket = new Socket();
+        context.sockets.add(socket);
+        try {
+            checkNotStopped(context);
+            long connectTimeoutMs = Math.min(tcpConnectTimeoutMs > 0 ? tcpConnectTimeoutMs : Long.MAX_VALUE,
+                remainingMillis(stepDeadline));
+            if (connectTimeoutMs <= 0) {
+                throw new SocketTimeoutException("Step deadline passed before connecting");
+            }
+            // 0 is no limit for Socket.connect
+            socket.connect(new InetSocketAddress(tcpHost, tcpPort),
+                connectTimeoutMs == Long.MAX_VALUE ? 0 : (int) Math.min(connectTimeoutMs, Integer.MAX_VALUE));
             
-            out.write(requestBytes);
+            OutputStream out = socket.getOutputStream();
+            out.write(frame);
             out.flush();
-            
-            // Read response: responseCode(4) + approvalNo(12) + responseMessage(20) + discountYn(1) = 37 bytes
-            byte[] buffer = new byte[37];
-            int bytesRead = in.read(buffer);
-            
-            if (bytesRead == 37) {
-                // Parse by byte array slicing to handle MS949 multi-byte characters correctly
-                Map<String, String> result = new HashMap<>();
-                result.put("responseCode", new String(buffer, 0, 4, MS949).trim());
-                result.put("approvalNo", new String(buffer, 4, 12, MS949).trim());
-                result.put("responseMessage", new String(buffer, 16, 20, MS949).trim());
-                result.put("discountYn", new String(buffer, 36, 1, MS949).trim());
-                
-                log.debug("Received response ({} bytes): code={}, approval={}, message={}, discount={}", 
-                    bytesRead, result.get("responseCode"), result.get("approvalNo"), 
-                    result.get("responseMessage"), result.get("discountYn"));
-                
-                return result;
-            } else {
-                throw new IOException("Invalid response length: " + bytesRead);
+            int length = framing.readFrame(socket, socket.getInputStream(), buffer, responseLayout.getLength(),
+                earliest(readDeadline(), stepDeadline));
+            if (length != responseLayout.getLength()) {
+                throw new IOException("Invalid response length: " + length);
             }
+            journal(frame, framing.getHeaderLength(), buffer, framing.getHeaderLength());
+            handleResponse(buffer, framing.getHeaderLength(), expectations, result);
+        } finally {
+            context.sockets.remove(socket);
+            socket.close();
         }
     }
     
-    private String padRight(String s, int byteLength) {
-        try {
-            byte[] bytes = s.getBytes(MS949);
-            
-            if (bytes.length >= byteLength) {
-                // Truncate to exact byte length
-                return new String(bytes, 0, byteLength, MS949);
+    private void exchangePooled(TestExecutionContext context, Map<String, String> requestData,
+                                ResponseExpectations expectations, StepResult result, long stepDeadline) throws IOException {
+        int requestFrameLength = framing.frameLength(requestLayout.getLength());
+        int responseFrameLength = framing.frameLength(responseLayout.getLength());
+        while (true) {
+            TcpConnectionPool.Connection connection = connectionPool.borrow(remainingMillis(stepDeadline));
+            // Both frames live in the connection's own buffers, nothing is allocated per exchange
+            byte[] buffer = connection.getReadBuffer(responseFrameLength);
+            int length;
+            boolean written = false;
+            context.sockets.add(connection.getSocket());
+            try {
+                checkNotStopped(context);
+                byte[] frame = connection.getWriteBuffer(requestFrameLength);
+                encodeFrame(requestData, frame);
+                OutputStream out = connection.getOutputStream();
+                out.write(frame, 0, requestFrameLength);
+                out.flush();
+                written = true;
+                length = framing.readFrame(connection.getSocket(), connection.getInputStream(), buffer,
+                    responseLayout.getLength(), earliest(readDeadline(), stepDeadline));
+            } catch (IOException e) {
+                connectionPool.invalidate(connection);
+                if (!written && connection.isReused() && e instanceof SocketException && context.stopStatus == null) {
+                    // The host dropped a kept-alive connection and the telegram did not get out: reconnect and retry.
+                    // Once it is written the host may have processed it, so an approval or cancel is never sent twice.
+                    log.debug("Reconnecting after write error on pooled connection {}: {}", connection, e.getMessage());
+                    continue;
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                connectionPool.invalidate(connection);
+                throw e;
+            } finally {
+                context.sockets.remove(connection.getSocket());
             }
             
-            // Pad with spaces to reach byte length
-            byte[] padded = new byte[byteLength];
-            System.arraycopy(bytes, 0, padded, 0, bytes.length);
-            for (int i = bytes.length; i < byteLength; i++) {
-                padded[i] = (byte) ' ';
+            if (length == responseLayout.getLength()) {
+                // Compare before release, the buffer belongs to the connection
+                try {
+                    journal(connection.getWriteBuffer(requestFrameLength), framing.getHeaderLength(), buffer,
+                        framing.getHeaderLength());
+                    handleResponse(buffer, framing.getHeaderLength(), expectations, result);
+                } finally {
+                    connectionPool.release(connection);
+                }
+                return;
             }
-            return new String(padded, MS949);
-        } catch (Exception e) {
-            // Fallback to simple padding if error
-            StringBuilder sb = new StringBuilder(s);
-            while (sb.length() < byteLength) {
-                sb.append(' ');
+            
+            // EOF or a frame of the wrong length leaves the stream position unknown, never reuse it.
+            // The request is out, so an EOF fails the step like any other missing response.
+            connectionPool.invalidate(connection);
+            if (length == -1) {
+                throw new IOException("Connection closed by host after the request was sent");
             }
-            return sb.toString();
+            throw new IOException("Invalid response length: " + length);
+        }
+    }
+    
+    /**
+     * Called once the step's socket is registered: a stop that ran before then did not see it.
+     */
+    private void checkNotStopped(TestExecutionContext context) throws InterruptedIOException {
+        if (context.stopStatus != null) {
+            throw new InterruptedIOException("Execution stopped");
+        }
+    }
+    
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            // Closing only to abort the exchange
         }
     }
     
     private static class TestExecutionContext {
         String executionId;
         TestExecutionRequest request;
-        TestExecutionResult result;
-        volatile boolean paused;
+        ResponseExpectations[][] expectations; // [scenario][step], compiled at start
+        ResponseExpectations.Cache expectationCache; // stored cases instead: compiled as steps are read
+        int totalSteps;
+        AtomicReferenceArray<ScenarioResultBuffer> scenarioResults; // by scenario index, set when it starts
+        AtomicLongArray stepLog; // by sequence - 1: (scenario index + 1) << 32 | step index, 0 until recorded
+        final AtomicLong nextSeq = new AtomicLong();
+        final AtomicLong recordedSeq = new AtomicLong(); // cached scan position of recordedSeq()
+        ExecutionScheduler.RunQueue runQueue;
+        PauseGate pauseGate;
+        final AtomicReference<String> status = new AtomicReference<>("RUNNING");
+        volatile long completedAt;
+        volatile boolean pausedForTargetDown; // paused by an open circuit, resumed when it closes
+        // Set once by stopExecution (CANCELLED or TIMEOUT), becomes the final status
+        volatile String stopStatus;
+        ScheduledFuture<?> deadlineTask;
+        // What a stop has to abort: workers blocked in a step, their sockets and pending NIO exchanges
+        final Set<Thread> workers = new HashSet<>();
+        final Set<Socket> sockets = ConcurrentHashMap.newKeySet();
+        final Set<CompletableFuture<byte[]>> nioExchanges = ConcurrentHashMap.newKeySet();
+        final CompletableFuture<ExecutionProgress> finished = new CompletableFuture<>();
     }
 }
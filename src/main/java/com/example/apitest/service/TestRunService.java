@@ -0,0 +1,47 @@
+package com.example.apitest.service;
+
+import com.example.apitest.entity.TestRunEntity;
+import com.example.apitest.entity.TestRunStepEntity;
+import com.example.apitest.repository.TestRunRepository;
+import com.example.apitest.repository.TestRunStepRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class TestRunService {
+    
+    private final TestRunRepository testRunRepository;
+    private final TestRunStepRepository testRunStepRepository;
+    
+    /**
+     * 실행 이력 목록 (caseId 가 있으면 해당 케이스만)
+     */
+    public Page<TestRunEntity> getRuns(Long caseId, Pageable pageable) {
+        if (caseId != null) {
+            return testRunRepository.findByCaseIdOrderByStartedAtDesc(caseId, pageable);
+        }
+        return testRunRepository.findAllByOrderByStartedAtDesc(pageable);
+    }
+    
+    /**
+     * 실행 이력 조회
+     */
+    public TestRunEntity getRun(String executionId) {
+        return testRunRepository.findById(executionId).orElse(null);
+    }
+    
+    /**
+     * 스텝 결과 조회 (status 가 있으면 해당 상태만)
+     */
+    public Page<TestRunStepEntity> getRunSteps(String executionId, String status, Pageable pageable) {
+        if (status != null && !status.isEmpty()) {
+            return testRunStepRepository.findByExecutionIdAndStatusOrderBySeq(executionId, status, pageable);
+        }
+        return testRunStepRepository.findByExecutionIdOrderBySeq(executionId, pageable);
+    }
+}
@@ -0,0 +1,547 @@
+package com.example.apitest.tcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking TCP client built on {@link SocketChannel} and {@link Selector}.
+ * A handful of I/O threads each own a set of connections; telegrams are queued per I/O thread
+ * and dispatched to a connection with free capacity, so thousands of outstanding exchanges
+ * do not hold a thread each. Responses are matched to requests in FIFO order per connection.
+ * Each connection reads into its own direct buffer and a response completes only once its whole
+ * frame has arrived, however the host's bytes are split into segments.
+ * Deadlines are checked by each I/O thread every {@value #DEADLINE_CHECK_MS}ms while exchanges are
+ * pending. An exchange that times out fails on its own; once written it stays queued on its connection,
+ * so that its late response is read and discarded instead of being taken as the answer to the next
+ * telegram. A connection is closed only when timed-out or cancelled exchanges are all it has left.
+ */
+public class NioTcpClient implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(NioTcpClient.class);
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int MAX_READ_BUFFER_SIZE = 1 << 20;
+    private static final long DEADLINE_CHECK_MS = 20;
+
+    private final InetSocketAddress address;
+    private final int pipelineDepth;
+    private final TelegramFraming framing;
+    private final long connectTimeoutNanos;
+    private final long readTimeoutMs;
+    private final IoLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile boolean closed = false;
+
+    /**
+     * @param ioThreads     number of selector threads
+     * @param connections   total connections, spread evenly across I/O threads and opened on demand
+     * @param pipelineDepth telegrams that may be in flight on one connection at a time
+     *                      (1 = strict request/response, the only safe value for hosts without pipelining)
+     * @param framing       how telegrams are delimited on the wire
+     * @param connectTimeoutMs how long opening a connection may take, 0 = no limit
+     * @param readTimeoutMs default time from {@link #send} to the complete response, 0 = no limit
+     */
+    public NioTcpClient(String host, int port, int ioThreads, int connections, int pipelineDepth,
+                        TelegramFraming framing, long connectTimeoutMs, long readTimeoutMs) throws IOException {
+        this.address = new InetSocketAddress(host, port);
+        this.pipelineDepth = Math.max(1, pipelineDepth);
+        this.framing = framing;
+        this.connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(connectTimeoutMs);
+        this.readTimeoutMs = readTimeoutMs;
+
+        int threads = Math.max(1, ioThreads);
+        int connectionsPerLoop = Math.max(1, (connections + threads - 1) / threads);
+        this.loops = new IoLoop[threads];
+        for (int i = 0; i < threads; i++) {
+            loops[i] = new IoLoop(i, connectionsPerLoop);
+            loops[i].thread.start();
+        }
+        log.info("NIO TCP client started: {} (io threads: {}, connections: {}, pipeline depth: {})",
+            address, threads, connectionsPerLoop * threads, this.pipelineDepth);
+    }
+
+    /**
+     * Queue a telegram and complete the returned future with the response telegram of exactly
+     * {@code responseLength} bytes, without the frame header. A length-prefixed response of any other
+     * length fails the future. The future is completed on an I/O thread, so callbacks must not block.
+     */
+    public CompletableFuture<byte[]> send(byte[] request, int responseLength) {
+        return send(request, responseLength,
+            readTimeoutMs > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(readTimeoutMs) : 0);
+    }
+
+    /**
+     * Like {@link #send(byte[], int)}, failing the future with a {@link SocketTimeoutException} if the
+     * response is not complete by {@code deadlineNanos} ({@link System#nanoTime()}, 0 = none).
+     * Cancelling the future before the first byte of the telegram is written keeps it from being sent.
+     */
+    public CompletableFuture<byte[]> send(byte[] request, int responseLength, long deadlineNanos) {
+        Exchange exchange = new Exchange(request, responseLength, deadlineNanos);
+        if (closed) {
+            exchange.future.completeExceptionally(new IOException("NIO TCP client is closed"));
+            return exchange.future;
+        }
+        outstanding.incrementAndGet();
+        loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)].submit(exchange);
+        return exchange.future;
+    }
+
+    /**
+     * Telegrams queued or in flight right now.
+     */
+    public int getOutstandingCount() {
+        return outstanding.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (IoLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    /**
+     * Wait for the I/O threads to exit after {@link #close}, so that no completion callback runs any more.
+     *
+     * @return false if a thread was still running when the timeout elapsed
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (IoLoop loop : loops) {
+            TimeUnit.NANOSECONDS.timedJoin(loop.thread, deadline - System.nanoTime());
+            if (loop.thread.isAlive()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private final class Exchange {
+        // Header and telegram go out in one gathering write, the telegram is never copied
+        final ByteBuffer[] request;
+        final int responseLength;
+        final long deadlineNanos;
+        final CompletableFuture<byte[]> future = new CompletableFuture<>();
+        // Counted out of outstanding, only touched on the I/O thread once submitted
+        boolean settled;
+
+        Exchange(byte[] request, int responseLength, long deadlineNanos) {
+            int headerLength = framing.getHeaderLength();
+            if (headerLength > 0) {
+                byte[] header = new byte[headerLength];
+                framing.writeHeader(header, 0, request.length);
+                this.request = new ByteBuffer[] {ByteBuffer.wrap(header), ByteBuffer.wrap(request)};
+            } else {
+                this.request = new ByteBuffer[] {ByteBuffer.wrap(request)};
+            }
+            this.responseLength = responseLength;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        boolean expired(long now) {
+            return deadlineNanos != 0 && now - deadlineNanos >= 0;
+        }
+
+        boolean started() {
+            return request[0].position() > 0;
+        }
+
+        boolean written() {
+            return !request[request.length - 1].hasRemaining();
+        }
+
+        /**
+         * The caller no longer waits for it: completed, timed out or cancelled.
+         */
+        boolean abandoned() {
+            return future.isDone();
+        }
+
+        void complete(byte[] response) {
+            if (settle()) {
+                future.complete(response);
+            }
+        }
+
+        void fail(Throwable cause) {
+            if (settle()) {
+                future.completeExceptionally(cause);
+            }
+        }
+
+        /**
+         * Count the exchange out once, whether it is answered, fails, or is dropped after being cancelled.
+         */
+        boolean settle() {
+            if (settled) {
+                return false;
+            }
+            settled = true;
+            outstanding.decrementAndGet();
+            return true;
+        }
+    }
+
+    private static final class Connection {
+        final ArrayDeque<Exchange> writing = new ArrayDeque<>();
+        final ArrayDeque<Exchange> awaiting = new ArrayDeque<>();
+        ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        SocketChannel channel;
+        SelectionKey key;
+        boolean connected;
+        long connectDeadlineNanos;
+
+        int inFlight() {
+            return writing.size() + awaiting.size();
+        }
+    }
+
+    private final class IoLoop implements Runnable {
+        final Thread thread;
+        final Selector selector;
+        final Connection[] connections;
+        final Queue<Exchange> inbox = new ConcurrentLinkedQueue<>();
+        final ArrayDeque<Exchange> backlog = new ArrayDeque<>();
+        final AtomicBoolean wakeupPending = new AtomicBoolean();
+        volatile boolean running = true;
+
+        IoLoop(int index, int connectionCount) throws IOException {
+            this.selector = Selector.open();
+            this.connections = new Connection[connectionCount];
+            for (int i = 0; i < connectionCount; i++) {
+                connections[i] = new Connection();
+            }
+            this.thread = new Thread(this, "nio-tcp-client-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        void submit(Exchange exchange) {
+            inbox.offer(exchange);
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    // Wake up periodically only while something could time out
+                    selector.select(backlog.isEmpty() && idle() ? 0 : DEADLINE_CHECK_MS);
+                    // Clear the flag before draining so a submit racing with the drain triggers another wakeup
+                    wakeupPending.set(false);
+
+                    Exchange exchange;
+                    while ((exchange = inbox.poll()) != null) {
+                        backlog.add(exchange);
+                    }
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+
+                    dispatchBacklog();
+                    expire();
+                } catch (IOException e) {
+                    log.error("NIO client I/O loop error", e);
+                }
+            }
+            closeAll();
+        }
+
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (!key.isValid()) {
+                    return;
+                }
+                if (key.isConnectable()) {
+                    finishConnect(connection);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read(connection);
+                }
+                if (key.isValid() && key.isWritable()) {
+                    flushWrites(connection);
+                }
+            } catch (IOException e) {
+                fail(connection, e);
+            }
+        }
+
+        private boolean idle() {
+            for (Connection connection : connections) {
+                if (connection.inFlight() > 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Fail exchanges past their deadline and connections that did not connect in time.
+         */
+        private void expire() {
+            long now = System.nanoTime();
+            for (Connection connection : connections) {
+                if (connection.channel == null) {
+                    continue;
+                }
+                if (!connection.connected && connectTimeoutNanos > 0 && now - connection.connectDeadlineNanos >= 0) {
+                    fail(connection, new SocketTimeoutException("Connect timed out: " + address));
+                    continue;
+                }
+                // Not started: nothing of it is on the wire, so it simply leaves the connection
+                for (Iterator<Exchange> it = connection.writing.iterator(); it.hasNext(); ) {
+                    Exchange exchange = it.next();
+                    if (exchange.expired(now) && !exchange.started()) {
+                        it.remove();
+                        exchange.fail(new SocketTimeoutException("Not sent before the deadline"));
+                    }
+                }
+                boolean overdue = expire(connection.writing, now) | expire(connection.awaiting, now);
+                if (overdue && !hasWaitingCaller(connection)) {
+                    // Only abandoned exchanges left, whose responses may never come: start over
+                    fail(connection, new SocketTimeoutException("Response not complete before the deadline"));
+                }
+            }
+            // Not yet dispatched: nothing was written, so only the exchange itself fails
+            for (Iterator<Exchange> it = backlog.iterator(); it.hasNext(); ) {
+                Exchange exchange = it.next();
+                if (exchange.expired(now)) {
+                    it.remove();
+                    exchange.fail(new SocketTimeoutException("Not sent before the deadline"));
+                }
+            }
+        }
+
+        /**
+         * Fail the exchanges past their deadline but keep them queued, their responses are still due.
+         * Returns whether any is past its deadline.
+         */
+        private boolean expire(ArrayDeque<Exchange> exchanges, long now) {
+            boolean overdue = false;
+            for (Exchange exchange : exchanges) {
+                if (exchange.expired(now)) {
+                    overdue = true;
+                    exchange.fail(new SocketTimeoutException("Response not complete before the deadline"));
+                }
+            }
+            return overdue;
+        }
+
+        private boolean hasWaitingCaller(Connection connection) {
+            for (Exchange exchange : connection.awaiting) {
+                if (!exchange.abandoned()) {
+                    return true;
+                }
+            }
+            for (Exchange exchange : connection.writing) {
+                if (!exchange.abandoned()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void dispatchBacklog() {
+            dropCancelled();
+            for (Connection connection : connections) {
+                if (backlog.isEmpty()) {
+                    return;
+                }
+                if (connection.inFlight() >= pipelineDepth) {
+                    continue;
+                }
+                try {
+                    if (connection.channel == null) {
+                        open(connection);
+                    }
+                    while (!backlog.isEmpty() && connection.inFlight() < pipelineDepth) {
+                        connection.writing.add(backlog.poll());
+                        dropCancelled();
+                    }
+                    if (connection.connected) {
+                        flushWrites(connection);
+                    }
+                } catch (IOException e) {
+                    fail(connection, e);
+                }
+            }
+        }
+
+        /**
+         * Exchanges whose caller already gave up (e.g. a cancelled execution) are never sent.
+         */
+        private void dropCancelled() {
+            while (!backlog.isEmpty() && backlog.peek().abandoned()) {
+                backlog.poll().settle();
+            }
+        }
+
+        private void open(Connection connection) throws IOException {
+            SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            connection.channel = channel;
+            connection.connectDeadlineNanos = System.nanoTime() + connectTimeoutNanos;
+            connection.connected = channel.connect(address);
+            connection.key = channel.register(selector,
+                connection.connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, connection);
+        }
+
+        private void finishConnect(Connection connection) throws IOException {
+            if (connection.channel.finishConnect()) {
+                connection.connected = true;
+                connection.key.interestOps(SelectionKey.OP_READ);
+                flushWrites(connection);
+            }
+        }
+
+        private void flushWrites(Connection connection) throws IOException {
+            while (!connection.writing.isEmpty()) {
+                Exchange head = connection.writing.peek();
+                if (head.abandoned() && !head.started()) {
+                    // Cancelled (or timed out) while queued on the connection: never put it on the wire
+                    connection.writing.poll().settle();
+                    continue;
+                }
+                connection.channel.write(head.request);
+                if (!head.written()) {
+                    // Socket send buffer is full, continue when the channel becomes writable
+                    connection.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                connection.awaiting.add(connection.writing.poll());
+            }
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+
+        private void read(Connection connection) throws IOException {
+            ByteBuffer buffer = connection.readBuffer;
+            if (connection.channel.read(buffer) == -1) {
+                throw new IOException("Connection closed by host");
+            }
+
+            buffer.flip();
+            int headerLength = framing.getHeaderLength();
+            while (!connection.awaiting.isEmpty()) {
+                Exchange exchange = connection.awaiting.peek();
+                int frameLength = framing.peekFrameLength(buffer, exchange.responseLength);
+                if (frameLength == -1 || buffer.remaining() < frameLength) {
+                    if (frameLength > MAX_READ_BUFFER_SIZE) {
+                        throw new IOException("Frame of " + frameLength + " bytes exceeds " + MAX_READ_BUFFER_SIZE);
+                    }
+                    // Partial frame: keep it and wait for the rest
+                    break;
+                }
+                connection.awaiting.poll();
+                buffer.position(buffer.position() + headerLength);
+                byte[] response = new byte[frameLength - headerLength];
+                buffer.get(response);
+                if (response.length == exchange.responseLength) {
+                    exchange.complete(response);
+                } else {
+                    // The frame was consumed whole, so the stream is still in sync for the next one
+                    exchange.fail(new IOException("Invalid response length: " + response.length));
+                }
+            }
+            boolean unexpectedBytes = connection.awaiting.isEmpty() && buffer.hasRemaining();
+            buffer.compact();
+
+            if (unexpectedBytes) {
+                throw new IOException("Received bytes without an outstanding request");
+            }
+            if (!buffer.hasRemaining()) {
+                grow(connection);
+            }
+        }
+
+        /**
+         * Double a full read buffer, otherwise a frame larger than the buffer could never complete.
+         */
+        private void grow(Connection connection) throws IOException {
+            ByteBuffer buffer = connection.readBuffer;
+            if (buffer.capacity() >= MAX_READ_BUFFER_SIZE) {
+                throw new IOException("Read buffer full at " + buffer.capacity() + " bytes without a complete frame");
+            }
+            ByteBuffer larger = ByteBuffer.allocateDirect(Math.min(buffer.capacity() * 2, MAX_READ_BUFFER_SIZE));
+            buffer.flip();
+            larger.put(buffer);
+            connection.readBuffer = larger;
+        }
+
+        private void fail(Connection connection, IOException cause) {
+            log.debug("NIO connection failed: {}", cause.getMessage());
+            if (connection.key != null) {
+                connection.key.cancel();
+            }
+            if (connection.channel != null) {
+                try {
+                    connection.channel.close();
+                } catch (IOException ignored) {
+                    // already failing this connection
+                }
+            }
+            connection.channel = null;
+            connection.key = null;
+            connection.connected = false;
+            connection.readBuffer.clear();
+
+            Exchange exchange;
+            while ((exchange = connection.awaiting.poll()) != null) {
+                exchange.fail(cause);
+            }
+            while ((exchange = connection.writing.poll()) != null) {
+                exchange.fail(cause);
+            }
+        }
+
+        private void closeAll() {
+            IOException cause = new IOException("NIO TCP client is closed");
+            for (Connection connection : connections) {
+                fail(connection, cause);
+            }
+            Exchange exchange;
+            while ((exchange = inbox.poll()) != null) {
+                backlog.add(exchange);
+            }
+            while ((exchange = backlog.poll()) != null) {
+                exchange.fail(cause);
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Error closing selector", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.apitest.tcp;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of persistent TCP connections to a single host.
+ * Connections are reused across steps and scenarios, idle ones are evicted
+ * after {@code idleTimeoutMs}, and a connection that has been idle longer than
+ * {@code validationIntervalMs} is health-checked before it is handed out.
+ */
+public class TcpConnectionPool implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(TcpConnectionPool.class);
+
+    private final String host;
+    private final int port;
+    private final int maxSize;
+    private final long idleTimeoutMs;
+    private final long validationIntervalMs;
+    private final long borrowTimeoutMs;
+    private final long connectTimeoutMs;
+
+    // LIFO: hot connections stay warm, surplus ones age out through eviction
+    private final BlockingDeque<Connection> idleConnections = new LinkedBlockingDeque<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService evictor;
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong reusedCount = new AtomicLong();
+    private volatile boolean closed = false;
+
+    /**
+     * @param connectTimeoutMs how long opening a new connection may take, 0 = no limit
+     */
+    public TcpConnectionPool(String host, int port, int maxSize, long idleTimeoutMs,
+                             long validationIntervalMs, long borrowTimeoutMs, long connectTimeoutMs) {
+        this.host = host;
+        this.port = port;
+        this.maxSize = maxSize;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationIntervalMs = validationIntervalMs;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.connectTimeoutMs = connectTimeoutMs;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tcp-pool-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long evictionPeriod = Math.max(1000, idleTimeoutMs / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdleConnections, evictionPeriod, evictionPeriod, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrow a connection, reusing an idle one when it is still healthy.
+     * Every borrowed connection must be handed back via {@link #release} or {@link #invalidate}.
+     */
+    public Connection borrow() throws IOException {
+        return borrow(borrowTimeoutMs);
+    }
+
+    /**
+     * Borrow within {@code timeoutMs} (at most the pool's borrow timeout), including the connect
+     * if a new connection has to be opened.
+     *
+     * @throws PoolExhaustedException if every connection stayed borrowed for the whole wait
+     * @throws SocketTimeoutException if no connection could be had in time
+     */
+    public Connection borrow(long timeoutMs) throws IOException {
+        if (closed) {
+            throw new IOException("Connection pool is closed");
+        }
+
+        long waitMs = Math.min(timeoutMs, borrowTimeoutMs);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMs);
+        try {
+            if (!permits.tryAcquire(waitMs, TimeUnit.MILLISECONDS)) {
+                throw new PoolExhaustedException("Timed out after " + waitMs + "ms waiting for a pooled connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a pooled connection");
+        }
+
+        try {
+            Connection connection;
+            while ((connection = idleConnections.pollFirst()) != null) {
+                if (isHealthy(connection)) {
+                    reusedCount.incrementAndGet();
+                    connection.reused = true;
+                    return connection;
+                }
+                log.debug("Discarding unhealthy pooled connection {}", connection);
+                connection.closeQuietly();
+            }
+            return open(TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        } catch (IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a connection after a complete request/response exchange.
+     */
+    public void release(Connection connection) {
+        connection.lastUsedAt = System.currentTimeMillis();
+        if (closed || idleConnections.size() >= maxSize) {
+            connection.closeQuietly();
+        } else {
+            idleConnections.offerFirst(connection);
+        }
+        permits.release();
+    }
+
+    /**
+     * Drop a connection whose stream state is unknown (I/O error, short read).
+     */
+    public void invalidate(Connection connection) {
+        connection.closeQuietly();
+        permits.release();
+    }
+
+    public int getIdleCount() {
+        return idleConnections.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public long getCreatedCount() {
+        return createdCount.get();
+    }
+
+    public long getReusedCount() {
+        return reusedCount.get();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        Connection connection;
+        while ((connection = idleConnections.pollFirst()) != null) {
+            connection.closeQuietly();
+        }
+        log.info("TCP connection pool closed (created: {}, reused: {})", createdCount.get(), reusedCount.get());
+    }
+
+    private Connection open(long remainingMs) throws IOException {
+        long timeoutMs = connectTimeoutMs > 0 ? Math.min(connectTimeoutMs, remainingMs) : remainingMs;
+        if (timeoutMs <= 0) {
+            throw new SocketTimeoutException("No time left to connect to " + host + ":" + port);
+        }
+        Socket socket = new Socket();
+        try {
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.connect(new InetSocketAddress(host, port), (int) Math.min(timeoutMs, Integer.MAX_VALUE));
+            createdCount.incrementAndGet();
+            return new Connection(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    private boolean isHealthy(Connection connection) {
+        Socket socket = connection.socket;
+        if (socket.isClosed() || !socket.isConnected() || socket.isInputShutdown() || socket.isOutputShutdown()) {
+            return false;
+        }
+        if (System.currentTimeMillis() - connection.lastUsedAt < validationIntervalMs) {
+            return true;
+        }
+
+        // Probe with a 1ms read: a timeout means the peer is still there and nothing is pending.
+        // EOF means the peer closed the connection, and unexpected bytes mean the stream is out of sync.
+        int originalTimeout = 0;
+        try {
+            originalTimeout = socket.getSoTimeout();
+            socket.setSoTimeout(1);
+            connection.in.read();
+            return false;
+        } catch (SocketTimeoutException e) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            try {
+                if (!socket.isClosed()) {
+                    socket.setSoTimeout(originalTimeout);
+                }
+            } catch (IOException ignored) {
+                // connection is discarded by the caller
+            }
+        }
+    }
+
+    private void evictIdleConnections() {
+        long now = System.currentTimeMillis();
+        int evicted = 0;
+        for (Connection connection : idleConnections) {
+            if (now - connection.lastUsedAt >= idleTimeoutMs && idleConnections.remove(connection)) {
+                connection.closeQuietly();
+                evicted++;
+            }
+        }
+        if (evicted > 0) {
+            log.debug("Evicted {} idle TCP connections ({} remaining)", evicted, idleConnections.size());
+        }
+    }
+
+    /**
+     * All {@code maxSize} connections are in use. Says nothing about the host, unlike a connect timeout.
+     */
+    public static class PoolExhaustedException extends SocketTimeoutException {
+        public PoolExhaustedException(String message) {
+            super(message);
+        }
+    }
+
+    public static class Connection {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private volatile long lastUsedAt;
+        private boolean reused;
+        // Frame buffers live as long as the socket; only the borrower touches them
+        private byte[] writeBuffer;
+        private byte[] readBuffer;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = socket.getInputStream();
+            this.out = socket.getOutputStream();
+            this.lastUsedAt = System.currentTimeMillis();
+        }
+
+        public InputStream getInputStream() {
+            return in;
+        }
+
+        public OutputStream getOutputStream() {
+            return out;
+        }
+
+        public Socket getSocket() {
+            return socket;
+        }
+
+        /**
+         * Reusable buffer of at least {@code length} bytes for encoding the outgoing frame.
+         */
+        public byte[] getWriteBuffer(int length) {
+            if (writeBuffer == null || writeBuffer.length < length) {
+                writeBuffer = new byte[length];
+            }
+            return writeBuffer;
+        }
+
+        /**
+         * Reusable buffer of exactly {@code length} bytes for reading the incoming frame.
+         * Its content is only valid until the connection is released.
+         */
+        public byte[] getReadBuffer(int length) {
+            if (readBuffer == null || readBuffer.length != length) {
+                readBuffer = new byte[length];
+            }
+            return readBuffer;
+        }
+
+        /**
+         * Whether this connection already served an earlier exchange.
+         */
+        public boolean isReused() {
+            return reused;
+        }
+
+        void closeQuietly() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+
+        @Override
+        public String toString() {
+            return socket.getLocalPort() + "->" + socket.getRemoteSocketAddress();
+        }
+    }
+}
@@ -1,156 +1,667 @@
 package com.example.apitest.tcp;
 
+import com.example.apitest.mock.MockFaultProfile;
+import com.example.apitest.mock.MockRuleRegistry;
+import com.example.apitest.mock.MockRules;
+import com.example.apitest.mock.MockTransactionStore;
+import com.example.apitest.telegram.TelegramLayout;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.nio.charset.Charset;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.file.Paths;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Mock approval host on non-blocking channels.
+ * One acceptor thread hands new connections round-robin to a fixed set of event loops; each loop owns
+ * its connections' selector and serves them with buffers shared by the whole loop, so an idle kept-alive
+ * connection costs no thread and no buffer. Connections stay open until the client closes them, and
+ * every complete telegram already received is answered in order, so pipelined telegrams go back in one write.
+ * A connection whose client does not read its responses stops being read until they are written.
+ * Responses come from the rules of {@link MockRuleRegistry}; approval numbers, and the approvals that
+ * cancels are checked against, from {@link MockTransactionStore}. In replay mode a request recorded in the
+ * traffic journal is answered with the recorded response instead, see {@link TrafficReplayIndex}.
+ * A response under a fault profile (the rule's, or else the registry's active one) is queued on its connection
+ * with the time it may go out; the loop waits for the earliest such time in its select instead of sleeping,
+ * so a delayed or dripping response holds no thread and its connection's later responses follow it in order.
+ */
 @Component
 public class TcpMockServer {
     
     private static final Logger log = LoggerFactory.getLogger(TcpMockServer.class);
-    private static final int PORT = 9090;
-    private static final Charset MS949 = Charset.forName("MS949");
+    // Loop-wide buffer sizes, a read takes in at most this much of one connection's pipelined telegrams
+    private static final int LOOP_BUFFER_SIZE = 64 * 1024;
+    // Responses queued on one connection before it is no longer read
+    private static final int MAX_QUEUED = 1024;
     
-    private ServerSocket serverSocket;
-    private ExecutorService executorService;
+    private ServerSocketChannel serverChannel;
+    private Thread acceptorThread;
+    private EventLoop[] loops;
+    private final AtomicInteger openConnections = new AtomicInteger();
     private volatile boolean running = false;
     
+    @Value("${app.tcp.mock.port:9090}")
+    private int port = 9090;
+    
+    @Value("${app.tcp.mock.io-threads:0}")
+    private int ioThreads = 0;
+    
+    @Value("${app.tcp.mock.backlog:1024}")
+    private int acceptBacklog = 1024;
+    
+    @Autowired
+    private TelegramLayoutRegistry layoutRegistry;
+    
+    @Autowired
+    private MockRuleRegistry ruleRegistry;
+    
+    @Autowired
+    private MockTransactionStore transactionStore;
+    
+    @Value("${app.tcp.mock.replay.enabled:false}")
+    private boolean replayEnabled = false;
+    
+    @Value("${app.tcp.journal.file:./traffic-journal.dat}")
+    private String journalFile = "./traffic-journal.dat";
+    
+    @Value("${app.tcp.mock.replay.key-fields:}")
+    private String replayKeyFields = "";
+    
+    @Value("${app.telegram.request-layout:approval-request}")
+    private String requestLayoutName = "approval-request";
+    
+    @Value("${app.telegram.response-layout:approval-response}")
+    private String responseLayoutName = "approval-response";
+    
+    @Value("${app.tcp.framing.mode:FIXED}")
+    private String framingMode = TelegramFraming.FIXED;
+    
+    @Value("${app.tcp.framing.length-header-digits:4}")
+    private int framingHeaderDigits = 4;
+    
+    @Value("${app.tcp.framing.length-includes-header:false}")
+    private boolean framingLengthIncludesHeader = false;
+    
+    private TelegramFraming framing;
+    private TelegramLayout requestLayout;
+    private TelegramLayout responseLayout;
+    private int requestFrameLength;
+    private int responseFrameLength;
+    private TrafficJournal replayJournal;
+    private TrafficReplayIndex replayIndex;
+    
     @PostConstruct
     public void start() {
-        executorService = Executors.newCachedThreadPool();
-        executorService.submit(() -> {
-            try {
-                serverSocket = new ServerSocket(PORT);
-                running = true;
-                log.info("TCP Mock Server started on port {}", PORT);
-                
-                while (running) {
-                    try {
-                        Socket clientSocket = serverSocket.accept();
-                        executorService.submit(() -> handleClient(clientSocket));
-                    } catch (IOException e) {
-                        if (running) {
-                            log.error("Error accepting client connection", e);
-                        }
-                    }
-                }
-            } catch (IOException e) {
-                log.error("Error starting TCP server", e);
+        initLayouts();
+        try {
+            if (replayEnabled) {
+                openReplay();
+            }
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(new InetSocketAddress(port), Math.max(1, acceptBacklog));
+            
+            int threads = ioThreads > 0 ? ioThreads : Runtime.getRuntime().availableProcessors();
+            loops = new EventLoop[threads];
+            for (int i = 0; i < threads; i++) {
+                loops[i] = new EventLoop(i);
+            }
+            running = true;
+            for (EventLoop loop : loops) {
+                loop.thread.start();
             }
-        });
+            acceptorThread = new Thread(this::acceptLoop, "tcp-mock-acceptor");
+            acceptorThread.setDaemon(true);
+            acceptorThread.start();
+            log.info("TCP Mock Server started on port {} (event loops: {}, backlog: {})", getPort(), threads, acceptBacklog);
+        } catch (IOException e) {
+            log.error("Error starting TCP server", e);
+            stop();
+        }
+    }
+    
+    private void initLayouts() {
+        framing = new TelegramFraming(framingMode, framingHeaderDigits, framingLengthIncludesHeader);
+        requestLayout = layoutRegistry.get(requestLayoutName);
+        responseLayout = layoutRegistry.get(responseLayoutName);
+        requestFrameLength = framing.frameLength(requestLayout.getLength());
+        responseFrameLength = framing.frameLength(responseLayout.getLength());
+    }
+    
+    private void openReplay() throws IOException {
+        long started = System.nanoTime();
+        replayJournal = TrafficJournal.openForRead(Paths.get(journalFile), requestLayout.getLength(),
+            responseLayout.getLength());
+        replayIndex = new TrafficReplayIndex(replayJournal, requestLayout, replayKeyFields.isBlank()
+            ? null : Arrays.asList(replayKeyFields.split(",")));
+        log.info("TCP Mock Server replaying {}: {} recorded requests indexed in {} ms", journalFile, replayIndex.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
     }
     
     @PreDestroy
     public void stop() {
         running = false;
         try {
-            if (serverSocket != null && !serverSocket.isClosed()) {
-                serverSocket.close();
-            }
-            if (executorService != null) {
-                executorService.shutdownNow();
+            if (serverChannel != null) {
+                serverChannel.close();
             }
-            log.info("TCP Mock Server stopped");
         } catch (IOException e) {
             log.error("Error stopping TCP server", e);
         }
-    }
-    
-    private void handleClient(Socket clientSocket) {
-        try (
-            InputStream in = clientSocket.getInputStream();
-            OutputStream out = clientSocket.getOutputStream()
-        ) {
-            // Read fixed-length message
-            // Format: cardNo(16) + settlementAmount(12) + requestMethod(2) = 30 bytes
-            byte[] buffer = new byte[30];
-            int bytesRead = in.read(buffer);
-            
-            if (bytesRead == 30) {
-                // Parse by byte array slicing to handle MS949 multi-byte characters correctly
-                String cardNo = new String(buffer, 0, 16, MS949).trim();
-                String settlementAmount = new String(buffer, 16, 12, MS949).trim();
-                String requestMethod = new String(buffer, 28, 2, MS949).trim();
-                
-                log.info("Received - cardNo: {}, amount: {}, method: {}", 
-                    cardNo, settlementAmount, requestMethod);
-                
-                // Generate response
-                String response = generateResponse(cardNo, settlementAmount, requestMethod);
-                byte[] responseBytes = response.getBytes(MS949);
-                
-                if (responseBytes.length != 37) {
-                    log.warn("Response byte length is {} instead of 37. Response: {}", responseBytes.length, response);
+        if (loops != null) {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    loop.selector.wakeup();
                 }
-                
-                out.write(responseBytes);
-                out.flush();
-                
-                log.info("Sent response ({} bytes): {}", responseBytes.length, response);
             }
-        } catch (Exception e) {
-            log.error("Error handling client", e);
-        } finally {
+            for (EventLoop loop : loops) {
+                if (loop != null) {
+                    try {
+                        loop.thread.join(TimeUnit.SECONDS.toMillis(5));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+        if (replayJournal != null) {
+            log.info("Replay of {}: {} requests answered from the journal, {} by the rules", journalFile,
+                replayIndex.getHits(), replayIndex.getMisses());
             try {
-                clientSocket.close();
+                replayJournal.close();
             } catch (IOException e) {
-                log.error("Error closing client socket", e);
+                log.warn("Error closing traffic journal", e);
+            }
+        }
+        log.info("TCP Mock Server stopped");
+    }
+    
+    /**
+     * Port the server listens on; the bound one when {@code app.tcp.mock.port} is 0, -1 if it is not listening.
+     */
+    public int getPort() {
+        try {
+            return serverChannel != null && serverChannel.isOpen()
+                ? ((InetSocketAddress) serverChannel.getLocalAddress()).getPort() : -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+    
+    /**
+     * Connections open right now, across all event loops.
+     */
+    public int getOpenConnections() {
+        return openConnections.get();
+    }
+    
+    private void acceptLoop() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                openConnections.incrementAndGet();
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                // Server stopped
+                return;
+            } catch (IOException e) {
+                if (!running) {
+                    return;
+                }
+                // e.g. out of file descriptors: pending connections wait in the backlog meanwhile
+                log.error("Error accepting client connection: {}", e.getMessage());
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
             }
         }
     }
     
-    private String generateResponse(String cardNo, String amount, String method) {
-        // Generate mock response
-        // Format: responseCode(4) + approvalNo(12) + responseMessage(20) + discountYn(1) = 37 bytes
+    /**
+     * Per-connection state, only what a loop-wide buffer cannot hold between events.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+        // Start of a telegram that has not fully arrived, null when the last read ended on a frame boundary
+        ByteBuffer partial;
+        // Responses not written yet, in order; null until the socket refuses output or a fault profile applies
+        ArrayDeque<Outgoing> queue;
+        // Time of the loop timer that will drain the queue, 0 if none
+        long timerAt;
+        
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
         
-        String responseCode = "0000"; // Success
-        String approvalNo = String.format("%012d", System.currentTimeMillis() % 1000000000000L);
-        String responseMessage = padRight("정상승인", 20);
-        String discountYn = "Y";
+        boolean hasQueued() {
+            return queue != null && !queue.isEmpty();
+        }
+    }
+    
+    /**
+     * A queued response: written up to {@code end} in chunks of {@code chunk} bytes, the first at
+     * {@code readyAt} and each next one {@code chunkIntervalNanos} after the previous was written.
+     */
+    private static final class Outgoing {
+        final ByteBuffer data;
+        final int end;
+        final int chunk;
+        final long chunkIntervalNanos;
+        final boolean closeAfter;
+        long readyAt;
         
-        // Check for error cases (for testing)
-        if (cardNo.startsWith("9999")) {
-            responseCode = "9999";
-            responseMessage = padRight("거절", 20);
-            approvalNo = "000000000000";
+        Outgoing(ByteBuffer data, int end, int chunk, long chunkIntervalNanos, boolean closeAfter, long readyAt) {
+            this.data = data;
+            this.end = end;
+            this.chunk = chunk;
+            this.chunkIntervalNanos = chunkIntervalNanos;
+            this.closeAfter = closeAfter;
+            this.readyAt = readyAt;
+            data.limit(chunk > 0 ? Math.min(end, data.position() + chunk) : end);
         }
+    }
+    
+    private static final class Timer {
+        final long at;
+        final Connection connection;
         
-        String response = responseCode + approvalNo + responseMessage + discountYn;
-        return response;
+        Timer(long at, Connection connection) {
+            this.at = at;
+            this.connection = connection;
+        }
     }
     
-    private String padRight(String s, int byteLength) {
-        try {
-            byte[] bytes = s.getBytes(MS949);
+    private final class EventLoop implements Runnable {
+        final Thread thread;
+        final Selector selector;
+        final Queue<SocketChannel> inbox = new ConcurrentLinkedQueue<>();
+        final AtomicBoolean wakeupPending = new AtomicBoolean();
+        final ByteBuffer in = ByteBuffer.allocate(LOOP_BUFFER_SIZE);
+        final ByteBuffer out = ByteBuffer.allocate(Math.max(LOOP_BUFFER_SIZE, responseFrameLength));
+        final PriorityQueue<Timer> timers = new PriorityQueue<>((a, b) -> Long.compare(a.at, b.at));
+        final Random random = new Random();
+        
+        EventLoop(int index) throws IOException {
+            this.selector = Selector.open();
+            this.thread = new Thread(this, "tcp-mock-loop-" + index);
+            this.thread.setDaemon(true);
+        }
+        
+        void register(SocketChannel channel) {
+            inbox.offer(channel);
+            if (wakeupPending.compareAndSet(false, true)) {
+                selector.wakeup();
+            }
+        }
+        
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    long wait = timers.isEmpty() ? 0 : timers.peek().at - System.nanoTime();
+                    if (timers.isEmpty()) {
+                        selector.select();
+                    } else if (wait > 0) {
+                        selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait + 999_999)));
+                    } else {
+                        selector.selectNow();
+                    }
+                    // Clear the flag before draining so a register racing with the drain triggers another wakeup
+                    wakeupPending.set(false);
+                    
+                    SocketChannel channel;
+                    while ((channel = inbox.poll()) != null) {
+                        Connection connection = new Connection(channel);
+                        try {
+                            connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                        } catch (IOException e) {
+                            close(connection);
+                        }
+                    }
+                    
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        handle(key);
+                    }
+                    runTimers();
+                } catch (IOException e) {
+                    log.error("TCP Mock Server event loop error", e);
+                }
+            }
+            closeAll();
+        }
+        
+        private void handle(SelectionKey key) {
+            Connection connection = (Connection) key.attachment();
+            try {
+                if (key.isValid() && key.isWritable()) {
+                    resume(connection);
+                }
+                if (key.isValid() && key.isReadable()) {
+                    read(connection);
+                }
+            } catch (IOException e) {
+                // Client reset or sent something that is not a telegram
+                log.debug("Client connection closed: {}", e.getMessage());
+                close(connection);
+            }
+        }
+        
+        private void runTimers() {
+            long now = System.nanoTime();
+            Timer timer;
+            while ((timer = timers.peek()) != null && timer.at <= now) {
+                timers.poll();
+                Connection connection = timer.connection;
+                // Superseded by an earlier timer, or the connection is gone
+                if (connection.timerAt != timer.at || !connection.channel.isOpen()) {
+                    continue;
+                }
+                connection.timerAt = 0;
+                try {
+                    resume(connection);
+                } catch (IOException e) {
+                    log.debug("Client connection closed: {}", e.getMessage());
+                    close(connection);
+                }
+            }
+        }
+        
+        private void read(Connection connection) throws IOException {
+            in.clear();
+            if (connection.partial != null) {
+                in.put(connection.partial);
+                connection.partial = null;
+            }
+            int read = connection.channel.read(in);
+            if (read == -1) {
+                if (in.position() > 0) {
+                    log.warn("Client {} closed the connection mid-telegram", connection.channel.getRemoteAddress());
+                }
+                close(connection);
+                return;
+            }
             
-            if (bytes.length >= byteLength) {
-                // Truncate to exact byte length
-                return new String(bytes, 0, byteLength, MS949);
+            in.flip();
+            int headerLength = framing.getHeaderLength();
+            int requestLength = requestLayout.getLength();
+            out.clear();
+            // Taken once per read: a reload swaps the rules, telegrams of one read are answered by the same set
+            MockRules rules = ruleRegistry.current();
+            MockFaultProfile activeProfile = ruleRegistry.activeProfile();
+            long receivedAt = System.nanoTime();
+            int frameLength;
+            while ((frameLength = framing.peekFrameLength(in, requestLength)) != -1) {
+                if (frameLength != requestFrameLength) {
+                    throw new IOException("Invalid request length " + (frameLength - headerLength) + " from "
+                        + connection.channel.getRemoteAddress());
+                }
+                if (in.remaining() < frameLength) {
+                    break;
+                }
+                if (connection.hasQueued() && connection.queue.size() >= MAX_QUEUED) {
+                    // Go on only if the socket takes what is due; the rest waits in partial
+                    drain(connection);
+                    if (connection.hasQueued() || !connection.channel.isOpen()) {
+                        break;
+                    }
+                }
+                int request = in.position();
+                if (log.isDebugEnabled()) {
+                    log.debug("Received: {}", requestLayout.decode(in.array(), request + headerLength));
+                }
+                
+                // A recorded response takes precedence over the rules
+                int recorded = replayIndex != null ? replayIndex.find(in.array(), request + headerLength) : -1;
+                int rule = recorded < 0 ? rules.match(in.array(), request + headerLength) : -1;
+                MockFaultProfile profile = rules.profile(rule);
+                if (profile == null) {
+                    profile = activeProfile;
+                }
+                if (profile != null || connection.hasQueued()) {
+                    // Earlier responses go out first
+                    if (!write(connection)) {
+                        break;
+                    }
+                    byte[] response = new byte[responseFrameLength];
+                    framing.writeHeader(response, 0, responseLayout.getLength());
+                    respond(rules, recorded, rule, request + headerLength, response, headerLength);
+                    enqueue(connection, response, profile, receivedAt);
+                    in.position(request + frameLength);
+                    continue;
+                }
+                
+                if (out.remaining() < responseFrameLength) {
+                    // Many pipelined telegrams in one read: send what is answered so far
+                    if (!write(connection)) {
+                        break;
+                    }
+                }
+                int response = out.position();
+                framing.writeHeader(out.array(), response, responseLayout.getLength());
+                respond(rules, recorded, rule, request + headerLength, out.array(), response + headerLength);
+                out.position(response + responseFrameLength);
+                in.position(request + frameLength);
+                
+                if (log.isDebugEnabled()) {
+                    log.debug("Sent response ({} bytes): {}", responseFrameLength,
+                        responseLayout.decode(out.array(), response + headerLength));
+                }
+            }
+            if (!connection.channel.isOpen()) {
+                // Dropped by a fault profile
+                return;
+            }
+            if (write(connection) && connection.hasQueued()) {
+                drain(connection);
+                if (!connection.channel.isOpen()) {
+                    return;
+                }
             }
             
-            // Pad with spaces to reach byte length
-            byte[] padded = new byte[byteLength];
-            System.arraycopy(bytes, 0, padded, 0, bytes.length);
-            for (int i = bytes.length; i < byteLength; i++) {
-                padded[i] = (byte) ' ';
-            }
-            return new String(padded, MS949);
-        } catch (Exception e) {
-            // Fallback to simple padding if error
-            StringBuilder sb = new StringBuilder(s);
-            while (sb.length() < byteLength) {
-                sb.append(' ');
-            }
-            return sb.toString();
+            if (in.hasRemaining()) {
+                // Part of the next telegram, or telegrams left unanswered while the client is not reading
+                connection.partial = ByteBuffer.allocate(in.remaining());
+                connection.partial.put(in).flip();
+            }
+        }
+        
+        private void respond(MockRules rules, int recorded, int rule, int request, byte[] response, int responseOffset)
+                throws IOException {
+            if (recorded >= 0) {
+                replayIndex.copyResponse(recorded, response, responseOffset);
+            } else {
+                rules.respond(rule, in.array(), request, transactionStore, response, responseOffset);
+            }
+        }
+        
+        /**
+         * Write the loop's output buffer and clear it; whatever the socket does not take is queued on the
+         * connection, which is then only watched for writability.
+         *
+         * @return whether everything was written
+         */
+        private boolean write(Connection connection) throws IOException {
+            if (out.position() == 0) {
+                return true;
+            }
+            out.flip();
+            connection.channel.write(out);
+            if (!out.hasRemaining()) {
+                out.clear();
+                return true;
+            }
+            ByteBuffer rest = ByteBuffer.allocate(out.remaining());
+            rest.put(out).flip();
+            out.clear();
+            queue(connection).add(new Outgoing(rest, rest.limit(), 0, 0, false, 0));
+            connection.key.interestOps(SelectionKey.OP_WRITE);
+            return false;
+        }
+        
+        /**
+         * Queue a response as its fault profile has it go out.
+         */
+        private void enqueue(Connection connection, byte[] response, MockFaultProfile profile, long receivedAt) {
+            ByteBuffer data = ByteBuffer.wrap(response);
+            if (profile == null) {
+                queue(connection).add(new Outgoing(data, response.length, 0, 0, false, 0));
+                return;
+            }
+            long readyAt = receivedAt + profile.delayNanos(random);
+            Outgoing outgoing;
+            switch (profile.fault(random)) {
+                case MockFaultProfile.DROP:
+                    outgoing = new Outgoing(data, 0, 0, 0, true, readyAt);
+                    break;
+                case MockFaultProfile.TRUNCATE:
+                    outgoing = new Outgoing(data, 1 + random.nextInt(response.length - 1), 0, 0, true, readyAt);
+                    break;
+                case MockFaultProfile.PARTIAL_WRITE:
+                    outgoing = new Outgoing(data, response.length, (response.length + 1) / 2,
+                        profile.getPartialWriteGapNanos(), false, readyAt);
+                    break;
+                case MockFaultProfile.DRIP:
+                    outgoing = new Outgoing(data, response.length, profile.getDripBytes(),
+                        profile.getDripIntervalNanos(), false, readyAt);
+                    break;
+                default:
+                    outgoing = new Outgoing(data, response.length, 0, 0, false, readyAt);
+            }
+            queue(connection).add(outgoing);
+        }
+        
+        private ArrayDeque<Outgoing> queue(Connection connection) {
+            if (connection.queue == null) {
+                connection.queue = new ArrayDeque<>();
+            }
+            return connection.queue;
+        }
+        
+        /**
+         * Write queued responses that are due, in order, until one is not due yet (a timer is set for it),
+         * the socket is full (the connection is watched for writability) or the queue is empty.
+         * The connection is read meanwhile unless the socket is full or the queue is at its limit.
+         */
+        private void drain(Connection connection) throws IOException {
+            ArrayDeque<Outgoing> queue = connection.queue;
+            Outgoing head;
+            while ((head = queue.peek()) != null) {
+                long now = System.nanoTime();
+                if (head.readyAt > now) {
+                    schedule(connection, head.readyAt);
+                    connection.key.interestOps(queue.size() < MAX_QUEUED ? SelectionKey.OP_READ : 0);
+                    return;
+                }
+                if (head.data.hasRemaining()) {
+                    connection.channel.write(head.data);
+                    if (head.data.hasRemaining()) {
+                        connection.key.interestOps(SelectionKey.OP_WRITE);
+                        return;
+                    }
+                }
+                if (head.data.limit() < head.end) {
+                    // Next chunk of a partial write or a drip
+                    head.data.limit(Math.min(head.end, head.data.limit() + head.chunk));
+                    head.readyAt = now + head.chunkIntervalNanos;
+                    continue;
+                }
+                if (head.closeAfter) {
+                    log.debug("Fault profile closes connection {} after {} response bytes",
+                        connection.channel.getRemoteAddress(), head.end);
+                    close(connection);
+                    return;
+                }
+                queue.poll();
+            }
+            connection.key.interestOps(SelectionKey.OP_READ);
+        }
+        
+        private void schedule(Connection connection, long at) {
+            if (connection.timerAt != 0 && connection.timerAt <= at) {
+                return;
+            }
+            connection.timerAt = at;
+            timers.add(new Timer(at, connection));
+        }
+        
+        /**
+         * Continue a connection that waited for writability or a timer.
+         */
+        private void resume(Connection connection) throws IOException {
+            if (connection.hasQueued()) {
+                drain(connection);
+            }
+            if (connection.channel.isOpen() && (connection.key.interestOps() & SelectionKey.OP_READ) != 0
+                    && connection.partial != null && connection.partial.remaining() >= requestFrameLength) {
+                // Telegrams that arrived while the client was not reading; a read with nothing new still answers them
+                read(connection);
+            }
+        }
+        
+        private void close(Connection connection) {
+            if (!connection.channel.isOpen()) {
+                return;
+            }
+            if (connection.key != null) {
+                connection.key.cancel();
+            }
+            connection.queue = null;
+            try {
+                connection.channel.close();
+            } catch (IOException e) {
+                log.error("Error closing client socket", e);
+            }
+            openConnections.decrementAndGet();
+        }
+        
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                close((Connection) key.attachment());
+            }
+            SocketChannel channel;
+            while ((channel = inbox.poll()) != null) {
+                close(new Connection(channel));
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.warn("Error closing selector", e);
+            }
         }
     }
 }
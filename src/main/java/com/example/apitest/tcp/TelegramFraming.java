@@ -0,0 +1,173 @@
+package com.example.apitest.tcp;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How telegrams are delimited on the wire.
+ * {@code FIXED}: the telegram alone, its length is known from the layout.
+ * {@code LENGTH_PREFIXED}: an ASCII decimal length header (e.g. {@code 0037}) followed by the telegram.
+ * TCP may deliver a telegram in any number of pieces, so reads loop until the frame is complete.
+ */
+public class TelegramFraming {
+
+    public static final String FIXED = "FIXED";
+    public static final String LENGTH_PREFIXED = "LENGTH_PREFIXED";
+
+    private final boolean lengthPrefixed;
+    private final int headerLength;
+    private final boolean lengthIncludesHeader;
+
+    /**
+     * @param headerLength         digits of the length header, ignored for FIXED
+     * @param lengthIncludesHeader whether the header value counts the header itself
+     */
+    public TelegramFraming(String mode, int headerLength, boolean lengthIncludesHeader) {
+        this.lengthPrefixed = LENGTH_PREFIXED.equalsIgnoreCase(mode);
+        if (!lengthPrefixed && !FIXED.equalsIgnoreCase(mode)) {
+            throw new IllegalArgumentException("Unknown framing mode: " + mode);
+        }
+        if (lengthPrefixed && (headerLength < 1 || headerLength > 9)) {
+            throw new IllegalArgumentException("Length header must have 1 to 9 digits");
+        }
+        this.headerLength = lengthPrefixed ? headerLength : 0;
+        this.lengthIncludesHeader = lengthIncludesHeader;
+    }
+
+    public static TelegramFraming fixed() {
+        return new TelegramFraming(FIXED, 0, false);
+    }
+
+    /**
+     * Bytes in front of the telegram, 0 for FIXED.
+     */
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
+    /**
+     * Bytes on the wire for a telegram of {@code telegramLength} bytes.
+     */
+    public int frameLength(int telegramLength) {
+        return headerLength + telegramLength;
+    }
+
+    /**
+     * Write the length header for a telegram of {@code telegramLength} bytes, no-op for FIXED.
+     */
+    public void writeHeader(byte[] target, int offset, int telegramLength) {
+        if (!lengthPrefixed) {
+            return;
+        }
+        int value = lengthIncludesHeader ? telegramLength + headerLength : telegramLength;
+        for (int pos = offset + headerLength - 1; pos >= offset; pos--) {
+            target[pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        if (value != 0) {
+            throw new IllegalArgumentException("Telegram length " + telegramLength + " does not fit a " + headerLength + "-digit header");
+        }
+    }
+
+    /**
+     * Telegram length announced by the header at {@code offset}.
+     */
+    public int readHeader(byte[] source, int offset) throws IOException {
+        int value = 0;
+        for (int pos = offset; pos < offset + headerLength; pos++) {
+            int digit = source[pos] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Invalid length header byte 0x" + Integer.toHexString(source[pos] & 0xff));
+            }
+            value = value * 10 + digit;
+        }
+        int telegramLength = lengthIncludesHeader ? value - headerLength : value;
+        if (telegramLength < 0) {
+            throw new IOException("Invalid telegram length " + telegramLength);
+        }
+        return telegramLength;
+    }
+
+    /**
+     * Length of the frame at the buffer's position if its header is complete, for non-blocking readers.
+     *
+     * @param fixedLength telegram length for FIXED framing
+     * @return total frame bytes, or -1 if the header has not fully arrived yet
+     */
+    public int peekFrameLength(ByteBuffer buffer, int fixedLength) throws IOException {
+        if (!lengthPrefixed) {
+            return fixedLength;
+        }
+        if (buffer.remaining() < headerLength) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < headerLength; i++) {
+            byte b = buffer.get(buffer.position() + i);
+            int digit = b - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException("Invalid length header byte 0x" + Integer.toHexString(b & 0xff));
+            }
+            value = value * 10 + digit;
+        }
+        int telegramLength = lengthIncludesHeader ? value - headerLength : value;
+        if (telegramLength < 0) {
+            throw new IOException("Invalid telegram length " + telegramLength);
+        }
+        return headerLength + telegramLength;
+    }
+
+    /**
+     * Read one frame into {@code buffer}; the telegram starts at {@link #getHeaderLength()}.
+     *
+     * @param fixedLength   telegram length for FIXED framing
+     * @param deadlineNanos {@link System#nanoTime()} by which the frame must be complete, 0 for none
+     * @return telegram length, or -1 if the connection was closed before the frame started
+     * @throws SocketTimeoutException if the deadline passes, EOFException if the connection closes mid-frame
+     */
+    public int readFrame(Socket socket, InputStream in, byte[] buffer, int fixedLength, long deadlineNanos) throws IOException {
+        int telegramLength = fixedLength;
+        if (lengthPrefixed) {
+            if (readFully(socket, in, buffer, 0, headerLength, deadlineNanos, true) == -1) {
+                return -1;
+            }
+            telegramLength = readHeader(buffer, 0);
+            if (headerLength + telegramLength > buffer.length) {
+                throw new IOException("Telegram length " + telegramLength + " exceeds the expected "
+                    + (buffer.length - headerLength) + " bytes");
+            }
+            readFully(socket, in, buffer, headerLength, telegramLength, deadlineNanos, false);
+        } else if (readFully(socket, in, buffer, 0, telegramLength, deadlineNanos, true) == -1) {
+            return -1;
+        }
+        return telegramLength;
+    }
+
+    private int readFully(Socket socket, InputStream in, byte[] buffer, int offset, int length,
+                          long deadlineNanos, boolean frameStart) throws IOException {
+        int read = 0;
+        while (read < length) {
+            if (deadlineNanos != 0) {
+                long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime());
+                if (remainingMillis <= 0) {
+                    throw new SocketTimeoutException("Frame incomplete at deadline: " + read + " of " + length + " bytes");
+                }
+                socket.setSoTimeout((int) Math.min(remainingMillis, Integer.MAX_VALUE));
+            }
+            int n = in.read(buffer, offset + read, length - read);
+            if (n == -1) {
+                if (frameStart && read == 0) {
+                    return -1;
+                }
+                throw new EOFException("Connection closed mid-frame: " + read + " of " + length + " bytes");
+            }
+            read += n;
+        }
+        return read;
+    }
+}
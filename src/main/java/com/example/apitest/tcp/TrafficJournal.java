@@ -0,0 +1,254 @@
+package com.example.apitest.tcp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Request/response telegram pairs in a memory-mapped file, for replaying a host's answers.
+ *
+ * Telegrams are fixed-length, so every record has the same size: a commit byte, the request telegram and the
+ * response telegram (no frame headers). Appenders reserve a record number with one atomic increment and copy
+ * straight into the mapping, so concurrent exchanges never wait for each other and nothing is written through
+ * a stream. The commit byte is set last; records without it (an appender that died midway) are skipped by
+ * readers. The file is mapped in segments of about 64 MB, added as the journal grows.
+ */
+public class TrafficJournal implements Closeable {
+
+    private static final int MAGIC = 0x54524a31; // "TRJ1"
+    private static final int VERSION = 1;
+    static final int HEADER_LENGTH = 64;
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final byte COMMITTED = 1;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final boolean readOnly;
+    private final int requestLength;
+    private final int responseLength;
+    private final int recordLength;
+    private final int segmentRecords;
+    private final int maxRecords;
+    private final AtomicReferenceArray<MappedByteBuffer> segments;
+    private final AtomicInteger nextRecord;
+    private final AtomicBoolean full = new AtomicBoolean();
+
+    private TrafficJournal(Path path, FileChannel channel, boolean readOnly, int requestLength, int responseLength,
+                           int maxRecords) {
+        this.path = path;
+        this.channel = channel;
+        this.readOnly = readOnly;
+        this.requestLength = requestLength;
+        this.responseLength = responseLength;
+        this.recordLength = 1 + requestLength + responseLength;
+        this.segmentRecords = Math.max(1, SEGMENT_BYTES / recordLength);
+        this.maxRecords = maxRecords;
+        this.segments = new AtomicReferenceArray<>((maxRecords + segmentRecords - 1) / segmentRecords);
+        this.nextRecord = new AtomicInteger();
+    }
+
+    /**
+     * Open or create a journal for appending; an existing one must hold telegrams of the same lengths.
+     */
+    public static TrafficJournal openForAppend(Path path, int requestLength, int responseLength, int maxRecords)
+            throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        try {
+            TrafficJournal journal = new TrafficJournal(path, channel, false, requestLength, responseLength,
+                Math.max(1, maxRecords));
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+                header.putInt(MAGIC).putInt(VERSION).putInt(requestLength).putInt(responseLength).clear();
+                channel.write(header, 0);
+            } else {
+                journal.checkHeader();
+            }
+            // Continue after the last committed record
+            journal.nextRecord.set(journal.lastCommitted() + 1);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Open an existing journal for reading.
+     */
+    public static TrafficJournal openForRead(Path path, int requestLength, int responseLength) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long records = Math.max(0, (channel.size() - HEADER_LENGTH) / (1 + requestLength + responseLength));
+            TrafficJournal journal = new TrafficJournal(path, channel, true, requestLength, responseLength,
+                (int) Math.min(Integer.MAX_VALUE, Math.max(1, records)));
+            journal.checkHeader();
+            journal.nextRecord.set(journal.lastCommitted() + 1);
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public int getRequestLength() {
+        return requestLength;
+    }
+
+    /**
+     * Records reserved so far, committed or not; record numbers run from 0 to this minus one.
+     */
+    public int getRecordCount() {
+        return Math.min(nextRecord.get(), maxRecords);
+    }
+
+    /**
+     * Append one exchange.
+     *
+     * @return false if the journal is full
+     */
+    public boolean append(byte[] request, int requestOffset, byte[] response, int responseOffset) throws IOException {
+        int record = nextRecord.getAndIncrement();
+        if (record >= maxRecords) {
+            nextRecord.set(maxRecords);
+            full.set(true);
+            return false;
+        }
+        MappedByteBuffer segment = segment(record / segmentRecords);
+        int position = (record % segmentRecords) * recordLength;
+        segment.put(position + 1, request, requestOffset, requestLength);
+        segment.put(position + 1 + requestLength, response, responseOffset, responseLength);
+        segment.put(position, COMMITTED);
+        return true;
+    }
+
+    /**
+     * Whether an append was refused because {@code maxRecords} was reached.
+     */
+    public boolean isFull() {
+        return full.get();
+    }
+
+    public boolean isCommitted(int record) throws IOException {
+        return segment(record / segmentRecords).get((record % segmentRecords) * recordLength) == COMMITTED;
+    }
+
+    /**
+     * Copy the record's request telegram into {@code target} at {@code offset}.
+     */
+    public void copyRequest(int record, byte[] target, int offset) throws IOException {
+        segment(record / segmentRecords).get((record % segmentRecords) * recordLength + 1, target, offset, requestLength);
+    }
+
+    /**
+     * Whether bytes {@code from} to {@code from + length} of the record's request telegram equal
+     * {@code length} bytes of {@code other} at {@code otherOffset}.
+     */
+    public boolean requestEquals(int record, int from, int length, byte[] other, int otherOffset) throws IOException {
+        MappedByteBuffer segment = segment(record / segmentRecords);
+        int position = (record % segmentRecords) * recordLength + 1 + from;
+        for (int i = 0; i < length; i++) {
+            if (segment.get(position + i) != other[otherOffset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Copy the record's response telegram into {@code target} at {@code offset}.
+     */
+    public void copyResponse(int record, byte[] target, int offset) throws IOException {
+        segment(record / segmentRecords).get((record % segmentRecords) * recordLength + 1 + requestLength,
+            target, offset, responseLength);
+    }
+
+    /**
+     * Write appended records to the file, they survive a crash of this process anyway.
+     */
+    public void force() {
+        for (int i = 0; i < segments.length(); i++) {
+            MappedByteBuffer segment = segments.get(i);
+            if (segment != null && !readOnly) {
+                segment.force();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        if (!readOnly) {
+            try {
+                // Drop the unused rest of the last segment
+                channel.truncate(HEADER_LENGTH + (long) getRecordCount() * recordLength);
+            } catch (IOException e) {
+                // Some platforms refuse to truncate a mapped file; readers stop at the last committed record anyway
+            }
+        }
+        channel.close();
+    }
+
+    private MappedByteBuffer segment(int index) throws IOException {
+        MappedByteBuffer segment = segments.get(index);
+        if (segment != null) {
+            return segment;
+        }
+        synchronized (segments) {
+            segment = segments.get(index);
+            if (segment == null) {
+                long start = HEADER_LENGTH + (long) index * segmentRecords * recordLength;
+                long length = (long) segmentRecords * recordLength;
+                if (readOnly) {
+                    // The last segment of a read-only journal ends with the file
+                    length = Math.min(length, channel.size() - start);
+                }
+                // Mapping beyond the end grows the file
+                segment = channel.map(readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE,
+                    start, length);
+                segments.set(index, segment);
+            }
+            return segment;
+        }
+    }
+
+    private void checkHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < 16 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException(path + " is not a traffic journal");
+        }
+        int recordedRequestLength = header.getInt();
+        int recordedResponseLength = header.getInt();
+        if (recordedRequestLength != requestLength || recordedResponseLength != responseLength) {
+            throw new IOException(path + " holds " + recordedRequestLength + "/" + recordedResponseLength
+                + "-byte telegrams, the layouts have " + requestLength + "/" + responseLength);
+        }
+    }
+
+    private int lastCommitted() throws IOException {
+        long records = Math.min(maxRecords, Math.max(0, (channel.size() - HEADER_LENGTH) / recordLength));
+        for (int record = (int) records - 1; record >= 0; record--) {
+            if (isCommitted(record)) {
+                return record;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.apitest.tcp;
+
+import com.example.apitest.telegram.TelegramLayout;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Index of a {@link TrafficJournal} by request telegram, for answering requests with recorded responses.
+ *
+ * The key is the whole request telegram, or only the given request fields (so a field that differs on every
+ * request, e.g. a transaction time, does not prevent a match). The index is an open-addressing table of two
+ * primitive arrays (key hash, record number) built once over the journal; a lookup hashes the key bytes,
+ * probes the table and compares the candidate's key bytes in the mapped file, without allocating.
+ * When a request was recorded more than once, the last recorded response is used.
+ */
+public class TrafficReplayIndex {
+
+    private final TrafficJournal journal;
+    private final int[] keyOffsets;
+    private final int[] keyLengths;
+    private final long[] hashes;
+    private final int[] records;
+    private final int mask;
+    private final int size;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param keyFields request fields that make up the key, empty for the whole telegram
+     */
+    public TrafficReplayIndex(TrafficJournal journal, TelegramLayout requestLayout, List<String> keyFields)
+            throws IOException {
+        this.journal = journal;
+        if (keyFields == null || keyFields.isEmpty()) {
+            keyOffsets = new int[]{0};
+            keyLengths = new int[]{requestLayout.getLength()};
+        } else {
+            keyOffsets = new int[keyFields.size()];
+            keyLengths = new int[keyFields.size()];
+            for (int i = 0; i < keyFields.size(); i++) {
+                int field = requestLayout.fieldIndex(keyFields.get(i).trim());
+                if (field < 0) {
+                    throw new IllegalArgumentException("Request layout '" + requestLayout.getName()
+                        + "' has no replay key field '" + keyFields.get(i) + "'");
+                }
+                keyOffsets[i] = requestLayout.getFieldOffset(field);
+                keyLengths[i] = requestLayout.getFieldLength(field);
+            }
+        }
+
+        int count = journal.getRecordCount();
+        int capacity = Integer.highestOneBit(Math.max(2, count) * 2 - 1) << 1;
+        hashes = new long[capacity];
+        records = new int[capacity];
+        mask = capacity - 1;
+        byte[] request = new byte[journal.getRequestLength()];
+        int indexed = 0;
+        for (int record = 0; record < count; record++) {
+            if (!journal.isCommitted(record)) {
+                continue;
+            }
+            journal.copyRequest(record, request, 0);
+            long hash = hash(request, 0);
+            int slot = (int) hash & mask;
+            while (hashes[slot] != 0 && !(hashes[slot] == hash && keyEquals(records[slot], request, 0))) {
+                slot = (slot + 1) & mask;
+            }
+            if (hashes[slot] == 0) {
+                indexed++;
+            }
+            hashes[slot] = hash;
+            records[slot] = record;
+        }
+        this.size = indexed;
+    }
+
+    /**
+     * Record answering the request telegram at {@code offset}, -1 if none was recorded.
+     */
+    public int find(byte[] request, int offset) throws IOException {
+        long hash = hash(request, offset);
+        int slot = (int) hash & mask;
+        while (hashes[slot] != 0) {
+            if (hashes[slot] == hash && keyEquals(records[slot], request, offset)) {
+                hits.increment();
+                return records[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        misses.increment();
+        return -1;
+    }
+
+    /**
+     * Copy the response telegram of {@code record}, from {@link #find}, into {@code target} at {@code offset}.
+     */
+    public void copyResponse(int record, byte[] target, int offset) throws IOException {
+        journal.copyResponse(record, target, offset);
+    }
+
+    /**
+     * Distinct request keys in the index.
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private boolean keyEquals(int record, byte[] request, int offset) throws IOException {
+        for (int i = 0; i < keyOffsets.length; i++) {
+            if (!journal.requestEquals(record, keyOffsets[i], keyLengths[i], request, offset + keyOffsets[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 64-bit FNV-1a over the key bytes, never 0 (0 marks a free slot).
+     */
+    private long hash(byte[] request, int offset) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < keyOffsets.length; i++) {
+            int start = offset + keyOffsets[i];
+            for (int pos = start; pos < start + keyLengths[i]; pos++) {
+                hash = (hash ^ (request[pos] & 0xff)) * 0x100000001b3L;
+            }
+        }
+        hash ^= hash >>> 32;
+        return hash != 0 ? hash : 1;
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.apitest.telegram;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Codec of one fixed-length telegram layout, compiled from a {@link TelegramLayoutDefinition}.
+ * Fields are written straight into the caller's buffer at precomputed offsets: ASCII values
+ * (card numbers, amounts, codes) are copied byte by byte without allocating, other characters go
+ * through a per-thread encoder and are cut at a character boundary if they do not fit.
+ * Instances are immutable and thread-safe.
+ */
+public class TelegramLayout {
+
+    private final String name;
+    private final Charset charset;
+    private final String[] fieldNames;
+    private final int[] offsets;
+    private final int[] lengths;
+    private final byte[] paddings;
+    private final boolean[] rightAligned;
+    private final Map<String, Integer> fieldIndexes = new HashMap<>();
+    private final int length;
+    private final ThreadLocal<CharsetEncoder> encoders;
+
+    public TelegramLayout(TelegramLayoutDefinition definition) {
+        List<TelegramLayoutDefinition.FieldDefinition> fields = definition.getFields();
+        if (definition.getName() == null || fields == null || fields.isEmpty()) {
+            throw new IllegalArgumentException("Telegram layout needs a name and at least one field");
+        }
+
+        this.name = definition.getName();
+        this.charset = Charset.forName(definition.getCharset());
+        this.fieldNames = new String[fields.size()];
+        this.offsets = new int[fields.size()];
+        this.lengths = new int[fields.size()];
+        this.paddings = new byte[fields.size()];
+        this.rightAligned = new boolean[fields.size()];
+
+        int offset = 0;
+        for (int i = 0; i < fields.size(); i++) {
+            TelegramLayoutDefinition.FieldDefinition field = fields.get(i);
+            String padding = field.getPadding();
+            if (field.getName() == null || field.getLength() <= 0) {
+                throw new IllegalArgumentException("Field " + i + " of layout '" + name + "' needs a name and a positive length");
+            }
+            if (padding == null || padding.length() != 1 || padding.charAt(0) >= 0x80) {
+                throw new IllegalArgumentException("Padding of field '" + field.getName() + "' must be one ASCII character");
+            }
+            if (fieldIndexes.put(field.getName(), i) != null) {
+                throw new IllegalArgumentException("Duplicate field '" + field.getName() + "' in layout '" + name + "'");
+            }
+
+            fieldNames[i] = field.getName();
+            offsets[i] = offset;
+            lengths[i] = field.getLength();
+            paddings[i] = (byte) padding.charAt(0);
+            rightAligned[i] = "RIGHT".equalsIgnoreCase(field.getAlign());
+            offset += field.getLength();
+        }
+        this.length = offset;
+        this.encoders = ThreadLocal.withInitial(() -> charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Telegram length in bytes.
+     */
+    public int getLength() {
+        return length;
+    }
+
+    public int getFieldCount() {
+        return fieldNames.length;
+    }
+
+    public String getFieldName(int field) {
+        return fieldNames[field];
+    }
+
+    public int getFieldOffset(int field) {
+        return offsets[field];
+    }
+
+    public int getFieldLength(int field) {
+        return lengths[field];
+    }
+
+    /**
+     * @return the field's position, or -1 if the layout has no such field
+     */
+    public int fieldIndex(String fieldName) {
+        Integer index = fieldIndexes.get(fieldName);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Encode into a new array; missing values are written as padding.
+     */
+    public byte[] encode(Map<String, String> values) {
+        byte[] telegram = new byte[length];
+        encode(values, telegram, 0);
+        return telegram;
+    }
+
+    /**
+     * Encode into {@code target} starting at {@code offset}; missing values are written as padding.
+     */
+    public void encode(Map<String, String> values, byte[] target, int offset) {
+        for (int i = 0; i < fieldNames.length; i++) {
+            String value = values.get(fieldNames[i]);
+            encodeField(target, offset, i, value != null ? value : "");
+        }
+    }
+
+    /**
+     * Write one field of the telegram starting at {@code offset}, padded and aligned as configured.
+     */
+    public void encodeField(byte[] target, int offset, int field, CharSequence value) {
+        int start = offset + offsets[field];
+        int fieldLength = lengths[field];
+
+        int written = 0;
+        int i = 0;
+        int chars = value.length();
+        while (i < chars && written < fieldLength) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                break;
+            }
+            target[start + written++] = (byte) c;
+            i++;
+        }
+        if (i < chars && written < fieldLength) {
+            // Non-ASCII rest: an overflowing multi-byte character is left out rather than split
+            CharsetEncoder encoder = encoders.get().reset();
+            ByteBuffer out = ByteBuffer.wrap(target, start + written, fieldLength - written);
+            encoder.encode(CharBuffer.wrap(value, i, chars), out, true);
+            written = out.position() - start;
+        }
+
+        pad(target, start, fieldLength, written, paddings[field], rightAligned[field]);
+    }
+
+    /**
+     * Write a non-negative number as a field, e.g. a zero-padded right-aligned sequence number, without
+     * going through a String. Digits beyond the field length are cut from the left.
+     */
+    public void encodeField(byte[] target, int offset, int field, long value) {
+        int start = offset + offsets[field];
+        int fieldLength = lengths[field];
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative value for field '" + fieldNames[field] + "'");
+        }
+
+        int digits = 0;
+        long rest = value;
+        do {
+            digits++;
+            rest /= 10;
+        } while (rest > 0);
+        int written = Math.min(digits, fieldLength);
+
+        rest = value;
+        for (int pos = start + written - 1; pos >= start; pos--) {
+            target[pos] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        }
+        pad(target, start, fieldLength, written, paddings[field], rightAligned[field]);
+    }
+
+    private void pad(byte[] target, int start, int fieldLength, int written, byte padding, boolean right) {
+        if (right && written < fieldLength) {
+            int shift = fieldLength - written;
+            System.arraycopy(target, start, target, start + shift, written);
+            for (int pos = start; pos < start + shift; pos++) {
+                target[pos] = padding;
+            }
+        } else {
+            for (int pos = start + written; pos < start + fieldLength; pos++) {
+                target[pos] = padding;
+            }
+        }
+    }
+
+    /**
+     * Decode every field, in layout order.
+     */
+    public Map<String, String> decode(byte[] source, int offset) {
+        Map<String, String> values = new LinkedHashMap<>();
+        for (int i = 0; i < fieldNames.length; i++) {
+            values.put(fieldNames[i], decodeField(source, offset, i));
+        }
+        return values;
+    }
+
+    /**
+     * Decode one field of the telegram starting at {@code offset}. Space-padded fields are trimmed,
+     * other paddings (e.g. leading zeros of numbers) are part of the value.
+     */
+    public String decodeField(byte[] source, int offset, int field) {
+        int start = offset + offsets[field];
+        int end = start + lengths[field];
+        if (paddings[field] == ' ') {
+            while (start < end && (source[start] & 0xff) <= ' ') {
+                start++;
+            }
+            while (end > start && (source[end - 1] & 0xff) <= ' ') {
+                end--;
+            }
+        }
+
+        for (int pos = start; pos < end; pos++) {
+            if (source[pos] < 0) {
+                return new String(source, start, end - start, charset);
+            }
+        }
+        // ASCII only: the cheapest decoder gives the same characters
+        return new String(source, start, end - start, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.apitest.telegram;
+
+import lombok.Data;
+import java.util.List;
+
+/**
+ * Field layout of a fixed-length telegram as configured (layout file or DB), compiled by {@link TelegramLayout}.
+ */
+@Data
+public class TelegramLayoutDefinition {
+    private String name;
+    private String charset = "MS949";
+    private List<FieldDefinition> fields;
+    
+    @Data
+    public static class FieldDefinition {
+        private String name;
+        private int length; // bytes
+        private String padding = " "; // single ASCII character
+        private String align = "LEFT"; // LEFT (pad on the right), RIGHT (pad on the left)
+    }
+}
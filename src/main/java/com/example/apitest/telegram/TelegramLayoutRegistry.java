@@ -0,0 +1,76 @@
+package com.example.apitest.telegram;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled telegram layouts by name, loaded from a JSON layout file at startup.
+ * Layouts kept elsewhere (e.g. in the DB) can be added or replaced at runtime with {@link #register}.
+ */
+@Component
+public class TelegramLayoutRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(TelegramLayoutRegistry.class);
+    private static final String CLASSPATH_PREFIX = "classpath:";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, TelegramLayout> layouts = new ConcurrentHashMap<>();
+
+    @Value("${app.telegram.layout-file:classpath:telegram-layouts.json}")
+    private String layoutFile = "classpath:telegram-layouts.json";
+
+    @PostConstruct
+    public void load() throws IOException {
+        List<TelegramLayoutDefinition> definitions;
+        try (InputStream in = open(layoutFile)) {
+            definitions = mapper.readValue(in, new TypeReference<List<TelegramLayoutDefinition>>() {});
+        }
+        for (TelegramLayoutDefinition definition : definitions) {
+            register(definition);
+        }
+    }
+
+    /**
+     * Compile and add a layout, replacing one with the same name.
+     */
+    public TelegramLayout register(TelegramLayoutDefinition definition) {
+        TelegramLayout layout = new TelegramLayout(definition);
+        layouts.put(layout.getName(), layout);
+        log.info("Telegram layout '{}' registered: {} fields, {} bytes", layout.getName(), layout.getFieldCount(), layout.getLength());
+        return layout;
+    }
+
+    public TelegramLayout get(String name) {
+        TelegramLayout layout = layouts.get(name);
+        if (layout == null) {
+            throw new IllegalArgumentException("Unknown telegram layout: " + name);
+        }
+        return layout;
+    }
+
+    private InputStream open(String location) throws IOException {
+        if (location.startsWith(CLASSPATH_PREFIX)) {
+            String resource = location.substring(CLASSPATH_PREFIX.length());
+            InputStream in = getClass().getClassLoader().getResourceAsStream(resource);
+            if (in == null) {
+                throw new FileNotFoundException("Telegram layout file not found on classpath: " + resource);
+            }
+            return in;
+        }
+        return Files.newInputStream(Paths.get(location));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.apitest.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates task executors backed by platform or virtual threads.
+ * Virtual threads need a Java 21 runtime (build with {@code -Pjava21}); they are looked up
+ * reflectively so the default Java 17 build still compiles, and fall back to platform threads.
+ */
+public class ThreadExecutors {
+
+    private static final Logger log = LoggerFactory.getLogger(ThreadExecutors.class);
+
+    public static final String PLATFORM = "platform";
+    public static final String VIRTUAL = "virtual";
+
+    /**
+     * @param threadType {@code platform} (cached pool) or {@code virtual} (one virtual thread per task)
+     * @param namePrefix thread name prefix, numbered per thread
+     */
+    public static ExecutorService newExecutor(String threadType, String namePrefix) {
+        if (VIRTUAL.equalsIgnoreCase(threadType)) {
+            ExecutorService virtual = newVirtualThreadExecutor(namePrefix);
+            if (virtual != null) {
+                log.info("Using virtual threads for {}", namePrefix);
+                return virtual;
+            }
+            log.warn("Virtual threads require Java 21 (running {}), using platform threads for {}",
+                System.getProperty("java.version"), namePrefix);
+        }
+        AtomicLong counter = new AtomicLong();
+        return Executors.newCachedThreadPool(r -> new Thread(r, namePrefix + "-" + counter.getAndIncrement()));
+    }
+
+    private static ExecutorService newVirtualThreadExecutor(String namePrefix) {
+        try {
+            // Thread.ofVirtual().name(prefix, 0).factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, namePrefix + "-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.apitest.mock;
+
+import com.example.apitest.telegram.TelegramLayout;
+import com.example.apitest.telegram.TelegramLayoutDefinition;
+import com.example.apitest.telegram.TelegramLayoutDefinition.FieldDefinition;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MockRulesTest {
+
+    private static final TelegramLayout REQUEST = layout("request",
+        field("cardNo", 16, " ", "LEFT"), field("settlementAmount", 12, " ", "LEFT"),
+        field("requestMethod", 2, " ", "LEFT"), field("originalApprovalNo", 12, "0", "RIGHT"));
+    private static final TelegramLayout RESPONSE = layout("response",
+        field("responseCode", 4, " ", "LEFT"), field("approvalNo", 12, "0", "RIGHT"),
+        field("responseMessage", 20, " ", "LEFT"), field("discountYn", 1, " ", "LEFT"));
+
+    @Test
+    void binRangeMatchesExactlyTheCardsWithinIt() {
+        MockRules rules = compile(rule("range").cardRange("450370", "461204"), rule("rest"));
+
+        for (int bin = 440000; bin < 470000; bin++) {
+            String card = bin + "0000000000";
+            int expected = bin >= 450370 && bin <= 461204 ? 0 : 1;
+            assertEquals(expected, rules.match(request(card, "1000", "01"), 0), card);
+        }
+    }
+
+    @Test
+    void longerPrefixStillMatchesShorterOnesOfEarlierRules() {
+        MockRules rules = compile(rule("4").cardPrefix("4"), rule("4567").cardPrefix("4567"), rule("rest"));
+
+        assertEquals(0, rules.match(request("4567000000000000", "1000", "01"), 0));
+        assertEquals(0, rules.match(request("4000000000000000", "1000", "01"), 0));
+        assertEquals(2, rules.match(request("5567000000000000", "1000", "01"), 0));
+    }
+
+    @Test
+    void amountRangesIncludeTheirBounds() {
+        MockRules rules = compile(rule("small").amounts(null, 9999L), rule("middle").amounts(5000L, 20000L),
+            rule("large").amounts(30000L, null), rule("rest"));
+
+        long[] amounts = {0, 4999, 5000, 9999, 10000, 20000, 20001, 29999, 30000, 999_999_999_999L};
+        int[] expected = {0, 0, 0, 0, 1, 1, 3, 3, 2, 2};
+        for (int i = 0; i < amounts.length; i++) {
+            assertEquals(expected[i], rules.match(request("1234000000000000", String.valueOf(amounts[i]), "01"), 0),
+                "amount " + amounts[i]);
+        }
+        // Not a number: only rules without an amount condition hold
+        assertEquals(3, rules.match(request("1234000000000000", "12x4", "01"), 0));
+        assertEquals(3, rules.match(request("1234000000000000", "", "01"), 0));
+    }
+
+    @Test
+    void lowerPriorityNumberMatchesFirstThenConfiguredOrder() {
+        MockRules rules = compile(rule("late").priority(5), rule("first-of-equal").priority(1),
+            rule("second-of-equal").priority(1));
+
+        assertEquals("first-of-equal", rules.getRules().get(rules.match(request("1", "1", "01"), 0)).getName());
+    }
+
+    /**
+     * The indexes must pick what a scan of the rules in order would, over more than one 64-rule bitmap word.
+     */
+    @Test
+    void matchesAsALinearScanWould() {
+        Random random = new Random(7);
+        List<Rule> rules = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            Rule rule = rule("r" + i);
+            switch (random.nextInt(3)) {
+                case 0:
+                    rule.cardPrefix(digits(random, 1 + random.nextInt(3)));
+                    break;
+                case 1:
+                    String from = digits(random, 4);
+                    String to = String.valueOf(Math.min(9999, Integer.parseInt(from) + random.nextInt(3000)));
+                    rule.cardRange(from, String.format("%4s", to).replace(' ', '0'));
+                    break;
+                default:
+                    break;
+            }
+            if (random.nextBoolean()) {
+                long min = random.nextInt(50000);
+                rule.amounts(random.nextBoolean() ? min : null, random.nextBoolean() ? min + random.nextInt(50000) : null);
+            }
+            if (random.nextInt(3) == 0) {
+                rule.method(random.nextBoolean() ? "01" : "02");
+            }
+            rules.add(rule);
+        }
+        MockRules compiled = compile(rules.toArray(new Rule[0]));
+
+        for (int i = 0; i < 20000; i++) {
+            String card = digits(random, 16);
+            long amount = random.nextInt(110000);
+            String method = random.nextBoolean() ? "01" : "02";
+            int expected = -1;
+            for (int r = 0; r < rules.size() && expected < 0; r++) {
+                if (rules.get(r).holds(card, amount, method)) {
+                    expected = r;
+                }
+            }
+            assertEquals(expected, compiled.match(request(card, String.valueOf(amount), method), 0),
+                card + " " + amount + " " + method);
+        }
+    }
+
+    @Test
+    void rejectsInvalidRules() {
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("both").cardPrefix("4").cardRange("40", "49")));
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("lengths").cardRange("40", "499")));
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("reversed").cardRange("49", "40")));
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("letters").cardPrefix("4x")));
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("amounts").amounts(10L, 9L)));
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("profile").profile("missing")));
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("transaction").transaction("REFUND")));
+        assertThrows(IllegalArgumentException.class, () -> compile(rule("field").response(Map.of("terminalId", "1"))));
+        // No originalApprovalNo in the request layout to cancel
+        TelegramLayout withoutOriginal = layout("short", field("cardNo", 16, " ", "LEFT"),
+            field("settlementAmount", 12, " ", "LEFT"), field("requestMethod", 2, " ", "LEFT"));
+        assertThrows(IllegalArgumentException.class, () -> MockRules.compile(List.of(rule("cancel").transaction("CANCEL")
+            .definition), Map.of(), withoutOriginal, RESPONSE));
+    }
+
+    @Test
+    void cancelsOnlyApprovalsRecordedByAnApproveRule() {
+        MockRules rules = compile(rule("cancel").method("02").transaction("CANCEL")
+                .response(Map.of("responseCode", "0000", "responseMessage", "취소완료")),
+            rule("approve").transaction("APPROVE"));
+        MockTransactionStore store = new MockTransactionStore();
+        ReflectionTestUtils.setField(store, "capacity", 100);
+        store.init();
+
+        Map<String, String> approval = respond(rules, store, request("1234000000000000", "10000", "01"));
+        assertEquals("0000", approval.get("responseCode"));
+        String approvalNo = approval.get("approvalNo");
+        assertEquals("APPROVED", store.status(Long.parseLong(approvalNo)));
+
+        assertEquals("8103", respond(rules, store, cancel("1234000000000000", "9999", approvalNo)).get("responseCode"));
+        assertEquals("8103", respond(rules, store, cancel("9999000000000000", "10000", approvalNo)).get("responseCode"));
+        Map<String, String> cancelled = respond(rules, store, cancel("1234000000000000", "10000", approvalNo));
+        assertEquals("취소완료", cancelled.get("responseMessage"));
+        assertNotEquals(approvalNo, cancelled.get("approvalNo"), "the cancel gets an approval number of its own");
+        assertEquals("8102", respond(rules, store, cancel("1234000000000000", "10000", approvalNo)).get("responseCode"));
+        assertEquals("8101", respond(rules, store, cancel("1234000000000000", "10000", "000000000999"))
+            .get("responseCode"));
+    }
+
+    @Test
+    void generatesAnApprovalNumberUnlessTheRuleGivesOne() {
+        MockRules rules = compile(rule("fixed").cardPrefix("9").response(Map.of("responseCode", "9999",
+            "approvalNo", "000000000000")), rule("generated"));
+        MockTransactionStore store = new MockTransactionStore();
+        ReflectionTestUtils.setField(store, "capacity", 100);
+        store.init();
+
+        assertEquals("000000000000", respond(rules, store, request("9000000000000000", "1", "01")).get("approvalNo"));
+        String first = respond(rules, store, request("1000000000000000", "1", "01")).get("approvalNo");
+        String second = respond(rules, store, request("1000000000000000", "1", "01")).get("approvalNo");
+        assertEquals(Long.parseLong(first) + 1, Long.parseLong(second));
+        // No rule at all answers with a generated approval too
+        MockRules none = MockRules.compile(List.of(), Map.of(), REQUEST, RESPONSE);
+        assertEquals(-1, none.match(request("1", "1", "01"), 0));
+        assertEquals("0000", respond(none, store, request("1", "1", "01")).get("responseCode"));
+    }
+
+    private static Map<String, String> respond(MockRules rules, MockTransactionStore store, byte[] request) {
+        byte[] response = new byte[RESPONSE.getLength() + 4];
+        rules.respond(rules.match(request, 0), request, 0, store, response, 4);
+        Map<String, String> fields = new HashMap<>();
+        for (int field = 0; field < RESPONSE.getFieldCount(); field++) {
+            fields.put(RESPONSE.getFieldName(field), RESPONSE.decodeField(response, 4, field).trim());
+        }
+        return fields;
+    }
+
+    private static byte[] request(String cardNo, String amount, String method) {
+        return REQUEST.encode(Map.of("cardNo", cardNo, "settlementAmount", amount, "requestMethod", method));
+    }
+
+    private static byte[] cancel(String cardNo, String amount, String originalApprovalNo) {
+        return REQUEST.encode(Map.of("cardNo", cardNo, "settlementAmount", amount, "requestMethod", "02",
+            "originalApprovalNo", originalApprovalNo));
+    }
+
+    private static MockRules compile(Rule... rules) {
+        List<MockRuleDefinition> definitions = new ArrayList<>();
+        for (Rule rule : rules) {
+            definitions.add(rule.definition);
+        }
+        return MockRules.compile(definitions, Map.of(), REQUEST, RESPONSE);
+    }
+
+    private static String digits(Random random, int count) {
+        StringBuilder digits = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            digits.append(random.nextInt(10));
+        }
+        return digits.toString();
+    }
+
+    private static Rule rule(String name) {
+        return new Rule(name);
+    }
+
+    private static FieldDefinition field(String name, int length, String padding, String align) {
+        FieldDefinition field = new FieldDefinition();
+        field.setName(name);
+        field.setLength(length);
+        field.setPadding(padding);
+        field.setAlign(align);
+        return field;
+    }
+
+    private static TelegramLayout layout(String name, FieldDefinition... fields) {
+        TelegramLayoutDefinition definition = new TelegramLayoutDefinition();
+        definition.setName(name);
+        definition.setFields(List.of(fields));
+        return new TelegramLayout(definition);
+    }
+
+    /**
+     * Rule definition builder that also evaluates the rule the slow way.
+     */
+    private static final class Rule {
+        final MockRuleDefinition definition = new MockRuleDefinition();
+
+        Rule(String name) {
+            definition.setName(name);
+        }
+
+        Rule priority(int priority) {
+            definition.setPriority(priority);
+            return this;
+        }
+
+        Rule cardPrefix(String prefix) {
+            definition.setCardPrefix(prefix);
+            return this;
+        }
+
+        Rule cardRange(String from, String to) {
+            definition.setCardFrom(from);
+            definition.setCardTo(to);
+            return this;
+        }
+
+        Rule amounts(Long min, Long max) {
+            definition.setAmountMin(min);
+            definition.setAmountMax(max);
+            return this;
+        }
+
+        Rule method(String method) {
+            definition.setRequestMethod(method);
+            return this;
+        }
+
+        Rule transaction(String transaction) {
+            definition.setTransaction(transaction);
+            return this;
+        }
+
+        Rule profile(String profile) {
+            definition.setProfile(profile);
+            return this;
+        }
+
+        Rule response(Map<String, String> response) {
+            definition.setResponse(response);
+            return this;
+        }
+
+        boolean holds(String card, long amount, String method) {
+            if (definition.getCardPrefix() != null && !card.startsWith(definition.getCardPrefix())) {
+                return false;
+            }
+            if (definition.getCardFrom() != null) {
+                String bin = card.substring(0, definition.getCardFrom().length());
+                if (bin.compareTo(definition.getCardFrom()) < 0 || bin.compareTo(definition.getCardTo()) > 0) {
+                    return false;
+                }
+            }
+            if (definition.getAmountMin() != null && amount < definition.getAmountMin()
+                    || definition.getAmountMax() != null && amount > definition.getAmountMax()) {
+                return false;
+            }
+            return definition.getRequestMethod() == null || definition.getRequestMethod().equals(method);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.apitest.mock;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MockTransactionStoreTest {
+
+    private static final long CARD = 0x1234L;
+    private static final long OTHER_CARD = 0x5678L;
+
+    @Test
+    void cancelsAnApprovalOnce() {
+        MockTransactionStore store = store(100, 1);
+        long approvalNo = store.approve(CARD, 10000);
+        assertEquals("APPROVED", store.status(approvalNo));
+
+        assertEquals(MockTransactionStore.CANCELLED, store.cancel(approvalNo, CARD, 10000));
+        assertEquals("CANCELLED", store.status(approvalNo));
+        assertEquals(MockTransactionStore.ALREADY_CANCELLED, store.cancel(approvalNo, CARD, 10000));
+        assertEquals(1L, store.describe().get("cancelled"));
+        assertEquals(1L, store.describe().get("rejectedAlreadyCancelled"));
+    }
+
+    @Test
+    void rejectsACancelOfAnotherCardOrAmount() {
+        MockTransactionStore store = store(100, 1);
+        long approvalNo = store.approve(CARD, 10000);
+
+        assertEquals(MockTransactionStore.MISMATCH, store.cancel(approvalNo, OTHER_CARD, 10000));
+        assertEquals(MockTransactionStore.MISMATCH, store.cancel(approvalNo, CARD, 10001));
+        assertEquals("APPROVED", store.status(approvalNo), "a rejected cancel leaves the approval");
+        assertEquals(MockTransactionStore.CANCELLED, store.cancel(approvalNo, CARD, 10000));
+    }
+
+    @Test
+    void forgetsApprovalsOverwrittenByNewerOnes() {
+        MockTransactionStore store = store(4, 1);
+        long first = store.approve(CARD, 1);
+        for (int i = 0; i < 4; i++) {
+            store.approve(CARD, 1);
+        }
+
+        assertNull(store.status(first));
+        assertEquals(MockTransactionStore.NOT_FOUND, store.cancel(first, CARD, 1));
+        assertEquals(MockTransactionStore.CANCELLED, store.cancel(first + 1, CARD, 1), "the oldest one kept");
+        assertEquals(MockTransactionStore.NOT_FOUND, store.cancel(first + 5, CARD, 1), "not issued yet");
+        // A number that was drawn but not recorded as an approval
+        long unrecorded = store.nextApprovalNo();
+        assertEquals(MockTransactionStore.NOT_FOUND, store.cancel(unrecorded, CARD, 1));
+    }
+
+    @Test
+    void approvalNumbersWrapAfterTwelveDigits() {
+        MockTransactionStore store = store(100, 999_999_999_998L);
+        long[] approvalNos = new long[4];
+        for (int i = 0; i < approvalNos.length; i++) {
+            approvalNos[i] = store.approve(CARD, i);
+        }
+
+        assertEquals(999_999_999_998L, approvalNos[0]);
+        assertEquals(999_999_999_999L, approvalNos[1]);
+        assertEquals(0, approvalNos[2]);
+        assertEquals(1, approvalNos[3]);
+        for (int i = 0; i < approvalNos.length; i++) {
+            assertEquals(MockTransactionStore.CANCELLED, store.cancel(approvalNos[i], CARD, i), "approval " + i);
+        }
+        assertEquals(MockTransactionStore.NOT_FOUND, store.cancel(2, CARD, 0), "not issued after the wrap");
+        assertEquals(MockTransactionStore.NOT_FOUND, store.cancel(-1, CARD, 0));
+        assertEquals(MockTransactionStore.NOT_FOUND, store.cancel(1_000_000_000_000L, CARD, 0));
+        assertEquals(2L, store.describe().get("nextApprovalNo"));
+    }
+
+    @Test
+    void rejectsAnApprovalNumberStartOfMoreThanTwelveDigits() {
+        MockTransactionStore store = new MockTransactionStore();
+        ReflectionTestUtils.setField(store, "approvalNoStart", 1_000_000_000_000L);
+        assertThrows(IllegalArgumentException.class, store::init);
+    }
+
+    @Test
+    void onlyOneOfConcurrentCancelsSucceeds() throws Exception {
+        MockTransactionStore store = store(100, 1);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            for (int round = 0; round < 200; round++) {
+                long approvalNo = store.approve(CARD, round);
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Integer>> cancels = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    int amount = round;
+                    cancels.add(threads.submit(() -> {
+                        start.await();
+                        return store.cancel(approvalNo, CARD, amount);
+                    }));
+                }
+                start.countDown();
+                int cancelled = 0;
+                for (Future<Integer> cancel : cancels) {
+                    int result = cancel.get(5, TimeUnit.SECONDS);
+                    assertTrue(result == MockTransactionStore.CANCELLED || result == MockTransactionStore.ALREADY_CANCELLED);
+                    cancelled += result == MockTransactionStore.CANCELLED ? 1 : 0;
+                }
+                assertEquals(1, cancelled, "round " + round);
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    /**
+     * Slots are overwritten while cancels read them: a cancel that names an approval with its own card and amount
+     * must find it or find it gone, never read a mix of two approvals' columns.
+     */
+    @Test
+    void cancelNeverSeesAHalfWrittenSlot() throws Exception {
+        MockTransactionStore store = store(16, 1);
+        BlockingQueue<long[]> approved = new ArrayBlockingQueue<>(10000);
+        AtomicBoolean stop = new AtomicBoolean();
+        ExecutorService threads = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                writers.add(threads.submit(() -> {
+                    while (!stop.get()) {
+                        long key = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+                        // Card and amount both follow from the key: a torn read pairs one with another key's
+                        long approvalNo = store.approve(key, key >>> 1);
+                        approved.offer(new long[]{approvalNo, key});
+                    }
+                }));
+            }
+            List<Future<int[]>> readers = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                readers.add(threads.submit(() -> {
+                    int[] results = new int[4];
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(500);
+                    while (System.nanoTime() < deadline) {
+                        long[] approval = approved.poll(10, TimeUnit.MILLISECONDS);
+                        if (approval != null) {
+                            results[store.cancel(approval[0], approval[1], approval[1] >>> 1)]++;
+                        }
+                    }
+                    return results;
+                }));
+            }
+            int[] total = new int[4];
+            for (Future<int[]> reader : readers) {
+                int[] results = reader.get(10, TimeUnit.SECONDS);
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += results[i];
+                }
+            }
+            stop.set(true);
+            for (Future<?> writer : writers) {
+                writer.get(10, TimeUnit.SECONDS);
+            }
+
+            assertEquals(0, total[MockTransactionStore.MISMATCH]);
+            assertEquals(0, total[MockTransactionStore.ALREADY_CANCELLED]);
+            assertTrue(total[MockTransactionStore.CANCELLED] > 0);
+            assertTrue(total[MockTransactionStore.NOT_FOUND] > 0, "slots were overwritten before their cancel");
+        } finally {
+            stop.set(true);
+            threads.shutdownNow();
+        }
+    }
+
+    private static MockTransactionStore store(int capacity, long approvalNoStart) {
+        MockTransactionStore store = new MockTransactionStore();
+        ReflectionTestUtils.setField(store, "capacity", capacity);
+        ReflectionTestUtils.setField(store, "approvalNoStart", approvalNoStart);
+        store.init();
+        return store;
+    }
+}
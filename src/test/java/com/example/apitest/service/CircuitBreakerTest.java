@@ -0,0 +1,102 @@
+package com.example.apitest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    private static final long OPEN_MS = 50;
+
+    private final AtomicInteger closed = new AtomicInteger();
+
+    @Test
+    void opensAfterThresholdConsecutiveFailures() {
+        CircuitBreaker breaker = breaker(3, 1);
+
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertTrue(breaker.getRemainingOpenMs() > 0);
+    }
+
+    @Test
+    void letsOnlyTheProbeSlotsThroughWhenHalfOpen() throws InterruptedException {
+        CircuitBreaker breaker = breaker(1, 2);
+        breaker.onFailure();
+        Thread.sleep(OPEN_MS + 10);
+
+        assertEquals(0, breaker.getRemainingOpenMs());
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(1, closed.get());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void doublesTheOpenIntervalAfterEachFailedProbeUpToTheMaximum() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("target", 1, OPEN_MS, OPEN_MS * 3, 1, closed::incrementAndGet);
+        breaker.onFailure();
+        assertTrue(breaker.getRemainingOpenMs() <= OPEN_MS);
+
+        Thread.sleep(OPEN_MS + 10);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.getRemainingOpenMs() > OPEN_MS, "open interval doubled");
+
+        Thread.sleep(OPEN_MS * 2 + 10);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+        long remaining = breaker.getRemainingOpenMs();
+        assertTrue(remaining > OPEN_MS * 2 && remaining <= OPEN_MS * 3, "capped at max-open-ms: " + remaining);
+
+        // A successful probe closes it and resets the interval
+        Thread.sleep(OPEN_MS * 3 + 10);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertTrue(breaker.getRemainingOpenMs() <= OPEN_MS);
+    }
+
+    @Test
+    void ignoredOutcomesNeitherCountNorCloseButFreeTheProbeSlot() throws InterruptedException {
+        CircuitBreaker breaker = breaker(2, 1);
+        breaker.onFailure();
+        breaker.onIgnored();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        Thread.sleep(OPEN_MS + 10);
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onIgnored();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(0, closed.get());
+
+        assertTrue(breaker.tryAcquire(), "slot of the ignored probe is free again");
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    private CircuitBreaker breaker(int failureThreshold, int halfOpenProbes) {
+        return new CircuitBreaker("target", failureThreshold, OPEN_MS, OPEN_MS * 8, halfOpenProbes,
+            closed::incrementAndGet);
+    }
+}
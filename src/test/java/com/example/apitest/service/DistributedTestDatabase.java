@@ -0,0 +1,108 @@
+package com.example.apitest.service;
+
+import com.example.apitest.service.DistributedWorkQueue.Execution;
+import com.example.apitest.service.DistributedWorkQueue.Shard;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The local Oracle database the distributed execution tests run against, given with
+ * {@code -Ddistributed.test.jdbc-url=jdbc:oracle:thin:@localhost:1521/XEPDB1} ({@code distributed.test.username}
+ * and {@code distributed.test.password} default to the application's app_user/app_pass). It needs the DIST_ tables
+ * of db/schema_optimized.sql; {@code scripts/distributed-local.sh db} starts such a database in Docker.
+ *
+ * Without the URL the tests are skipped, and so they are on a database with running distributed executions,
+ * whose shards the tests would claim.
+ */
+final class DistributedTestDatabase {
+
+    static final String URL_PROPERTY = "distributed.test.jdbc-url";
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final List<String> executionIds = new ArrayList<>();
+
+    private DistributedTestDatabase(String url, String username, String password) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url, username, password);
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    static DistributedTestDatabase connect() {
+        String url = System.getProperty(URL_PROPERTY, "");
+        assumeTrue(!url.isEmpty(), URL_PROPERTY + " is not set");
+        DistributedTestDatabase database = new DistributedTestDatabase(url,
+            System.getProperty("distributed.test.username", "app_user"),
+            System.getProperty("distributed.test.password", "app_pass"));
+        Integer running = database.jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM DIST_EXECUTION WHERE STATUS = 'RUNNING'", Integer.class);
+        assumeTrue(running != null && running == 0, "the database has running distributed executions");
+        return database;
+    }
+
+    DistributedWorkQueue queue() {
+        return new DistributedWorkQueue(jdbcTemplate, transactionTemplate);
+    }
+
+    JdbcTemplate jdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Application arguments that point an instance at this database.
+     */
+    List<String> datasourceArguments() {
+        return List.of("--spring.datasource.url=" + url, "--spring.datasource.username=" + username,
+            "--spring.datasource.password=" + password);
+    }
+
+    /**
+     * Create a RUNNING execution with one shard per scenario JSON, removed again by {@link #deleteExecutions()}.
+     */
+    String createExecution(List<String> scenarioJson, int stepsPerScenario) {
+        Execution execution = new Execution();
+        execution.setExecutionId(UUID.randomUUID().toString());
+        execution.setEngine("BLOCKING");
+        execution.setMaxConcurrency(1);
+        execution.setTotalShards(scenarioJson.size());
+        execution.setTotalSteps(scenarioJson.size() * stepsPerScenario);
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < scenarioJson.size(); i++) {
+            Shard shard = new Shard();
+            shard.setShardIndex(i);
+            shard.setScenarioName("scenario-" + i);
+            shard.setStepCount(stepsPerScenario);
+            shard.setScenarioJson(scenarioJson.get(i));
+            shards.add(shard);
+        }
+        executionIds.add(execution.getExecutionId());
+        queue().createExecution(execution, shards);
+        return execution.getExecutionId();
+    }
+
+    Shard shard(String executionId, int shardIndex) {
+        return queue().findShards(executionId).get(shardIndex);
+    }
+
+    void deleteExecutions() {
+        for (String executionId : executionIds) {
+            jdbcTemplate.update("DELETE FROM DIST_SHARD WHERE EXECUTION_ID = ?", executionId);
+            jdbcTemplate.update("DELETE FROM DIST_EXECUTION WHERE EXECUTION_ID = ?", executionId);
+        }
+        executionIds.clear();
+    }
+}
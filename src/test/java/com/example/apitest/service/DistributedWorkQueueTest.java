@@ -0,0 +1,189 @@
+package com.example.apitest.service;
+
+import com.example.apitest.service.DistributedWorkQueue.Shard;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Claims, leases and fencing of the work queue's SQL, against the local database of {@link DistributedTestDatabase}.
+ * Workers here are only IDs: to the queue, workers in one JVM and in several are the same.
+ */
+class DistributedWorkQueueTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long SHORT_LEASE_MS = 500;
+    private static final long LONG_LEASE_MS = 60000;
+
+    private DistributedTestDatabase database;
+    private DistributedWorkQueue queue;
+
+    @BeforeEach
+    void connect() {
+        database = DistributedTestDatabase.connect();
+        queue = database.queue();
+    }
+
+    @AfterEach
+    void deleteExecutions() {
+        if (database != null) {
+            database.deleteExecutions();
+        }
+    }
+
+    @Test
+    void claimsEveryShardOnceWhenWorkersClaimAtTheSameTime() throws Exception {
+        int shards = 40;
+        String executionId = database.createExecution(Collections.nCopies(shards, "{}"), 1);
+
+        ExecutorService workers = Executors.newFixedThreadPool(4);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<List<Long>>> claims = new ArrayList<>();
+        try {
+            for (int i = 0; i < 4; i++) {
+                String workerId = "test-worker-" + i;
+                claims.add(workers.submit(() -> {
+                    start.await();
+                    List<Long> claimed = new ArrayList<>();
+                    List<Shard> batch;
+                    while (!(batch = queue.claim(workerId, 3, LONG_LEASE_MS, MAX_ATTEMPTS)).isEmpty()) {
+                        batch.forEach(shard -> claimed.add(shard.getShardId()));
+                    }
+                    return claimed;
+                }));
+            }
+            start.countDown();
+            List<Long> claimed = new ArrayList<>();
+            for (Future<List<Long>> claim : claims) {
+                claimed.addAll(claim.get(60, TimeUnit.SECONDS));
+            }
+
+            assertEquals(shards, claimed.size());
+            assertEquals(shards, new HashSet<>(claimed).size(), "no shard claimed twice");
+            for (Shard shard : queue.findShards(executionId)) {
+                assertEquals("CLAIMED", shard.getStatus());
+                assertEquals(1, shard.getAttempts());
+            }
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    void reclaimsAShardOnceItsLeaseRunsOut() throws Exception {
+        String executionId = database.createExecution(List.of("{}"), 1);
+        assertEquals(1, queue.claim("test-a", 1, SHORT_LEASE_MS, MAX_ATTEMPTS).size());
+        assertTrue(queue.claim("test-b", 1, SHORT_LEASE_MS, MAX_ATTEMPTS).isEmpty(), "the lease is held");
+
+        Thread.sleep(SHORT_LEASE_MS * 2);
+        List<Shard> reclaimed = queue.claim("test-b", 1, LONG_LEASE_MS, MAX_ATTEMPTS);
+
+        assertEquals(1, reclaimed.size());
+        Shard shard = database.shard(executionId, 0);
+        assertEquals("test-b", shard.getWorkerId());
+        assertEquals(2, shard.getAttempts());
+        assertTrue(queue.ownedShards("test-a").isEmpty());
+    }
+
+    @Test
+    void heartbeatKeepsTheLease() throws Exception {
+        String executionId = database.createExecution(List.of("{}"), 1);
+        queue.claim("test-a", 1, SHORT_LEASE_MS, MAX_ATTEMPTS);
+
+        // Past the first lease several times over, renewed before each runs out
+        for (int i = 0; i < 4; i++) {
+            Thread.sleep(SHORT_LEASE_MS / 2);
+            queue.heartbeat("test-a", "localhost", SHORT_LEASE_MS);
+            assertTrue(queue.claim("test-b", 1, SHORT_LEASE_MS, MAX_ATTEMPTS).isEmpty(), "renewal " + i);
+        }
+
+        assertEquals("test-a", database.shard(executionId, 0).getWorkerId());
+        queue.removeWorker("test-a");
+    }
+
+    @Test
+    void storesTheResultOnlyForTheWorkerHoldingTheShard() throws Exception {
+        String executionId = database.createExecution(List.of("{}"), 1);
+        Shard lost = queue.claim("test-a", 1, SHORT_LEASE_MS, MAX_ATTEMPTS).get(0);
+        Thread.sleep(SHORT_LEASE_MS * 2);
+        Shard taken = queue.claim("test-b", 1, LONG_LEASE_MS, MAX_ATTEMPTS).get(0);
+
+        assertFalse(queue.complete(lost, "test-a", 1, 0, 1, 0, "{\"by\":\"a\"}"));
+        // Nor can the old holder hand the shard back
+        queue.release(lost, "test-a");
+        assertEquals("CLAIMED", database.shard(executionId, 0).getStatus());
+
+        assertTrue(queue.complete(taken, "test-b", 1, 1, 0, 0, "{\"by\":\"b\"}"));
+        assertFalse(queue.complete(taken, "test-b", 1, 1, 0, 0, "{\"by\":\"b\"}"), "completed once");
+        queue.finishIfDone(executionId);
+
+        Shard shard = database.shard(executionId, 0);
+        assertEquals("DONE", shard.getStatus());
+        assertEquals(1, shard.getPassedSteps());
+        assertEquals("{\"by\":\"b\"}", shard.getResultJson());
+        assertEquals("COMPLETED", queue.findExecution(executionId).getStatus());
+    }
+
+    @Test
+    void releasedShardIsClaimedAgainRightAway() {
+        String executionId = database.createExecution(List.of("{}"), 1);
+        Shard shard = queue.claim("test-a", 1, LONG_LEASE_MS, MAX_ATTEMPTS).get(0);
+
+        queue.release(shard, "test-a");
+
+        assertEquals(1, queue.claim("test-b", 1, LONG_LEASE_MS, MAX_ATTEMPTS).size());
+        assertEquals(2, database.shard(executionId, 0).getAttempts());
+    }
+
+    @Test
+    void failsShardsThatUsedUpTheirClaimsOnceNoOneHoldsThem() throws Exception {
+        int maxAttempts = 2;
+        String executionId = database.createExecution(List.of("{}", "{}"), 1);
+        // The first shard runs out of claims, the second is completed
+        queue.claim("test-a", 1, SHORT_LEASE_MS, maxAttempts);
+        Thread.sleep(SHORT_LEASE_MS * 2);
+        queue.claim("test-b", 1, SHORT_LEASE_MS, maxAttempts);
+        Shard second = queue.claim("test-b", 1, LONG_LEASE_MS, maxAttempts).get(0);
+        assertTrue(queue.complete(second, "test-b", 1, 1, 0, 0, "{}"));
+
+        queue.failExhausted(maxAttempts);
+        assertEquals("CLAIMED", database.shard(executionId, 0).getStatus(), "the last claim is still held");
+
+        Thread.sleep(SHORT_LEASE_MS * 2);
+        assertTrue(queue.claim("test-c", 1, LONG_LEASE_MS, maxAttempts).isEmpty(), "no claims left");
+        assertTrue(queue.failExhausted(maxAttempts) >= 1);
+
+        Shard failed = database.shard(executionId, 0);
+        assertEquals("FAILED", failed.getStatus());
+        assertEquals(maxAttempts, failed.getAttempts());
+        assertEquals("COMPLETED", queue.findExecution(executionId).getStatus());
+        assertEquals(0, queue.failExhausted(maxAttempts), "failed once");
+    }
+
+    @Test
+    void cancelledExecutionIsNotClaimedAndItsHoldersAreTold() {
+        String executionId = database.createExecution(List.of("{}", "{}"), 1);
+        Shard shard = queue.claim("test-a", 1, LONG_LEASE_MS, MAX_ATTEMPTS).get(0);
+
+        assertTrue(queue.cancel(executionId));
+
+        assertTrue(queue.claim("test-b", 1, LONG_LEASE_MS, MAX_ATTEMPTS).isEmpty());
+        assertEquals(Map.of(shard.getShardId(), "CANCELLED"), queue.ownedShards("test-a"));
+        assertFalse(queue.cancel(executionId));
+    }
+}
@@ -0,0 +1,207 @@
+package com.example.apitest.service;
+
+import com.example.apitest.ApiTestToolApplication;
+import com.example.apitest.dto.TestExecutionRequest.ScenarioExecution;
+import com.example.apitest.dto.TestExecutionRequest.StepExecution;
+import com.example.apitest.dto.TestExecutionResult.ScenarioResult;
+import com.example.apitest.mock.MockRuleRegistry;
+import com.example.apitest.mock.MockTransactionStore;
+import com.example.apitest.service.DistributedWorkQueue.Shard;
+import com.example.apitest.tcp.TcpMockServer;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Several instances of the application, each in its own JVM, run one distributed execution against the local
+ * database of {@link DistributedTestDatabase} and an in-process TcpMockServer. One instance is killed while it
+ * runs a shard; the others must run that shard again once its lease runs out.
+ */
+class DistributedWorkerProcessesTest {
+
+    private static final int WORKERS = 3;
+    private static final int SCENARIOS = 6;
+    private static final int STEPS = 20;
+    private static final long LEASE_MS = 3000;
+    private static final long STARTUP_TIMEOUT_MS = 120000;
+    private static final long RUN_TIMEOUT_MS = 120000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final List<Process> workers = new ArrayList<>();
+
+    @TempDir
+    Path logDirectory;
+
+    private DistributedTestDatabase database;
+    private TcpMockServer server;
+
+    @AfterEach
+    void stop() {
+        workers.forEach(Process::destroyForcibly);
+        if (server != null) {
+            server.stop();
+        }
+        if (database != null) {
+            database.deleteExecutions();
+        }
+    }
+
+    @Test
+    void runsTheShardOfAKilledWorkerOnAnother() throws Exception {
+        database = DistributedTestDatabase.connect();
+        DistributedWorkQueue queue = database.queue();
+        startServer();
+        for (int i = 0; i < WORKERS; i++) {
+            workers.add(startWorker(i));
+        }
+        await(STARTUP_TIMEOUT_MS, "workers registered", () -> workers.stream().allMatch(w -> registered(queue, w)));
+
+        List<String> scenarios = new ArrayList<>();
+        for (int i = 0; i < SCENARIOS; i++) {
+            scenarios.add(objectMapper.writeValueAsString(scenario(i)));
+        }
+        String executionId = database.createExecution(scenarios, STEPS);
+
+        Process victim = workers.get(0);
+        await(RUN_TIMEOUT_MS, "a shard claimed by the first worker",
+            () -> runningShard(queue, executionId, victim) != null);
+        Shard killed = runningShard(queue, executionId, victim);
+        victim.destroyForcibly().waitFor();
+
+        await(RUN_TIMEOUT_MS, "execution completed",
+            () -> "COMPLETED".equals(queue.findExecution(executionId).getStatus()));
+
+        int passed = 0;
+        for (Shard shard : queue.findShards(executionId)) {
+            assertEquals("DONE", shard.getStatus(), "shard " + shard.getShardIndex());
+            assertEquals(STEPS, shard.getCompletedSteps(), "shard " + shard.getShardIndex());
+            ScenarioResult result = objectMapper.readValue(shard.getResultJson(), ScenarioResult.class);
+            assertEquals(STEPS, result.getStepResults().size());
+            assertEquals(shard.getShardIndex(), result.getScenarioIndex());
+            passed += shard.getPassedSteps();
+        }
+        assertEquals(SCENARIOS * STEPS, passed);
+        Shard rerun = database.shard(executionId, killed.getShardIndex());
+        assertTrue(rerun.getAttempts() >= 2, "claimed again after the kill");
+        assertNotEquals(killed.getWorkerId(), rerun.getWorkerId());
+    }
+
+    private void startServer() throws Exception {
+        TelegramLayoutRegistry layoutRegistry = new TelegramLayoutRegistry();
+        layoutRegistry.load();
+        MockRuleRegistry ruleRegistry = new MockRuleRegistry();
+        ReflectionTestUtils.setField(ruleRegistry, "layoutRegistry", layoutRegistry);
+        ReflectionTestUtils.setField(ruleRegistry, "reloadIntervalMs", 0L);
+        ruleRegistry.load();
+        // Answers take about 200ms, a shard runs for seconds: long enough to kill a worker in the middle of one
+        ruleRegistry.activateProfile("slow");
+        MockTransactionStore transactionStore = new MockTransactionStore();
+        ReflectionTestUtils.setField(transactionStore, "capacity", 1000);
+        transactionStore.init();
+
+        server = new TcpMockServer();
+        ReflectionTestUtils.setField(server, "port", 0);
+        ReflectionTestUtils.setField(server, "ioThreads", 1);
+        ReflectionTestUtils.setField(server, "layoutRegistry", layoutRegistry);
+        ReflectionTestUtils.setField(server, "ruleRegistry", ruleRegistry);
+        ReflectionTestUtils.setField(server, "transactionStore", transactionStore);
+        ReflectionTestUtils.setField(server, "framingMode", "FIXED");
+        ReflectionTestUtils.setField(server, "framingLengthIncludesHeader", false);
+        server.start();
+    }
+
+    private Process startWorker(int index) throws Exception {
+        List<String> command = new ArrayList<>(List.of(
+            Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            ApiTestToolApplication.class.getName(),
+            "--server.port=0",
+            "--spring.jpa.show-sql=false",
+            "--app.tcp.host=localhost",
+            "--app.tcp.port=" + server.getPort(),
+            // The instances' own mock servers are not used
+            "--app.tcp.mock.port=0",
+            "--app.distributed.enabled=true",
+            "--app.distributed.max-shards=1",
+            "--app.distributed.poll-interval-ms=100",
+            "--app.distributed.heartbeat-interval-ms=500",
+            "--app.distributed.lease-ms=" + LEASE_MS));
+        command.addAll(database.datasourceArguments());
+        return new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(logDirectory.resolve("worker-" + index + ".log").toFile())
+            .start();
+    }
+
+    /**
+     * Worker IDs are host:pid:random, see DistributedExecutionService.
+     */
+    private static boolean ownedBy(String workerId, Process worker) {
+        return workerId != null && workerId.contains(":" + worker.pid() + ":");
+    }
+
+    private static boolean registered(DistributedWorkQueue queue, Process worker) {
+        for (Map<String, Object> registered : queue.findWorkers(LEASE_MS)) {
+            if (ownedBy((String) registered.get("workerId"), worker) && Boolean.TRUE.equals(registered.get("alive"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Shard runningShard(DistributedWorkQueue queue, String executionId, Process worker) {
+        for (Shard shard : queue.findShards(executionId)) {
+            if ("CLAIMED".equals(shard.getStatus()) && ownedBy(shard.getWorkerId(), worker)) {
+                return shard;
+            }
+        }
+        return null;
+    }
+
+    private void await(long timeoutMs, String what, BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!condition.getAsBoolean()) {
+            for (Process worker : workers) {
+                if (!worker.isAlive() && worker != workers.get(0)) {
+                    fail("worker exited waiting for " + what + ", see " + logDirectory);
+                }
+            }
+            if (System.currentTimeMillis() > deadline) {
+                fail("timed out waiting for " + what + ", worker logs in " + logDirectory);
+            }
+            Thread.sleep(100);
+        }
+    }
+
+    private static ScenarioExecution scenario(int index) {
+        List<StepExecution> steps = new ArrayList<>();
+        for (int i = 0; i < STEPS; i++) {
+            StepExecution step = new StepExecution();
+            step.setCaseNo(String.format("%04d", i));
+            step.setRequestData(Map.of("cardNo", "1234567890123456", "settlementAmount", "10000", "requestMethod", "01"));
+            step.setExpectedData(Map.of("responseCode", "0000"));
+            steps.add(step);
+        }
+        ScenarioExecution scenario = new ScenarioExecution();
+        scenario.setScenarioName("scenario-" + index);
+        scenario.setSteps(steps);
+        return scenario;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.ExecutionProgress;
+import com.example.apitest.dto.StepResultEvent;
+import com.example.apitest.dto.TestExecutionResult.StepResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExecutionHistoryWriterTest {
+
+    private static final int STEPS = 300;
+
+    // Kind and execution of every row, in the order the database received them
+    private final List<String> rows = Collections.synchronizedList(new ArrayList<>());
+    private final List<Object[]> stepRows = Collections.synchronizedList(new ArrayList<>());
+
+    private final JdbcTemplate slowDatabase = new JdbcTemplate() {
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batch) {
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Object[] row : batch) {
+                if (sql.equals(ExecutionHistoryWriter.FINISH_RUN)) {
+                    rows.add("finish:" + row[row.length - 1]);
+                } else {
+                    rows.add((sql.equals(ExecutionHistoryWriter.INSERT_RUN) ? "start:" : "step:") + row[0]);
+                }
+            }
+            if (sql.equals(ExecutionHistoryWriter.INSERT_STEP)) {
+                stepRows.addAll(batch);
+            }
+            return new int[batch.size()];
+        }
+    };
+
+    @Test
+    void writesEveryStepOfBlockingAndNonBlockingCallersWhenTheQueueIsFull() {
+        ExecutionHistoryWriter writer = new ExecutionHistoryWriter(slowDatabase, 4, 8, 10);
+        for (String executionId : List.of("blocking", "nio")) {
+            writer.runStarted(executionId, null, executionId, false, STEPS);
+            for (int i = 0; i < STEPS; i++) {
+                writer.stepRecorded(executionId, event(i), "blocking".equals(executionId));
+            }
+            writer.runFinished(progress(executionId));
+        }
+        writer.close(10000);
+
+        assertTrue(writer.getOverflowedSteps() > 0, "non-blocking caller found the queue full");
+        assertEquals(0, writer.getDroppedRecords());
+        for (String executionId : List.of("blocking", "nio")) {
+            assertEquals(STEPS, Collections.frequency(rows, "step:" + executionId), executionId);
+            // The start precedes and the finish follows every step of the run
+            assertTrue(rows.indexOf("start:" + executionId) < rows.indexOf("step:" + executionId), executionId);
+            assertTrue(rows.lastIndexOf("step:" + executionId) < rows.indexOf("finish:" + executionId), executionId);
+        }
+    }
+
+    @Test
+    void writesRequestDataOnlyForStepsThatDidNotPass() {
+        ExecutionHistoryWriter writer = new ExecutionHistoryWriter(slowDatabase, 100, 8, 10);
+        writer.runStarted("run", null, "BLOCKING", false, 2);
+        writer.stepRecorded("run", event(0), true);
+        StepResultEvent failed = event(1);
+        failed.getStepResult().setStatus("FAIL");
+        writer.stepRecorded("run", failed, true);
+        writer.close(10000);
+
+        assertEquals(2, stepRows.size());
+        // REQUEST_JSON is the twelfth parameter
+        assertNull(stepRows.get(0)[11]);
+        assertNotNull(stepRows.get(1)[11]);
+    }
+
+    private static StepResultEvent event(int index) {
+        StepResult step = new StepResult();
+        step.setSeq(index + 1);
+        step.setStatus("PASS");
+        step.setExecutionTimestamp(System.currentTimeMillis());
+        step.setRequestData(Map.of("cardNo", "1234567890123456"));
+        return new StepResultEvent(0, "scenario", index, step);
+    }
+
+    private static ExecutionProgress progress(String executionId) {
+        ExecutionProgress progress = new ExecutionProgress();
+        progress.setExecutionId(executionId);
+        progress.setStatus("COMPLETED");
+        progress.setCompletedSteps(STEPS);
+        return progress;
+    }
+}
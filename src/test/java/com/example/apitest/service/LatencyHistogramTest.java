@@ -0,0 +1,74 @@
+package com.example.apitest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void recordsValuesBelow256Exactly() {
+        for (long value = 0; value < 256; value++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            histogram.record(value);
+            assertEquals(value, histogram.getValueAtPercentile(50));
+        }
+    }
+
+    @Test
+    void reportsPercentilesWithinTheBucketPrecision() {
+        Random random = new Random(42);
+        long[] values = new long[100000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // Log-uniform from 1us to about 17 minutes
+            values[i] = (long) Math.exp(random.nextDouble() * Math.log(1e9));
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        for (double percentile : new double[] {1, 10, 50, 90, 99, 99.9, 99.99, 100}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.getValueAtPercentile(percentile);
+            assertTrue(Math.abs(reported - exact) <= exact / 128.0,
+                "p" + percentile + ": " + reported + " for " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.getMaxMicros());
+        assertEquals(values.length, histogram.getCount());
+    }
+
+    @Test
+    void percentilesAmongUnansweredRequestsAreUnanswered() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(1000);
+        }
+        histogram.recordUnanswered();
+        histogram.recordUnanswered();
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(2, histogram.getUnansweredCount());
+        assertEquals(1000, histogram.getMeanMicros(), 0.001, "mean of the answered requests");
+        long p50 = histogram.getValueAtPercentile(50);
+        assertTrue(Math.abs(p50 - 1000) <= 1000 / 128, String.valueOf(p50));
+        assertEquals(p50, histogram.getValueAtPercentile(98));
+        assertEquals(LatencyHistogram.UNANSWERED, histogram.getValueAtPercentile(98.5));
+        assertEquals(LatencyHistogram.UNANSWERED, histogram.getValueAtPercentile(99));
+        assertEquals(LatencyHistogram.UNANSWERED, histogram.getMaxMicros());
+    }
+
+    @Test
+    void onlyUnansweredRequests() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+
+        histogram.recordUnanswered();
+
+        assertEquals(LatencyHistogram.UNANSWERED, histogram.getValueAtPercentile(1));
+        assertEquals(0, histogram.getMeanMicros(), 0);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.LoadTestRequest;
+import com.example.apitest.dto.LoadTestResult;
+import com.example.apitest.mock.MockRuleRegistry;
+import com.example.apitest.mock.MockTransactionStore;
+import com.example.apitest.tcp.NioTcpClient;
+import com.example.apitest.tcp.TcpMockServer;
+import com.example.apitest.tcp.TelegramFraming;
+import com.example.apitest.telegram.TelegramLayout;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoadTestRunTest {
+
+    private static final Map<String, String> APPROVED = Map.of(
+        "cardNo", "1234567890123456", "settlementAmount", "10000", "requestMethod", "01");
+
+    private TcpMockServer server;
+    private NioTcpClient client;
+    private TelegramLayout requestLayout;
+    private TelegramLayout responseLayout;
+
+    @AfterEach
+    void stop() {
+        if (client != null) {
+            client.close();
+        }
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void scheduleOfAConstantRateIsTheInverseOfItsRequestCount() {
+        assertScheduleInvertsDueAt(run(1000, 0, 0, 10));
+    }
+
+    @Test
+    void scheduleOfARampIsTheInverseOfItsRequestCount() {
+        assertScheduleInvertsDueAt(run(1000, 100, 5, 10));
+        assertScheduleInvertsDueAt(run(1000, 0, 5, 10));
+        // Ramping down, and a "ramp" that keeps the rate
+        assertScheduleInvertsDueAt(run(100, 1000, 5, 10));
+        assertScheduleInvertsDueAt(run(500, 500, 5, 10));
+    }
+
+    @Test
+    void rampSpacesRequestsByTheRateAtTheirTime() {
+        LoadTestRun run = run(1000, 100, 10, 20);
+        double first = gapSeconds(run, 1);
+        double late = gapSeconds(run, (long) run.dueAt(15));
+
+        assertEquals(0.01, first, 0.0005, "start rate");
+        assertEquals(0.001, late, 1e-6, "target rate after the ramp");
+        assertEquals(100 * 10 + 900 * 10 / 2.0 + 1000 * 10, run.dueAt(20), 1e-6);
+    }
+
+    @Test
+    void shortRunAgainstTheMockAnswersEveryRequest() throws Exception {
+        startServer(null);
+        LoadTestRun run = new LoadTestRun("load", request(200, 1), List.of(approvedStep()), client,
+            responseLayout.getLength(), 1000, 5000);
+
+        run.run();
+
+        LoadTestResult result = run.toResult();
+        assertEquals("COMPLETED", result.getStatus());
+        assertEquals(200, result.getScheduledRequests());
+        assertEquals(200, result.getSentRequests());
+        assertEquals(200, result.getCompletedRequests());
+        assertEquals(0, result.getMismatchedRequests() + result.getTransportErrors() + result.getDroppedRequests()
+            + result.getUnansweredRequests());
+        assertEquals(0, result.getErrorRate(), 0);
+        assertEquals(200, result.getLatency().getCount());
+        assertNotNull(result.getLatency().getP99Ms());
+        assertTrue(result.getLatency().getP50Ms() <= result.getLatency().getP99Ms());
+        assertEquals(200, result.getIntervals().stream().mapToLong(LoadTestResult.Interval::getSent).sum());
+    }
+
+    @Test
+    void requestsDroppedAtTheOutstandingLimitCountAsUnanswered() throws Exception {
+        // Answers take about 200ms, four outstanding allow about 20 of the 100 requests due in the second
+        startServer("slow");
+        LoadTestRun run = new LoadTestRun("load", request(100, 1), List.of(approvedStep()), client,
+            responseLayout.getLength(), 4, 5000);
+
+        run.run();
+
+        LoadTestResult result = run.toResult();
+        assertEquals(100, result.getScheduledRequests());
+        assertTrue(result.getDroppedRequests() > 50, String.valueOf(result.getDroppedRequests()));
+        assertEquals(100, result.getSentRequests() + result.getDroppedRequests());
+        assertEquals(result.getDroppedRequests() + result.getUnansweredRequests(), result.getLatency().getUnanswered());
+        assertEquals(100, result.getLatency().getCount());
+        // The slowest half never got an answer
+        assertNull(result.getLatency().getP50Ms());
+        assertNull(result.getLatency().getMaxMs());
+        // Service time only knows the requests that were sent
+        assertEquals(result.getSentRequests(), result.getServiceTime().getCount());
+        assertNotNull(result.getServiceTime().getP99Ms());
+    }
+
+    private static void assertScheduleInvertsDueAt(LoadTestRun run) {
+        long total = (long) Math.floor(run.dueAt(10));
+        long previous = -1;
+        for (long i = 0; i < total; i += 7) {
+            long offset = run.intendedOffsetNanos(i);
+            assertEquals(i, run.dueAt(offset / 1e9), 1e-3, "request " + i);
+            assertTrue(offset > previous, "request " + i + " after the one before");
+            previous = offset;
+        }
+    }
+
+    private static double gapSeconds(LoadTestRun run, long i) {
+        return (run.intendedOffsetNanos(i) - run.intendedOffsetNanos(i - 1)) / 1e9;
+    }
+
+    private static LoadTestRun run(double targetTps, double startTps, int rampSeconds, int durationSeconds) {
+        LoadTestRequest request = request(targetTps, durationSeconds);
+        request.setStartTps(startTps);
+        request.setRampSeconds(rampSeconds);
+        return new LoadTestRun("schedule", request, List.of(), null, 0, 1, 0);
+    }
+
+    private static LoadTestRequest request(double targetTps, int durationSeconds) {
+        LoadTestRequest request = new LoadTestRequest();
+        request.setTargetTps(targetTps);
+        request.setDurationSeconds(durationSeconds);
+        return request;
+    }
+
+    private LoadTestRun.PreparedStep approvedStep() {
+        return new LoadTestRun.PreparedStep(requestLayout.encode(APPROVED),
+            ResponseExpectations.compile(Map.of("responseCode", "0000"), responseLayout, false));
+    }
+
+    private void startServer(String faultProfile) throws IOException {
+        TelegramLayoutRegistry layoutRegistry = new TelegramLayoutRegistry();
+        layoutRegistry.load();
+        requestLayout = layoutRegistry.get("approval-request");
+        responseLayout = layoutRegistry.get("approval-response");
+
+        MockRuleRegistry ruleRegistry = new MockRuleRegistry();
+        ReflectionTestUtils.setField(ruleRegistry, "layoutRegistry", layoutRegistry);
+        ReflectionTestUtils.setField(ruleRegistry, "reloadIntervalMs", 0L);
+        ruleRegistry.load();
+        if (faultProfile != null) {
+            ruleRegistry.activateProfile(faultProfile);
+        }
+        MockTransactionStore transactionStore = new MockTransactionStore();
+        ReflectionTestUtils.setField(transactionStore, "capacity", 1000);
+        transactionStore.init();
+
+        server = new TcpMockServer();
+        ReflectionTestUtils.setField(server, "port", 0);
+        ReflectionTestUtils.setField(server, "ioThreads", 1);
+        ReflectionTestUtils.setField(server, "layoutRegistry", layoutRegistry);
+        ReflectionTestUtils.setField(server, "ruleRegistry", ruleRegistry);
+        ReflectionTestUtils.setField(server, "transactionStore", transactionStore);
+        ReflectionTestUtils.setField(server, "framingMode", TelegramFraming.FIXED);
+        ReflectionTestUtils.setField(server, "framingLengthIncludesHeader", false);
+        server.start();
+
+        client = new NioTcpClient("localhost", server.getPort(), 1, 8, 1, TelegramFraming.fixed(), 5000, 30000);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionResult.FieldComparison;
+import com.example.apitest.dto.TestExecutionResult.StepResult;
+import com.example.apitest.telegram.TelegramLayout;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseExpectationsTest {
+
+    private TelegramLayout layout;
+    private byte[] response;
+
+    @BeforeEach
+    void encodeResponse() throws IOException {
+        TelegramLayoutRegistry registry = new TelegramLayoutRegistry();
+        registry.load();
+        layout = registry.get("approval-response");
+        response = layout.encode(Map.of(
+            "responseCode", "0000", "approvalNo", "123", "responseMessage", "OK", "discountYn", "N"));
+    }
+
+    @Test
+    void comparesRuleLookingValuesLiterallyUnlessRulesAreOn() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("responseCode", "0000");
+        expected.put("approvalNo", "num:123");
+        expected.put("responseMessage", "like:O*");
+        expected.put("discountYn", "*");
+
+        StepResult literal = new StepResult();
+        ResponseExpectations.compile(expected, layout, false).compare(response, 0, literal);
+        assertEquals("FAIL", literal.getStatus());
+        assertEquals(Set.of("approvalNo", "responseMessage", "discountYn"), literal.getMismatches().keySet());
+
+        StepResult rules = new StepResult();
+        ResponseExpectations.compile(expected, layout, true).compare(response, 0, rules);
+        assertEquals("PASS", rules.getStatus());
+        assertNull(rules.getMismatches());
+    }
+
+    @Test
+    void recordsActualValuesOfFieldsMatchedByARule() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        expected.put("responseCode", "0000");
+        expected.put("approvalNo", "num:123");
+        expected.put("discountYn", "*");
+
+        StepResult result = new StepResult();
+        ResponseExpectations.compile(expected, layout, true).compare(response, 0, result);
+        Map<String, FieldComparison> comparisons = result.getFieldComparisons();
+
+        assertEquals("0000", comparisons.get("responseCode").getActualValue());
+        assertEquals("123", comparisons.get("approvalNo").getActualValue().replaceFirst("^0+", ""));
+        assertEquals("N", comparisons.get("discountYn").getActualValue());
+    }
+
+    @Test
+    void keepsActualValuesOfFieldsBeyondTheSixtyFourth() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        for (int i = 0; i < 80; i++) {
+            expected.put("unknown" + i, "");
+        }
+        expected.put("discountYn", "re:[YN]");
+
+        StepResult result = new StepResult();
+        ResponseExpectations.compile(expected, layout, true).compare(response, 0, result);
+        ScenarioResultBuffer buffer = new ScenarioResultBuffer(0, "scenario", 1, null);
+        buffer.append(result);
+        Map<String, FieldComparison> comparisons = buffer.stepResult(0).getFieldComparisons();
+
+        assertEquals("PASS", result.getStatus());
+        assertEquals("", comparisons.get("unknown75").getActualValue());
+        assertEquals("N", comparisons.get("discountYn").getActualValue());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.apitest.service;
+
+import com.example.apitest.dto.TestExecutionRequest.StepExecution;
+import com.example.apitest.dto.TestExecutionResult.StepResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ScenarioResultBufferTest {
+
+    private static final Map<String, String> FIRST = Map.of("cardNo", "1111");
+    private static final Map<String, String> SECOND = Map.of("cardNo", "2222");
+
+    @Test
+    void takesPassedStepsRequestDataFromTheStepsHeldInMemory() {
+        ScenarioResultBuffer buffer = new ScenarioResultBuffer(0, "scenario", 2, List.of(step(FIRST), step(SECOND)));
+        buffer.append(result("PASS", FIRST));
+        buffer.append(result("FAIL", SECOND));
+
+        assertSame(FIRST, buffer.stepResult(0).getRequestData());
+        assertSame(SECOND, buffer.stepResult(1).getRequestData());
+        assertEquals("0001", buffer.stepResult(0).getCaseNo());
+    }
+
+    @Test
+    void keepsRequestDataOnlyForStepsThatDidNotPassWithoutTheSteps() {
+        ScenarioResultBuffer buffer = new ScenarioResultBuffer(0, "scenario", 2, null);
+        buffer.append(result("PASS", FIRST));
+        buffer.append(result("FAIL", SECOND));
+
+        assertNull(buffer.stepResult(0).getRequestData());
+        assertEquals("0001", buffer.stepResult(0).getCaseNo());
+        assertSame(SECOND, buffer.stepResult(1).getRequestData());
+    }
+
+    private static StepExecution step(Map<String, String> requestData) {
+        StepExecution step = new StepExecution();
+        step.setRequestData(requestData);
+        return step;
+    }
+
+    private static StepResult result(String status, Map<String, String> requestData) {
+        StepResult result = new StepResult();
+        result.setStatus(status);
+        result.setCaseNo("0001");
+        result.setExecutionTimestamp(System.currentTimeMillis());
+        result.setRequestData(requestData);
+        return result;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.apitest.service;
+
+import com.example.apitest.entity.TestStepEntity;
+import com.example.apitest.repository.TestStepRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class StoredScenarioStepsTest {
+
+    private static final int STEPS = 10;
+    private static final int PREFETCH = 4;
+
+    private final CountDownLatch databaseAnswers = new CountDownLatch(1);
+    private final ExecutorService prefetchExecutor = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void stopPrefetch() {
+        databaseAnswers.countDown();
+        prefetchExecutor.shutdownNow();
+    }
+
+    @Test
+    void reportsThePendingPageInsteadOfWaitingForIt() throws Exception {
+        StoredScenarioSteps steps = new StoredScenarioSteps(repository(STEPS), new ObjectMapper(), prefetchExecutor,
+            1L, STEPS, PREFETCH);
+
+        CompletableFuture<?> read = steps.pendingRead(0);
+        assertNotNull(read);
+        assertFalse(read.isDone());
+        assertEquals(read, steps.pendingRead(0), "the fetch is started once");
+
+        databaseAnswers.countDown();
+        read.get(5, TimeUnit.SECONDS);
+        assertNull(steps.pendingRead(0));
+        assertEquals("0000", steps.get(0).getCaseNo());
+        assertEquals("1234", steps.get(0).getRequestData().get("cardNo"));
+
+        // Every step can be had without waiting once its page is in
+        for (int i = 1; i < STEPS; i++) {
+            CompletableFuture<?> next = steps.pendingRead(i);
+            if (next != null) {
+                next.get(5, TimeUnit.SECONDS);
+            }
+            assertEquals(String.format("%04d", i), steps.get(i).getCaseNo());
+        }
+    }
+
+    @Test
+    void failsTheStepWhenThePageCannotBeRead() throws Exception {
+        TestStepRepository broken = (TestStepRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {TestStepRepository.class}, (proxy, method, args) -> {
+                throw new IllegalStateException("database down");
+            });
+        StoredScenarioSteps steps = new StoredScenarioSteps(broken, new ObjectMapper(), prefetchExecutor,
+            1L, STEPS, PREFETCH);
+
+        CompletableFuture<?> read = steps.pendingRead(0);
+        if (read != null) {
+            assertThrows(Exception.class, () -> read.get(5, TimeUnit.SECONDS));
+        }
+        assertThrows(IllegalStateException.class, () -> steps.get(0));
+        assertNull(steps.pendingRead(1), "a failed read does not start another fetch");
+    }
+
+    private TestStepRepository repository(int stepCount) {
+        List<TestStepEntity> rows = new ArrayList<>();
+        for (int i = 0; i < stepCount; i++) {
+            TestStepEntity row = new TestStepEntity();
+            row.setStepId((long) i + 100);
+            row.setStepOrder(i);
+            row.setCaseNo(String.format("%04d", i));
+            row.setRequestJson("{\"cardNo\":\"1234\"}");
+            rows.add(row);
+        }
+        return (TestStepRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[] {TestStepRepository.class}, (proxy, method, args) -> {
+                if (!method.getName().equals("findStepsAfter")) {
+                    throw new UnsupportedOperationException(method.getName());
+                }
+                databaseAnswers.await();
+                int afterOrder = (Integer) args[1];
+                int pageSize = ((Pageable) args[3]).getPageSize();
+                List<TestStepEntity> page = new ArrayList<>();
+                for (TestStepEntity row : rows) {
+                    if (row.getStepOrder() > afterOrder && page.size() < pageSize) {
+                        page.add(row);
+                    }
+                }
+                return page;
+            });
+    }
+}
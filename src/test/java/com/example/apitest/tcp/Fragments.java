@@ -0,0 +1,67 @@
+package com.example.apitest.tcp;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Splits telegrams into the 1 to 3 byte pieces a loaded network may deliver them in.
+ */
+final class Fragments {
+
+    private Fragments() {
+    }
+
+    /**
+     * Stream over {@code data} whose reads return at most 1 to 3 bytes each.
+     */
+    static InputStream inputStream(byte[] data, long seed) {
+        Random random = new Random(seed);
+        return new ByteArrayInputStream(data) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1 + random.nextInt(3)));
+            }
+        };
+    }
+
+    /**
+     * Write {@code data} in 1 to 3 byte pieces, each flushed and followed by a short pause,
+     * so that with TCP_NODELAY every piece goes out as its own segment.
+     */
+    static void write(OutputStream out, byte[] data, Random random) throws IOException {
+        int position = 0;
+        while (position < data.length) {
+            int length = Math.min(data.length - position, 1 + random.nextInt(3));
+            out.write(data, position, length);
+            out.flush();
+            position += length;
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while writing fragments", e);
+            }
+        }
+    }
+
+    /**
+     * Frames of {@code framing} for each telegram, back to back as one coalesced segment would carry them.
+     */
+    static byte[] frames(TelegramFraming framing, byte[]... telegrams) {
+        int length = 0;
+        for (byte[] telegram : telegrams) {
+            length += framing.frameLength(telegram.length);
+        }
+        byte[] data = new byte[length];
+        int position = 0;
+        for (byte[] telegram : telegrams) {
+            framing.writeHeader(data, position, telegram.length);
+            System.arraycopy(telegram, 0, data, position + framing.getHeaderLength(), telegram.length);
+            position += framing.frameLength(telegram.length);
+        }
+        return data;
+    }
+}
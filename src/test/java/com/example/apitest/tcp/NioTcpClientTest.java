@@ -0,0 +1,165 @@
+package com.example.apitest.tcp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * The client's non-blocking read path must complete each exchange with exactly its response frame,
+ * however the host's writes are split or joined.
+ */
+class NioTcpClientTest {
+
+    private static final int REQUEST_LENGTH = 30;
+    private static final int RESPONSE_LENGTH = 37;
+
+    private ServerSocket host;
+    private NioTcpClient client;
+
+    @AfterEach
+    void close() throws IOException {
+        if (client != null) {
+            client.close();
+        }
+        if (host != null) {
+            host.close();
+        }
+    }
+
+    @Test
+    void completesFixedResponsesWrittenInOneToThreeBytePieces() throws Exception {
+        exchange(TelegramFraming.fixed(), false);
+    }
+
+    @Test
+    void completesLengthPrefixedResponsesWrittenInOneToThreeBytePieces() throws Exception {
+        exchange(new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, false), false);
+    }
+
+    @Test
+    void completesCoalescedFixedResponses() throws Exception {
+        exchange(TelegramFraming.fixed(), true);
+    }
+
+    @Test
+    void completesCoalescedLengthPrefixedResponses() throws Exception {
+        exchange(new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, true), true);
+    }
+
+    @Test
+    void expiresOnlyTheExchangePastItsDeadline() throws Exception {
+        TelegramFraming framing = TelegramFraming.fixed();
+        host = new ServerSocket(0);
+        Thread thread = new Thread(() -> {
+            try (Socket socket = host.accept()) {
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                byte[] request = new byte[REQUEST_LENGTH];
+                in.readFully(request);
+                in.readFully(request);
+                // Answer both only after the first one's deadline
+                Thread.sleep(400);
+                socket.getOutputStream().write(Fragments.frames(framing, response(0), response(1)));
+                socket.getOutputStream().flush();
+                in.read();
+            } catch (IOException | InterruptedException e) {
+                // Client closed the connection at the end of the test
+            }
+        }, "late-host");
+        thread.setDaemon(true);
+        thread.start();
+        client = new NioTcpClient("localhost", host.getLocalPort(), 1, 1, 2, framing, 5000, 10000);
+
+        CompletableFuture<byte[]> late = client.send(request(0), RESPONSE_LENGTH,
+            System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(150));
+        CompletableFuture<byte[]> next = client.send(request(1), RESPONSE_LENGTH);
+
+        ExecutionException timeout = assertThrows(ExecutionException.class, () -> late.get(10, TimeUnit.SECONDS));
+        assertEquals(SocketTimeoutException.class, timeout.getCause().getClass());
+        // The late response is discarded, the next exchange still gets its own
+        assertArrayEquals(response(1), next.get(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Send pipelined requests to a host that echoes each request's first byte in its response, either in
+     * 1 to 3 byte pieces or all responses of a batch in one write.
+     */
+    private void exchange(TelegramFraming framing, boolean coalesced) throws Exception {
+        int batch = 8;
+        startHost(framing, batch, coalesced);
+        client = new NioTcpClient("localhost", host.getLocalPort(), 1, 1, batch, framing, 5000, 10000);
+
+        List<CompletableFuture<byte[]>> responses = new ArrayList<>();
+        for (int i = 0; i < batch * 4; i++) {
+            responses.add(client.send(request(i), RESPONSE_LENGTH));
+        }
+        for (int i = 0; i < responses.size(); i++) {
+            assertArrayEquals(response(i), responses.get(i).get(10, TimeUnit.SECONDS), "response " + i);
+        }
+    }
+
+    private void startHost(TelegramFraming framing, int batch, boolean coalesced) throws IOException {
+        host = new ServerSocket(0);
+        Thread thread = new Thread(() -> {
+            try (Socket socket = host.accept()) {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(socket.getInputStream());
+                OutputStream out = socket.getOutputStream();
+                Random random = new Random(11);
+                byte[] request = new byte[framing.frameLength(REQUEST_LENGTH)];
+                while (true) {
+                    byte[][] telegrams = new byte[batch][];
+                    for (int i = 0; i < batch; i++) {
+                        in.readFully(request);
+                        telegrams[i] = response(request[framing.getHeaderLength()]);
+                    }
+                    if (coalesced) {
+                        out.write(Fragments.frames(framing, telegrams));
+                        out.flush();
+                    } else {
+                        for (byte[] telegram : telegrams) {
+                            Fragments.write(out, Fragments.frames(framing, telegram), random);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                // Client closed the connection at the end of the test
+            }
+        }, "fragmenting-host");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static byte[] request(int index) {
+        byte[] request = new byte[REQUEST_LENGTH];
+        Arrays.fill(request, (byte) '0');
+        request[0] = (byte) ('A' + index % 26);
+        return request;
+    }
+
+    private static byte[] response(int index) {
+        return response((byte) ('A' + index % 26));
+    }
+
+    private static byte[] response(byte marker) {
+        byte[] response = new byte[RESPONSE_LENGTH];
+        Arrays.fill(response, marker);
+        return response;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.apitest.tcp;
+
+import com.example.apitest.mock.MockRuleRegistry;
+import com.example.apitest.mock.MockTransactionStore;
+import com.example.apitest.telegram.TelegramLayout;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The mock's non-blocking read path must answer every request however TCP splits or joins the frames.
+ */
+class TcpMockServerTest {
+
+    private static final Map<String, String> APPROVED = Map.of(
+        "cardNo", "1234567890123456", "settlementAmount", "10000", "requestMethod", "01");
+    private static final Map<String, String> REJECTED = Map.of(
+        "cardNo", "9999567890123456", "settlementAmount", "20000", "requestMethod", "02");
+
+    private TcpMockServer server;
+    private TelegramLayout requestLayout;
+    private TelegramLayout responseLayout;
+
+    @AfterEach
+    void stopServer() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    void answersFixedRequestsWrittenInOneToThreeBytePieces() throws Exception {
+        answersFragmentedRequests(TelegramFraming.FIXED, false);
+    }
+
+    @Test
+    void answersLengthPrefixedRequestsWrittenInOneToThreeBytePieces() throws Exception {
+        answersFragmentedRequests(TelegramFraming.LENGTH_PREFIXED, false);
+    }
+
+    @Test
+    void answersCoalescedFixedRequestsInOrder() throws Exception {
+        answersCoalescedRequests(TelegramFraming.FIXED, false);
+    }
+
+    @Test
+    void answersCoalescedLengthPrefixedRequestsInOrder() throws Exception {
+        answersCoalescedRequests(TelegramFraming.LENGTH_PREFIXED, true);
+    }
+
+    private void answersFragmentedRequests(String mode, boolean lengthIncludesHeader) throws Exception {
+        TelegramFraming framing = startServer(mode, lengthIncludesHeader);
+        Random random = new Random(42);
+        try (Socket socket = connect()) {
+            for (int i = 0; i < 20; i++) {
+                Map<String, String> request = i % 2 == 0 ? APPROVED : REJECTED;
+                Fragments.write(socket.getOutputStream(), Fragments.frames(framing, requestLayout.encode(request)), random);
+
+                assertEquals(i % 2 == 0 ? "0000" : "9999", readResponseCode(framing, socket));
+            }
+        }
+    }
+
+    private void answersCoalescedRequests(String mode, boolean lengthIncludesHeader) throws Exception {
+        TelegramFraming framing = startServer(mode, lengthIncludesHeader);
+        byte[][] telegrams = new byte[200][];
+        for (int i = 0; i < telegrams.length; i++) {
+            telegrams[i] = requestLayout.encode(i % 3 == 0 ? REJECTED : APPROVED);
+        }
+        byte[] data = Fragments.frames(framing, telegrams);
+        try (Socket socket = connect()) {
+            // 150 frames and the start of the next in one write, the rest in a second one
+            int split = framing.frameLength(requestLayout.getLength()) * 150 + 7;
+            socket.getOutputStream().write(data, 0, split);
+            socket.getOutputStream().flush();
+            Thread.sleep(20);
+            socket.getOutputStream().write(data, split, data.length - split);
+            socket.getOutputStream().flush();
+
+            for (int i = 0; i < telegrams.length; i++) {
+                assertEquals(i % 3 == 0 ? "9999" : "0000", readResponseCode(framing, socket), "response " + i);
+            }
+        }
+    }
+
+    private TelegramFraming startServer(String mode, boolean lengthIncludesHeader) throws IOException {
+        TelegramLayoutRegistry layoutRegistry = new TelegramLayoutRegistry();
+        layoutRegistry.load();
+        requestLayout = layoutRegistry.get("approval-request");
+        responseLayout = layoutRegistry.get("approval-response");
+
+        MockRuleRegistry ruleRegistry = new MockRuleRegistry();
+        ReflectionTestUtils.setField(ruleRegistry, "layoutRegistry", layoutRegistry);
+        ReflectionTestUtils.setField(ruleRegistry, "reloadIntervalMs", 0L);
+        ruleRegistry.load();
+        MockTransactionStore transactionStore = new MockTransactionStore();
+        ReflectionTestUtils.setField(transactionStore, "capacity", 1000);
+        transactionStore.init();
+
+        server = new TcpMockServer();
+        ReflectionTestUtils.setField(server, "port", 0);
+        ReflectionTestUtils.setField(server, "ioThreads", 1);
+        ReflectionTestUtils.setField(server, "layoutRegistry", layoutRegistry);
+        ReflectionTestUtils.setField(server, "ruleRegistry", ruleRegistry);
+        ReflectionTestUtils.setField(server, "transactionStore", transactionStore);
+        ReflectionTestUtils.setField(server, "framingMode", mode);
+        ReflectionTestUtils.setField(server, "framingLengthIncludesHeader", lengthIncludesHeader);
+        server.start();
+        return new TelegramFraming(mode, 4, lengthIncludesHeader);
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(5000);
+        socket.connect(new InetSocketAddress("localhost", server.getPort()), 5000);
+        return socket;
+    }
+
+    private String readResponseCode(TelegramFraming framing, Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        byte[] buffer = new byte[framing.frameLength(responseLayout.getLength())];
+        assertEquals(responseLayout.getLength(), framing.readFrame(socket, in, buffer, responseLayout.getLength(), 0));
+        return responseLayout.decodeField(buffer, framing.getHeaderLength(), responseLayout.fieldIndex("responseCode")).trim();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.apitest.tcp;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TelegramFramingTest {
+
+    private static final List<TelegramFraming> FRAMINGS = List.of(
+        TelegramFraming.fixed(),
+        new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, false),
+        new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, true));
+
+    private static final byte[] FIRST = telegram("1234567890123456000000010000", "01");
+    private static final byte[] SECOND = telegram("9999567890123456000000020000", "02");
+
+    @Test
+    void readsFrameDeliveredInOneToThreeBytePieces() throws IOException {
+        for (TelegramFraming framing : FRAMINGS) {
+            for (long seed = 0; seed < 50; seed++) {
+                InputStream in = Fragments.inputStream(Fragments.frames(framing, FIRST), seed);
+                byte[] buffer = new byte[framing.frameLength(FIRST.length)];
+
+                assertEquals(FIRST.length, framing.readFrame(null, in, buffer, FIRST.length, 0));
+                assertArrayEquals(FIRST, telegramOf(framing, buffer, FIRST.length));
+                assertEquals(-1, framing.readFrame(null, in, buffer, FIRST.length, 0));
+            }
+        }
+    }
+
+    @Test
+    void readsCoalescedFramesOneAtATime() throws IOException {
+        for (TelegramFraming framing : FRAMINGS) {
+            byte[] data = Fragments.frames(framing, FIRST, SECOND, FIRST);
+            for (InputStream in : List.of(new ByteArrayInputStream(data), Fragments.inputStream(data, 7))) {
+                byte[] buffer = new byte[framing.frameLength(FIRST.length)];
+
+                assertEquals(FIRST.length, framing.readFrame(null, in, buffer, FIRST.length, 0));
+                assertArrayEquals(FIRST, telegramOf(framing, buffer, FIRST.length));
+                assertEquals(SECOND.length, framing.readFrame(null, in, buffer, SECOND.length, 0));
+                assertArrayEquals(SECOND, telegramOf(framing, buffer, SECOND.length));
+                assertEquals(FIRST.length, framing.readFrame(null, in, buffer, FIRST.length, 0));
+                assertArrayEquals(FIRST, telegramOf(framing, buffer, FIRST.length));
+                assertEquals(-1, framing.readFrame(null, in, buffer, FIRST.length, 0));
+            }
+        }
+    }
+
+    @Test
+    void failsWhenTheConnectionClosesMidFrame() {
+        for (TelegramFraming framing : FRAMINGS) {
+            byte[] frame = Fragments.frames(framing, FIRST);
+            for (int cut : new int[] {1, framing.getHeaderLength() + 1, frame.length - 1}) {
+                InputStream in = Fragments.inputStream(Arrays.copyOf(frame, cut), cut);
+                byte[] buffer = new byte[frame.length];
+
+                assertThrows(EOFException.class, () -> framing.readFrame(null, in, buffer, FIRST.length, 0));
+            }
+        }
+    }
+
+    @Test
+    void rejectsAnnouncedLengthLargerThanTheBuffer() {
+        TelegramFraming framing = new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, false);
+        InputStream in = Fragments.inputStream(Fragments.frames(framing, SECOND), 3);
+        byte[] buffer = new byte[framing.frameLength(SECOND.length - 1)];
+
+        assertThrows(IOException.class, () -> framing.readFrame(null, in, buffer, SECOND.length - 1, 0));
+    }
+
+    @Test
+    void peeksFrameLengthOnlyOnceTheHeaderIsComplete() throws IOException {
+        for (TelegramFraming framing : FRAMINGS) {
+            byte[] data = Fragments.frames(framing, FIRST, SECOND);
+            ByteBuffer buffer = ByteBuffer.allocate(data.length);
+            int frameLength = framing.frameLength(FIRST.length);
+
+            // Bytes arrive one at a time, as a non-blocking reader sees them
+            for (int received = 0; received < data.length; received++) {
+                buffer.flip();
+                int peeked = framing.peekFrameLength(buffer, FIRST.length);
+                assertEquals(received < framing.getHeaderLength() ? -1 : frameLength, peeked);
+                buffer.compact();
+                buffer.put(data[received]);
+            }
+
+            // Both frames coalesced in the buffer: the first one is cut at its own length
+            buffer.flip();
+            assertEquals(frameLength, framing.peekFrameLength(buffer, FIRST.length));
+            buffer.position(buffer.position() + frameLength);
+            assertEquals(framing.frameLength(SECOND.length), framing.peekFrameLength(buffer, SECOND.length));
+        }
+    }
+
+    @Test
+    void rejectsNonDigitLengthHeader() {
+        TelegramFraming framing = new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, false);
+        byte[] data = "00x0".getBytes(StandardCharsets.US_ASCII);
+
+        assertThrows(IOException.class, () -> framing.peekFrameLength(ByteBuffer.wrap(data), 0));
+        assertThrows(IOException.class, () -> framing.readFrame(null, Fragments.inputStream(data, 1), new byte[64], 0, 0));
+    }
+
+    @Test
+    void writesHeaderWithOrWithoutItsOwnLength() throws IOException {
+        byte[] header = new byte[4];
+
+        new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, false).writeHeader(header, 0, 30);
+        assertEquals("0030", new String(header, StandardCharsets.US_ASCII));
+        new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, true).writeHeader(header, 0, 30);
+        assertEquals("0034", new String(header, StandardCharsets.US_ASCII));
+        assertEquals(30, new TelegramFraming(TelegramFraming.LENGTH_PREFIXED, 4, true).readHeader(header, 0));
+    }
+
+    private static byte[] telegram(String digits, String method) {
+        return (digits + method).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static byte[] telegramOf(TelegramFraming framing, byte[] buffer, int length) {
+        return Arrays.copyOfRange(buffer, framing.getHeaderLength(), framing.getHeaderLength() + length);
+    }
+}
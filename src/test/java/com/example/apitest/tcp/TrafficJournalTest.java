@@ -0,0 +1,145 @@
+package com.example.apitest.tcp;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficJournalTest {
+
+    private static final int REQUEST_LENGTH = 30;
+    private static final int RESPONSE_LENGTH = 37;
+    private static final int RECORD_LENGTH = 1 + REQUEST_LENGTH + RESPONSE_LENGTH;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasAppendedAfterReopening() throws IOException {
+        Path path = directory.resolve("journal.dat");
+        try (TrafficJournal journal = TrafficJournal.openForAppend(path, REQUEST_LENGTH, RESPONSE_LENGTH, 100)) {
+            for (int i = 0; i < 10; i++) {
+                // Telegrams are taken from the middle of larger buffers
+                byte[] request = padded(telegram(REQUEST_LENGTH, i));
+                byte[] response = padded(telegram(RESPONSE_LENGTH, 100 + i));
+                assertTrue(journal.append(request, 3, response, 3));
+            }
+        }
+
+        try (TrafficJournal journal = TrafficJournal.openForRead(path, REQUEST_LENGTH, RESPONSE_LENGTH)) {
+            assertEquals(10, journal.getRecordCount());
+            byte[] request = new byte[REQUEST_LENGTH + 2];
+            byte[] response = new byte[RESPONSE_LENGTH];
+            for (int record = 0; record < 10; record++) {
+                assertTrue(journal.isCommitted(record));
+                journal.copyRequest(record, request, 2);
+                journal.copyResponse(record, response, 0);
+                byte[] expected = telegram(REQUEST_LENGTH, record);
+                for (int i = 0; i < REQUEST_LENGTH; i++) {
+                    assertEquals(expected[i], request[2 + i]);
+                }
+                assertArrayEquals(telegram(RESPONSE_LENGTH, 100 + record), response);
+                assertTrue(journal.requestEquals(record, 5, 10, padded(expected), 3 + 5));
+            }
+        }
+    }
+
+    @Test
+    void reopeningContinuesAfterTheLastCommittedRecord() throws IOException {
+        Path path = directory.resolve("journal.dat");
+        appendRecords(path, 0, 3);
+        // The appender of the last record died before committing it
+        uncommit(path, 2);
+
+        try (TrafficJournal journal = TrafficJournal.openForAppend(path, REQUEST_LENGTH, RESPONSE_LENGTH, 100)) {
+            assertEquals(2, journal.getRecordCount());
+            journal.append(telegram(REQUEST_LENGTH, 3), 0, telegram(RESPONSE_LENGTH, 103), 0);
+        }
+
+        try (TrafficJournal journal = TrafficJournal.openForRead(path, REQUEST_LENGTH, RESPONSE_LENGTH)) {
+            assertEquals(3, journal.getRecordCount());
+            byte[] response = new byte[RESPONSE_LENGTH];
+            journal.copyResponse(2, response, 0);
+            assertArrayEquals(telegram(RESPONSE_LENGTH, 103), response, "the uncommitted record was overwritten");
+        }
+    }
+
+    @Test
+    void uncommittedRecordBetweenCommittedOnesIsKept() throws IOException {
+        Path path = directory.resolve("journal.dat");
+        appendRecords(path, 0, 3);
+        uncommit(path, 1);
+
+        try (TrafficJournal journal = TrafficJournal.openForAppend(path, REQUEST_LENGTH, RESPONSE_LENGTH, 100)) {
+            assertEquals(3, journal.getRecordCount());
+            assertFalse(journal.isCommitted(1));
+            journal.append(telegram(REQUEST_LENGTH, 3), 0, telegram(RESPONSE_LENGTH, 103), 0);
+            assertEquals(4, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    void refusesAppendsOnceFull() throws IOException {
+        Path path = directory.resolve("journal.dat");
+        try (TrafficJournal journal = TrafficJournal.openForAppend(path, REQUEST_LENGTH, RESPONSE_LENGTH, 2)) {
+            byte[] request = telegram(REQUEST_LENGTH, 0);
+            byte[] response = telegram(RESPONSE_LENGTH, 0);
+            assertTrue(journal.append(request, 0, response, 0));
+            assertTrue(journal.append(request, 0, response, 0));
+            assertFalse(journal.isFull());
+
+            assertFalse(journal.append(request, 0, response, 0));
+            assertTrue(journal.isFull());
+            assertEquals(2, journal.getRecordCount());
+        }
+    }
+
+    @Test
+    void refusesAJournalOfOtherTelegramLengths() throws IOException {
+        Path path = directory.resolve("journal.dat");
+        appendRecords(path, 0, 1);
+
+        assertThrows(IOException.class,
+            () -> TrafficJournal.openForRead(path, REQUEST_LENGTH + 1, RESPONSE_LENGTH));
+        assertThrows(IOException.class,
+            () -> TrafficJournal.openForAppend(path, REQUEST_LENGTH, RESPONSE_LENGTH - 1, 100));
+    }
+
+    private static void appendRecords(Path path, int from, int to) throws IOException {
+        try (TrafficJournal journal = TrafficJournal.openForAppend(path, REQUEST_LENGTH, RESPONSE_LENGTH, 100)) {
+            for (int i = from; i < to; i++) {
+                journal.append(telegram(REQUEST_LENGTH, i), 0, telegram(RESPONSE_LENGTH, 100 + i), 0);
+            }
+        }
+    }
+
+    private static void uncommit(Path path, int record) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(TrafficJournal.HEADER_LENGTH + (long) record * RECORD_LENGTH);
+            file.write(0);
+        }
+    }
+
+    private static byte[] telegram(int length, int seed) {
+        byte[] telegram = new byte[length];
+        for (int i = 0; i < length; i++) {
+            telegram[i] = (byte) ('0' + (seed + i) % 10);
+        }
+        telegram[0] = (byte) seed;
+        return telegram;
+    }
+
+    private static byte[] padded(byte[] telegram) {
+        byte[] buffer = new byte[telegram.length + 6];
+        System.arraycopy(telegram, 0, buffer, 3, telegram.length);
+        return buffer;
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.apitest.tcp;
+
+import com.example.apitest.telegram.TelegramLayout;
+import com.example.apitest.telegram.TelegramLayoutRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TrafficReplayIndexTest {
+
+    @TempDir
+    Path directory;
+
+    private TelegramLayout requestLayout;
+    private TelegramLayout responseLayout;
+    private Path path;
+    private TrafficJournal journal;
+
+    @BeforeEach
+    void loadLayouts() throws IOException {
+        TelegramLayoutRegistry layoutRegistry = new TelegramLayoutRegistry();
+        layoutRegistry.load();
+        requestLayout = layoutRegistry.get("approval-request");
+        responseLayout = layoutRegistry.get("approval-response");
+    }
+
+    @AfterEach
+    void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Test
+    void answersEveryRecordedRequestWithItsResponse() throws IOException {
+        try (TrafficJournal appender = openForAppend()) {
+            for (int i = 0; i < 1000; i++) {
+                record(appender, request(card(i), "10000", "01"), response(i));
+            }
+        }
+
+        TrafficReplayIndex index = new TrafficReplayIndex(openForRead(), requestLayout, List.of());
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(approvalNo(i), replay(index, request(card(i), "10000", "01")));
+        }
+        assertEquals(-1, index.find(request(card(1000), "10000", "01"), 0));
+        assertEquals(-1, index.find(request(card(0), "10000", "02"), 0), "whole telegram is the key");
+        assertEquals(1000, index.getHits());
+        assertEquals(2, index.getMisses());
+    }
+
+    @Test
+    void answersWithTheLastResponseRecordedForARequest() throws IOException {
+        try (TrafficJournal appender = openForAppend()) {
+            record(appender, request(card(1), "10000", "01"), response(1));
+            record(appender, request(card(2), "10000", "01"), response(2));
+            record(appender, request(card(1), "10000", "01"), response(3));
+        }
+
+        TrafficReplayIndex index = new TrafficReplayIndex(openForRead(), requestLayout, null);
+
+        assertEquals(2, index.size());
+        assertEquals(approvalNo(3), replay(index, request(card(1), "10000", "01")));
+    }
+
+    @Test
+    void matchesOnKeyFieldsWhateverTheOtherFieldsHold() throws IOException {
+        try (TrafficJournal appender = openForAppend()) {
+            record(appender, request(card(1), "10000", "01"), response(1));
+            record(appender, request(card(2), "20000", "01"), response(2));
+        }
+
+        TrafficReplayIndex index = new TrafficReplayIndex(openForRead(), requestLayout,
+            List.of("cardNo", " settlementAmount"));
+
+        assertEquals(approvalNo(1), replay(index, request(card(1), "10000", "02")));
+        assertEquals(approvalNo(2), replay(index, request(card(2), "20000", "99")));
+        assertEquals(-1, index.find(request(card(1), "20000", "01"), 0), "a key field differs");
+    }
+
+    @Test
+    void skipsRecordsThatWereNeverCommitted() throws IOException {
+        try (TrafficJournal appender = openForAppend()) {
+            record(appender, request(card(1), "10000", "01"), response(1));
+            record(appender, request(card(2), "10000", "01"), response(2));
+            record(appender, request(card(3), "10000", "01"), response(3));
+        }
+        // The appender of the second record died before committing it
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            file.seek(TrafficJournal.HEADER_LENGTH + 1L + requestLayout.getLength() + responseLayout.getLength());
+            file.write(0);
+        }
+
+        TrafficReplayIndex index = new TrafficReplayIndex(openForRead(), requestLayout, List.of());
+
+        assertEquals(2, index.size());
+        assertEquals(-1, index.find(request(card(2), "10000", "01"), 0));
+        assertEquals(approvalNo(3), replay(index, request(card(3), "10000", "01")));
+    }
+
+    @Test
+    void rejectsAKeyFieldTheLayoutDoesNotHave() throws IOException {
+        openForAppend().close();
+
+        assertThrows(IllegalArgumentException.class,
+            () -> new TrafficReplayIndex(openForRead(), requestLayout, List.of("cardNo", "terminalId")));
+    }
+
+    private TrafficJournal openForAppend() throws IOException {
+        path = directory.resolve("journal.dat");
+        return TrafficJournal.openForAppend(path, requestLayout.getLength(), responseLayout.getLength(), 10000);
+    }
+
+    private TrafficJournal openForRead() throws IOException {
+        journal = TrafficJournal.openForRead(path, requestLayout.getLength(), responseLayout.getLength());
+        return journal;
+    }
+
+    private static void record(TrafficJournal journal, byte[] request, byte[] response) throws IOException {
+        journal.append(request, 0, response, 0);
+    }
+
+    private String replay(TrafficReplayIndex index, byte[] request) throws IOException {
+        int record = index.find(request, 0);
+        assertTrue(record >= 0, "recorded");
+        byte[] response = new byte[responseLayout.getLength()];
+        index.copyResponse(record, response, 0);
+        return responseLayout.decodeField(response, 0, responseLayout.fieldIndex("approvalNo")).trim();
+    }
+
+    private byte[] request(String cardNo, String amount, String method) {
+        return requestLayout.encode(Map.of("cardNo", cardNo, "settlementAmount", amount, "requestMethod", method));
+    }
+
+    private byte[] response(int i) {
+        return responseLayout.encode(Map.of("responseCode", "0000", "approvalNo", approvalNo(i)));
+    }
+
+    private static String card(int i) {
+        return String.format("1234%012d", i);
+    }
+
+    private static String approvalNo(int i) {
+        return String.format("%012d", i);
+    }
+}